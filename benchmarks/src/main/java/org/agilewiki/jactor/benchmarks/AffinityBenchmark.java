@@ -0,0 +1,70 @@
+package org.agilewiki.jactor.benchmarks;
+
+import org.agilewiki.jactor.JAFuture;
+import org.agilewiki.jactor.JAMailboxFactory;
+import org.agilewiki.jactor.concurrent.JAWorkStealingThreadManager;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Repeated sweeps over many actors, each with 32KB of state and an asynchronous mailbox,
+ * run by a JAWorkStealingThreadManager. With home workers, each actor is usually processed
+ * by the same worker, so its state is still in that core's cache on the next sweep.
+ * Without them, an actor is processed by whichever worker is free, and its state
+ * must be fetched from the cache of another core, or another socket.
+ * Grouping the workers into nodes keeps the stealing between workers of the same socket
+ * when nodeSize is the number of cores per socket.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AffinityBenchmark {
+    private static final int CELLS_PER_THREAD = 8;
+    private static final int STATE_SIZE = 4096;
+
+    /**
+     * True when each mailbox has a home worker.
+     */
+    @Param({"false", "true"})
+    public boolean homeWorkers;
+
+    /**
+     * The number of workers in each node, or 0 for a single node.
+     */
+    @Param({"0"})
+    public int nodeSize;
+
+    private JAMailboxFactory mailboxFactory;
+    private Sweeper sweeper;
+    private JAFuture future;
+
+    @Setup
+    public void setup() {
+        int threadCount = Math.max(2, Runtime.getRuntime().availableProcessors());
+        mailboxFactory = new JAMailboxFactory(
+                JAWorkStealingThreadManager.newThreadManager(threadCount, nodeSize, null));
+        mailboxFactory.setHomeWorkers(homeWorkers);
+        Cell[] cells = new Cell[threadCount * CELLS_PER_THREAD];
+        int i = 0;
+        while (i < cells.length) {
+            cells[i] = new Cell(mailboxFactory.createAsyncMailbox(), STATE_SIZE);
+            i += 1;
+        }
+        sweeper = new Sweeper(mailboxFactory.createAsyncMailbox(), cells);
+        future = new JAFuture();
+    }
+
+    @TearDown
+    public void tearDown() {
+        mailboxFactory.close();
+    }
+
+    @Benchmark
+    public Object sweep() throws Exception {
+        return Sweep.req.send(future, sweeper);
+    }
+}
@@ -0,0 +1,74 @@
+package org.agilewiki.jactor.benchmarks;
+
+import org.agilewiki.jactor.Actor;
+import org.agilewiki.jactor.JABulkFuture;
+import org.agilewiki.jactor.JAFuture;
+import org.agilewiki.jactor.JAMailboxFactory;
+import org.agilewiki.jactor.lpc.Request;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A fan-out of requests from a thread outside the actor system,
+ * sent one at a time with JAFuture or as a batch with JABulkFuture.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BulkFutureBenchmark {
+    @Param({"64"})
+    public int requestCount;
+
+    @Param({"4"})
+    public int mailboxCount;
+
+    private JAMailboxFactory mailboxFactory;
+    private Actor[] actors;
+    private Request[] requests;
+    private JAFuture future;
+
+    @Setup
+    public void setup() {
+        mailboxFactory = JAMailboxFactory.newMailboxFactory(1);
+        Ponger[] pongers = new Ponger[mailboxCount];
+        int i = 0;
+        while (i < mailboxCount) {
+            pongers[i] = new Ponger(mailboxFactory.createAsyncMailbox());
+            i += 1;
+        }
+        actors = new Actor[requestCount];
+        requests = new Request[requestCount];
+        i = 0;
+        while (i < requestCount) {
+            actors[i] = pongers[i % mailboxCount];
+            requests[i] = Ping.req;
+            i += 1;
+        }
+        future = new JAFuture();
+    }
+
+    @TearDown
+    public void tearDown() {
+        mailboxFactory.close();
+    }
+
+    @Benchmark
+    public Object oneAtATime() throws Exception {
+        Object response = null;
+        int i = 0;
+        while (i < requestCount) {
+            response = Ping.req.send(future, actors[i]);
+            i += 1;
+        }
+        return response;
+    }
+
+    @Benchmark
+    public Object bulk() throws Exception {
+        return new JABulkFuture().send(actors, requests);
+    }
+}
@@ -0,0 +1,26 @@
+package org.agilewiki.jactor.benchmarks;
+
+import org.agilewiki.jactor.Mailbox;
+import org.agilewiki.jactor.RP;
+import org.agilewiki.jactor.lpc.JLPCActor;
+
+/**
+ * Benchmark code: an actor with enough state to fill a good part of a core's L1/L2 cache.
+ */
+final public class Cell extends JLPCActor {
+    private final long[] state;
+
+    public Cell(Mailbox mailbox, int stateSize) {
+        super(mailbox);
+        state = new long[stateSize];
+    }
+
+    public void processRequest(Touch request, RP rp) throws Exception {
+        int i = 0;
+        while (i < state.length) {
+            state[i] += i;
+            i += 1;
+        }
+        rp.processResponse(null);
+    }
+}
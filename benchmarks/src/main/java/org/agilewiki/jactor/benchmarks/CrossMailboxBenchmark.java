@@ -0,0 +1,75 @@
+package org.agilewiki.jactor.benchmarks;
+
+import org.agilewiki.jactor.JAFuture;
+import org.agilewiki.jactor.JAMailboxFactory;
+import org.agilewiki.jactor.Mailbox;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Request/response round trips between actors with different mailboxes.
+ * When the target mailbox is asynchronous, each request and response passes between threads.
+ * Otherwise the sending thread commandeers the target mailbox (acquireControl)
+ * and the request is processed synchronously.
+ * <p>
+ * Note that gc.alloc.rate.norm only includes what the benchmark thread allocates,
+ * not what the mailbox threads allocate. RecyclingTest counts the allocations of all threads.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CrossMailboxBenchmark {
+    private static final int ROUND_TRIPS = 1000;
+
+    /**
+     * True when the target mailbox is asynchronous.
+     */
+    @Param({"true", "false"})
+    public boolean async;
+
+    /**
+     * The size of the envelope pools, or 0 when envelopes are not recycled.
+     */
+    @Param({"0", "256"})
+    public int recyclingPoolSize;
+
+    /**
+     * The threshold of the adaptive commandeer policy in nanoseconds,
+     * or 0 when the mailboxes have no commandeer policy.
+     */
+    @Param({"0", "20000"})
+    public long commandeerThreshold;
+
+    private JAMailboxFactory mailboxFactory;
+    private Pinger pinger;
+    private JAFuture future;
+
+    @Setup
+    public void setup() {
+        mailboxFactory = JAMailboxFactory.newMailboxFactory(2);
+        mailboxFactory.setRecyclingPoolSize(recyclingPoolSize);
+        mailboxFactory.setAdaptiveCommandeerThreshold(commandeerThreshold);
+        Mailbox targetMailbox = async ?
+                mailboxFactory.createAsyncMailbox() :
+                mailboxFactory.createMailbox();
+        Ponger ponger = new Ponger(targetMailbox);
+        pinger = new Pinger(mailboxFactory.createMailbox(), ponger, ROUND_TRIPS);
+        future = new JAFuture();
+    }
+
+    @TearDown
+    public void tearDown() {
+        mailboxFactory.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROUND_TRIPS)
+    public Object roundTrip() throws Exception {
+        return Run.req.send(future, pinger);
+    }
+}
@@ -0,0 +1,29 @@
+package org.agilewiki.jactor.benchmarks;
+
+import org.agilewiki.jactor.Mailbox;
+import org.agilewiki.jactor.RP;
+import org.agilewiki.jactor.lpc.JLPCActor;
+import org.agilewiki.jactor.parallel.JAResponseCounter;
+
+/**
+ * Benchmark code: sends the same Work to every worker and responds when all have finished.
+ */
+final public class Driver extends JLPCActor {
+    private final Worker[] workers;
+    private final Work work;
+
+    public Driver(Mailbox mailbox, Worker[] workers, Work work) {
+        super(mailbox);
+        this.workers = workers;
+        this.work = work;
+    }
+
+    public void processRequest(FanOut request, RP rp) throws Exception {
+        JAResponseCounter responseCounter = new JAResponseCounter(workers.length, rp);
+        int i = 0;
+        while (i < workers.length) {
+            send(workers[i], work, responseCounter);
+            i += 1;
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package org.agilewiki.jactor.benchmarks;
+
+import org.agilewiki.jactor.Actor;
+import org.agilewiki.jactor.RP;
+import org.agilewiki.jactor.lpc.JLPCActor;
+import org.agilewiki.jactor.lpc.Request;
+
+/**
+ * Benchmark code: a request to send Work to every worker.
+ */
+final public class FanOut extends Request<Object, Driver> {
+    public final static FanOut req = new FanOut();
+
+    @Override
+    public void processRequest(JLPCActor targetActor, RP rp) throws Exception {
+        Driver a = (Driver) targetActor;
+        a.processRequest(this, rp);
+    }
+
+    @Override
+    public boolean isTargetType(Actor targetActor) {
+        return targetActor instanceof Driver;
+    }
+}
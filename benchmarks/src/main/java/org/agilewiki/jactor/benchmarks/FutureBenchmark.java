@@ -0,0 +1,39 @@
+package org.agilewiki.jactor.benchmarks;
+
+import org.agilewiki.jactor.JAFuture;
+import org.agilewiki.jactor.JAMailboxFactory;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Round trips from a thread outside the actor system, using JAFuture.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FutureBenchmark {
+    private JAMailboxFactory mailboxFactory;
+    private Ponger ponger;
+    private JAFuture future;
+
+    @Setup
+    public void setup() {
+        mailboxFactory = JAMailboxFactory.newMailboxFactory(1);
+        ponger = new Ponger(mailboxFactory.createMailbox());
+        future = new JAFuture();
+    }
+
+    @TearDown
+    public void tearDown() {
+        mailboxFactory.close();
+    }
+
+    @Benchmark
+    public Object roundTrip() throws Exception {
+        return Ping.req.send(future, ponger);
+    }
+}
@@ -0,0 +1,97 @@
+package org.agilewiki.jactor.benchmarks;
+
+import org.agilewiki.jactor.JAIterator;
+import org.agilewiki.jactor.RP;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JAIterator runs of 100 iterations, as in iteratorTest.SyncTimingTest and AsyncTimingTest:
+ * one whose responses are all synchronous, one whose responses are all asynchronous,
+ * and one which is restarted by the response processor of its previous run.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IteratorBenchmark {
+    private static final int COUNT = 100;
+
+    private Object response;
+
+    private final RP rp = new RP() {
+        @Override
+        public void processResponse(Object response) throws Exception {
+            IteratorBenchmark.this.response = response;
+        }
+    };
+
+    private final JAIterator sync = new JAIterator() {
+        int i;
+
+        @Override
+        protected void process(RP rp) throws Exception {
+            i += 1;
+            if (i < COUNT) rp.processResponse(null);
+            else {
+                i = 0;
+                rp.processResponse(this);
+            }
+        }
+    };
+
+    private RP pending;
+
+    private final JAIterator async = new JAIterator() {
+        @Override
+        protected void process(RP rp) throws Exception {
+            pending = rp;
+        }
+    };
+
+    private int runs;
+
+    private final JAIterator restarted = new JAIterator() {
+        @Override
+        protected void process(RP rp) throws Exception {
+            rp.processResponse(this);
+        }
+    };
+
+    private final RP restart = new RP() {
+        @Override
+        public void processResponse(Object response) throws Exception {
+            runs += 1;
+            if (runs < COUNT) restarted.iterate(this);
+            else IteratorBenchmark.this.response = response;
+        }
+    };
+
+    @Benchmark
+    public Object sync() throws Exception {
+        sync.iterate(rp);
+        return response;
+    }
+
+    @Benchmark
+    public Object async() throws Exception {
+        async.iterate(rp);
+        int i = 1;
+        while (i < COUNT) {
+            i += 1;
+            pending.processResponse(null);
+        }
+        pending.processResponse(this);
+        return response;
+    }
+
+    @Benchmark
+    public Object restart() throws Exception {
+        runs = 0;
+        restarted.iterate(restart);
+        return response;
+    }
+}
@@ -0,0 +1,21 @@
+package org.agilewiki.jactor.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs all the JActor benchmarks with the GC profiler, which reports the bytes allocated per operation.
+ * An optional argument selects the benchmarks to run, e.g. CrossMailbox.
+ */
+public class JActorBenchmarks {
+    public static void main(String[] args) throws Exception {
+        String include = args.length > 0 ? args[0] : JActorBenchmarks.class.getPackage().getName() + ".*";
+        Options options = new OptionsBuilder()
+                .include(include)
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
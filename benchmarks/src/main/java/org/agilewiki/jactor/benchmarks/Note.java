@@ -0,0 +1,16 @@
+package org.agilewiki.jactor.benchmarks;
+
+import org.agilewiki.jactor.Actor;
+import org.agilewiki.jactor.lpc.Request;
+
+/**
+ * Benchmark code: a request published to subscribers.
+ */
+final public class Note extends Request<Object, Sub> {
+    public final static Note req = new Note();
+
+    @Override
+    public boolean isTargetType(Actor targetActor) {
+        return targetActor instanceof Sub;
+    }
+}
@@ -0,0 +1,65 @@
+package org.agilewiki.jactor.benchmarks;
+
+import org.agilewiki.jactor.JAFuture;
+import org.agilewiki.jactor.JAMailboxFactory;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CPU-heavy requests sent by one actor to several workers, each with its own
+ * (synchronous) mailbox. Without a commandeer policy the sending thread commandeers
+ * each idle worker mailbox in turn, so the work is done serially. With an
+ * AdaptiveCommandeerPolicy the requests are soon sent asynchronously and
+ * the workers run in parallel, given enough cores.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParallelWorkBenchmark {
+    private static final int WORKERS = 4;
+
+    /**
+     * The threshold of the adaptive commandeer policy in nanoseconds,
+     * or 0 when the mailboxes have no commandeer policy.
+     */
+    @Param({"0", "20000"})
+    public long commandeerThreshold;
+
+    /**
+     * The time taken to process each Work request in nanoseconds.
+     */
+    @Param({"100000"})
+    public long workNanos;
+
+    private JAMailboxFactory mailboxFactory;
+    private Driver driver;
+    private JAFuture future;
+
+    @Setup
+    public void setup() {
+        mailboxFactory = JAMailboxFactory.newMailboxFactory(WORKERS + 1);
+        mailboxFactory.setAdaptiveCommandeerThreshold(commandeerThreshold);
+        Worker[] workers = new Worker[WORKERS];
+        int i = 0;
+        while (i < WORKERS) {
+            workers[i] = new Worker(mailboxFactory.createMailbox());
+            i += 1;
+        }
+        driver = new Driver(mailboxFactory.createMailbox(), workers, new Work(workNanos));
+        future = new JAFuture();
+    }
+
+    @TearDown
+    public void tearDown() {
+        mailboxFactory.close();
+    }
+
+    @Benchmark
+    public Object fanOut() throws Exception {
+        return FanOut.req.send(future, driver);
+    }
+}
@@ -0,0 +1,24 @@
+package org.agilewiki.jactor.benchmarks;
+
+import org.agilewiki.jactor.Actor;
+import org.agilewiki.jactor.RP;
+import org.agilewiki.jactor.lpc.JLPCActor;
+import org.agilewiki.jactor.lpc.Request;
+
+/**
+ * Benchmark code: a request with no content.
+ */
+final public class Ping extends Request<Object, Ponger> {
+    public final static Ping req = new Ping();
+
+    @Override
+    public void processRequest(JLPCActor targetActor, RP rp) throws Exception {
+        Ponger a = (Ponger) targetActor;
+        a.processRequest(this, rp);
+    }
+
+    @Override
+    public boolean isTargetType(Actor targetActor) {
+        return targetActor instanceof Ponger;
+    }
+}
@@ -0,0 +1,62 @@
+package org.agilewiki.jactor.benchmarks;
+
+import org.agilewiki.jactor.Mailbox;
+import org.agilewiki.jactor.RP;
+import org.agilewiki.jactor.lpc.JLPCActor;
+
+/**
+ * Benchmark code: the source of requests.
+ * On receiving a Run request, sends a series of Pings to a Ponger,
+ * waiting for each response before sending the next.
+ * Responses may be returned synchronously or asynchronously.
+ */
+final public class Pinger extends JLPCActor {
+    private Ponger ponger;
+    private int count;
+    private int i;
+    private boolean running;
+    private boolean responded;
+    private RP done;
+
+    private final RP next = new RP() {
+        @Override
+        public void processResponse(Object response) throws Exception {
+            responded = true;
+            if (!running)
+                loop();
+        }
+    };
+
+    public Pinger(Mailbox mailbox) {
+        super(mailbox);
+    }
+
+    public Pinger(Mailbox mailbox, Ponger ponger, int count) {
+        super(mailbox);
+        this.ponger = ponger;
+        this.count = count;
+    }
+
+    public void processRequest(Run request, RP rp) throws Exception {
+        done = rp;
+        i = 0;
+        loop();
+    }
+
+    private void loop() throws Exception {
+        running = true;
+        while (i < count) {
+            i += 1;
+            responded = false;
+            Ping.req.send(this, ponger, next);
+            if (!responded) {
+                running = false;
+                return;
+            }
+        }
+        running = false;
+        RP rp = done;
+        done = null;
+        rp.processResponse(null);
+    }
+}
@@ -0,0 +1,18 @@
+package org.agilewiki.jactor.benchmarks;
+
+import org.agilewiki.jactor.Mailbox;
+import org.agilewiki.jactor.RP;
+import org.agilewiki.jactor.lpc.JLPCActor;
+
+/**
+ * Benchmark code: responds to each Ping with null.
+ */
+final public class Ponger extends JLPCActor {
+    public Ponger(Mailbox mailbox) {
+        super(mailbox);
+    }
+
+    public void processRequest(Ping request, RP rp) throws Exception {
+        rp.processResponse(null);
+    }
+}
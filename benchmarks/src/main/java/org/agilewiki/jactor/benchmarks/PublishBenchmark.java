@@ -0,0 +1,58 @@
+package org.agilewiki.jactor.benchmarks;
+
+import org.agilewiki.jactor.JAFuture;
+import org.agilewiki.jactor.JAMailboxFactory;
+import org.agilewiki.jactor.pubsub.publisher.JAPublisher;
+import org.agilewiki.jactor.pubsub.publisher.Publish;
+import org.agilewiki.jactor.pubsub.publisher.Subscribe;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publishing a request to subscribers, each with its own asynchronous mailbox.
+ * The score is the time taken to publish to all the subscribers and receive their responses.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PublishBenchmark {
+    /**
+     * The number of subscribers.
+     */
+    @Param({"1", "16"})
+    public int subscribers;
+
+    private JAMailboxFactory mailboxFactory;
+    private JAPublisher publisher;
+    private Publish publish;
+    private JAFuture future;
+
+    @Setup
+    public void setup() throws Exception {
+        mailboxFactory = JAMailboxFactory.newMailboxFactory(4);
+        publisher = new JAPublisher(mailboxFactory.createMailbox());
+        future = new JAFuture();
+        int i = 0;
+        while (i < subscribers) {
+            Sub sub = new Sub(mailboxFactory.createAsyncMailbox());
+            sub.setActorName("" + i);
+            (new Subscribe(sub)).send(future, publisher);
+            i += 1;
+        }
+        publish = new Publish(Note.req);
+    }
+
+    @TearDown
+    public void tearDown() {
+        mailboxFactory.close();
+    }
+
+    @Benchmark
+    public Object publish() throws Exception {
+        return publish.send(future, publisher);
+    }
+}
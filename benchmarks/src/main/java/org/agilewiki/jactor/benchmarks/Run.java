@@ -0,0 +1,24 @@
+package org.agilewiki.jactor.benchmarks;
+
+import org.agilewiki.jactor.Actor;
+import org.agilewiki.jactor.RP;
+import org.agilewiki.jactor.lpc.JLPCActor;
+import org.agilewiki.jactor.lpc.Request;
+
+/**
+ * Benchmark code: starts a series of Pings.
+ */
+final public class Run extends Request<Object, Pinger> {
+    public final static Run req = new Run();
+
+    @Override
+    public void processRequest(JLPCActor targetActor, RP rp) throws Exception {
+        Pinger a = (Pinger) targetActor;
+        a.processRequest(this, rp);
+    }
+
+    @Override
+    public boolean isTargetType(Actor targetActor) {
+        return targetActor instanceof Pinger;
+    }
+}
@@ -0,0 +1,150 @@
+package org.agilewiki.jactor.benchmarks;
+
+import org.agilewiki.jactor.JAMailboxFactory;
+import org.agilewiki.jactor.Mailbox;
+import org.agilewiki.jactor.RP;
+import org.agilewiki.jactor.lpc.JLPCActor;
+import org.agilewiki.jactor.stateMachine.BooleanFunc;
+import org.agilewiki.jactor.stateMachine.ObjectFunc;
+import org.agilewiki.jactor.stateMachine.StateMachine;
+import org.agilewiki.jactor.stateMachine._Iterator;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Executing a state machine which sends a request to an actor with the same mailbox,
+ * saves the response and then returns it, one which runs an _Iterator computing 5!,
+ * and a multi-step program which loops 10 times over _if, _set, _send and _goto.
+ * Run with -prof gc to compare the allocations with and without recycling the state machines,
+ * and compare inline with the built-in operations performed through their call methods.
+ * <p>
+ * The state machine is executed on the benchmark thread. This is safe only because
+ * no other thread ever uses the shared mailbox.
+ * </p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StateMachineBenchmark {
+    private JAMailboxFactory mailboxFactory;
+    private JLPCActor.SMBuilder smb;
+    private JLPCActor.SMBuilder iteratorSmb;
+    private JLPCActor.SMBuilder loopSmb;
+
+    @Param({"0", "16"})
+    public int recycling;
+
+    @Param({"true", "false"})
+    public boolean inline;
+    private Object response;
+
+    private final RP rp = new RP() {
+        @Override
+        public void processResponse(Object response) throws Exception {
+            StateMachineBenchmark.this.response = response;
+        }
+    };
+
+    @Setup
+    public void setup() {
+        mailboxFactory = JAMailboxFactory.newMailboxFactory(1);
+        Mailbox mailbox = mailboxFactory.createMailbox();
+        Pinger pinger = new Pinger(mailbox);
+        Ponger ponger = new Ponger(mailbox);
+        smb = pinger.new SMBuilder();
+        smb.setRecycling(recycling);
+        smb.setInline(inline);
+        smb._send(ponger, Ping.req, "rsp");
+        smb._return(new ObjectFunc() {
+            @Override
+            public Object get(StateMachine sm) {
+                return sm.get("rsp");
+            }
+        });
+        iteratorSmb = pinger.new SMBuilder();
+        iteratorSmb.setRecycling(recycling);
+        iteratorSmb.setInline(inline);
+        new _Iterator(iteratorSmb, "rs") {
+            int i;
+            int r;
+
+            @Override
+            protected void init(StateMachine sm) {
+                i = 0;
+                r = 1;
+            }
+
+            @Override
+            protected void process(RP rp2) throws Exception {
+                if (i >= 5) rp2.processResponse(Integer.valueOf(r));
+                else {
+                    i += 1;
+                    r = r * i;
+                    rp2.processResponse(null);
+                }
+            }
+        };
+        iteratorSmb._return(new ObjectFunc() {
+            @Override
+            public Object get(StateMachine sm) {
+                return sm.get("rs");
+            }
+        });
+        loopSmb = pinger.new SMBuilder();
+        loopSmb.setRecycling(recycling);
+        loopSmb.setInline(inline);
+        loopSmb._set(ZERO, "i");
+        loopSmb._label("loop");
+        loopSmb._if(new BooleanFunc() {
+            @Override
+            public boolean get(StateMachine sm) {
+                return sm.get("i") == TEN;
+            }
+        }, "end");
+        loopSmb._send(ponger, Ping.req, "rsp");
+        loopSmb._set(new ObjectFunc() {
+            @Override
+            public Object get(StateMachine sm) {
+                return Integer.valueOf((Integer) sm.get("i") + 1);
+            }
+        }, "i");
+        loopSmb._goto("loop");
+        loopSmb._label("end");
+        loopSmb._return(new ObjectFunc() {
+            @Override
+            public Object get(StateMachine sm) {
+                return sm.get("i");
+            }
+        });
+    }
+
+    private static final Integer ZERO = Integer.valueOf(0);
+    private static final Integer TEN = Integer.valueOf(10);
+
+    @TearDown
+    public void tearDown() {
+        mailboxFactory.close();
+    }
+
+    @Benchmark
+    public Object execute() throws Exception {
+        smb.call(rp);
+        return response;
+    }
+
+    @Benchmark
+    public Object iterate() throws Exception {
+        iteratorSmb.call(rp);
+        return response;
+    }
+
+    @Benchmark
+    public Object loop() throws Exception {
+        loopSmb.call(rp);
+        return response;
+    }
+}
@@ -0,0 +1,23 @@
+package org.agilewiki.jactor.benchmarks;
+
+import org.agilewiki.jactor.Mailbox;
+import org.agilewiki.jactor.RP;
+import org.agilewiki.jactor.pubsub.subscriber.JASubscriber;
+
+/**
+ * Benchmark code: a subscriber which responds to each Note with null.
+ */
+final public class Sub extends JASubscriber {
+    public Sub(Mailbox mailbox) {
+        super(mailbox);
+    }
+
+    @Override
+    protected void processRequest(Object request, RP rp) throws Exception {
+        if (request.getClass() == Note.class) {
+            rp.processResponse(null);
+            return;
+        }
+        super.processRequest(request, rp);
+    }
+}
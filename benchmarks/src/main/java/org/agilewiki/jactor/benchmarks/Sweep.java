@@ -0,0 +1,24 @@
+package org.agilewiki.jactor.benchmarks;
+
+import org.agilewiki.jactor.Actor;
+import org.agilewiki.jactor.RP;
+import org.agilewiki.jactor.lpc.JLPCActor;
+import org.agilewiki.jactor.lpc.Request;
+
+/**
+ * Benchmark code: a request to touch every cell.
+ */
+final public class Sweep extends Request<Object, Sweeper> {
+    public final static Sweep req = new Sweep();
+
+    @Override
+    public void processRequest(JLPCActor targetActor, RP rp) throws Exception {
+        Sweeper a = (Sweeper) targetActor;
+        a.processRequest(this, rp);
+    }
+
+    @Override
+    public boolean isTargetType(Actor targetActor) {
+        return targetActor instanceof Sweeper;
+    }
+}
@@ -0,0 +1,27 @@
+package org.agilewiki.jactor.benchmarks;
+
+import org.agilewiki.jactor.Mailbox;
+import org.agilewiki.jactor.RP;
+import org.agilewiki.jactor.lpc.JLPCActor;
+import org.agilewiki.jactor.parallel.JAResponseCounter;
+
+/**
+ * Benchmark code: touches every cell and responds when all have been updated.
+ */
+final public class Sweeper extends JLPCActor {
+    private final Cell[] cells;
+
+    public Sweeper(Mailbox mailbox, Cell[] cells) {
+        super(mailbox);
+        this.cells = cells;
+    }
+
+    public void processRequest(Sweep request, RP rp) throws Exception {
+        JAResponseCounter responseCounter = new JAResponseCounter(cells.length, rp);
+        int i = 0;
+        while (i < cells.length) {
+            send(cells[i], Touch.req, responseCounter);
+            i += 1;
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package org.agilewiki.jactor.benchmarks;
+
+import org.agilewiki.jactor.JAMailboxFactory;
+import org.agilewiki.jactor.Mailbox;
+import org.agilewiki.jactor.RP;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Request/response round trips between actors sharing a mailbox, as in SharedMailboxTest.
+ * Run with -prof gc to confirm that gc.alloc.rate.norm is 0 bytes per op.
+ * <p>
+ * The requests are sent from the benchmark thread. This is safe only because
+ * no other thread ever uses the shared mailbox.
+ * </p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SyncSendBenchmark {
+    private JAMailboxFactory mailboxFactory;
+    private Pinger pinger;
+    private Ponger ponger;
+    private Object response;
+
+    private final RP rp = new RP() {
+        @Override
+        public void processResponse(Object response) throws Exception {
+            SyncSendBenchmark.this.response = response;
+        }
+    };
+
+    @Setup
+    public void setup() {
+        mailboxFactory = JAMailboxFactory.newMailboxFactory(1);
+        Mailbox mailbox = mailboxFactory.createMailbox();
+        pinger = new Pinger(mailbox);
+        ponger = new Ponger(mailbox);
+    }
+
+    @TearDown
+    public void tearDown() {
+        mailboxFactory.close();
+    }
+
+    @Benchmark
+    public Object sameMailboxRoundTrip() throws Exception {
+        Ping.req.send(pinger, ponger, rp);
+        return response;
+    }
+}
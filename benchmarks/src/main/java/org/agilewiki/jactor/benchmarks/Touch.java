@@ -0,0 +1,24 @@
+package org.agilewiki.jactor.benchmarks;
+
+import org.agilewiki.jactor.Actor;
+import org.agilewiki.jactor.RP;
+import org.agilewiki.jactor.lpc.JLPCActor;
+import org.agilewiki.jactor.lpc.Request;
+
+/**
+ * Benchmark code: a request to update all the state of a Cell.
+ */
+final public class Touch extends Request<Object, Cell> {
+    public final static Touch req = new Touch();
+
+    @Override
+    public void processRequest(JLPCActor targetActor, RP rp) throws Exception {
+        Cell a = (Cell) targetActor;
+        a.processRequest(this, rp);
+    }
+
+    @Override
+    public boolean isTargetType(Actor targetActor) {
+        return targetActor instanceof Cell;
+    }
+}
@@ -0,0 +1,20 @@
+package org.agilewiki.jactor.benchmarks;
+
+import org.agilewiki.jactor.Mailbox;
+import org.agilewiki.jactor.RP;
+import org.agilewiki.jactor.lpc.JLPCActor;
+
+/**
+ * Benchmark code: spins for the time given by each Work request.
+ */
+final public class Worker extends JLPCActor {
+    public Worker(Mailbox mailbox) {
+        super(mailbox);
+    }
+
+    public void processRequest(Work request, RP rp) throws Exception {
+        long end = System.nanoTime() + request.nanos;
+        while (System.nanoTime() < end) ;
+        rp.processResponse(null);
+    }
+}
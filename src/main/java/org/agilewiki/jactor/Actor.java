@@ -28,6 +28,8 @@ import org.agilewiki.jactor.factory.ActorFactory;
 import org.agilewiki.jactor.lpc.JLPCActor;
 import org.agilewiki.jactor.lpc.Request;
 
+import java.util.concurrent.TimeUnit;
+
 /**
  * <p>
  * Actors are objects which send messages to each other and which process only one message at a time. Messages are
@@ -62,6 +64,24 @@ public interface Actor {
                               RP rp)
             throws Exception;
 
+    /**
+     * Wraps and enqueues an unwrapped request in the requester's inbox.
+     * When no response is received within the timeout, a TimeoutException
+     * is passed back to the requester instead and any late response is dropped.
+     *
+     * @param requestSource The originator of the request.
+     * @param request       The unwrapped request to be sent.
+     * @param rp            The request processor.
+     * @param timeout       The time to wait for a response.
+     * @param unit          The unit of the timeout.
+     */
+    public void acceptRequest(APCRequestSource requestSource,
+                              Request request,
+                              RP rp,
+                              long timeout,
+                              TimeUnit unit)
+            throws Exception;
+
     /**
      * Wraps and enqueues an unwrapped request in the requester's inbox.
      *
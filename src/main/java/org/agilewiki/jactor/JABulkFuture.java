@@ -0,0 +1,415 @@
+/*
+ * Copyright 2011 Bill La Forge
+ *
+ * This file is part of AgileWiki and is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License (LGPL) as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This code is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA
+ * or navigate to the following url http://www.gnu.org/licenses/lgpl-2.1.txt
+ *
+ * Note however that only Scala, Java and JavaScript files are being covered by LGPL.
+ * All other files are covered by the Common Public License (CPL).
+ * A copy of this license is also included and can be
+ * found as well at http://www.opensource.org/licenses/cpl1.0.txt
+ */
+package org.agilewiki.jactor;
+
+import org.agilewiki.jactor.apc.JAMessage;
+import org.agilewiki.jactor.apc.JARequest;
+import org.agilewiki.jactor.apc.JAResponse;
+import org.agilewiki.jactor.apc.MailboxOverflowException;
+import org.agilewiki.jactor.bufferedEvents.BufferedEventsDestination;
+import org.agilewiki.jactor.bufferedEvents.BufferedEventsQueue;
+import org.agilewiki.jactor.lpc.Request;
+import org.agilewiki.jactor.lpc.RequestSource;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * <p>
+ * Used to send a batch of requests to actors from outside the actor system,
+ * and then to wait once for all the responses, or to take the responses as they arrive.
+ * </p>
+ * <pre>
+ *             JABulkFuture bulk = new JABulkFuture();
+ *             Object[] responses = bulk.send(actors, requests);
+ * </pre>
+ * <p>
+ * The requests are wrapped and then grouped by destination mailbox, so that each mailbox
+ * is passed a single list of requests. Responses are likewise passed back in a list per
+ * responding mailbox, and the waiting thread is woken once per list rather than once per response.
+ * </p>
+ * <p>
+ * A JABulkFuture is used for a single batch of requests.
+ * The response to a request which raised an exception is that exception,
+ * and the response to a request refused by a full mailbox is a MailboxOverflowException.
+ * </p>
+ */
+final public class JABulkFuture {
+    /**
+     * A permit is released for each response received.
+     */
+    final private Semaphore completed = new Semaphore(0);
+
+    /**
+     * The indexes of the requests, in the order in which their responses were received.
+     */
+    final private ConcurrentLinkedQueue<Integer> completions = new ConcurrentLinkedQueue<Integer>();
+
+    /**
+     * The index of each wrapped request.
+     * Only updated by the sending thread, before the requests are sent.
+     */
+    final private IdentityHashMap<JARequest, Integer> indexes = new IdentityHashMap<JARequest, Integer>();
+
+    /**
+     * The wrapped requests grouped by destination, until they are sent.
+     */
+    final private LinkedHashMap<BufferedEventsDestination<JAMessage>, ArrayList<JAMessage>> pending =
+            new LinkedHashMap<BufferedEventsDestination<JAMessage>, ArrayList<JAMessage>>();
+
+    /**
+     * The wrapped requests with priority, which are each sent in a list of their own.
+     */
+    final private ArrayList<JARequest> priorityRequests = new ArrayList<JARequest>();
+
+    /**
+     * The destinations of the wrapped requests with priority.
+     */
+    final private ArrayList<BufferedEventsDestination<JAMessage>> priorityDestinations =
+            new ArrayList<BufferedEventsDestination<JAMessage>>();
+
+    /**
+     * The wrapped requests, by index.
+     */
+    private JARequest[] wrapped;
+
+    /**
+     * The responses, by index.
+     */
+    private Object[] responses;
+
+    /**
+     * The index of the request being wrapped.
+     */
+    private int sending;
+
+    /**
+     * The number of responses which have been taken.
+     */
+    private int taken;
+
+    /**
+     * Set once awaitAll has timed out, after which any late responses are dropped.
+     */
+    private volatile boolean timedOut;
+
+    /**
+     * Receives the responses as buffered events.
+     */
+    final private BufferedEventsDestination<JAMessage> bufferedEventsDestination =
+            new BufferedEventsDestination<JAMessage>() {
+                @Override
+                public void putBufferedEvents(ArrayList<JAMessage> bufferedEvents) {
+                    if (timedOut)
+                        return;
+                    int n = bufferedEvents.size();
+                    int i = 0;
+                    while (i < n) {
+                        JAResponse japcResponse = (JAResponse) bufferedEvents.get(i);
+                        record(indexes.get(japcResponse.getJAPCRequest()), japcResponse.getUnwrappedResponse());
+                        i += 1;
+                    }
+                    completed.release(n);
+                }
+            };
+
+    /**
+     * Passed with each request, though the response is received as a bufferedEvent.
+     */
+    final private class Completion extends RP<Object> {
+        /**
+         * The index of the request.
+         */
+        final private int index;
+
+        /**
+         * Create a Completion.
+         *
+         * @param index The index of the request.
+         */
+        Completion(int index) {
+            this.index = index;
+        }
+
+        @Override
+        public void processResponse(Object response) throws Exception {
+            if (timedOut)
+                return;
+            record(index, response);
+            completed.release();
+        }
+    }
+
+    /**
+     * Serves as the originator of the requests.
+     */
+    final private RequestSource requestSource = new RequestSource() {
+        @Override
+        final public Mailbox getMailbox() {
+            return null;
+        }
+
+        @Override
+        public ExceptionHandler getExceptionHandler() {
+            return null;
+        }
+
+        @Override
+        public void setExceptionHandler(ExceptionHandler exceptionHandler) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        final public void responseFrom(final BufferedEventsQueue<JAMessage> eventQueue,
+                                       final JAResponse japcResponse) {
+            if (japcResponse.isPriority()) {
+                final ArrayList<JAMessage> bufferedEvents = new ArrayList<JAMessage>(1);
+                bufferedEvents.add(japcResponse);
+                bufferedEventsDestination.putBufferedEvents(bufferedEvents);
+                return;
+            }
+            eventQueue.send(bufferedEventsDestination, japcResponse);
+        }
+
+        @Override
+        final public void send(final BufferedEventsDestination<JAMessage> destination,
+                               final JARequest japcRequest) {
+            indexes.put(japcRequest, sending);
+            wrapped[sending] = japcRequest;
+            if (japcRequest.isPriority()) {
+                priorityRequests.add(japcRequest);
+                priorityDestinations.add(destination);
+                return;
+            }
+            ArrayList<JAMessage> bufferedEvents = pending.get(destination);
+            if (bufferedEvents == null) {
+                bufferedEvents = new ArrayList<JAMessage>();
+                pending.put(destination, bufferedEvents);
+            }
+            bufferedEvents.add(japcRequest);
+        }
+    };
+
+    /**
+     * Send the requests without waiting for the responses.
+     * Every target is checked before any request is sent.
+     *
+     * @param actors   The target actors.
+     * @param requests The unwrapped requests, one for each target actor.
+     * @throws Exception Any exceptions raised while sending the requests.
+     */
+    public void submit(final Actor[] actors, final Request<?, ?>[] requests)
+            throws Exception {
+        if (actors.length != requests.length)
+            throw new IllegalArgumentException("there must be one request per actor");
+        if (responses != null)
+            throw new IllegalStateException("a JABulkFuture is used for a single batch of requests");
+        int n = requests.length;
+        Actor[] targets = new Actor[n];
+        int i = 0;
+        while (i < n) {
+            Request<?, ?> request = requests[i];
+            Actor actor = (Actor) request.getTargetActor(actors[i]);
+            if (actor == null)
+                throw new UnsupportedOperationException(
+                        "request: " + request.getClass().getName() +
+                                " target actor: " + actors[i].getClass().getName() +
+                                " target actor type: " + actors[i].getActorType());
+            targets[i] = actor;
+            i += 1;
+        }
+        responses = new Object[n];
+        wrapped = new JARequest[n];
+        while (sending < n) {
+            targets[sending].acceptRequest(requestSource, requests[sending], new Completion(sending));
+            sending += 1;
+        }
+        //The requests are only sent once they have all been indexed.
+        i = 0;
+        while (i < priorityRequests.size()) {
+            JARequest japcRequest = priorityRequests.get(i);
+            ArrayList<JAMessage> bufferedEvents = new ArrayList<JAMessage>(1);
+            bufferedEvents.add(japcRequest);
+            put(priorityDestinations.get(i), bufferedEvents);
+            i += 1;
+        }
+        for (BufferedEventsDestination<JAMessage> destination : pending.keySet())
+            put(destination, pending.get(destination));
+        pending.clear();
+        priorityRequests.clear();
+        priorityDestinations.clear();
+    }
+
+    /**
+     * Pass a list of wrapped requests to their destination.
+     * When the destination is a full mailbox which refuses them, the requests are answered
+     * with the MailboxOverflowException, so that the rest of the batch is still sent.
+     *
+     * @param destination    The mailbox which is to receive the requests.
+     * @param bufferedEvents The wrapped requests.
+     */
+    private void put(BufferedEventsDestination<JAMessage> destination, ArrayList<JAMessage> bufferedEvents) {
+        try {
+            destination.putBufferedEvents(bufferedEvents);
+        } catch (MailboxOverflowException ex) {
+            int n = bufferedEvents.size();
+            int i = 0;
+            while (i < n) {
+                JARequest japcRequest = (JARequest) bufferedEvents.get(i);
+                japcRequest.inactive();
+                record(indexes.get(japcRequest), ex);
+                i += 1;
+            }
+            completed.release(n);
+        }
+    }
+
+    /**
+     * Save a response, before the permit for it is released.
+     * A response which arrives after a timeout is dropped.
+     *
+     * @param index    The index of the request.
+     * @param response The response.
+     */
+    private void record(int index, Object response) {
+        if (timedOut)
+            return;
+        responses[index] = response;
+        completions.add(index);
+    }
+
+    /**
+     * Sends the requests and waits for all the responses.
+     *
+     * @param actors   The target actors.
+     * @param requests The unwrapped requests, one for each target actor.
+     * @return The responses, by index.
+     * @throws Exception Any exceptions raised while sending the requests.
+     */
+    public Object[] send(final Actor[] actors, final Request<?, ?>[] requests)
+            throws Exception {
+        submit(actors, requests);
+        return awaitAll();
+    }
+
+    /**
+     * Sends the requests and waits for all the responses, but for no longer than the timeout.
+     *
+     * @param actors   The target actors.
+     * @param requests The unwrapped requests, one for each target actor.
+     * @param timeout  The time to wait for the responses.
+     * @param unit     The unit of the timeout.
+     * @return The responses, by index.
+     * @throws Exception Any exceptions raised while sending the requests, or a TimeoutException.
+     */
+    public Object[] send(final Actor[] actors, final Request<?, ?>[] requests, final long timeout, final TimeUnit unit)
+            throws Exception {
+        submit(actors, requests);
+        return awaitAll(timeout, unit);
+    }
+
+    /**
+     * Waits for all the responses which have not been taken.
+     *
+     * @return The responses, by index.
+     * @throws InterruptedException  When interrupted while waiting.
+     * @throws IllegalStateException When a previous wait has timed out.
+     */
+    public Object[] awaitAll() throws InterruptedException {
+        checkTimedOut();
+        int n = responses.length - taken;
+        completed.acquire(n);
+        taken += n;
+        return responses;
+    }
+
+    /**
+     * Waits for all the responses which have not been taken, but for no longer than the timeout.
+     * When the timeout expires first, the requests still unanswered are marked inactive
+     * and any responses received afterwards, including those already on their way, are dropped.
+     * The JABulkFuture can not be waited on again.
+     *
+     * @param timeout The time to wait for the responses.
+     * @param unit    The unit of the timeout.
+     * @return The responses, by index.
+     * @throws InterruptedException  When interrupted while waiting.
+     * @throws TimeoutException      When not all the responses were received in time.
+     * @throws IllegalStateException When a previous wait has timed out.
+     */
+    public Object[] awaitAll(long timeout, TimeUnit unit) throws InterruptedException, TimeoutException {
+        checkTimedOut();
+        int n = responses.length - taken;
+        if (!completed.tryAcquire(n, timeout, unit)) {
+            timedOut = true;
+            int i = 0;
+            while (i < wrapped.length) {
+                wrapped[i].inactive();
+                i += 1;
+            }
+            throw new TimeoutException("not all responses received within " + timeout + " " + unit);
+        }
+        taken += n;
+        return responses;
+    }
+
+    /**
+     * Waits for the next response.
+     *
+     * @return The index of the request, or -1 when all the responses have been taken.
+     * @throws InterruptedException  When interrupted while waiting.
+     * @throws IllegalStateException When a previous wait has timed out.
+     */
+    public int take() throws InterruptedException {
+        checkTimedOut();
+        if (taken == responses.length)
+            return -1;
+        completed.acquire();
+        taken += 1;
+        return completions.poll();
+    }
+
+    /**
+     * Throws an IllegalStateException once a wait has timed out,
+     * as the responses received since are dropped.
+     */
+    private void checkTimedOut() {
+        if (timedOut)
+            throw new IllegalStateException("timed out");
+    }
+
+    /**
+     * Returns a response which has been taken.
+     *
+     * @param index The index of the request.
+     * @return The response, which is the exception when the request raised an exception.
+     */
+    public Object getResponse(int index) {
+        return responses[index];
+    }
+}
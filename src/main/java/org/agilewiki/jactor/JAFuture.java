@@ -32,7 +32,10 @@ import org.agilewiki.jactor.lpc.Request;
 import org.agilewiki.jactor.lpc.RequestSource;
 
 import java.util.ArrayList;
-import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
 
 /**
  * <p>
@@ -43,17 +46,38 @@ import java.util.concurrent.Semaphore;
  *             JAFuture future = new JAFuture();
  *             future.send(factorial, null);
  * </pre>
+ * <p>
+ * A JAFuture can be reused for any number of requests, but only by one thread at a time.
+ * The sending thread first spins briefly, when there is more than one processor,
+ * and then parks until the response is received. No objects are allocated per call for the waiting.
+ * </p>
  */
 final public class JAFuture {
     /**
-     * Used to wake up the sending thread when a response is received.
+     * The number of times the sending thread checks for the response before parking.
      */
-    private Semaphore done;
+    private static final int SPINS = Runtime.getRuntime().availableProcessors() > 1 ? 1 << 10 : 0;
 
     /**
-     * The response received.
+     * The value of result while awaiting a response.
      */
-    private transient Object result;
+    private static final Object NO_RESULT = new Object();
+
+    /**
+     * The response received, or NO_RESULT.
+     */
+    private volatile Object result = NO_RESULT;
+
+    /**
+     * The sending thread once it is about to park, or null.
+     */
+    private volatile Thread waiter;
+
+    /**
+     * The request awaiting a response. Cleared by whichever comes first,
+     * the response or the timeout, so that a late response is ignored.
+     */
+    final private AtomicReference<JARequest> pending = new AtomicReference<JARequest>();
 
     /**
      * Receives the response as a bufferedEvent.
@@ -63,11 +87,22 @@ final public class JAFuture {
                 @Override
                 public void putBufferedEvents(ArrayList<JAMessage> bufferedEvents) {
                     JAResponse japcResponse = (JAResponse) bufferedEvents.get(0);
-                    result = japcResponse.getUnwrappedResponse();
-                    done.release();
+                    if (!pending.compareAndSet(japcResponse.getJAPCRequest(), null))
+                        return;
+                    complete(japcResponse.getUnwrappedResponse());
                 }
             };
 
+    /**
+     * Passed with each request, though the response is received as a bufferedEvent.
+     */
+    final private RP rp = new RP() {
+        @Override
+        public void processResponse(Object response) throws Exception {
+            complete(response);
+        }
+    };
+
     /**
      * Serves as the originator of a request.
      */
@@ -90,18 +125,81 @@ final public class JAFuture {
         @Override
         final public void responseFrom(final BufferedEventsQueue<JAMessage> eventQueue,
                                        final JAResponse japcResponse) {
+            if (japcResponse.isPriority()) {
+                final ArrayList<JAMessage> bufferedEvents = new ArrayList<JAMessage>(1);
+                bufferedEvents.add(japcResponse);
+                bufferedEventsDestination.putBufferedEvents(bufferedEvents);
+                return;
+            }
             eventQueue.send(bufferedEventsDestination, japcResponse);
         }
 
         @Override
         final public void send(final BufferedEventsDestination<JAMessage> destination,
                                final JARequest japcRequest) {
+            pending.set(japcRequest);
             final ArrayList<JAMessage> bufferedEvents = new ArrayList<JAMessage>(1);
             bufferedEvents.add(japcRequest);
             destination.putBufferedEvents(bufferedEvents);
         }
     };
 
+    /**
+     * Pass the response to the sending thread, waking it if it has parked.
+     *
+     * @param response The response.
+     */
+    private void complete(Object response) {
+        result = response;
+        Thread waiter = this.waiter;
+        if (waiter != null)
+            LockSupport.unpark(waiter);
+    }
+
+    /**
+     * Wait for the response, spinning and then parking.
+     *
+     * @param deadline When to stop waiting, as given by System.nanoTime, or 0 to wait indefinitely.
+     * @return True when the response was received.
+     */
+    private boolean await(long deadline) {
+        int spins = SPINS;
+        while (spins > 0) {
+            if (result != NO_RESULT)
+                return true;
+            spins -= 1;
+        }
+        waiter = Thread.currentThread();
+        try {
+            while (result == NO_RESULT) {
+                if (deadline == 0L)
+                    LockSupport.park(this);
+                else {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0L)
+                        return false;
+                    LockSupport.parkNanos(this, remaining);
+                }
+            }
+            return true;
+        } finally {
+            waiter = null;
+        }
+    }
+
+    /**
+     * Returns the response, ready for the next request.
+     *
+     * @return The unwrapped response.
+     * @throws Exception The exception raised while processing the request.
+     */
+    private Object response() throws Exception {
+        Object response = result;
+        result = NO_RESULT;
+        if (response instanceof Exception) throw (Exception) response;
+        return response;
+    }
+
     /**
      * Sends a request and waits for a response.
      *
@@ -113,17 +211,43 @@ final public class JAFuture {
     public Object send(final Actor actor,
                        final Request request)
             throws Exception {
-        done = new Semaphore(0);
-        actor.acceptRequest(requestSource, request, new RP() {
-            @Override
-            public void processResponse(Object response) throws Exception {
-                result = response;
-                done.release();
+        actor.acceptRequest(requestSource, request, rp);
+        await(0L);
+        return response();
+    }
+
+    /**
+     * Sends a request and waits for a response, but for no longer than the timeout.
+     * When the timeout expires first, the request is marked inactive so that
+     * the response, if any, is dropped.
+     *
+     * @param actor   The target actor.
+     * @param request The unwrapped request.
+     * @param timeout The time to wait for a response.
+     * @param unit    The unit of the timeout.
+     * @return The unwrapped response.
+     * @throws Exception Any uncaught exceptions raised while processing the request,
+     *                   or a TimeoutException.
+     */
+    public Object send(final Actor actor,
+                       final Request request,
+                       final long timeout,
+                       final TimeUnit unit)
+            throws Exception {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        if (deadline == 0L)
+            deadline = 1L;
+        actor.acceptRequest(requestSource, request, rp);
+        if (!await(deadline)) {
+            JARequest japcRequest = pending.get();
+            if (japcRequest != null && pending.compareAndSet(japcRequest, null)) {
+                japcRequest.inactive();
+                throw new TimeoutException("no response to " + request.getClass().getName() +
+                        " within " + timeout + " " + unit);
             }
-        });
-        done.acquire();
-        done = null;
-        if (result instanceof Exception) throw (Exception) result;
-        return result;
+            //The response arrived as the timeout expired.
+            await(0L);
+        }
+        return response();
     }
 }
@@ -1,7 +1,5 @@
 package org.agilewiki.jactor;
 
-import org.agilewiki.jactor.stateMachine.ExtendedResponseProcessor;
-
 /**
  * <p>
  * Iterates over its process method and works within any actor which supports 2-way messages.
@@ -76,8 +74,32 @@ import org.agilewiki.jactor.stateMachine.ExtendedResponseProcessor;
  *     }
  * }
  * </pre>
+ * <p>
+ * Iteration is trampolined: a response received while the iterator is already looping, including
+ * a restart from the response processor of a completed iteration, is picked up by the loop on the stack
+ * rather than starting a new one. So the stack depth does not grow, however synchronous and
+ * asynchronous responses are mixed.
+ * </p>
+ * <p>
+ * This changes the order in which code runs when iterate is called from the response processor of a
+ * completed iteration while the loop is still on the stack, i.e. when the final response was passed
+ * synchronously. Previously the restarted iteration ran to its first pause before iterate returned.
+ * Now iterate returns at once, the rest of the response processor runs, and the restarted iteration
+ * begins only when control is back in the loop. A restart from a response received asynchronously,
+ * with no loop on the stack, still begins before iterate returns.
+ * </p>
+ * <p>
+ * Each call to iterate keeps its own state, so one JAIterator may be iterating for several callers at once,
+ * as when an _Iterator is shared by the state machines of a builder. The state of a completed iteration is
+ * kept for reuse.
+ * </p>
  */
 abstract public class JAIterator {
+    /**
+     * The state of a completed iteration, kept for reuse, or null.
+     */
+    private Trampoline spare;
+
     /**
      * Iterates over the process method.
      *
@@ -85,27 +107,40 @@ abstract public class JAIterator {
      * @throws Exception Any uncaught exceptions raised by the process method.
      */
     public void iterate(final RP responseProcessor) throws Exception {
-        ExtendedResponseProcessor erp = new ExtendedResponseProcessor() {
-            @Override
-            public void processResponse(Object response) throws Exception {
-                if (response == null) {
-                    if (!async) {
-                        sync = true;
-                    } else {
-                        iterate(responseProcessor); //not recursive
-                    }
-                } else if (response instanceof JANull) responseProcessor.processResponse(null);
-                else responseProcessor.processResponse(response);
-            }
-        };
-        erp.sync = true;
-        while (erp.sync) {
-            erp.sync = false;
-            process(erp);
-            if (!erp.sync) {
-                erp.async = true;
-            }
+        Trampoline trampoline = spare;
+        if (trampoline == null)
+            trampoline = new Trampoline();
+        else
+            spare = null;
+        trampoline.responseProcessor = responseProcessor;
+        if (trampoline.running) {
+            trampoline.pending = true;
+            return;
+        }
+        loop(trampoline);
+    }
+
+    /**
+     * Calls the process method for as long as the responses are received while it is on the stack.
+     *
+     * @param trampoline Receives the response of each iteration.
+     * @throws Exception Any uncaught exceptions raised by the process method.
+     */
+    private void loop(final Trampoline trampoline) throws Exception {
+        trampoline.running = true;
+        try {
+            do {
+                trampoline.pending = false;
+                process(trampoline);
+            } while (trampoline.pending);
+        } catch (Exception ex) {
+            trampoline.running = false;
+            throw ex;
+        } catch (Error error) {
+            trampoline.running = false;
+            throw error;
         }
+        trampoline.running = false;
     }
 
     /**
@@ -115,4 +150,40 @@ abstract public class JAIterator {
      * @throws Exception Any uncaught exceptions raised by the process method.
      */
     abstract protected void process(RP responseProcessor) throws Exception;
+
+    /**
+     * Receives the response of each iteration of one call to iterate and runs the loop.
+     */
+    final private class Trampoline extends RP {
+        /**
+         * The response processor passed to iterate.
+         */
+        RP responseProcessor;
+
+        /**
+         * True while the loop is on the stack.
+         */
+        boolean running;
+
+        /**
+         * True when the loop is to call the process method again.
+         */
+        boolean pending;
+
+        @Override
+        public void processResponse(Object response) throws Exception {
+            if (response == null) {
+                if (running)
+                    pending = true;
+                else
+                    loop(this);
+            } else {
+                RP rp = responseProcessor;
+                responseProcessor = null;
+                spare = this;
+                if (response instanceof JANull) rp.processResponse(null);
+                else rp.processResponse(response);
+            }
+        }
+    }
 }
@@ -0,0 +1,319 @@
+/*
+ * Copyright 2011 Bill La Forge
+ *
+ * This file is part of AgileWiki and is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License (LGPL) as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This code is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA
+ * or navigate to the following url http://www.gnu.org/licenses/lgpl-2.1.txt
+ *
+ * Note however that only Scala, Java and JavaScript files are being covered by LGPL.
+ * All other files are covered by the Common Public License (CPL).
+ * A copy of this license is also included and can be
+ * found as well at http://www.opensource.org/licenses/cpl1.0.txt
+ */
+package org.agilewiki.jactor;
+
+import org.agilewiki.jactor.apc.JAMessage;
+import org.agilewiki.jactor.apc.JARequest;
+import org.agilewiki.jactor.apc.JAResponse;
+import org.agilewiki.jactor.bufferedEvents.BufferedEventsDestination;
+import org.agilewiki.jactor.bufferedEvents.BufferedEventsQueue;
+import org.agilewiki.jactor.lpc.Request;
+import org.agilewiki.jactor.lpc.RequestSource;
+
+import java.util.ArrayList;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * <p>
+ * Used to send a request to an actor from outside the actor system without blocking.
+ * Unlike JAFuture, which parks the sending thread until the response arrives,
+ * a JAListenableFuture is completed by the thread of the actor which returns the response,
+ * which then runs the listeners. So a front-end thread can have any number of requests in flight.
+ * </p>
+ * <pre>
+ *         Request.req.sendAsync(actor).addListener(new RP() {
+ *             public void processResponse(Object response) throws Exception {
+ *                 if (response instanceof Exception)
+ *                     ...
+ *             }
+ *         });
+ * </pre>
+ * <p>
+ * Listeners must be quick, as they run on an actor's thread. A listener can complete
+ * a java.util.concurrent.CompletableFuture where one is available.
+ * A JAListenableFuture is used for a single request.
+ * </p>
+ *
+ * @param <RESPONSE_TYPE> The type of response.
+ */
+final public class JAListenableFuture<RESPONSE_TYPE> implements Future<RESPONSE_TYPE> {
+    /**
+     * Neither a response has been received nor the future cancelled.
+     */
+    private static final int PENDING = 0;
+
+    /**
+     * A response, possibly an exception, has been received.
+     */
+    private static final int DONE = 1;
+
+    /**
+     * The future was cancelled before the response was received.
+     */
+    private static final int CANCELLED = 2;
+
+    /**
+     * PENDING, DONE or CANCELLED. Guarded by this.
+     */
+    private int state;
+
+    /**
+     * The response received. Guarded by this.
+     */
+    private Object result;
+
+    /**
+     * The listeners to be run on completion, or null. Guarded by this.
+     */
+    private ArrayList<RP<Object>> listeners;
+
+    /**
+     * The request which was sent, marked inactive when the future is cancelled.
+     */
+    private volatile JARequest japcRequest;
+
+    /**
+     * Serves as the originator of the request.
+     * The response completes the future directly, rather than being buffered.
+     */
+    final private RequestSource requestSource = new RequestSource() {
+        @Override
+        final public Mailbox getMailbox() {
+            return null;
+        }
+
+        @Override
+        public ExceptionHandler getExceptionHandler() {
+            return null;
+        }
+
+        @Override
+        public void setExceptionHandler(ExceptionHandler exceptionHandler) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        final public void responseFrom(final BufferedEventsQueue<JAMessage> eventQueue,
+                                       final JAResponse japcResponse) {
+            complete(DONE, japcResponse.getUnwrappedResponse());
+        }
+
+        @Override
+        final public void send(final BufferedEventsDestination<JAMessage> destination,
+                               final JARequest japcRequest) {
+            JAListenableFuture.this.japcRequest = japcRequest;
+            final ArrayList<JAMessage> bufferedEvents = new ArrayList<JAMessage>(1);
+            bufferedEvents.add(japcRequest);
+            destination.putBufferedEvents(bufferedEvents);
+        }
+    };
+
+    /**
+     * Sends a request without waiting for the response.
+     *
+     * @param actor   The target actor.
+     * @param request The unwrapped request.
+     * @return A future which is completed by the response.
+     * @throws Exception Any exceptions raised while sending the request.
+     */
+    public static <RESPONSE_TYPE> JAListenableFuture<RESPONSE_TYPE> send(final Actor actor,
+                                                                       final Request<RESPONSE_TYPE, ?> request)
+            throws Exception {
+        final JAListenableFuture<RESPONSE_TYPE> future = new JAListenableFuture<RESPONSE_TYPE>();
+        actor.acceptRequest(future.requestSource, request, new RP<Object>() {
+            @Override
+            public void processResponse(Object response) throws Exception {
+                future.complete(DONE, response);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Create a JAListenableFuture.
+     */
+    private JAListenableFuture() {
+    }
+
+    /**
+     * Complete the future, unless it is already complete, and run the listeners.
+     *
+     * @param newState DONE or CANCELLED.
+     * @param response The response.
+     */
+    private void complete(int newState, Object response) {
+        ArrayList<RP<Object>> listeners;
+        synchronized (this) {
+            if (state != PENDING)
+                return;
+            state = newState;
+            result = response;
+            listeners = this.listeners;
+            this.listeners = null;
+            notifyAll();
+        }
+        if (listeners == null)
+            return;
+        int i = 0;
+        while (i < listeners.size()) {
+            notify(listeners.get(i), response);
+            i += 1;
+        }
+    }
+
+    /**
+     * Pass the response to a listener.
+     *
+     * @param listener The listener.
+     * @param response The response.
+     */
+    private static void notify(RP<Object> listener, Object response) {
+        try {
+            listener.processResponse(response);
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Add a listener, which is passed the response once it is received:
+     * either the unwrapped response, or the exception raised while processing the request,
+     * or a CancellationException. When the future is already complete, the listener
+     * is run immediately by the calling thread.
+     *
+     * @param listener The listener.
+     * @return This future.
+     */
+    public JAListenableFuture<RESPONSE_TYPE> addListener(RP<Object> listener) {
+        Object response;
+        synchronized (this) {
+            if (state == PENDING) {
+                if (listeners == null)
+                    listeners = new ArrayList<RP<Object>>(1);
+                listeners.add(listener);
+                return this;
+            }
+            response = result;
+        }
+        notify(listener, response);
+        return this;
+    }
+
+    /**
+     * Cancel the future, unless the response has already been received.
+     * The request is marked inactive, so that its response is dropped.
+     *
+     * @param mayInterruptIfRunning Not used, as the request is processed by an actor.
+     * @return True when the future was cancelled.
+     */
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        synchronized (this) {
+            if (state != PENDING)
+                return false;
+        }
+        JARequest japcRequest = this.japcRequest;
+        if (japcRequest != null)
+            japcRequest.inactive();
+        complete(CANCELLED, new CancellationException());
+        return isCancelled();
+    }
+
+    /**
+     * Returns true when the future was cancelled.
+     *
+     * @return True when the future was cancelled.
+     */
+    @Override
+    public synchronized boolean isCancelled() {
+        return state == CANCELLED;
+    }
+
+    /**
+     * Returns true once the response has been received or the future cancelled.
+     *
+     * @return True when the future is complete.
+     */
+    @Override
+    public synchronized boolean isDone() {
+        return state != PENDING;
+    }
+
+    /**
+     * Waits for the response.
+     *
+     * @return The unwrapped response.
+     * @throws InterruptedException When interrupted while waiting.
+     * @throws ExecutionException   Wraps the exception raised while processing the request.
+     */
+    @Override
+    public synchronized RESPONSE_TYPE get() throws InterruptedException, ExecutionException {
+        while (state == PENDING)
+            wait();
+        return response();
+    }
+
+    /**
+     * Waits for the response, but for no longer than the timeout.
+     *
+     * @param timeout The time to wait for a response.
+     * @param unit    The unit of the timeout.
+     * @return The unwrapped response.
+     * @throws InterruptedException When interrupted while waiting.
+     * @throws ExecutionException   Wraps the exception raised while processing the request.
+     * @throws TimeoutException     When the response was not received in time.
+     */
+    @Override
+    public synchronized RESPONSE_TYPE get(long timeout, TimeUnit unit)
+            throws InterruptedException, ExecutionException, TimeoutException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (state == PENDING) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0)
+                throw new TimeoutException();
+            TimeUnit.NANOSECONDS.timedWait(this, remaining);
+        }
+        return response();
+    }
+
+    /**
+     * Returns the response of a completed future.
+     *
+     * @return The unwrapped response.
+     * @throws ExecutionException Wraps the exception raised while processing the request.
+     */
+    private RESPONSE_TYPE response() throws ExecutionException {
+        if (state == CANCELLED)
+            throw new CancellationException();
+        if (result instanceof Exception)
+            throw new ExecutionException((Exception) result);
+        @SuppressWarnings("unchecked")
+        RESPONSE_TYPE response = (RESPONSE_TYPE) result;
+        return response;
+    }
+}
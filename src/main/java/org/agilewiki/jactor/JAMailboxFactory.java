@@ -1,8 +1,25 @@
 package org.agilewiki.jactor;
 
+import org.agilewiki.jactor.apc.JAMessage;
+import org.agilewiki.jactor.apc.OverflowPolicy;
+import org.agilewiki.jactor.bufferedEvents.JABufferedEventsQueue;
+import org.agilewiki.jactor.concurrent.AffinityThreadManager;
+import org.agilewiki.jactor.concurrent.JAMPSCQueue;
 import org.agilewiki.jactor.concurrent.JAThreadManager;
+import org.agilewiki.jactor.concurrent.JAThreadPerTaskManager;
+import org.agilewiki.jactor.concurrent.JATimeout;
+import org.agilewiki.jactor.concurrent.JATimer;
 import org.agilewiki.jactor.concurrent.ThreadManager;
+import org.agilewiki.jactor.events.JAEventQueue;
+import org.agilewiki.jactor.lpc.AdaptiveCommandeerPolicy;
 import org.agilewiki.jactor.lpc.JLPCMailbox;
+import org.agilewiki.jactor.lpc.Request;
+import org.agilewiki.jactor.metrics.MailboxMetrics;
+
+import javax.management.ObjectName;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * <p>
@@ -25,6 +42,82 @@ final public class JAMailboxFactory implements MailboxFactory {
      */
     private ThreadManager threadManager;
 
+    /**
+     * The chunk size of the JAMPSCQueue used by new mailboxes,
+     * or 0 when new mailboxes use a ConcurrentLinkedQueue.
+     */
+    private int arrayQueueChunkSize;
+
+    /**
+     * The maximum number of envelopes held for reuse by each new mailbox,
+     * or 0 when new mailboxes do not recycle envelopes.
+     */
+    private int recyclingPoolSize;
+
+    /**
+     * The threshold of the AdaptiveCommandeerPolicy given to each new mailbox,
+     * or 0 when new mailboxes have no commandeer policy.
+     */
+    private long adaptiveCommandeerThreshold;
+
+    /**
+     * When true, each new mailbox is given a home worker.
+     */
+    private boolean homeWorkers;
+
+    /**
+     * The home worker of the next mailbox.
+     */
+    private int nextHomeWorker;
+
+    /**
+     * The maximum number of events each new mailbox dispatches per activation, or 0 when unlimited.
+     */
+    private int dispatchBatchLimit;
+
+    /**
+     * The maximum time in nanoseconds each new mailbox spends dispatching per activation,
+     * or 0 when unlimited.
+     */
+    private long dispatchTimeSlice;
+
+    /**
+     * Used to give each factory a distinct name in JMX.
+     */
+    private static final AtomicInteger factoryCount = new AtomicInteger();
+
+    /**
+     * When true, new mailboxes are instrumented.
+     */
+    private volatile boolean metricsEnabled;
+
+    /**
+     * The number used to identify this factory in JMX, or 0 when no metrics have been registered.
+     */
+    private int factoryNumber;
+
+    /**
+     * The metrics registered with JMX by this factory.
+     */
+    private final ArrayList<MailboxMetrics> registeredMetrics = new ArrayList<MailboxMetrics>();
+
+    /**
+     * The timer used to deliver scheduled requests, or null until first needed.
+     */
+    private volatile JATimer timer;
+
+    /**
+     * True once the factory has been closed.
+     */
+    private boolean closed;
+
+    /**
+     * Create a JAMailboxFactory.
+     * Use this constructor when providing an implementation of ThreadManager
+     * other than JAThreadManager, e.g. JAWorkStealingThreadManager.
+     *
+     * @param threadManager The thread manager.
+     */
     public JAMailboxFactory(ThreadManager threadManager) {
         this.threadManager = threadManager;
     }
@@ -39,6 +132,17 @@ final public class JAMailboxFactory implements MailboxFactory {
         return new JAMailboxFactory(JAThreadManager.newThreadManager(threadCount));
     }
 
+    /**
+     * Create a JAMailboxFactory which runs each mailbox task on its own virtual thread,
+     * so that actors which block do not hold up other mailboxes.
+     * Platform threads are used when virtual threads are not supported.
+     *
+     * @return A new JAMailboxFactory.
+     */
+    public static JAMailboxFactory newVirtualThreadMailboxFactory() {
+        return new JAMailboxFactory(JAThreadPerTaskManager.newVirtualThreadManager());
+    }
+
     /**
      * Returns the thread manager.
      *
@@ -49,11 +153,330 @@ final public class JAMailboxFactory implements MailboxFactory {
     }
 
     /**
-     * Stop all the threads as they complete their tasks.
+     * Determines the queue used by mailboxes created hereafter to hold pending messages.
+     * A JAMPSCQueue allocates an array once per chunkSize messages, rather than
+     * a ConcurrentLinkedQueue node per message. Mailboxes created with the DROP_OLDEST
+     * overflow policy always use a ConcurrentLinkedQueue, as they remove messages from
+     * threads other than the one in control.
+     *
+     * @param chunkSize The number of slots in each array of a JAMPSCQueue,
+     *                  or 0 to use a ConcurrentLinkedQueue.
+     */
+    public void setArrayQueueChunkSize(int chunkSize) {
+        if (chunkSize < 0)
+            throw new IllegalArgumentException("negative chunk size");
+        arrayQueueChunkSize = chunkSize;
+    }
+
+    /**
+     * Returns the chunk size of the JAMPSCQueue used by new mailboxes.
+     *
+     * @return The chunk size, or 0 when new mailboxes use a ConcurrentLinkedQueue.
+     */
+    public int getArrayQueueChunkSize() {
+        return arrayQueueChunkSize;
+    }
+
+    /**
+     * Enables the recycling of message envelopes by mailboxes created hereafter.
+     * A mailbox then reuses the requests sent by its actors to actors with other mailboxes,
+     * their responses and the lists used to buffer outgoing messages, so that sending
+     * requests and returning responses asynchronously need not allocate any objects.
+     * Priority requests are not recycled.
+     * When recycling is enabled, an actor must not use the RP passed with a request
+     * once it has returned a response.
+     *
+     * @param poolSize The maximum number of envelopes held for reuse by each mailbox,
+     *                 or 0 to disable recycling.
+     */
+    public void setRecyclingPoolSize(int poolSize) {
+        if (poolSize < 0)
+            throw new IllegalArgumentException("negative pool size");
+        recyclingPoolSize = poolSize;
+    }
+
+    /**
+     * Returns the maximum number of envelopes held for reuse by each new mailbox.
+     *
+     * @return The pool size, or 0 when new mailboxes do not recycle envelopes.
+     */
+    public int getRecyclingPoolSize() {
+        return recyclingPoolSize;
+    }
+
+    /**
+     * Gives each mailbox created hereafter its own AdaptiveCommandeerPolicy, so that
+     * requests which take longer than the threshold to process on average are passed
+     * to the mailbox's own thread rather than being processed by the thread of the sender.
+     *
+     * @param thresholdNanos The average processing time in nanoseconds above which requests
+     *                       are sent asynchronously, or 0 to always try to commandeer.
+     */
+    public void setAdaptiveCommandeerThreshold(long thresholdNanos) {
+        if (thresholdNanos < 0)
+            throw new IllegalArgumentException("negative threshold");
+        adaptiveCommandeerThreshold = thresholdNanos;
+    }
+
+    /**
+     * Returns the threshold of the AdaptiveCommandeerPolicy given to each new mailbox.
+     *
+     * @return The threshold in nanoseconds, or 0 when new mailboxes have no commandeer policy.
+     */
+    public long getAdaptiveCommandeerThreshold() {
+        return adaptiveCommandeerThreshold;
+    }
+
+    /**
+     * Gives each mailbox created hereafter a home worker, assigned round-robin,
+     * whose thread is preferred for processing its messages. This keeps the state
+     * of an actor in the cache of the same core, particularly when the thread manager
+     * binds its workers to cores.
+     * The home worker of a mailbox can also be assigned with getEventQueue().setHomeWorker,
+     * e.g. to give actors which often exchange messages the same home worker.
+     *
+     * @param homeWorkers True to give new mailboxes a home worker.
+     */
+    public void setHomeWorkers(boolean homeWorkers) {
+        if (homeWorkers && !(threadManager instanceof AffinityThreadManager))
+            throw new UnsupportedOperationException("the thread manager does not support home workers");
+        this.homeWorkers = homeWorkers;
+    }
+
+    /**
+     * Returns true when new mailboxes are given a home worker.
+     *
+     * @return True when new mailboxes are given a home worker.
+     */
+    public boolean isHomeWorkers() {
+        return homeWorkers;
+    }
+
+    /**
+     * Limits the events dispatched by mailboxes created hereafter each time they are activated.
+     * Once the budget is used up, the mailbox yields its thread and is rescheduled behind
+     * the other mailboxes with pending messages, which bounds their latency when one mailbox
+     * is flooded. The batch limit counts messages, though the messages buffered by one sender
+     * are always dispatched together, so a mailbox may exceed it by the last list of messages.
+     * Messages the mailbox has buffered for other mailboxes are sent before it yields.
+     *
+     * @param batchLimit     The maximum number of messages dispatched per activation,
+     *                       or 0 when unlimited.
+     * @param timeSliceNanos The maximum time in nanoseconds spent dispatching events
+     *                       per activation, or 0 when unlimited.
+     */
+    public void setDispatchLimits(int batchLimit, long timeSliceNanos) {
+        if (batchLimit < 0)
+            throw new IllegalArgumentException("negative batch limit");
+        if (timeSliceNanos < 0)
+            throw new IllegalArgumentException("negative time slice");
+        dispatchBatchLimit = batchLimit;
+        dispatchTimeSlice = timeSliceNanos;
+    }
+
+    /**
+     * Returns the maximum number of messages each new mailbox dispatches per activation.
+     *
+     * @return The batch limit, or 0 when unlimited.
+     */
+    public int getDispatchBatchLimit() {
+        return dispatchBatchLimit;
+    }
+
+    /**
+     * Returns the maximum time each new mailbox spends dispatching events per activation.
+     *
+     * @return The time slice in nanoseconds, or 0 when unlimited.
+     */
+    public long getDispatchTimeSlice() {
+        return dispatchTimeSlice;
+    }
+
+    /**
+     * Enables the instrumentation of mailboxes created hereafter.
+     * The metrics of a mailbox are available from its getMetrics method,
+     * and are published with JMX only when passed to registerMetrics.
+     *
+     * @param metricsEnabled True to instrument new mailboxes.
+     */
+    public void setMetricsEnabled(boolean metricsEnabled) {
+        this.metricsEnabled = metricsEnabled;
+    }
+
+    /**
+     * Returns true when new mailboxes are instrumented.
+     *
+     * @return True when new mailboxes are instrumented.
+     */
+    public boolean isMetricsEnabled() {
+        return metricsEnabled;
+    }
+
+    /**
+     * Register the metrics of a mailbox with the platform MBean server under the name
+     * org.agilewiki.jactor:type=Mailbox,factory=<i>f</i>,name=<i>name</i>.
+     * As a mailbox has no close method, only long-lived mailboxes should be registered.
+     * The metrics remain registered until passed to unregisterMetrics or the factory is closed.
+     *
+     * @param mailbox A mailbox created while metrics were enabled.
+     * @param name    The name of the mailbox, which must be unique within this factory.
+     * @throws Exception Thrown when registration fails.
+     */
+    public void registerMetrics(Mailbox mailbox, String name) throws Exception {
+        MailboxMetrics metrics = mailbox.getMetrics();
+        if (metrics == null)
+            throw new IllegalArgumentException("the mailbox has no metrics");
+        synchronized (registeredMetrics) {
+            if (factoryNumber == 0)
+                factoryNumber = factoryCount.incrementAndGet();
+            metrics.register(new ObjectName("org.agilewiki.jactor:type=Mailbox,factory=" +
+                    factoryNumber + ",name=" + ObjectName.quote(name)));
+            registeredMetrics.add(metrics);
+        }
+    }
+
+    /**
+     * Unregister the metrics of a mailbox from the platform MBean server.
+     *
+     * @param mailbox A mailbox whose metrics were registered by registerMetrics.
+     */
+    public void unregisterMetrics(Mailbox mailbox) {
+        MailboxMetrics metrics = mailbox.getMetrics();
+        if (metrics == null)
+            return;
+        synchronized (registeredMetrics) {
+            if (registeredMetrics.remove(metrics))
+                metrics.unregister();
+        }
+    }
+
+    /**
+     * Assign the timer used to deliver scheduled requests, e.g. one with a coarser tick.
+     * This must be done before any request is scheduled.
+     * The timer is closed when the factory is closed.
+     *
+     * @param timer The timer.
+     */
+    public synchronized void setTimer(JATimer timer) {
+        if (closed)
+            throw new IllegalStateException("closed");
+        if (this.timer != null)
+            throw new IllegalStateException("timer already assigned");
+        this.timer = timer;
+    }
+
+    /**
+     * Returns the timer used to deliver scheduled requests.
+     * A JATimer with a 1 millisecond tick is created when first needed.
+     *
+     * @return The timer.
+     * @throws IllegalStateException Thrown when the timer is first needed after the factory is closed.
+     */
+    @Override
+    public JATimer getTimer() {
+        JATimer timer = this.timer;
+        if (timer != null)
+            return timer;
+        synchronized (this) {
+            if (closed)
+                throw new IllegalStateException("closed");
+            if (this.timer == null)
+                this.timer = new JATimer();
+            return this.timer;
+        }
+    }
+
+    /**
+     * Send a request event to an actor after a delay.
+     * The request is sent by the timer thread, as if by JAEvent.
+     *
+     * @param actor   The target actor.
+     * @param request The request.
+     * @param delay   The delay.
+     * @param unit    The unit of the delay.
+     * @return A handle used to cancel the delivery.
+     */
+    @Override
+    public JATimeout schedule(Actor actor, Request request, long delay, TimeUnit unit) {
+        return getTimer().schedule(new Delivery(actor, request), delay, unit);
+    }
+
+    /**
+     * Send a request event to an actor periodically.
+     * The request is sent by the timer thread, as if by JAEvent.
+     *
+     * @param actor        The target actor.
+     * @param request      The request.
+     * @param initialDelay The delay before the first delivery.
+     * @param period       The interval between deliveries.
+     * @param unit         The unit of the delay and the period.
+     * @return A handle used to cancel the deliveries.
+     */
+    @Override
+    public JATimeout scheduleAtFixedRate(Actor actor, Request request,
+                                         long initialDelay, long period, TimeUnit unit) {
+        return getTimer().scheduleAtFixedRate(new Delivery(actor, request), initialDelay, period, unit);
+    }
+
+    /**
+     * Sends a scheduled request event.
+     */
+    final private static class Delivery implements Runnable {
+        /**
+         * The target actor.
+         */
+        final private Actor actor;
+
+        /**
+         * The request.
+         */
+        final private Request request;
+
+        /**
+         * Create a Delivery.
+         *
+         * @param actor   The target actor.
+         * @param request The request.
+         */
+        Delivery(Actor actor, Request request) {
+            if (actor == null || request == null)
+                throw new IllegalArgumentException("actor and request may not be null");
+            this.actor = actor;
+            this.request = request;
+        }
+
+        @Override
+        public void run() {
+            try {
+                request.sendEvent(actor);
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Stop all the threads as they complete their tasks,
+     * and unregister the metrics registered with JMX.
      */
     @Override
     public void close() {
+        JATimer timer;
+        synchronized (this) {
+            closed = true;
+            timer = this.timer;
+        }
+        if (timer != null)
+            timer.close();
         threadManager.close();
+        synchronized (registeredMetrics) {
+            int i = 0;
+            while (i < registeredMetrics.size()) {
+                registeredMetrics.get(i).unregister();
+                i += 1;
+            }
+            registeredMetrics.clear();
+        }
     }
 
     /**
@@ -63,7 +486,7 @@ final public class JAMailboxFactory implements MailboxFactory {
      */
     @Override
     final public Mailbox createMailbox() {
-        final JLPCMailbox mailbox = new JLPCMailbox(this);
+        final JLPCMailbox mailbox = newMailbox(false, arrayQueueChunkSize);
         return mailbox;
     }
 
@@ -74,7 +497,88 @@ final public class JAMailboxFactory implements MailboxFactory {
      */
     @Override
     final public Mailbox createAsyncMailbox() {
-        final JLPCMailbox mailbox = new JLPCMailbox(this, true);
+        final JLPCMailbox mailbox = newMailbox(true, arrayQueueChunkSize);
+        return mailbox;
+    }
+
+    /**
+     * Create a mailbox which limits the number of pending requests.
+     *
+     * @param capacity       The maximum number of pending requests.
+     * @param overflowPolicy Determines what happens when a request is sent to the mailbox when full.
+     * @return A new mailbox.
+     */
+    @Override
+    final public Mailbox createMailbox(int capacity, OverflowPolicy overflowPolicy) {
+        final JLPCMailbox mailbox = newMailbox(false, chunkSize(overflowPolicy));
+        mailbox.setCapacity(capacity, overflowPolicy);
         return mailbox;
     }
+
+    /**
+     * Create an asynchronous mailbox which limits the number of pending requests.
+     *
+     * @param capacity       The maximum number of pending requests.
+     * @param overflowPolicy Determines what happens when a request is sent to the mailbox when full.
+     * @return A new asynchronous mailbox.
+     */
+    @Override
+    final public Mailbox createAsyncMailbox(int capacity, OverflowPolicy overflowPolicy) {
+        final JLPCMailbox mailbox = newMailbox(true, chunkSize(overflowPolicy));
+        mailbox.setCapacity(capacity, overflowPolicy);
+        return mailbox;
+    }
+
+    /**
+     * Returns the chunk size to be used for a mailbox with the given overflow policy.
+     *
+     * @param overflowPolicy The overflow policy of the mailbox.
+     * @return The chunk size, or 0 when a ConcurrentLinkedQueue is to be used.
+     */
+    private int chunkSize(OverflowPolicy overflowPolicy) {
+        if (overflowPolicy == OverflowPolicy.DROP_OLDEST)
+            return 0;
+        return arrayQueueChunkSize;
+    }
+
+    /**
+     * Create a mailbox.
+     *
+     * @param async     Set to true when requests from other mailboxes
+     *                  are to be processed asynchronously.
+     * @param chunkSize The chunk size of the JAMPSCQueue, or 0 to use a ConcurrentLinkedQueue.
+     * @return A new mailbox.
+     */
+    private JLPCMailbox newMailbox(boolean async, int chunkSize) {
+        JLPCMailbox mailbox;
+        if (chunkSize == 0)
+            mailbox = new JLPCMailbox(this, async);
+        else {
+            JAEventQueue<ArrayList<JAMessage>> eventQueue = new JAEventQueue<ArrayList<JAMessage>>(
+                    threadManager, async, new JAMPSCQueue<ArrayList<JAMessage>>(chunkSize));
+            mailbox = new JLPCMailbox(new JABufferedEventsQueue<JAMessage>(eventQueue), this);
+        }
+        if (recyclingPoolSize > 0)
+            mailbox.setRecycling(recyclingPoolSize);
+        if (homeWorkers)
+            mailbox.getEventQueue().setHomeWorker(nextHomeWorker());
+        if (dispatchBatchLimit > 0 || dispatchTimeSlice > 0)
+            mailbox.getEventQueue().setDispatchLimits(dispatchBatchLimit, dispatchTimeSlice);
+        if (adaptiveCommandeerThreshold > 0)
+            mailbox.setCommandeerPolicy(new AdaptiveCommandeerPolicy(adaptiveCommandeerThreshold));
+        if (metricsEnabled)
+            mailbox.setMetrics(new MailboxMetrics());
+        return mailbox;
+    }
+
+    /**
+     * Returns the home worker of a new mailbox.
+     *
+     * @return The index of a worker.
+     */
+    private synchronized int nextHomeWorker() {
+        int worker = nextHomeWorker;
+        nextHomeWorker = (worker + 1) % ((AffinityThreadManager) threadManager).getThreadCount();
+        return worker;
+    }
 }
@@ -24,6 +24,7 @@
 package org.agilewiki.jactor;
 
 import org.agilewiki.jactor.apc.APCMailbox;
+import org.agilewiki.jactor.lpc.CommandeerPolicy;
 
 /**
  * <p>
@@ -50,4 +51,21 @@ public interface Mailbox extends APCMailbox {
      * @return The mailbox factory.
      */
     public MailboxFactory getMailboxFactory();
+
+    /**
+     * Returns the policy deciding when an actor with another mailbox may process
+     * requests sent to this mailbox on its own thread.
+     *
+     * @return The commandeer policy, or null when senders always try to commandeer this mailbox.
+     */
+    public CommandeerPolicy getCommandeerPolicy();
+
+    /**
+     * Assign the policy deciding when an actor with another mailbox may process
+     * requests sent to this mailbox on its own thread.
+     *
+     * @param commandeerPolicy The commandeer policy, or null when senders are always
+     *                         to try to commandeer this mailbox.
+     */
+    public void setCommandeerPolicy(CommandeerPolicy commandeerPolicy);
 }
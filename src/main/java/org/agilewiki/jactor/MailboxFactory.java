@@ -23,7 +23,13 @@
  */
 package org.agilewiki.jactor;
 
+import org.agilewiki.jactor.apc.OverflowPolicy;
+import org.agilewiki.jactor.concurrent.JATimeout;
+import org.agilewiki.jactor.concurrent.JATimer;
 import org.agilewiki.jactor.concurrent.ThreadManager;
+import org.agilewiki.jactor.lpc.Request;
+
+import java.util.concurrent.TimeUnit;
 
 /**
  * Creates Mailboxes and provides access to the thread manager.
@@ -50,6 +56,55 @@ public interface MailboxFactory {
      */
     Mailbox createAsyncMailbox();
 
+    /**
+     * Create a mailbox which limits the number of pending requests.
+     *
+     * @param capacity       The maximum number of pending requests.
+     * @param overflowPolicy Determines what happens when a request is sent to the mailbox when full.
+     * @return A new mailbox.
+     */
+    Mailbox createMailbox(int capacity, OverflowPolicy overflowPolicy);
+
+    /**
+     * Create an asynchronous mailbox which limits the number of pending requests.
+     *
+     * @param capacity       The maximum number of pending requests.
+     * @param overflowPolicy Determines what happens when a request is sent to the mailbox when full.
+     * @return A new asynchronous mailbox.
+     */
+    Mailbox createAsyncMailbox(int capacity, OverflowPolicy overflowPolicy);
+
+    /**
+     * Returns the timer used to deliver scheduled requests.
+     *
+     * @return The timer.
+     * @throws IllegalStateException Thrown when the timer is first needed after the factory is closed.
+     */
+    JATimer getTimer();
+
+    /**
+     * Send a request event to an actor after a delay.
+     *
+     * @param actor   The target actor.
+     * @param request The request.
+     * @param delay   The delay.
+     * @param unit    The unit of the delay.
+     * @return A handle used to cancel the delivery.
+     */
+    JATimeout schedule(Actor actor, Request request, long delay, TimeUnit unit);
+
+    /**
+     * Send a request event to an actor periodically.
+     *
+     * @param actor        The target actor.
+     * @param request      The request.
+     * @param initialDelay The delay before the first delivery.
+     * @param period       The interval between deliveries.
+     * @param unit         The unit of the delay and the period.
+     * @return A handle used to cancel the deliveries.
+     */
+    JATimeout scheduleAtFixedRate(Actor actor, Request request, long initialDelay, long period, TimeUnit unit);
+
     /**
      * Stop all the threads as they complete their tasks.
      */
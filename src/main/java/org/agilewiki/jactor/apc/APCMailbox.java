@@ -24,15 +24,17 @@
 package org.agilewiki.jactor.apc;
 
 import org.agilewiki.jactor.ExceptionHandler;
+import org.agilewiki.jactor.bufferedEvents.BoundedEventsDestination;
 import org.agilewiki.jactor.bufferedEvents.BufferedEventsDestination;
 import org.agilewiki.jactor.events.EventQueue;
+import org.agilewiki.jactor.metrics.MailboxMetrics;
 
 import java.util.ArrayList;
 
 /**
  * Serves as the asynchronous transport for APCMessages.
  */
-public interface APCMailbox extends BufferedEventsDestination<JAMessage> {
+public interface APCMailbox extends BoundedEventsDestination<JAMessage> {
 
     /**
      * Returns the exception handler.
@@ -48,6 +50,42 @@ public interface APCMailbox extends BufferedEventsDestination<JAMessage> {
      */
     public void setExceptionHandler(ExceptionHandler exceptionHandler);
 
+    /**
+     * Returns the maximum number of pending requests.
+     *
+     * @return The maximum number of pending requests, or 0 when unbounded.
+     */
+    public int getCapacity();
+
+    /**
+     * Returns the policy applied when a request is sent to the mailbox when full.
+     *
+     * @return The overflow policy, or null when unbounded.
+     */
+    public OverflowPolicy getOverflowPolicy();
+
+    /**
+     * Returns the number of pending requests.
+     *
+     * @return The number of pending requests, or 0 when unbounded.
+     */
+    public int getQueuedRequests();
+
+    /**
+     * Returns the instrumentation of the mailbox.
+     *
+     * @return The metrics, or null when instrumentation is disabled.
+     */
+    public MailboxMetrics getMetrics();
+
+    /**
+     * Returns an inactive recyclable request for an actor using this mailbox to send.
+     * This method must only be called by the thread in control of the mailbox.
+     *
+     * @return A recyclable request, or null when recycling is disabled.
+     */
+    public JARequest takeRecycledRequest();
+
     /**
      * Returns the request message being processed.
      *
@@ -27,4 +27,24 @@ package org.agilewiki.jactor.apc;
  * All requests sent to a mailbox, and all returned responses, are subclasses of JAMessage.
  */
 abstract public class JAMessage {
+    /**
+     * When metrics are enabled, the time (System.nanoTime) at which the message was enqueued.
+     */
+    long enqueueTime;
+
+    /**
+     * True when the message is to be processed ahead of other pending messages.
+     */
+    boolean priority;
+
+    /**
+     * Returns true when the message is to be processed ahead of other pending messages.
+     * A priority message is never buffered with other messages,
+     * so a list of messages holding a priority message holds only that message.
+     *
+     * @return True when the message has priority.
+     */
+    final public boolean isPriority() {
+        return priority;
+    }
 }
@@ -24,15 +24,22 @@
 package org.agilewiki.jactor.apc;
 
 import org.agilewiki.jactor.ExceptionHandler;
+import org.agilewiki.jactor.Mailbox;
 import org.agilewiki.jactor.RP;
 import org.agilewiki.jactor.bufferedEvents.BufferedEventsDestination;
 import org.agilewiki.jactor.bufferedEvents.BufferedEventsQueue;
 import org.agilewiki.jactor.bufferedEvents.JABufferedEventsQueue;
+import org.agilewiki.jactor.concurrent.JAObjectPool;
 import org.agilewiki.jactor.concurrent.ThreadManager;
 import org.agilewiki.jactor.events.EventProcessor;
 import org.agilewiki.jactor.events.EventQueue;
+import org.agilewiki.jactor.lpc.RequestSource;
+import org.agilewiki.jactor.metrics.MailboxMetrics;
 
 import java.util.ArrayList;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * An implementation of APCMailbox.
@@ -54,6 +61,47 @@ public class JAPCMailbox implements APCMailbox {
      */
     private BufferedEventsQueue<JAMessage> bufferedEventQueue;
 
+    /**
+     * The maximum number of pending requests, or 0 when unbounded.
+     */
+    private int capacity;
+
+    /**
+     * Determines what happens when a request is sent to the mailbox when full.
+     */
+    private OverflowPolicy overflowPolicy;
+
+    /**
+     * The number of pending requests, maintained only when the mailbox is bounded.
+     */
+    final private AtomicInteger queuedRequests = new AtomicInteger();
+
+    /**
+     * The number of threads waiting for room in the mailbox.
+     */
+    final private AtomicInteger waitingSenders = new AtomicInteger();
+
+    /**
+     * Used by threads waiting for room in the mailbox.
+     */
+    final private Object spaceLock = new Object();
+
+    /**
+     * The senders holding requests refused for lack of room, to be told when there may be room.
+     */
+    final private Queue<BufferedEventsDestination<JAMessage>> blockedSenders =
+            new ConcurrentLinkedQueue<BufferedEventsDestination<JAMessage>>();
+
+    /**
+     * Recyclable requests sent by actors using this mailbox, or null when recycling is disabled.
+     */
+    private JAObjectPool<JARequest> requestPool;
+
+    /**
+     * Instrumentation of the mailbox, or null when disabled.
+     */
+    private MailboxMetrics metrics;
+
     /**
      * Create a JAPCMailbox.
      * Use this constructor when providing an implementation of BufferedEventsQueue
@@ -71,7 +119,25 @@ public class JAPCMailbox implements APCMailbox {
 
             @Override
             public void processEvent(JAMessage event) {
+                MailboxMetrics metrics = JAPCMailbox.this.metrics;
+                if (metrics == null) {
+                    process(event);
+                    return;
+                }
+                long t0 = System.nanoTime();
+                process(event);
+                metrics.dispatched(t0 - event.enqueueTime, System.nanoTime() - t0);
+            }
+
+            /**
+             * Process a request or response.
+             *
+             * @param event The request or response.
+             */
+            private void process(JAMessage event) {
                 if (event instanceof JARequest) {
+                    if (capacity > 0 && !event.priority)
+                        released(1);
                     currentRequest = (JARequest) event;
                     try {
                         currentRequest.getRequestProcessor().processRequest(currentRequest);
@@ -93,6 +159,7 @@ public class JAPCMailbox implements APCMailbox {
                         e.printStackTrace();
                         throw new UnsupportedOperationException(e);
                     }
+                    jaResponse.getJAPCRequest().recycle();
                 }
             }
         });
@@ -108,6 +175,115 @@ public class JAPCMailbox implements APCMailbox {
         this(new JABufferedEventsQueue<JAMessage>(threadManager, autonomous));
     }
 
+    /**
+     * Limits the number of pending requests.
+     * This should be called before the mailbox is used.
+     *
+     * @param capacity       The maximum number of pending requests, or 0 when unbounded.
+     * @param overflowPolicy Determines what happens when a request is sent to the mailbox when full.
+     */
+    final public void setCapacity(int capacity, OverflowPolicy overflowPolicy) {
+        if (capacity < 0)
+            throw new IllegalArgumentException("capacity may not be negative");
+        if (capacity > 0 && overflowPolicy == null)
+            throw new IllegalArgumentException("overflowPolicy may not be null");
+        this.capacity = capacity;
+        this.overflowPolicy = overflowPolicy;
+    }
+
+    /**
+     * <p>
+     * Enables the recycling of the requests sent by actors using this mailbox
+     * and of the lists used to buffer outgoing messages.
+     * This should be called before the mailbox is used.
+     * </p>
+     * <p>
+     * A request sent to an actor with a different mailbox is recycled once its response
+     * has been processed. So when recycling is enabled, an actor must not use the RP
+     * passed with a request once it has returned a response.
+     * Priority requests are not recycled, as their responses are not held back until
+     * the target has finished processing them.
+     * </p>
+     *
+     * @param poolSize The maximum number of requests and of lists held for reuse,
+     *                 or 0 to disable recycling.
+     */
+    final public void setRecycling(int poolSize) {
+        if (poolSize < 0)
+            throw new IllegalArgumentException("poolSize may not be negative");
+        if (poolSize == 0)
+            requestPool = null;
+        else
+            requestPool = new JAObjectPool<JARequest>(poolSize);
+        bufferedEventQueue.setRecycling(poolSize);
+    }
+
+    /**
+     * Returns an inactive recyclable request for an actor using this mailbox to send.
+     * This method must only be called by the thread in control of the mailbox.
+     *
+     * @return A recyclable request, or null when recycling is disabled.
+     */
+    @Override
+    final public JARequest takeRecycledRequest() {
+        if (requestPool == null)
+            return null;
+        JARequest request = requestPool.take();
+        if (request == null)
+            request = new JARequest(requestPool);
+        return request;
+    }
+
+    /**
+     * Enables instrumentation of the mailbox.
+     * This should be called before the mailbox is used.
+     *
+     * @param metrics Receives the measurements, or null to disable instrumentation.
+     */
+    final public void setMetrics(MailboxMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Returns the instrumentation of the mailbox.
+     *
+     * @return The metrics, or null when instrumentation is disabled.
+     */
+    @Override
+    final public MailboxMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Returns the maximum number of pending requests.
+     *
+     * @return The maximum number of pending requests, or 0 when unbounded.
+     */
+    @Override
+    final public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Returns the policy applied when a request is sent to the mailbox when full.
+     *
+     * @return The overflow policy, or null when unbounded.
+     */
+    @Override
+    final public OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    /**
+     * Returns the number of pending requests.
+     *
+     * @return The number of pending requests, or 0 when unbounded.
+     */
+    @Override
+    final public int getQueuedRequests() {
+        return queuedRequests.get();
+    }
+
     /**
      * Returns the exception handler.
      *
@@ -166,12 +342,275 @@ public class JAPCMailbox implements APCMailbox {
 
     /**
      * The putBufferedEvents method adds events to be processed.
+     * A priority message is not limited by the capacity of the mailbox
+     * and is processed ahead of the other pending messages.
+     * When a BLOCK or CALLER_RUNS mailbox is full, only a thread from outside the actor system
+     * waits for room; requests from an actor are refused instead, as actors are expected
+     * to use offerBufferedEvents.
      *
      * @param bufferedEvents The events to be processed.
      */
     @Override
     final public void putBufferedEvents(ArrayList<JAMessage> bufferedEvents) {
-        bufferedEventQueue.putBufferedEvents(bufferedEvents);
+        if (bufferedEvents.get(0).priority) {
+            enqueue(bufferedEvents, true);
+            return;
+        }
+        if (capacity == 0) {
+            enqueue(bufferedEvents);
+            return;
+        }
+        int n = requestCount(bufferedEvents);
+        if (n == 0) {
+            enqueue(bufferedEvents);
+            return;
+        }
+        if (overflowPolicy == OverflowPolicy.REJECT) {
+            if (reserve(n))
+                enqueue(bufferedEvents);
+            else
+                reject(bufferedEvents, true);
+        } else if (overflowPolicy == OverflowPolicy.DROP_OLDEST) {
+            queuedRequests.addAndGet(n);
+            enqueue(bufferedEvents);
+            dropOldest();
+        } else if (reserve(n))
+            enqueue(bufferedEvents);
+        else if (fromActor(bufferedEvents))
+            reject(bufferedEvents, true);
+        else {
+            awaitSpace(n);
+            enqueue(bufferedEvents);
+        }
+    }
+
+    /**
+     * Adds messages to be processed, unless the mailbox is full.
+     * Only the BLOCK and CALLER_RUNS policies refuse the messages, as the thread of an actor
+     * must not wait for room: the mailbox may need that very thread to make room.
+     * The other policies handle a full mailbox as usual.
+     *
+     * @param bufferedEvents The messages to be processed.
+     * @param sender         Receives an empty list of messages when the messages should be offered again.
+     * @return True when the messages were accepted.
+     */
+    @Override
+    final public boolean offerBufferedEvents(ArrayList<JAMessage> bufferedEvents,
+                                             BufferedEventsDestination<JAMessage> sender) {
+        if (capacity == 0 || bufferedEvents.get(0).priority ||
+                overflowPolicy == OverflowPolicy.REJECT || overflowPolicy == OverflowPolicy.DROP_OLDEST) {
+            putBufferedEvents(bufferedEvents);
+            return true;
+        }
+        int n = requestCount(bufferedEvents);
+        if (n > 0 && !reserve(n)) {
+            blockedSenders.offer(sender);
+            if (!reserve(n))
+                return false;
+        }
+        enqueue(bufferedEvents);
+        return true;
+    }
+
+    /**
+     * Returns true when the requests in a list of messages were sent by an actor.
+     *
+     * @param bufferedEvents A list of messages.
+     * @return True when the requests have a source with a mailbox.
+     */
+    private boolean fromActor(ArrayList<JAMessage> bufferedEvents) {
+        int i = 0;
+        while (i < bufferedEvents.size()) {
+            JAMessage message = bufferedEvents.get(i);
+            if (message instanceof JARequest) {
+                APCRequestSource requestSource = ((JARequest) message).getRequestSource();
+                return requestSource instanceof RequestSource &&
+                        ((RequestSource) requestSource).getMailbox() != null;
+            }
+            i += 1;
+        }
+        return false;
+    }
+
+    /**
+     * Pass messages to the lower-level mailbox, recording them when metrics are enabled.
+     *
+     * @param bufferedEvents The messages to be processed.
+     */
+    private void enqueue(ArrayList<JAMessage> bufferedEvents) {
+        enqueue(bufferedEvents, false);
+    }
+
+    /**
+     * Pass messages to the lower-level mailbox, recording them when metrics are enabled.
+     *
+     * @param bufferedEvents The messages to be processed.
+     * @param priority       True when the messages are to be processed ahead of the others.
+     */
+    private void enqueue(ArrayList<JAMessage> bufferedEvents, boolean priority) {
+        MailboxMetrics metrics = this.metrics;
+        if (metrics != null) {
+            long now = System.nanoTime();
+            int i = 0;
+            while (i < bufferedEvents.size()) {
+                bufferedEvents.get(i).enqueueTime = now;
+                i += 1;
+            }
+            metrics.enqueued(bufferedEvents.size());
+        }
+        if (priority)
+            bufferedEventQueue.getEventQueue().putPriorityEvent(bufferedEvents);
+        else
+            bufferedEventQueue.putBufferedEvents(bufferedEvents);
+    }
+
+    /**
+     * Returns the number of requests in a list of messages.
+     *
+     * @param bufferedEvents A list of messages.
+     * @return The number of requests.
+     */
+    private int requestCount(ArrayList<JAMessage> bufferedEvents) {
+        int n = 0;
+        int i = 0;
+        while (i < bufferedEvents.size()) {
+            if (bufferedEvents.get(i) instanceof JARequest)
+                n += 1;
+            i += 1;
+        }
+        return n;
+    }
+
+    /**
+     * Reserve room for pending requests.
+     * A list of requests larger than the capacity is accepted when the mailbox is empty.
+     *
+     * @param n The number of requests.
+     * @return True when room was reserved.
+     */
+    private boolean reserve(int n) {
+        while (true) {
+            int q = queuedRequests.get();
+            if (q > 0 && q + n > capacity)
+                return false;
+            if (queuedRequests.compareAndSet(q, q + n))
+                return true;
+        }
+    }
+
+    /**
+     * Wait until room has been reserved for pending requests.
+     *
+     * @param n The number of requests.
+     */
+    private void awaitSpace(int n) {
+        synchronized (spaceLock) {
+            waitingSenders.incrementAndGet();
+            try {
+                while (!reserve(n)) {
+                    try {
+                        spaceLock.wait();
+                    } catch (InterruptedException e) {
+                    }
+                }
+            } finally {
+                waitingSenders.decrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Release the room reserved for pending requests.
+     *
+     * @param n The number of requests.
+     */
+    private void released(int n) {
+        queuedRequests.addAndGet(-n);
+        if (waitingSenders.get() > 0) {
+            synchronized (spaceLock) {
+                spaceLock.notifyAll();
+            }
+        }
+        BufferedEventsDestination<JAMessage> sender = blockedSenders.poll();
+        while (sender != null) {
+            sender.putBufferedEvents(new ArrayList<JAMessage>(0));
+            sender = blockedSenders.poll();
+        }
+    }
+
+    /**
+     * Remove the oldest pending messages until the mailbox is no longer over capacity,
+     * or until there are no more messages which can be removed.
+     * Responses and requests from outside the actor system are put back in the mailbox
+     * ahead of the newer messages, with the priority messages, so they are not removed again.
+     */
+    private void dropOldest() {
+        while (queuedRequests.get() > capacity) {
+            ArrayList<JAMessage> oldest = bufferedEventQueue.getEventQueue().removeEvent();
+            if (oldest == null)
+                return;
+            if (metrics != null)
+                metrics.removed(oldest.size());
+            reject(oldest, false);
+        }
+    }
+
+    /**
+     * Refuse the requests in a list of messages.
+     * Responses, which are never refused, are put in the mailbox:
+     * after the other messages when just sent, and otherwise ahead of them.
+     *
+     * @param bufferedEvents A list of messages.
+     * @param sent           True when the requests have just been sent and were never counted as pending.
+     * @return The number of requests refused.
+     */
+    private int reject(ArrayList<JAMessage> bufferedEvents, boolean sent) {
+        int refused = 0;
+        ArrayList<JAMessage> kept = null;
+        int i = 0;
+        while (i < bufferedEvents.size()) {
+            JAMessage message = bufferedEvents.get(i);
+            i += 1;
+            if (message instanceof JARequest) {
+                JARequest request = (JARequest) message;
+                Mailbox sourceMailbox = null;
+                APCRequestSource requestSource = request.getRequestSource();
+                if (requestSource instanceof RequestSource)
+                    sourceMailbox = ((RequestSource) requestSource).getMailbox();
+                if (request.isEvent() || sourceMailbox != null) {
+                    if (!sent)
+                        released(1);
+                    refuse(request, sourceMailbox);
+                    refused += 1;
+                    continue;
+                }
+                if (sent)
+                    throw new MailboxOverflowException("mailbox is full");
+            }
+            if (kept == null)
+                kept = new ArrayList<JAMessage>(bufferedEvents.size());
+            kept.add(message);
+        }
+        if (kept != null)
+            enqueue(kept, !sent);
+        return refused;
+    }
+
+    /**
+     * Pass a MailboxOverflowException back to the source of a request.
+     *
+     * @param request       The refused request.
+     * @param sourceMailbox The mailbox of the source of the request, or null for an event.
+     */
+    private void refuse(JARequest request, Mailbox sourceMailbox) {
+        if (request.isEvent() || !request.cancelTimeout())
+            return;
+        request.inactive();
+        JAResponse response = new JAResponse(new MailboxOverflowException("mailbox is full"));
+        response.setJAPCRequest(request);
+        ArrayList<JAMessage> bufferedEvents = new ArrayList<JAMessage>(1);
+        bufferedEvents.add(response);
+        sourceMailbox.putBufferedEvents(bufferedEvents);
     }
 
     /**
@@ -194,12 +633,19 @@ public class JAPCMailbox implements APCMailbox {
 
     /**
      * Buffer the request for subsequent sending.
+     * A priority request is sent immediately instead.
      *
      * @param destination Buffered events receiver.
      * @param request     The request to be sent.
      */
     @Override
     public void send(BufferedEventsDestination<JAMessage> destination, JARequest request) {
+        if (request.priority) {
+            ArrayList<JAMessage> bufferedEvents = new ArrayList<JAMessage>(1);
+            bufferedEvents.add(request);
+            destination.putBufferedEvents(bufferedEvents);
+            return;
+        }
         bufferedEventQueue.send(destination, request);
     }
 
@@ -210,7 +656,7 @@ public class JAPCMailbox implements APCMailbox {
      */
     @Override
     final public void response(Object unwrappedResponse) {
-        if (currentRequest.isActive()) {
+        if (currentRequest != null && currentRequest.isActive()) {
             currentRequest.inactive();
             currentRequest.response(bufferedEventQueue, unwrappedResponse);
         }
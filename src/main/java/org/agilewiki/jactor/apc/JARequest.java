@@ -26,8 +26,13 @@ package org.agilewiki.jactor.apc;
 import org.agilewiki.jactor.ExceptionHandler;
 import org.agilewiki.jactor.RP;
 import org.agilewiki.jactor.bufferedEvents.BufferedEventsQueue;
+import org.agilewiki.jactor.concurrent.JAObjectPool;
+import org.agilewiki.jactor.concurrent.JATimeout;
 import org.agilewiki.jactor.lpc.Request;
 
+import java.util.ArrayList;
+import java.util.concurrent.TimeoutException;
+
 /**
  * Requests sent to a JAPCMailbox are wrapped by an JARequest.
  */
@@ -61,6 +66,32 @@ final public class JARequest extends JAMessage {
      */
     private boolean active = true;
 
+    /**
+     * The pool to which this request is returned once its response has been processed,
+     * or null when the request is not recyclable.
+     */
+    private JAObjectPool<JARequest> pool;
+
+    /**
+     * Incremented each time a recyclable request is recycled.
+     */
+    private int generation;
+
+    /**
+     * The response, reused when the request is recyclable.
+     */
+    private JAResponse japcResponse;
+
+    /**
+     * An object used by the target to return the response, reused when the request is recyclable.
+     */
+    private RP responder;
+
+    /**
+     * The timeout of a request sent with a timeout, or null.
+     */
+    private JATimeout timeout;
+
     /**
      * Create an JARequest.
      *
@@ -79,6 +110,155 @@ final public class JARequest extends JAMessage {
         this.responseProcessor = responseProcessor;
     }
 
+    /**
+     * Create a recyclable JARequest.
+     * The request remains inactive until it is reused.
+     *
+     * @param pool The pool to which the request is returned once its response has been processed.
+     */
+    public JARequest(JAObjectPool<JARequest> pool) {
+        this.pool = pool;
+        active = false;
+    }
+
+    /**
+     * Reinitialize a recyclable request.
+     *
+     * @param requestSource     The target of the response.
+     * @param requestProcessor  The target of the request.
+     * @param unwrappedRequest  The wrapped request.
+     * @param responseProcessor Processes the response.
+     */
+    final public void reuse(APCRequestSource requestSource,
+                            RequestProcessor requestProcessor,
+                            Request unwrappedRequest,
+                            RP responseProcessor) {
+        this.requestSource = requestSource;
+        this.requestProcessor = requestProcessor;
+        this.unwrappedRequest = unwrappedRequest;
+        this.responseProcessor = responseProcessor;
+        active = true;
+    }
+
+    /**
+     * Marks the request, and its response, as having priority over other pending messages.
+     *
+     * @param priority True when the request has priority.
+     */
+    final public void setPriority(boolean priority) {
+        this.priority = priority;
+    }
+
+    /**
+     * Assigns the timeout of a request sent with a timeout.
+     * A request with a timeout must not be recyclable, as it may time out while still being processed.
+     *
+     * @param timeout The timeout, which passes a TimeoutException back to the source when it expires.
+     */
+    final public void setTimeout(JATimeout timeout) {
+        this.timeout = timeout;
+    }
+
+    /**
+     * Cancel the timeout of the request, if any, before its response is sent.
+     *
+     * @return False when the request has already timed out, so the response is to be dropped.
+     */
+    final public boolean cancelTimeout() {
+        return timeout == null || timeout.cancel();
+    }
+
+    /**
+     * Marks the request as having timed out, so that a late response is dropped.
+     *
+     * @return A list holding the response to be passed back to the source: a TimeoutException.
+     */
+    final public ArrayList<JAMessage> timedOut() {
+        active = false;
+        JAResponse japcResponse = new JAResponse(new TimeoutException("no response to " +
+                unwrappedRequest.getClass().getName()));
+        japcResponse.setJAPCRequest(this);
+        japcResponse.priority = priority;
+        ArrayList<JAMessage> bufferedEvents = new ArrayList<JAMessage>(1);
+        bufferedEvents.add(japcResponse);
+        return bufferedEvents;
+    }
+
+    /**
+     * Returns true when the request is returned to a pool once its response has been processed.
+     *
+     * @return True when the request is recyclable.
+     */
+    final public boolean isRecyclable() {
+        return pool != null;
+    }
+
+    /**
+     * Returns the number of times the request has been recycled.
+     * A reference to a recyclable request is stale when the generation has changed.
+     *
+     * @return The generation of the request.
+     */
+    final public int getGeneration() {
+        return generation;
+    }
+
+    /**
+     * Returns the object used by the target to return the response, or null.
+     *
+     * @return The object used by the target to return the response.
+     */
+    final public RP getResponder() {
+        return responder;
+    }
+
+    /**
+     * Assigns the object used by the target to return the response.
+     * This is retained only by recyclable requests, so that it can be reused.
+     *
+     * @param responder The object used by the target to return the response.
+     */
+    final public void setResponder(RP responder) {
+        if (pool != null)
+            this.responder = responder;
+    }
+
+    /**
+     * Return a recyclable request to its pool once its response has been processed.
+     * Nothing is done when the request is not recyclable.
+     */
+    final public void recycle() {
+        if (pool == null)
+            return;
+        retire();
+        if (japcResponse != null)
+            japcResponse.setUnwrappedResponse(null);
+        pool.recycle(this);
+    }
+
+    /**
+     * Marks a request which is about to be reused as no longer in use,
+     * so that stale references to it can be detected by a change in generation.
+     */
+    final public void retire() {
+        generation += 1;
+        active = false;
+        priority = false;
+        timeout = null;
+        requestSource = null;
+        requestProcessor = null;
+        unwrappedRequest = null;
+    }
+
+    /**
+     * Returns the target of the response.
+     *
+     * @return The target of the response.
+     */
+    final public APCRequestSource getRequestSource() {
+        return requestSource;
+    }
+
     /**
      * Returns the requestProcessor.
      *
@@ -147,8 +327,17 @@ final public class JARequest extends JAMessage {
      * @param unwrappedResponse The unwrapped response.
      */
     final public void response(BufferedEventsQueue<JAMessage> eventQueue, Object unwrappedResponse) {
-        JAResponse japcResponse = new JAResponse(unwrappedResponse);
-        japcResponse.setJAPCRequest(this);
+        if (timeout != null && !timeout.cancel())
+            return;
+        JAResponse japcResponse = this.japcResponse;
+        if (japcResponse == null) {
+            japcResponse = new JAResponse(unwrappedResponse);
+            japcResponse.setJAPCRequest(this);
+            if (pool != null)
+                this.japcResponse = japcResponse;
+        } else
+            japcResponse.setUnwrappedResponse(unwrappedResponse);
+        japcResponse.priority = priority;
         requestSource.responseFrom(eventQueue, japcResponse);
     }
 }
@@ -59,6 +59,15 @@ final public class JAResponse extends JAMessage {
         return unwrappedResponse;
     }
 
+    /**
+     * Assign the unwrapped response.
+     *
+     * @param unwrappedResponse The unwrapped response.
+     */
+    public void setUnwrappedResponse(Object unwrappedResponse) {
+        this.unwrappedResponse = unwrappedResponse;
+    }
+
     /**
      * Assign the request to which this is the response.
      *
@@ -76,4 +85,13 @@ final public class JAResponse extends JAMessage {
     public RP getResponseProcessor() {
         return japcRequest.getResponseProcessor();
     }
+
+    /**
+     * Returns the request to which this is the response.
+     *
+     * @return The request to which this is the response.
+     */
+    public JARequest getJAPCRequest() {
+        return japcRequest;
+    }
 }
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2011 Bill La Forge
+ *
+ * This file is part of AgileWiki and is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License (LGPL) as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This code is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA
+ * or navigate to the following url http://www.gnu.org/licenses/lgpl-2.1.txt
+ *
+ * Note however that only Scala, Java and JavaScript files are being covered by LGPL.
+ * All other files are covered by the Common Public License (CPL).
+ * A copy of this license is also included and can be
+ * found as well at http://www.opensource.org/licenses/cpl1.0.txt
+ */
+package org.agilewiki.jactor.apc;
+
+/**
+ * Determines what happens when a request is sent to a bounded mailbox that is full.
+ * Responses are never refused, as they are always matched by a request which was accepted.
+ */
+public enum OverflowPolicy {
+    /**
+     * A thread from outside the actor system waits until there is room in the mailbox.
+     * The requests of an actor are instead held in the outbox of the actor's mailbox
+     * until there is room, as the thread of the actor may be needed to make room.
+     */
+    BLOCK,
+
+    /**
+     * The request is refused with a MailboxOverflowException, which is passed back to the sender
+     * as the response. Events (requests without a response) are discarded.
+     */
+    REJECT,
+
+    /**
+     * The request is accepted, and the oldest pending requests are refused with a
+     * MailboxOverflowException until the mailbox is no longer over capacity.
+     * Requests sent from outside the actor system, e.g. by JAFuture, are never discarded.
+     */
+    DROP_OLDEST,
+
+    /**
+     * The sender tries for a while to gain control of the mailbox and then processes the request
+     * synchronously on its own thread. Otherwise, e.g. when the mailbox is asynchronous or remains
+     * busy, the request waits until there is room in the mailbox, as with BLOCK.
+     */
+    CALLER_RUNS
+}
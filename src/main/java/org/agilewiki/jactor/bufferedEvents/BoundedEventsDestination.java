@@ -0,0 +1,45 @@
+/*
+ * Copyright 2011 Bill La Forge
+ *
+ * This file is part of AgileWiki and is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License (LGPL) as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This code is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA
+ * or navigate to the following url http://www.gnu.org/licenses/lgpl-2.1.txt
+ *
+ * Note however that only Scala, Java and JavaScript files are being covered by LGPL.
+ * All other files are covered by the Common Public License (CPL).
+ * A copy of this license is also included and can be
+ * found as well at http://www.opensource.org/licenses/cpl1.0.txt
+ */
+package org.agilewiki.jactor.bufferedEvents;
+
+import java.util.ArrayList;
+
+/**
+ * A BoundedEventsDestination may refuse a list of events when it has no room for them,
+ * so that a sender which must not wait can hold on to the events instead.
+ *
+ * @param <E> The type of event.
+ */
+public interface BoundedEventsDestination<E> extends BufferedEventsDestination<E> {
+    /**
+     * Adds events to be processed, unless there is no room for them.
+     * When the events are refused, an empty list of events is later passed
+     * to the sender once there may be room, so that it can offer them again.
+     *
+     * @param bufferedEvents The events to be processed.
+     * @param sender         Receives an empty list of events when the events should be offered again.
+     * @return True when the events were accepted.
+     */
+    public boolean offerBufferedEvents(ArrayList<E> bufferedEvents, BufferedEventsDestination<E> sender);
+}
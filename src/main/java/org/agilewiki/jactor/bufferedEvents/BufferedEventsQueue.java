@@ -48,6 +48,14 @@ public interface BufferedEventsQueue<E>
      */
     public void setInitialBufferCapacity(int initialBufferCapacity);
 
+    /**
+     * Enables the reuse of the lists used to buffer outgoing events.
+     * A list is recycled once a BufferedEventsQueue has processed its events.
+     *
+     * @param poolSize The maximum number of lists held for reuse, or 0 to disable recycling.
+     */
+    public void setRecycling(int poolSize);
+
     /**
      * Buffer the event for subsequent sending.
      *
@@ -23,14 +23,14 @@
  */
 package org.agilewiki.jactor.bufferedEvents;
 
+import org.agilewiki.jactor.concurrent.JAObjectPool;
 import org.agilewiki.jactor.concurrent.ThreadManager;
 import org.agilewiki.jactor.events.EventProcessor;
 import org.agilewiki.jactor.events.EventQueue;
 import org.agilewiki.jactor.events.JAEventQueue;
 
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.Iterator;
+import java.util.IdentityHashMap;
 
 /**
  * A BufferedEventsQueue receives buffered events, queues them,
@@ -56,11 +56,22 @@ final public class JABufferedEventsQueue<E>
     private int initialBufferCapacity = 10;
 
     /**
-     * The pending HashMap holds the buffered events which
+     * The pending map holds the buffered events which
      * have not yet been sent.
      */
-    private HashMap<BufferedEventsDestination<E>, ArrayList<E>> pending =
-            new HashMap<BufferedEventsDestination<E>, ArrayList<E>>();
+    private IdentityHashMap<BufferedEventsDestination<E>, ArrayList<E>> pending =
+            new IdentityHashMap<BufferedEventsDestination<E>, ArrayList<E>>();
+
+    /**
+     * The destinations of the pending events, in the order they were first sent to.
+     */
+    private ArrayList<BufferedEventsDestination<E>> pendingDestinations =
+            new ArrayList<BufferedEventsDestination<E>>();
+
+    /**
+     * Lists for buffering outgoing events, or null when recycling is disabled.
+     */
+    private JAObjectPool<RecyclableEvents<E>> listPool;
 
     /**
      * Create a BufferedEventsQueue.
@@ -77,6 +88,8 @@ final public class JABufferedEventsQueue<E>
                     eventProcessor.processEvent(bufferedEvents.get(i));
                     i += 1;
                 }
+                if (bufferedEvents instanceof RecyclableEvents)
+                    ((RecyclableEvents<E>) bufferedEvents).recycle();
             }
 
             @Override
@@ -106,6 +119,22 @@ final public class JABufferedEventsQueue<E>
         this.initialBufferCapacity = initialBufferCapacity;
     }
 
+    /**
+     * Enables the reuse of the lists used to buffer outgoing events.
+     * A list is recycled once a BufferedEventsQueue has processed its events.
+     *
+     * @param poolSize The maximum number of lists held for reuse, or 0 to disable recycling.
+     */
+    @Override
+    public void setRecycling(int poolSize) {
+        if (poolSize < 0)
+            throw new IllegalArgumentException("poolSize may not be negative");
+        if (poolSize == 0)
+            listPool = null;
+        else
+            listPool = new JAObjectPool<RecyclableEvents<E>>(poolSize);
+    }
+
     /**
      * Buffer the event for subsequent sending.
      *
@@ -116,27 +145,65 @@ final public class JABufferedEventsQueue<E>
     public void send(BufferedEventsDestination<E> destination, E event) {
         ArrayList<E> bufferedEvents = pending.get(destination);
         if (bufferedEvents == null) {
-            bufferedEvents = new ArrayList<E>(initialBufferCapacity);
+            bufferedEvents = newBufferedEvents();
             pending.put(destination, bufferedEvents);
+            pendingDestinations.add(destination);
         }
         bufferedEvents.add(event);
     }
 
     /**
      * Send any pending events.
+     * Events refused by a BoundedEventsDestination remain pending,
+     * and are offered again once the destination passes back an empty list of events.
      */
     public void sendPendingEvents() {
-        if (isEmpty() && !pending.isEmpty()) {
-            Iterator<BufferedEventsDestination<E>> it = pending.keySet().iterator();
-            while (it.hasNext()) {
-                BufferedEventsDestination<E> destination = it.next();
+        if (isEmpty())
+            flush();
+    }
+
+    /**
+     * Send the pending events, even when there are incoming events yet to be processed.
+     */
+    private void flush() {
+        if (!pending.isEmpty()) {
+            int kept = 0;
+            int i = 0;
+            while (i < pendingDestinations.size()) {
+                BufferedEventsDestination<E> destination = pendingDestinations.get(i);
                 ArrayList<E> bufferedEvents = pending.get(destination);
-                destination.putBufferedEvents(bufferedEvents);
+                if (destination instanceof BoundedEventsDestination) {
+                    if (((BoundedEventsDestination<E>) destination).offerBufferedEvents(bufferedEvents, this))
+                        pending.remove(destination);
+                    else {
+                        pendingDestinations.set(kept, destination);
+                        kept += 1;
+                    }
+                } else {
+                    destination.putBufferedEvents(bufferedEvents);
+                    pending.remove(destination);
+                }
+                i += 1;
             }
-            pending.clear();
+            while (pendingDestinations.size() > kept)
+                pendingDestinations.remove(pendingDestinations.size() - 1);
         }
     }
 
+    /**
+     * Returns an empty list for buffering outgoing events.
+     *
+     * @return A recycled list, or a new one.
+     */
+    private ArrayList<E> newBufferedEvents() {
+        if (listPool == null)
+            return new ArrayList<E>(initialBufferCapacity);
+        RecyclableEvents<E> bufferedEvents = listPool.take();
+        if (bufferedEvents == null)
+            bufferedEvents = new RecyclableEvents<E>(initialBufferCapacity, listPool);
+        return bufferedEvents;
+    }
+
     /**
      * The putBufferedEvents method adds events to be processed.
      *
@@ -169,11 +236,14 @@ final public class JABufferedEventsQueue<E>
     /**
      * The dispatchEvents method processes any events in the queue.
      * True is returned if any events were actually processed.
+     * When the event queue has dispatch limits, events left in the queue mean the thread is
+     * about to be given up, so the pending events are sent rather than held until the queue is empty.
      */
     @Override
     public boolean dispatchEvents() {
         if (eventQueue.dispatchEvents()) {
-            sendPendingEvents();
+            if (isEmpty() || eventQueue.getBatchLimit() > 0 || eventQueue.getTimeSlice() > 0)
+                flush();
             return true;
         }
         return false;
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2011 Bill La Forge
+ *
+ * This file is part of AgileWiki and is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License (LGPL) as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This code is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA
+ * or navigate to the following url http://www.gnu.org/licenses/lgpl-2.1.txt
+ *
+ * Note however that only Scala, Java and JavaScript files are being covered by LGPL.
+ * All other files are covered by the Common Public License (CPL).
+ * A copy of this license is also included and can be
+ * found as well at http://www.opensource.org/licenses/cpl1.0.txt
+ */
+package org.agilewiki.jactor.bufferedEvents;
+
+import org.agilewiki.jactor.concurrent.JAObjectPool;
+
+import java.util.ArrayList;
+
+/**
+ * A list of buffered events which is returned to the pool of the sending
+ * JABufferedEventsQueue once the events have been processed.
+ *
+ * @param <E> The type of event.
+ */
+final class RecyclableEvents<E> extends ArrayList<E> {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The pool to which the list is returned.
+     */
+    final private JAObjectPool<RecyclableEvents<E>> pool;
+
+    /**
+     * Create a RecyclableEvents.
+     *
+     * @param initialCapacity The initial capacity of the list.
+     * @param pool            The pool to which the list is returned.
+     */
+    RecyclableEvents(int initialCapacity, JAObjectPool<RecyclableEvents<E>> pool) {
+        super(initialCapacity);
+        this.pool = pool;
+    }
+
+    /**
+     * Clear the list and return it to its pool.
+     */
+    void recycle() {
+        clear();
+        pool.recycle(this);
+    }
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright 2011 Bill La Forge
+ *
+ * This file is part of AgileWiki and is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License (LGPL) as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This code is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA
+ * or navigate to the following url http://www.gnu.org/licenses/lgpl-2.1.txt
+ *
+ * Note however that only Scala, Java and JavaScript files are being covered by LGPL.
+ * All other files are covered by the Common Public License (CPL).
+ * A copy of this license is also included and can be
+ * found as well at http://www.opensource.org/licenses/cpl1.0.txt
+ */
+package org.agilewiki.jactor.concurrent;
+
+/**
+ * A ThreadManager whose tasks can be assigned to a preferred worker thread,
+ * so that a mailbox is usually processed by the same thread and its actors'
+ * state stays in the cache of the same core.
+ */
+public interface AffinityThreadManager extends ThreadManager {
+    /**
+     * Returns the number of worker threads.
+     *
+     * @return The number of worker threads.
+     */
+    public int getThreadCount();
+
+    /**
+     * Begin running a task, preferably on the given worker.
+     * Another worker may still run the task when the preferred worker is busy.
+     *
+     * @param runnable The run method is to be called by another thread.
+     * @param worker   The index of the preferred worker.
+     */
+    public void process(Runnable runnable, int worker);
+}
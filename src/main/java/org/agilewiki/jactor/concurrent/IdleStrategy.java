@@ -0,0 +1,102 @@
+/*
+ * Copyright 2011 Bill La Forge
+ *
+ * This file is part of AgileWiki and is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License (LGPL) as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This code is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA
+ * or navigate to the following url http://www.gnu.org/licenses/lgpl-2.1.txt
+ *
+ * Note however that only Scala, Java and JavaScript files are being covered by LGPL.
+ * All other files are covered by the Common Public License (CPL).
+ * A copy of this license is also included and can be
+ * found as well at http://www.opensource.org/licenses/cpl1.0.txt
+ */
+package org.agilewiki.jactor.concurrent;
+
+/**
+ * <p>
+ * An IdleStrategy determines what a JAThreadManager worker thread does when there are no tasks.
+ * </p>
+ * <p>
+ * A worker first spins, polling for a task, then yields between polls and finally blocks
+ * until a task is added. Blocking is cheapest in CPU, but each task added to an idle
+ * thread manager must then wake a blocked thread. Spinning gives the lowest hand-off latency,
+ * at the cost of keeping the hardware threads busy.
+ * </p>
+ */
+final public class IdleStrategy {
+    /**
+     * Workers block as soon as there are no tasks.
+     */
+    public final static IdleStrategy BLOCKING = new IdleStrategy(0, 0, true);
+
+    /**
+     * Workers poll continuously for tasks and never block.
+     */
+    public final static IdleStrategy BUSY_SPIN = new IdleStrategy(0, 0, false);
+
+    /**
+     * The number of times to poll before yielding.
+     */
+    public final int spinCount;
+
+    /**
+     * The number of times to yield and poll before blocking.
+     */
+    public final int yieldCount;
+
+    /**
+     * True when a worker may block.
+     */
+    public final boolean park;
+
+    /**
+     * Create an IdleStrategy.
+     *
+     * @param spinCount  The number of times to poll before yielding.
+     * @param yieldCount The number of times to yield and poll before blocking.
+     * @param park       True when a worker may block.
+     */
+    private IdleStrategy(int spinCount, int yieldCount, boolean park) {
+        if (spinCount < 0 || yieldCount < 0)
+            throw new IllegalArgumentException("counts may not be negative");
+        this.spinCount = spinCount;
+        this.yieldCount = yieldCount;
+        this.park = park;
+    }
+
+    /**
+     * Create an IdleStrategy which spins, then yields and then blocks.
+     *
+     * @param spinCount  The number of times to poll before yielding.
+     * @param yieldCount The number of times to yield and poll before blocking.
+     * @return A new IdleStrategy.
+     */
+    public static IdleStrategy spinYieldPark(int spinCount, int yieldCount) {
+        return new IdleStrategy(spinCount, yieldCount, true);
+    }
+
+    /**
+     * Returns a readable description of the strategy.
+     *
+     * @return A readable description of the strategy.
+     */
+    @Override
+    public String toString() {
+        if (!park)
+            return "busy-spin";
+        if (spinCount == 0 && yieldCount == 0)
+            return "blocking";
+        return "spin-yield-park(" + spinCount + "," + yieldCount + ")";
+    }
+}
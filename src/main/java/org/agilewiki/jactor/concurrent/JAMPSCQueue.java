@@ -0,0 +1,328 @@
+/*
+ * Copyright 2011 Bill La Forge
+ *
+ * This file is part of AgileWiki and is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License (LGPL) as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This code is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA
+ * or navigate to the following url http://www.gnu.org/licenses/lgpl-2.1.txt
+ *
+ * Note however that only Scala, Java and JavaScript files are being covered by LGPL.
+ * All other files are covered by the Common Public License (CPL).
+ * A copy of this license is also included and can be
+ * found as well at http://www.opensource.org/licenses/cpl1.0.txt
+ */
+package org.agilewiki.jactor.concurrent;
+
+import java.util.AbstractQueue;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * <p>
+ * An unbounded multi-producer, single-consumer queue which stores its elements in linked arrays.
+ * </p>
+ * <p>
+ * A ConcurrentLinkedQueue allocates a node for every element and the consumer must follow
+ * a pointer to reach each one. This queue allocates an array (a chunk) only once per
+ * chunkSize elements, and the consumer steps through consecutive slots of that array.
+ * Producers claim a slot by incrementing a shared tail index, which is padded against
+ * false sharing, while the consumer publishes its own index with ordered (lazy) writes.
+ * </p>
+ * <p>
+ * Any number of threads may call offer, but poll must only ever be called by one
+ * thread at a time, as is the case for the events queued by a JAEventQueue.
+ * A slot which has been claimed but not yet filled is treated as empty, so peek and poll
+ * may return null while an offer is in progress. But as JAEventQueue.putEvent starts a task
+ * after the offer completes, such events are not lost.
+ * Iteration, as used by toString and contains, is weakly consistent and may be done by any thread.
+ * </p>
+ *
+ * @param <E> The type of element.
+ */
+final public class JAMPSCQueue<E> extends AbstractQueue<E> {
+    /**
+     * A chunk of consecutive slots.
+     */
+    final private static class Chunk<E> {
+        /**
+         * The index of the first slot.
+         */
+        final long base;
+
+        /**
+         * The slots.
+         */
+        final AtomicReferenceArray<E> slots;
+
+        /**
+         * The next chunk, or null.
+         */
+        volatile Chunk<E> next;
+
+        /**
+         * Create a Chunk.
+         *
+         * @param base      The index of the first slot.
+         * @param chunkSize The number of slots.
+         */
+        Chunk(long base, int chunkSize) {
+            this.base = base;
+            slots = new AtomicReferenceArray<E>(chunkSize);
+        }
+    }
+
+    /**
+     * The index of the next slot to be claimed by a producer, padded to keep it
+     * on a cache line of its own.
+     */
+    final private static class PaddedIndex extends AtomicLong {
+        private static final long serialVersionUID = 1L;
+
+        public long p1, p2, p3, p4, p5, p6, p7;
+    }
+
+    /**
+     * The default number of slots in a chunk.
+     */
+    public final static int DEFAULT_CHUNK_SIZE = 1024;
+
+    /**
+     * The number of slots in a chunk.
+     */
+    final private int chunkSize;
+
+    /**
+     * The index of the next slot to be claimed by a producer.
+     */
+    final private PaddedIndex tail = new PaddedIndex();
+
+    /**
+     * A chunk at or before the chunk holding the tail, from which producers search.
+     */
+    private volatile Chunk<E> producerChunk;
+
+    /**
+     * The index of the next slot to be read by the consumer.
+     */
+    final private AtomicLong head = new AtomicLong();
+
+    /**
+     * The chunk holding the head.
+     */
+    private volatile Chunk<E> consumerChunk;
+
+    /**
+     * Create a JAMPSCQueue with chunks of DEFAULT_CHUNK_SIZE slots.
+     */
+    public JAMPSCQueue() {
+        this(DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Create a JAMPSCQueue.
+     *
+     * @param chunkSize The number of slots in a chunk.
+     */
+    public JAMPSCQueue(int chunkSize) {
+        if (chunkSize < 1)
+            throw new IllegalArgumentException("chunkSize must be positive");
+        this.chunkSize = chunkSize;
+        Chunk<E> chunk = new Chunk<E>(0, chunkSize);
+        producerChunk = chunk;
+        consumerChunk = chunk;
+    }
+
+    /**
+     * Adds an element to the end of the queue.
+     * This method may be called by any thread.
+     *
+     * @param element The element to be added.
+     * @return True.
+     */
+    @Override
+    public boolean offer(E element) {
+        if (element == null)
+            throw new NullPointerException();
+        Chunk<E> chunk = producerChunk;
+        long index = tail.getAndIncrement();
+        while (index >= chunk.base + chunkSize) {
+            Chunk<E> next = chunk.next;
+            if (next == null) {
+                next = new Chunk<E>(chunk.base + chunkSize, chunkSize);
+                synchronized (chunk) {
+                    if (chunk.next == null)
+                        chunk.next = next;
+                    else
+                        next = chunk.next;
+                }
+            }
+            chunk = next;
+        }
+        if (chunk.base > producerChunk.base)
+            producerChunk = chunk;
+        chunk.slots.set((int) (index - chunk.base), element);
+        return true;
+    }
+
+    /**
+     * Returns the element at the front of the queue without removing it.
+     * When called by a thread other than the consumer, the result may not always be
+     * correct due to concurrency issues.
+     *
+     * @return The element at the front of the queue, or null.
+     */
+    @Override
+    public E peek() {
+        Chunk<E> chunk = consumerChunk;
+        long i = head.get() - chunk.base;
+        if (i < 0)
+            return null;
+        while (i >= chunkSize) {
+            chunk = chunk.next;
+            if (chunk == null)
+                return null;
+            i -= chunkSize;
+        }
+        return chunk.slots.get((int) i);
+    }
+
+    /**
+     * Removes and returns the element at the front of the queue.
+     * Only the consumer thread may call this method.
+     *
+     * @return The element at the front of the queue, or null.
+     */
+    @Override
+    public E poll() {
+        Chunk<E> chunk = consumerChunk;
+        long h = head.get();
+        int i = (int) (h - chunk.base);
+        if (i == chunkSize) {
+            Chunk<E> next = chunk.next;
+            if (next == null)
+                return null;
+            chunk = next;
+            consumerChunk = chunk;
+            i = 0;
+        }
+        E element = chunk.slots.get(i);
+        if (element == null)
+            return null;
+        chunk.slots.lazySet(i, null);
+        head.lazySet(h + 1);
+        return element;
+    }
+
+    /**
+     * Returns the number of elements in the queue, though the result may not always be
+     * correct due to concurrency issues.
+     *
+     * @return The number of elements in the queue.
+     */
+    @Override
+    public int size() {
+        long size = tail.get() - head.get();
+        if (size < 0)
+            return 0;
+        if (size > Integer.MAX_VALUE)
+            return Integer.MAX_VALUE;
+        return (int) size;
+    }
+
+    /**
+     * Returns a weakly consistent iterator over the elements of the queue, from the head
+     * to the tail. The iterator never throws ConcurrentModificationException, and elements
+     * added or removed while iterating may or may not be returned. Removal is not supported.
+     *
+     * @return An iterator over the elements of the queue.
+     */
+    @Override
+    public Iterator<E> iterator() {
+        return new Itr();
+    }
+
+    /**
+     * Steps through the slots from the head, skipping the empty ones, until the tail is reached.
+     */
+    final private class Itr implements Iterator<E> {
+        /**
+         * The chunk holding the index.
+         */
+        private Chunk<E> chunk;
+
+        /**
+         * The index of the next slot to be read.
+         */
+        private long index;
+
+        /**
+         * The next element to be returned, or null.
+         */
+        private E nextElement;
+
+        /**
+         * Create an Itr.
+         */
+        Itr() {
+            chunk = consumerChunk;
+            index = head.get();
+            if (index < chunk.base)
+                index = chunk.base;
+            advance();
+        }
+
+        /**
+         * Find the next element.
+         */
+        private void advance() {
+            nextElement = null;
+            while (index < tail.get()) {
+                long i = index - chunk.base;
+                if (i >= chunkSize) {
+                    Chunk<E> next = chunk.next;
+                    if (next == null)
+                        return;
+                    chunk = next;
+                    continue;
+                }
+                E element = chunk.slots.get((int) i);
+                index += 1;
+                if (element != null) {
+                    nextElement = element;
+                    return;
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return nextElement != null;
+        }
+
+        @Override
+        public E next() {
+            E element = nextElement;
+            if (element == null)
+                throw new NoSuchElementException();
+            advance();
+            return element;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2011 Bill La Forge
+ *
+ * This file is part of AgileWiki and is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License (LGPL) as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This code is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA
+ * or navigate to the following url http://www.gnu.org/licenses/lgpl-2.1.txt
+ *
+ * Note however that only Scala, Java and JavaScript files are being covered by LGPL.
+ * All other files are covered by the Common Public License (CPL).
+ * A copy of this license is also included and can be
+ * found as well at http://www.opensource.org/licenses/cpl1.0.txt
+ */
+package org.agilewiki.jactor.concurrent;
+
+import java.util.ArrayList;
+
+/**
+ * <p>
+ * A pool of objects which can be reused, avoiding the cost of allocating and collecting them.
+ * </p>
+ * <p>
+ * The pool has an owner which takes objects from it. Only one thread at a time may act as the owner,
+ * e.g. the thread in control of a mailbox. But objects may be recycled by any thread.
+ * </p>
+ *
+ * @param <E> The type of object.
+ */
+final public class JAObjectPool<E> {
+    /**
+     * The maximum number of recycled objects held for reuse.
+     */
+    final private int maxSize;
+
+    /**
+     * Objects available to the owner.
+     */
+    private ArrayList<E> free;
+
+    /**
+     * Objects recycled since the owner last took the recycled objects, guarded by this.
+     */
+    private ArrayList<E> recycled;
+
+    /**
+     * Create a JAObjectPool.
+     *
+     * @param maxSize The maximum number of recycled objects held for reuse.
+     */
+    public JAObjectPool(int maxSize) {
+        if (maxSize < 1)
+            throw new IllegalArgumentException("maxSize must be positive");
+        this.maxSize = maxSize;
+        free = new ArrayList<E>(maxSize);
+        recycled = new ArrayList<E>(maxSize);
+    }
+
+    /**
+     * Returns the maximum number of recycled objects held for reuse.
+     *
+     * @return The maximum number of recycled objects held for reuse.
+     */
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Take an object from the pool.
+     * This method must only be called by the owner of the pool.
+     *
+     * @return A recycled object, or null when none are available.
+     */
+    public E take() {
+        int size = free.size();
+        if (size == 0) {
+            synchronized (this) {
+                ArrayList<E> f = free;
+                free = recycled;
+                recycled = f;
+            }
+            size = free.size();
+            if (size == 0)
+                return null;
+        }
+        return free.remove(size - 1);
+    }
+
+    /**
+     * Return an object to the pool.
+     * The object is discarded when the pool is full.
+     *
+     * @param object An object which is no longer in use.
+     */
+    public void recycle(E object) {
+        synchronized (this) {
+            if (recycled.size() < maxSize)
+                recycled.add(object);
+        }
+    }
+}
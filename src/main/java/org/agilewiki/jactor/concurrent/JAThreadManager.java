@@ -27,26 +27,54 @@ import java.util.ArrayList;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * A high performance implementation of ThreadManager.
+ * What the threads do when there are no tasks is determined by an IdleStrategy.
+ * Priority tasks are run ahead of the other tasks.
  */
-final public class JAThreadManager implements ThreadManager {
+final public class JAThreadManager implements PriorityThreadManager {
     /**
-     * The taskRequest semaphore is used to wake up a thread
+     * The taskRequest semaphore is used to wake up a blocked thread
      * when there is a task to process.
      */
     final private Semaphore taskRequest = new Semaphore(0);
 
+    /**
+     * The number of threads which are blocked, or about to block, on taskRequest.
+     */
+    final private AtomicInteger blocked = new AtomicInteger();
+
+    /**
+     * Determines what the threads do when there are no tasks.
+     */
+    final private IdleStrategy idleStrategy;
+
+    /**
+     * Called by each thread as it starts, or null.
+     */
+    final private WorkerBinder workerBinder;
+
+    /**
+     * Used to give each thread the index passed to the worker binder.
+     */
+    final private AtomicInteger workerCount = new AtomicInteger();
+
     /**
      * The tasks queue holds the tasks waiting to be processed.
      */
     final private ConcurrentLinkedQueue<Runnable> tasks = new ConcurrentLinkedQueue<Runnable>();
 
+    /**
+     * The priority tasks waiting to be processed, which are taken before the other tasks.
+     */
+    final private ConcurrentLinkedQueue<Runnable> priorityTasks = new ConcurrentLinkedQueue<Runnable>();
+
     /**
      * When closing is true, concurrent exit as they finish their assigned tasks.
      */
-    private Boolean closing = false;
+    private volatile boolean closing;
 
     /**
      * The threadCount is the number of threads used.
@@ -58,6 +86,33 @@ final public class JAThreadManager implements ThreadManager {
      */
     final private ArrayList<Thread> threads = new ArrayList<Thread>();
 
+    /**
+     * Create a JAThreadManager whose threads block when there are no tasks.
+     */
+    public JAThreadManager() {
+        this(IdleStrategy.BLOCKING);
+    }
+
+    /**
+     * Create a JAThreadManager.
+     *
+     * @param idleStrategy Determines what the threads do when there are no tasks.
+     */
+    public JAThreadManager(IdleStrategy idleStrategy) {
+        this(idleStrategy, null);
+    }
+
+    /**
+     * Create a JAThreadManager.
+     *
+     * @param idleStrategy Determines what the threads do when there are no tasks.
+     * @param workerBinder Called by each thread as it starts, or null.
+     */
+    public JAThreadManager(IdleStrategy idleStrategy, WorkerBinder workerBinder) {
+        this.idleStrategy = idleStrategy;
+        this.workerBinder = workerBinder;
+    }
+
     /**
      * Create a JAThreadManager
      *
@@ -69,6 +124,18 @@ final public class JAThreadManager implements ThreadManager {
         return newThreadManager(threadCount, threadFactory);
     }
 
+    /**
+     * Create a JAThreadManager
+     *
+     * @param threadCount  The number of concurrent to be used.
+     * @param idleStrategy Determines what the threads do when there are no tasks.
+     * @return A new JAThreadManager.
+     */
+    public static ThreadManager newThreadManager(int threadCount, IdleStrategy idleStrategy) {
+        ThreadFactory threadFactory = new JAThreadFactory();
+        return newThreadManager(threadCount, threadFactory, idleStrategy);
+    }
+
     /**
      * Create a JAThreadManager
      *
@@ -77,11 +144,71 @@ final public class JAThreadManager implements ThreadManager {
      * @return A new JAThreadManager.
      */
     public static ThreadManager newThreadManager(int threadCount, ThreadFactory threadFactory) {
-        ThreadManager threadManager = new JAThreadManager();
+        return newThreadManager(threadCount, threadFactory, IdleStrategy.BLOCKING);
+    }
+
+    /**
+     * Create a JAThreadManager
+     *
+     * @param threadCount   The number of concurrent to be used.
+     * @param threadFactory Used to create the concurrent.
+     * @param idleStrategy  Determines what the threads do when there are no tasks.
+     * @return A new JAThreadManager.
+     */
+    public static ThreadManager newThreadManager(int threadCount,
+                                                 ThreadFactory threadFactory,
+                                                 IdleStrategy idleStrategy) {
+        ThreadManager threadManager = new JAThreadManager(idleStrategy);
         threadManager.start(threadCount, threadFactory);
         return threadManager;
     }
 
+    /**
+     * Returns the next task, taking priority tasks first.
+     *
+     * @return The next task, or null.
+     */
+    private Runnable poll() {
+        Runnable task = priorityTasks.poll();
+        if (task != null)
+            return task;
+        return tasks.poll();
+    }
+
+    /**
+     * Wait for a task, as directed by the idle strategy.
+     *
+     * @return The next task, or null when closing.
+     */
+    private Runnable awaitTask() {
+        int spinCount = idleStrategy.spinCount;
+        int yieldCount = idleStrategy.yieldCount;
+        int spins = 0;
+        int yields = 0;
+        while (true) {
+            if (closing) return null;
+            Runnable task = poll();
+            if (task != null) return task;
+            if (spins < spinCount) {
+                spins += 1;
+            } else if (yields < yieldCount) {
+                yields += 1;
+                Thread.yield();
+            } else if (idleStrategy.park) {
+                blocked.incrementAndGet();
+                try {
+                    task = poll();
+                    if (task != null) return task;
+                    if (closing) return null;
+                    taskRequest.acquire();
+                } catch (InterruptedException e) {
+                } finally {
+                    blocked.decrementAndGet();
+                }
+            }
+        }
+    }
+
     /**
      * Create and start the concurrent.
      *
@@ -94,13 +221,15 @@ final public class JAThreadManager implements ThreadManager {
         Runnable runnable = new Runnable() {
             @Override
             public void run() {
+                if (workerBinder != null)
+                    workerBinder.bind(workerCount.getAndIncrement());
                 while (true) {
-                    try {
-                        taskRequest.acquire();
-                    } catch (InterruptedException e) {
-                    }
                     if (closing) return;
-                    Runnable task = tasks.poll();
+                    Runnable task = poll();
+                    if (task == null) {
+                        task = awaitTask();
+                        if (task == null) return;
+                    }
                     try {
                         task.run();
                     } catch (Exception e) {
@@ -126,7 +255,20 @@ final public class JAThreadManager implements ThreadManager {
     @Override
     final public void process(Runnable task) {
         tasks.add(task);
-        taskRequest.release();
+        if (blocked.get() > 0)
+            taskRequest.release();
+    }
+
+    /**
+     * Begin running a task ahead of the tasks which are not priority tasks.
+     *
+     * @param task A task to be processed on another thread.
+     */
+    @Override
+    final public void processPriority(Runnable task) {
+        priorityTasks.add(task);
+        if (blocked.get() > 0)
+            taskRequest.release();
     }
 
     /**
@@ -0,0 +1,163 @@
+/*
+ * Copyright 2011 Bill La Forge
+ *
+ * This file is part of AgileWiki and is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License (LGPL) as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This code is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA
+ * or navigate to the following url http://www.gnu.org/licenses/lgpl-2.1.txt
+ *
+ * Note however that only Scala, Java and JavaScript files are being covered by LGPL.
+ * All other files are covered by the Common Public License (CPL).
+ * A copy of this license is also included and can be
+ * found as well at http://www.opensource.org/licenses/cpl1.0.txt
+ */
+package org.agilewiki.jactor.concurrent;
+
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * <p>
+ * An implementation of ThreadManager which runs each task on a new thread.
+ * </p>
+ * <p>
+ * This is intended for use with virtual threads, so that an actor which blocks
+ * while processing a request (JDBC, file I/O, Thread.sleep) only ties up its own
+ * mailbox and not one of a small, fixed number of platform threads shared by
+ * all the other mailboxes.
+ * </p>
+ * <pre>
+ *         MailboxFactory mailboxFactory = JAMailboxFactory.newVirtualThreadMailboxFactory();
+ * </pre>
+ * <p>
+ * Virtual threads are located by reflection, so this class can be compiled for
+ * older versions of Java. When the JVM does not support virtual threads,
+ * newVirtualThreadManager falls back to creating platform threads.
+ * </p>
+ */
+final public class JAThreadPerTaskManager implements ThreadManager {
+    /**
+     * Used to create a thread for each task.
+     */
+    private ThreadFactory threadFactory;
+
+    /**
+     * When closing is true, no further tasks are started.
+     */
+    private volatile boolean closing;
+
+    /**
+     * The threads which have not yet finished their task.
+     */
+    final private Set<Thread> threads =
+            Collections.newSetFromMap(new ConcurrentHashMap<Thread, Boolean>());
+
+    /**
+     * Create a JAThreadPerTaskManager which uses virtual threads when available.
+     *
+     * @return A new JAThreadPerTaskManager.
+     */
+    public static ThreadManager newVirtualThreadManager() {
+        return newThreadManager(virtualThreadFactory());
+    }
+
+    /**
+     * Create a JAThreadPerTaskManager.
+     *
+     * @param threadFactory Used to create a thread for each task.
+     * @return A new JAThreadPerTaskManager.
+     */
+    public static ThreadManager newThreadManager(ThreadFactory threadFactory) {
+        ThreadManager threadManager = new JAThreadPerTaskManager();
+        threadManager.start(0, threadFactory);
+        return threadManager;
+    }
+
+    /**
+     * Returns a factory for virtual threads, or a JAThreadFactory
+     * when virtual threads are not supported.
+     *
+     * @return A thread factory.
+     */
+    public static ThreadFactory virtualThreadFactory() {
+        try {
+            Method ofVirtual = Thread.class.getMethod("ofVirtual");
+            Object builder = ofVirtual.invoke(null);
+            Method factory = Class.forName("java.lang.Thread$Builder").getMethod("factory");
+            return (ThreadFactory) factory.invoke(builder);
+        } catch (Exception e) {
+            return new JAThreadFactory();
+        }
+    }
+
+    /**
+     * Assign the thread factory.
+     * No threads are created until there are tasks to process.
+     *
+     * @param threadCount   Not used, as there is one thread per task.
+     * @param threadFactory Used to create a thread for each task.
+     */
+    @Override
+    final public void start(int threadCount, ThreadFactory threadFactory) {
+        this.threadFactory = threadFactory;
+    }
+
+    /**
+     * Begin running a task on a new thread.
+     *
+     * @param task A task to be processed on another thread.
+     */
+    @Override
+    final public void process(final Runnable task) {
+        if (closing)
+            return;
+        Thread t = threadFactory.newThread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    task.run();
+                } catch (Exception e) {
+                    e.printStackTrace();
+                } finally {
+                    threads.remove(Thread.currentThread());
+                }
+            }
+        });
+        threads.add(t);
+        t.start();
+    }
+
+    /**
+     * Stop starting new tasks.
+     * This method only returns after all the tasks which have been started have completed.
+     */
+    @Override
+    final public void close() {
+        closing = true;
+        Thread ct = Thread.currentThread();
+        Iterator<Thread> it = threads.iterator();
+        while (it.hasNext()) {
+            Thread t = it.next();
+            if (ct != t) {
+                try {
+                    t.join();
+                } catch (InterruptedException e) {
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright 2011 Bill La Forge
+ *
+ * This file is part of AgileWiki and is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License (LGPL) as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This code is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA
+ * or navigate to the following url http://www.gnu.org/licenses/lgpl-2.1.txt
+ *
+ * Note however that only Scala, Java and JavaScript files are being covered by LGPL.
+ * All other files are covered by the Common Public License (CPL).
+ * A copy of this license is also included and can be
+ * found as well at http://www.opensource.org/licenses/cpl1.0.txt
+ */
+package org.agilewiki.jactor.concurrent;
+
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+/**
+ * A handle on a task scheduled with a JATimer, used to cancel it.
+ */
+final public class JATimeout {
+    /**
+     * The task is waiting to run.
+     */
+    private static final int WAITING = 0;
+
+    /**
+     * The task has been cancelled.
+     */
+    private static final int CANCELLED = 1;
+
+    /**
+     * The task has run and will not run again.
+     */
+    private static final int EXPIRED = 2;
+
+    /**
+     * Used to update the state without allocating an atomic object per timeout.
+     */
+    private static final AtomicIntegerFieldUpdater<JATimeout> stateUpdater =
+            AtomicIntegerFieldUpdater.newUpdater(JATimeout.class, "state");
+
+    /**
+     * The task to be run.
+     */
+    final Runnable task;
+
+    /**
+     * The interval in nanoseconds between runs of a periodic task, or 0.
+     */
+    final long periodNanos;
+
+    /**
+     * When the task is next to run, as given by System.nanoTime.
+     */
+    long deadline;
+
+    /**
+     * The number of revolutions of the wheel remaining before the task runs.
+     * Only accessed by the timer thread.
+     */
+    long remainingRounds;
+
+    /**
+     * The next timeout in the same bucket.
+     * Only accessed by the timer thread.
+     */
+    JATimeout next;
+
+    /**
+     * The previous timeout in the same bucket.
+     * Only accessed by the timer thread.
+     */
+    JATimeout prev;
+
+    /**
+     * WAITING, CANCELLED or EXPIRED.
+     */
+    private volatile int state;
+
+    /**
+     * Create a JATimeout.
+     *
+     * @param task        The task to be run.
+     * @param deadline    When the task is to run, as given by System.nanoTime.
+     * @param periodNanos The interval in nanoseconds between runs of a periodic task, or 0.
+     */
+    JATimeout(Runnable task, long deadline, long periodNanos) {
+        this.task = task;
+        this.deadline = deadline;
+        this.periodNanos = periodNanos;
+    }
+
+    /**
+     * Cancel the task. The timer releases the task the next time it visits its bucket.
+     *
+     * @return True if the task was cancelled, false if it had already run or been cancelled.
+     */
+    public boolean cancel() {
+        return stateUpdater.compareAndSet(this, WAITING, CANCELLED);
+    }
+
+    /**
+     * Returns true when the task has been cancelled.
+     *
+     * @return True when the task has been cancelled.
+     */
+    public boolean isCancelled() {
+        return state == CANCELLED;
+    }
+
+    /**
+     * Returns true when a task which is not periodic has run.
+     *
+     * @return True when the task has run and will not run again.
+     */
+    public boolean isExpired() {
+        return state == EXPIRED;
+    }
+
+    /**
+     * Marks a task which is not periodic as having run.
+     *
+     * @return True unless the task was cancelled.
+     */
+    boolean expire() {
+        return stateUpdater.compareAndSet(this, WAITING, EXPIRED);
+    }
+}
@@ -0,0 +1,366 @@
+/*
+ * Copyright 2011 Bill La Forge
+ *
+ * This file is part of AgileWiki and is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License (LGPL) as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This code is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA
+ * or navigate to the following url http://www.gnu.org/licenses/lgpl-2.1.txt
+ *
+ * Note however that only Scala, Java and JavaScript files are being covered by LGPL.
+ * All other files are covered by the Common Public License (CPL).
+ * A copy of this license is also included and can be
+ * found as well at http://www.opensource.org/licenses/cpl1.0.txt
+ */
+package org.agilewiki.jactor.concurrent;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * <p>
+ * A hashed wheel timer, which runs scheduled tasks on a single timer thread.
+ * </p>
+ * <p>
+ * Time is divided into ticks and the wheel has a bucket for each tick of a revolution.
+ * A task is added to the bucket of the tick in which it is due, with a count of the
+ * revolutions remaining. New tasks are passed to the timer thread through a queue, and
+ * on each tick the timer thread runs the tasks in one bucket which are due, so adding a
+ * task or cancelling it is a constant time operation whatever the number of tasks.
+ * Tasks are run at most one tick late (while the timer thread keeps up) and never early.
+ * </p>
+ * <p>
+ * The tasks are run on the timer thread and so must be quick, e.g. sending a request
+ * to an actor. When there are no tasks, the timer thread waits without ticking.
+ * </p>
+ */
+final public class JATimer {
+    /**
+     * The default duration of a tick, in nanoseconds.
+     */
+    public static final long DEFAULT_TICK_NANOS = 1000000L;
+
+    /**
+     * The default number of buckets.
+     */
+    public static final int DEFAULT_WHEEL_SIZE = 512;
+
+    /**
+     * The duration of a tick, in nanoseconds.
+     */
+    final private long tickNanos;
+
+    /**
+     * The buckets, each holding a doubly linked list of timeouts.
+     */
+    final private JATimeout[] wheel;
+
+    /**
+     * Used to select a bucket, as the number of buckets is a power of 2.
+     */
+    final private int mask;
+
+    /**
+     * The time at which the timer was started, as given by System.nanoTime.
+     */
+    final private long startTime;
+
+    /**
+     * Timeouts which have not yet been added to the wheel.
+     */
+    final private ConcurrentLinkedQueue<JATimeout> pending = new ConcurrentLinkedQueue<JATimeout>();
+
+    /**
+     * The number of timeouts which have not yet been released by the timer thread.
+     */
+    final private AtomicInteger outstanding = new AtomicInteger();
+
+    /**
+     * The timer thread.
+     */
+    final private Thread thread;
+
+    /**
+     * The number of ticks since the timer was started.
+     * Only accessed by the timer thread.
+     */
+    private long tick;
+
+    /**
+     * True when the timer thread is waiting for a timeout to be added.
+     */
+    private volatile boolean idle;
+
+    /**
+     * When closing is true, the timer thread exits.
+     */
+    private volatile boolean closing;
+
+    /**
+     * Create and start a JATimer with a 1 millisecond tick and 512 buckets.
+     */
+    public JATimer() {
+        this(DEFAULT_TICK_NANOS, DEFAULT_WHEEL_SIZE, new JAThreadFactory());
+    }
+
+    /**
+     * Create and start a JATimer.
+     *
+     * @param tickNanos     The duration of a tick, in nanoseconds.
+     * @param wheelSize     The number of buckets, which is rounded up to a power of 2.
+     * @param threadFactory Used to create the timer thread.
+     */
+    public JATimer(long tickNanos, int wheelSize, ThreadFactory threadFactory) {
+        if (tickNanos <= 0)
+            throw new IllegalArgumentException("tick duration must be positive");
+        if (wheelSize <= 0 || wheelSize > 1 << 30)
+            throw new IllegalArgumentException("wheel size out of range");
+        int size = 2;
+        while (size < wheelSize)
+            size <<= 1;
+        this.tickNanos = tickNanos;
+        wheel = new JATimeout[size];
+        mask = size - 1;
+        startTime = System.nanoTime();
+        thread = threadFactory.newThread(new Runnable() {
+            @Override
+            public void run() {
+                runTimer();
+            }
+        });
+        thread.start();
+    }
+
+    /**
+     * Schedule a task to be run once, after a delay.
+     *
+     * @param task  The task, which is run on the timer thread.
+     * @param delay The delay.
+     * @param unit  The unit of the delay.
+     * @return A handle used to cancel the task.
+     */
+    public JATimeout schedule(Runnable task, long delay, TimeUnit unit) {
+        return add(task, unit.toNanos(delay), 0L);
+    }
+
+    /**
+     * Schedule a task to be run periodically. Each run is due one period after
+     * the previous run was due, so late runs do not delay the runs which follow.
+     *
+     * @param task         The task, which is run on the timer thread.
+     * @param initialDelay The delay before the first run.
+     * @param period       The interval between runs.
+     * @param unit         The unit of the delay and the period.
+     * @return A handle used to cancel the task.
+     */
+    public JATimeout scheduleAtFixedRate(Runnable task, long initialDelay, long period, TimeUnit unit) {
+        if (period <= 0)
+            throw new IllegalArgumentException("period must be positive");
+        return add(task, unit.toNanos(initialDelay), unit.toNanos(period));
+    }
+
+    /**
+     * Returns the number of scheduled tasks, including cancelled tasks not yet released.
+     *
+     * @return The number of scheduled tasks.
+     */
+    public int getOutstanding() {
+        return outstanding.get();
+    }
+
+    /**
+     * Returns the tick being processed, counted from when the timer was started.
+     * As the tick is only updated by the timer thread, this is only meaningful when called
+     * by a task, which runs on the timer thread.
+     *
+     * @return The number of ticks since the timer was started.
+     */
+    public long getTick() {
+        return tick;
+    }
+
+    /**
+     * Pass a new timeout to the timer thread.
+     *
+     * @param task        The task.
+     * @param delayNanos  The delay before the first run, in nanoseconds.
+     * @param periodNanos The interval in nanoseconds between runs of a periodic task, or 0.
+     * @return The timeout.
+     */
+    private JATimeout add(Runnable task, long delayNanos, long periodNanos) {
+        if (task == null)
+            throw new IllegalArgumentException("task may not be null");
+        if (closing)
+            throw new IllegalStateException("timer is closed");
+        JATimeout timeout = new JATimeout(task, System.nanoTime() + Math.max(delayNanos, 0L), periodNanos);
+        outstanding.incrementAndGet();
+        pending.add(timeout);
+        if (idle)
+            LockSupport.unpark(thread);
+        return timeout;
+    }
+
+    /**
+     * Stop the timer thread. Tasks which have not yet run are discarded.
+     * This method only returns after the timer thread has died.
+     */
+    public void close() {
+        closing = true;
+        LockSupport.unpark(thread);
+        if (Thread.currentThread() != thread) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+            }
+        }
+    }
+
+    /**
+     * The loop of the timer thread.
+     */
+    private void runTimer() {
+        while (!closing) {
+            if (outstanding.get() == 0) {
+                awaitTimeout();
+                continue;
+            }
+            waitForNextTick();
+            if (closing)
+                return;
+            transferPending();
+            expireBucket();
+            tick += 1;
+        }
+    }
+
+    /**
+     * Wait until a timeout is added, then catch up with the current time.
+     * As the wheel is empty, no ticks need to be processed.
+     */
+    private void awaitTimeout() {
+        idle = true;
+        while (outstanding.get() == 0 && !closing)
+            LockSupport.park(this);
+        idle = false;
+        tick = Math.max(tick, (System.nanoTime() - startTime) / tickNanos);
+    }
+
+    /**
+     * Wait until the end of the current tick.
+     */
+    private void waitForNextTick() {
+        long deadline = startTime + (tick + 1) * tickNanos;
+        while (!closing) {
+            long sleepNanos = deadline - System.nanoTime();
+            if (sleepNanos <= 0)
+                return;
+            LockSupport.parkNanos(this, sleepNanos);
+        }
+    }
+
+    /**
+     * Add the new timeouts to the wheel.
+     */
+    private void transferPending() {
+        JATimeout timeout = pending.poll();
+        while (timeout != null) {
+            if (timeout.isCancelled())
+                outstanding.decrementAndGet();
+            else
+                insert(timeout, tick);
+            timeout = pending.poll();
+        }
+    }
+
+    /**
+     * Add a timeout to the bucket of the tick in which it is due.
+     * The rounds remaining are counted from the earliest tick, as the bucket of the current tick
+     * is not visited again once it has been processed.
+     *
+     * @param timeout  The timeout.
+     * @param earliest The earliest tick to which the timeout may be assigned.
+     */
+    private void insert(JATimeout timeout, long earliest) {
+        long due = Math.max((timeout.deadline - startTime) / tickNanos, earliest);
+        timeout.remainingRounds = (due - earliest) / wheel.length;
+        int i = (int) (due & mask);
+        JATimeout head = wheel[i];
+        timeout.prev = null;
+        timeout.next = head;
+        if (head != null)
+            head.prev = timeout;
+        wheel[i] = timeout;
+    }
+
+    /**
+     * Remove a timeout from its bucket.
+     *
+     * @param i       The index of the bucket.
+     * @param timeout The timeout.
+     */
+    private void remove(int i, JATimeout timeout) {
+        if (timeout.prev == null)
+            wheel[i] = timeout.next;
+        else
+            timeout.prev.next = timeout.next;
+        if (timeout.next != null)
+            timeout.next.prev = timeout.prev;
+        timeout.next = null;
+        timeout.prev = null;
+    }
+
+    /**
+     * Run the timeouts of the current tick which are due and release cancelled timeouts.
+     * A periodic timeout is put back in the wheel after it has run.
+     */
+    private void expireBucket() {
+        int i = (int) (tick & mask);
+        JATimeout timeout = wheel[i];
+        while (timeout != null) {
+            JATimeout next = timeout.next;
+            if (timeout.isCancelled()) {
+                remove(i, timeout);
+                outstanding.decrementAndGet();
+            } else if (timeout.remainingRounds > 0) {
+                timeout.remainingRounds -= 1;
+            } else {
+                remove(i, timeout);
+                if (timeout.periodNanos == 0L) {
+                    outstanding.decrementAndGet();
+                    if (timeout.expire())
+                        run(timeout);
+                } else {
+                    run(timeout);
+                    timeout.deadline += timeout.periodNanos;
+                    insert(timeout, tick + 1);
+                }
+            }
+            timeout = next;
+        }
+    }
+
+    /**
+     * Run the task of a timeout.
+     *
+     * @param timeout The timeout.
+     */
+    private void run(JATimeout timeout) {
+        try {
+            timeout.task.run();
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+}
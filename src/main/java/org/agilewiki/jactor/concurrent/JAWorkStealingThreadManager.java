@@ -0,0 +1,401 @@
+/*
+ * Copyright 2011 Bill La Forge
+ *
+ * This file is part of AgileWiki and is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License (LGPL) as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This code is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA
+ * or navigate to the following url http://www.gnu.org/licenses/lgpl-2.1.txt
+ *
+ * Note however that only Scala, Java and JavaScript files are being covered by LGPL.
+ * All other files are covered by the Common Public License (CPL).
+ * A copy of this license is also included and can be
+ * found as well at http://www.opensource.org/licenses/cpl1.0.txt
+ */
+package org.agilewiki.jactor.concurrent;
+
+import java.util.ArrayList;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <p>
+ * An implementation of ThreadManager which gives each worker thread its own task queue.
+ * </p>
+ * <p>
+ * Tasks submitted by a worker thread are added to that worker's own queue, while tasks
+ * submitted from other threads are spread across the workers round-robin.
+ * A worker with an empty queue steals tasks from the other workers before going idle,
+ * and only idle workers are woken when a task is added.
+ * So unlike JAThreadManager, there is no single queue or semaphore which every
+ * thread must contend for.
+ * </p>
+ * <p>
+ * A task can also be given a home worker, whose queue it is added to. Workers may be grouped
+ * into nodes of consecutive workers, e.g. the cores of one socket, and steal from the other
+ * workers of their own node before those of other nodes.
+ * </p>
+ * <p>
+ * Priority tasks are held in a queue shared by all the workers, which is checked first.
+ * </p>
+ * <pre>
+ *         MailboxFactory mailboxFactory = new JAMailboxFactory(
+ *                 JAWorkStealingThreadManager.newThreadManager(threadCount));
+ * </pre>
+ */
+final public class JAWorkStealingThreadManager implements AffinityThreadManager, PriorityThreadManager {
+    /**
+     * A worker thread and its task queue.
+     */
+    final private class Worker implements Runnable {
+        /**
+         * The tasks queue holds the tasks assigned to this worker.
+         */
+        final ConcurrentLinkedQueue<Runnable> tasks = new ConcurrentLinkedQueue<Runnable>();
+
+        /**
+         * Used to wake up the worker when it is idle.
+         */
+        final Semaphore wakeup = new Semaphore(0);
+
+        /**
+         * True when the worker is listed in the idle queue.
+         */
+        final AtomicBoolean idle = new AtomicBoolean();
+
+        /**
+         * The index of the worker.
+         */
+        final int index;
+
+        /**
+         * The node of the worker.
+         */
+        final int node;
+
+        /**
+         * Create a Worker.
+         *
+         * @param index The index of the worker.
+         */
+        Worker(int index) {
+            this.index = index;
+            node = nodeSize == 0 ? 0 : index / nodeSize;
+        }
+
+        /**
+         * Process tasks until closing.
+         */
+        @Override
+        public void run() {
+            currentWorker.set(this);
+            if (workerBinder != null)
+                workerBinder.bind(index);
+            while (true) {
+                if (closing) return;
+                Runnable task = nextTask(this);
+                if (task == null) {
+                    if (idle.compareAndSet(false, true))
+                        idleWorkers.add(this);
+                    task = nextTask(this);
+                    if (task == null) {
+                        try {
+                            wakeup.acquire();
+                        } catch (InterruptedException e) {
+                        }
+                        continue;
+                    }
+                    //No longer idle, so that wakeups are not handed to this worker while it is busy.
+                    if (idleWorkers.remove(this))
+                        idle.set(false);
+                    else {
+                        //A waker has already taken this worker from the idle queue, so pass its wakeup on.
+                        wakeup.acquireUninterruptibly();
+                        wakeIdleWorker();
+                    }
+                }
+                try {
+                    task.run();
+                } catch (Exception e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+
+    /**
+     * The worker of the current thread, if any.
+     */
+    final private ThreadLocal<Worker> currentWorker = new ThreadLocal<Worker>();
+
+    /**
+     * The workers which may be waiting for a task.
+     */
+    final private ConcurrentLinkedQueue<Worker> idleWorkers = new ConcurrentLinkedQueue<Worker>();
+
+    /**
+     * The priority tasks, which any worker takes before its own tasks.
+     */
+    final private ConcurrentLinkedQueue<Runnable> priorityTasks = new ConcurrentLinkedQueue<Runnable>();
+
+    /**
+     * Used to assign tasks submitted from outside the thread manager.
+     */
+    final private AtomicInteger nextWorker = new AtomicInteger();
+
+    /**
+     * The number of consecutive workers in each node, or 0 when all workers are in the same node.
+     */
+    final private int nodeSize;
+
+    /**
+     * Called by each worker thread as it starts, or null.
+     */
+    final private WorkerBinder workerBinder;
+
+    /**
+     * When closing is true, the threads exit as they finish their assigned tasks.
+     */
+    private volatile boolean closing;
+
+    /**
+     * The workers.
+     */
+    private Worker[] workers;
+
+    /**
+     * The worker threads.
+     */
+    final private ArrayList<Thread> threads = new ArrayList<Thread>();
+
+    /**
+     * Create a JAWorkStealingThreadManager whose workers are all in the same node.
+     */
+    public JAWorkStealingThreadManager() {
+        this(0, null);
+    }
+
+    /**
+     * Create a JAWorkStealingThreadManager.
+     *
+     * @param nodeSize     The number of consecutive workers in each node,
+     *                     or 0 when all workers are in the same node.
+     * @param workerBinder Called by each worker thread as it starts, or null.
+     */
+    public JAWorkStealingThreadManager(int nodeSize, WorkerBinder workerBinder) {
+        if (nodeSize < 0)
+            throw new IllegalArgumentException("negative node size");
+        this.nodeSize = nodeSize;
+        this.workerBinder = workerBinder;
+    }
+
+    /**
+     * Create a JAWorkStealingThreadManager
+     *
+     * @param threadCount The number of threads to be used.
+     * @return A new JAWorkStealingThreadManager.
+     */
+    public static ThreadManager newThreadManager(int threadCount) {
+        ThreadFactory threadFactory = new JAThreadFactory();
+        return newThreadManager(threadCount, threadFactory);
+    }
+
+    /**
+     * Create a JAWorkStealingThreadManager
+     *
+     * @param threadCount   The number of threads to be used.
+     * @param threadFactory Used to create the threads.
+     * @return A new JAWorkStealingThreadManager.
+     */
+    public static ThreadManager newThreadManager(int threadCount, ThreadFactory threadFactory) {
+        ThreadManager threadManager = new JAWorkStealingThreadManager();
+        threadManager.start(threadCount, threadFactory);
+        return threadManager;
+    }
+
+    /**
+     * Create a JAWorkStealingThreadManager
+     *
+     * @param threadCount  The number of threads to be used.
+     * @param nodeSize     The number of consecutive workers in each node,
+     *                     or 0 when all workers are in the same node.
+     * @param workerBinder Called by each worker thread as it starts, or null.
+     * @return A new JAWorkStealingThreadManager.
+     */
+    public static ThreadManager newThreadManager(int threadCount, int nodeSize, WorkerBinder workerBinder) {
+        ThreadManager threadManager = new JAWorkStealingThreadManager(nodeSize, workerBinder);
+        threadManager.start(threadCount, new JAThreadFactory());
+        return threadManager;
+    }
+
+    /**
+     * Returns the number of worker threads.
+     *
+     * @return The number of worker threads.
+     */
+    @Override
+    public int getThreadCount() {
+        return workers.length;
+    }
+
+    /**
+     * Create and start the threads.
+     *
+     * @param threadCount   The number of threads to be used.
+     * @param threadFactory Used to create the threads.
+     */
+    @Override
+    final public void start(int threadCount, ThreadFactory threadFactory) {
+        workers = new Worker[threadCount];
+        int c = 0;
+        while (c < threadCount) {
+            workers[c] = new Worker(c);
+            c += 1;
+        }
+        c = 0;
+        while (c < threadCount) {
+            Thread t = threadFactory.newThread(workers[c]);
+            threads.add(t);
+            t.start();
+            c += 1;
+        }
+    }
+
+    /**
+     * Returns the next task for a worker: a priority task, or a task taken from its own queue
+     * or else stolen from another worker, trying the workers of the same node first.
+     *
+     * @param worker The worker looking for a task.
+     * @return The next task, or null.
+     */
+    private Runnable nextTask(Worker worker) {
+        Runnable task = priorityTasks.poll();
+        if (task != null)
+            return task;
+        task = worker.tasks.poll();
+        if (task != null)
+            return task;
+        int n = workers.length;
+        int i = 1;
+        while (i < n) {
+            Worker victim = workers[(worker.index + i) % n];
+            if (victim.node == worker.node) {
+                task = victim.tasks.poll();
+                if (task != null)
+                    return task;
+            }
+            i += 1;
+        }
+        if (nodeSize == 0)
+            return null;
+        i = 1;
+        while (i < n) {
+            Worker victim = workers[(worker.index + i) % n];
+            if (victim.node != worker.node) {
+                task = victim.tasks.poll();
+                if (task != null)
+                    return task;
+            }
+            i += 1;
+        }
+        return null;
+    }
+
+    /**
+     * Begin running a task.
+     *
+     * @param task A task to be processed on another thread.
+     */
+    @Override
+    final public void process(Runnable task) {
+        Worker worker = currentWorker.get();
+        if (worker == null) {
+            int i = nextWorker.getAndIncrement() & Integer.MAX_VALUE;
+            worker = workers[i % workers.length];
+        }
+        worker.tasks.add(task);
+        wakeIdleWorker();
+    }
+
+    /**
+     * Begin running a task, preferably on the given worker.
+     * The task is added to the queue of that worker, which is woken if idle.
+     * Otherwise another idle worker is woken, which may steal the task.
+     *
+     * @param task   A task to be processed on another thread.
+     * @param worker The index of the preferred worker.
+     */
+    @Override
+    final public void process(Runnable task, int worker) {
+        Worker home = workers[worker % workers.length];
+        home.tasks.add(task);
+        if (idleWorkers.remove(home)) {
+            home.idle.set(false);
+            home.wakeup.release();
+            return;
+        }
+        wakeIdleWorker();
+    }
+
+    /**
+     * Begin running a task ahead of the tasks which are not priority tasks.
+     *
+     * @param task A task to be processed on another thread.
+     */
+    @Override
+    final public void processPriority(Runnable task) {
+        priorityTasks.add(task);
+        wakeIdleWorker();
+    }
+
+    /**
+     * Wake up an idle worker, if any.
+     */
+    private void wakeIdleWorker() {
+        Worker idle = idleWorkers.poll();
+        if (idle != null) {
+            idle.idle.set(false);
+            idle.wakeup.release();
+        }
+    }
+
+    /**
+     * The close method is used to stop all the threads as they become idle.
+     * This method sets a flag to indicate that the threads should stop
+     * and then wakes up all the threads.
+     * This method only returns after all the threads have died.
+     */
+    @Override
+    final public void close() {
+        closing = true;
+        int c = 0;
+        while (c < workers.length) {
+            workers[c].wakeup.release();
+            c += 1;
+        }
+        c = 0;
+        Thread ct = Thread.currentThread();
+        while (c < threads.size()) {
+            Thread t = threads.get(c);
+            if (ct != t) {
+                try {
+                    t.join();
+                } catch (InterruptedException e) {
+                }
+            }
+            c += 1;
+        }
+    }
+}
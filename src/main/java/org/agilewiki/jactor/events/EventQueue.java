@@ -50,4 +50,59 @@ public interface EventQueue<E> extends EventDispatcher<E>, EventDestination<E> {
      * @return The controlling queue.
      */
     public EventQueue<E> getController();
+
+    /**
+     * Removes the oldest pending event without processing it.
+     * Unlike dispatchEvents, this method may be called from any thread.
+     *
+     * @return The oldest pending event, or null.
+     */
+    public E removeEvent();
+
+    /**
+     * Adds an event which is to be dispatched ahead of the other pending events,
+     * and asks the thread manager to run the queue ahead of other queues.
+     *
+     * @param event The event to be processed.
+     */
+    public void putPriorityEvent(E event);
+
+    /**
+     * Assign the worker thread which is preferred for processing the events.
+     *
+     * @param homeWorker The index of the preferred worker, or -1 for no preference.
+     */
+    public void setHomeWorker(int homeWorker);
+
+    /**
+     * Returns the worker thread which is preferred for processing the events.
+     *
+     * @return The index of the preferred worker, or -1 when there is no preference.
+     */
+    public int getHomeWorker();
+
+    /**
+     * Limit the events dispatched each time the queue is activated,
+     * so that a busy queue can not monopolize a thread.
+     *
+     * @param batchLimit     The maximum number of events dispatched per activation,
+     *                       or 0 when unlimited.
+     * @param timeSliceNanos The maximum time in nanoseconds spent dispatching events
+     *                       per activation, or 0 when unlimited.
+     */
+    public void setDispatchLimits(int batchLimit, long timeSliceNanos);
+
+    /**
+     * Returns the maximum number of events dispatched per activation.
+     *
+     * @return The batch limit, or 0 when unlimited.
+     */
+    public int getBatchLimit();
+
+    /**
+     * Returns the maximum time spent dispatching events per activation.
+     *
+     * @return The time slice in nanoseconds, or 0 when unlimited.
+     */
+    public long getTimeSlice();
 }
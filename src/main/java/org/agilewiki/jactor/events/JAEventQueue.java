@@ -23,9 +23,14 @@
  */
 package org.agilewiki.jactor.events;
 
+import org.agilewiki.jactor.concurrent.AffinityThreadManager;
+import org.agilewiki.jactor.concurrent.PriorityThreadManager;
 import org.agilewiki.jactor.concurrent.ThreadManager;
 
+import java.util.Collection;
+import java.util.Queue;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
 
 /**
@@ -50,6 +55,33 @@ final public class JAEventQueue<E> implements EventQueue<E> {
      */
     private ThreadManager threadManager;
 
+    /**
+     * The index of the worker preferred for running the task, or -1.
+     */
+    private volatile int homeWorker = -1;
+
+    /**
+     * The maximum number of events dispatched per activation, or 0 when unlimited.
+     */
+    private volatile int batchLimit;
+
+    /**
+     * The maximum time in nanoseconds spent dispatching events per activation, or 0 when unlimited.
+     */
+    private volatile long timeSlice;
+
+    /**
+     * The number of events dispatched since control was taken.
+     * Only accessed by the controlling thread.
+     */
+    private int dispatched;
+
+    /**
+     * When the time slice of the current activation ends.
+     * Only accessed by the controlling thread.
+     */
+    private long deadline;
+
     /**
      * Process the dispatched events.
      */
@@ -58,7 +90,17 @@ final public class JAEventQueue<E> implements EventQueue<E> {
     /**
      * A queue of pending events.
      */
-    private ConcurrentLinkedQueue<E> queue = new ConcurrentLinkedQueue<E>();
+    private Queue<E> queue;
+
+    /**
+     * A queue of pending events which are dispatched ahead of the others.
+     */
+    final private Queue<E> priorityQueue = new ConcurrentLinkedQueue<E>();
+
+    /**
+     * Set true when a priority event has been added, and cleared once the priority queue is found empty.
+     */
+    private volatile boolean priorityPending;
 
     /**
      * Set to null when idle, set to this when under internal control,
@@ -66,6 +108,17 @@ final public class JAEventQueue<E> implements EventQueue<E> {
      */
     private AtomicReference<EventQueue<E>> atomicControl = new AtomicReference<EventQueue<E>>();
 
+    /**
+     * True when the task has been scheduled but has not yet started,
+     * so that it is not scheduled more than once.
+     */
+    final private AtomicBoolean taskPending = new AtomicBoolean();
+
+    /**
+     * True when the task has been scheduled as a priority task but has not yet started.
+     */
+    final private AtomicBoolean priorityTaskPending = new AtomicBoolean();
+
     /**
      * The task is used to process the events in the queue.
      * Each events is in turn processed using the JAEventQueue.
@@ -73,21 +126,19 @@ final public class JAEventQueue<E> implements EventQueue<E> {
     private Runnable task = new Runnable() {
         @Override
         public void run() {
-            if (commandeer(JAEventQueue.this))
-                while (true) {
-                    E event = queue.peek();
-                    if (event == null) {
-                        atomicControl.set(null);
-                        if (queue.peek() == null || !commandeer(JAEventQueue.this))
-                            return;
-                        if (queue.peek() == null) {
-                            atomicControl.set(null);
-                            return;
-                        }
-                    }
-                    notEmpty = false;
-                    eventProcessor.haveEvents();
-                }
+            taskPending.set(false);
+            process();
+        }
+    };
+
+    /**
+     * The task scheduled when a priority event is added.
+     */
+    private Runnable priorityTask = new Runnable() {
+        @Override
+        public void run() {
+            priorityTaskPending.set(false);
+            process();
         }
     };
 
@@ -98,8 +149,63 @@ final public class JAEventQueue<E> implements EventQueue<E> {
      * @param autonomous    Inhibits the acquireControl operation when true.
      */
     public JAEventQueue(ThreadManager threadManager, boolean autonomous) {
+        this(threadManager, autonomous, new ConcurrentLinkedQueue<E>());
+    }
+
+    /**
+     * Creates a JAEventQueue.
+     * Use this constructor when providing a queue other than ConcurrentLinkedQueue,
+     * e.g. JAMPSCQueue.
+     *
+     * @param threadManager Provides a thread for processing dispatched events.
+     * @param autonomous    Inhibits the acquireControl operation when true.
+     * @param queue         Holds the pending events. Any thread may add an event,
+     *                      but only the controlling thread removes them,
+     *                      except when removeEvent is used.
+     */
+    public JAEventQueue(ThreadManager threadManager, boolean autonomous, Queue<E> queue) {
         this.threadManager = threadManager;
         this.autonomous = autonomous;
+        this.queue = queue;
+    }
+
+    /**
+     * Process the events in the queue, unless another thread has control.
+     */
+    private void process() {
+        if (commandeer(this)) {
+            boolean limited = activate();
+            while (true) {
+                if (!hasEvents()) {
+                    atomicControl.set(null);
+                    if (!hasEvents() || !commandeer(this))
+                        return;
+                    if (!hasEvents()) {
+                        atomicControl.set(null);
+                        return;
+                    }
+                }
+                notEmpty = false;
+                eventProcessor.haveEvents();
+                if (limited && exhausted()) {
+                    atomicControl.set(null);
+                    if (priorityPending)
+                        schedulePriority();
+                    else if (queue.peek() != null)
+                        schedule();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns true when there may be pending events.
+     *
+     * @return True when there may be pending events.
+     */
+    private boolean hasEvents() {
+        return priorityPending || queue.peek() != null;
     }
 
     /**
@@ -114,6 +220,45 @@ final public class JAEventQueue<E> implements EventQueue<E> {
         return atomicControl.compareAndSet(null, eventQueue);
     }
 
+    /**
+     * Start the budget of an activation, after taking control.
+     *
+     * @return True when the activation has a budget.
+     */
+    private boolean activate() {
+        dispatched = 0;
+        long t = timeSlice;
+        if (t > 0) {
+            deadline = System.nanoTime() + t;
+            return true;
+        }
+        return batchLimit > 0;
+    }
+
+    /**
+     * Returns true when the budget of the current activation has been used up.
+     *
+     * @return True when the activation should end.
+     */
+    private boolean exhausted() {
+        int limit = batchLimit;
+        if (limit > 0 && dispatched >= limit)
+            return true;
+        return timeSlice > 0 && System.nanoTime() - deadline >= 0;
+    }
+
+    /**
+     * Returns the part of the budget used by an event.
+     *
+     * @param event A dispatched event.
+     * @return The number of elements of a collection, and otherwise 1.
+     */
+    private static int weight(Object event) {
+        if (event instanceof Collection)
+            return ((Collection<?>) event).size();
+        return 1;
+    }
+
     /**
      * Gain control of the queue.
      *
@@ -126,6 +271,7 @@ final public class JAEventQueue<E> implements EventQueue<E> {
             return false;
         if (commandeer(eventQueue.getController())) {
             notEmpty = false;
+            activate();
             return true;
         }
         return false;
@@ -140,11 +286,105 @@ final public class JAEventQueue<E> implements EventQueue<E> {
         if (c == this)
             return;
         atomicControl.set(null);
-        if (notEmpty) {
-            threadManager.process(task);
+        if (priorityPending)
+            schedulePriority();
+        else if (notEmpty || ((batchLimit > 0 || timeSlice > 0) && queue.peek() != null)) {
+            schedule();
         }
     }
 
+    /**
+     * Run the task, preferably on the home worker, unless it is already pending.
+     */
+    private void schedule() {
+        if (!taskPending.compareAndSet(false, true))
+            return;
+        int worker = homeWorker;
+        if (worker < 0)
+            threadManager.process(task);
+        else
+            ((AffinityThreadManager) threadManager).process(task, worker);
+    }
+
+    /**
+     * Run the task ahead of the tasks of other queues, unless it is already pending as a priority task.
+     * The home worker is ignored, as latency matters more here than locality.
+     */
+    private void schedulePriority() {
+        if (!priorityTaskPending.compareAndSet(false, true))
+            return;
+        if (threadManager instanceof PriorityThreadManager)
+            ((PriorityThreadManager) threadManager).processPriority(priorityTask);
+        else
+            threadManager.process(priorityTask);
+    }
+
+    /**
+     * Assign the worker thread which is preferred for processing the events.
+     * The thread manager must be an AffinityThreadManager.
+     *
+     * @param homeWorker The index of the preferred worker, or -1 for no preference.
+     */
+    @Override
+    public void setHomeWorker(int homeWorker) {
+        if (homeWorker >= 0 && !(threadManager instanceof AffinityThreadManager))
+            throw new UnsupportedOperationException("the thread manager does not support home workers");
+        this.homeWorker = homeWorker;
+    }
+
+    /**
+     * Returns the worker thread which is preferred for processing the events.
+     *
+     * @return The index of the preferred worker, or -1 when there is no preference.
+     */
+    @Override
+    public int getHomeWorker() {
+        return homeWorker;
+    }
+
+    /**
+     * Limit the events dispatched each time the queue is activated, by the task or by
+     * another queue taking control. Once the budget is used up, control is relinquished
+     * and the task is rescheduled behind the tasks of other queues, so that a busy queue
+     * can not monopolize a thread. An event which is a collection, like the list of messages
+     * buffered by one sender, counts as its number of elements, so the budget may be exceeded
+     * by the last event dispatched.
+     *
+     * @param batchLimit     The maximum number of events dispatched per activation,
+     *                       or 0 when unlimited.
+     * @param timeSliceNanos The maximum time in nanoseconds spent dispatching events
+     *                       per activation, or 0 when unlimited.
+     */
+    @Override
+    public void setDispatchLimits(int batchLimit, long timeSliceNanos) {
+        if (batchLimit < 0)
+            throw new IllegalArgumentException("negative batch limit");
+        if (timeSliceNanos < 0)
+            throw new IllegalArgumentException("negative time slice");
+        this.batchLimit = batchLimit;
+        this.timeSlice = timeSliceNanos;
+    }
+
+    /**
+     * Returns the maximum number of events dispatched per activation.
+     *
+     * @return The batch limit, or 0 when unlimited.
+     */
+    @Override
+    public int getBatchLimit() {
+        return batchLimit;
+    }
+
+    /**
+     * Returns the maximum time spent dispatching events per activation.
+     *
+     * @return The time slice in nanoseconds, or 0 when unlimited.
+     */
+    @Override
+    public long getTimeSlice() {
+        return timeSlice;
+    }
+
     /**
      * Returns the controlling queue.
      *
@@ -174,7 +414,7 @@ final public class JAEventQueue<E> implements EventQueue<E> {
      */
     @Override
     public boolean isEmpty() {
-        return queue.peek() == null;
+        return !hasEvents();
     }
 
     /**
@@ -188,21 +428,82 @@ final public class JAEventQueue<E> implements EventQueue<E> {
         queue.offer(event);
         notEmpty = true;
         if (atomicControl.get() == null)
-            threadManager.process(task);
+            schedule();
     }
 
     /**
-     * The dispatchEvents method processes any events in the queue.
+     * Adds an event which is to be dispatched ahead of the other pending events
+     * and if idle, start the task ahead of the tasks of other queues.
+     * While another thread has control, the event is the next to be dispatched.
+     *
+     * @param event The event to be processed.
+     */
+    @Override
+    public void putPriorityEvent(E event) {
+        priorityQueue.offer(event);
+        priorityPending = true;
+        notEmpty = true;
+        if (atomicControl.get() == null)
+            schedulePriority();
+    }
+
+    /**
+     * Returns the next event to be dispatched, taking priority events first.
+     *
+     * @return The next event, or null.
+     */
+    private E poll() {
+        if (priorityPending) {
+            E event = priorityQueue.poll();
+            if (event != null)
+                return event;
+            priorityPending = false;
+            event = priorityQueue.poll();
+            if (event != null) {
+                priorityPending = true;
+                return event;
+            }
+        }
+        return queue.poll();
+    }
+
+    /**
+     * Removes the oldest pending event without processing it.
+     * Priority events are never removed.
+     * Unlike dispatchEvents, this method may be called from any thread,
+     * so it must not be used with a single-consumer queue like JAMPSCQueue.
+     *
+     * @return The oldest pending event, or null.
+     */
+    @Override
+    public E removeEvent() {
+        return queue.poll();
+    }
+
+    /**
+     * The dispatchEvents method processes any events in the queue,
+     * but no more than the dispatch limits allow for the current activation.
      * True is returned if any events were actually processed.
      */
     @Override
     public boolean dispatchEvents() {
-        E event = queue.poll();
+        E event = poll();
         if (event == null) return false;
-        while (event != null) {
+        if (batchLimit == 0 && timeSlice == 0) {
+            while (event != null) {
+                eventProcessor.processEvent(event);
+                event = poll();
+            }
+            return true;
+        }
+        while (true) {
             eventProcessor.processEvent(event);
-            event = queue.poll();
+            dispatched += weight(event);
+            if (exhausted())
+                return true;
+            event = poll();
+            if (event == null)
+                return true;
         }
-        return true;
     }
 }
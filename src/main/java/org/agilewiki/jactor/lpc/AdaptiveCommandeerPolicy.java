@@ -0,0 +1,149 @@
+/*
+ * Copyright 2011 Bill La Forge
+ *
+ * This file is part of AgileWiki and is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License (LGPL) as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This code is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA
+ * or navigate to the following url http://www.gnu.org/licenses/lgpl-2.1.txt
+ *
+ * Note however that only Scala, Java and JavaScript files are being covered by LGPL.
+ * All other files are covered by the Common Public License (CPL).
+ * A copy of this license is also included and can be
+ * found as well at http://www.opensource.org/licenses/cpl1.0.txt
+ */
+package org.agilewiki.jactor.lpc;
+
+import org.agilewiki.jactor.Mailbox;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <p>
+ * A commandeer policy which keeps a moving average of the time senders spend processing the
+ * requests of a mailbox which they have commandeered. Once the average exceeds a threshold, requests
+ * are sent asynchronously so that they are processed in parallel with the work of the sender.
+ * One request in every probe interval is still processed by the sender, so that the average
+ * follows changes in the workload. While below the threshold, only one commandeered request in
+ * 64 is timed, to keep the cost of short requests low.
+ * </p><p>
+ * Requests are also sent asynchronously when the mailbox already holds pending messages, which the
+ * sender would otherwise have to process too, or when the preferAsync method of the target actor
+ * returns true.
+ * </p><p>
+ * The average is kept per policy, so each mailbox needs its own instance.
+ * </p>
+ */
+final public class AdaptiveCommandeerPolicy implements CommandeerPolicy {
+    /**
+     * The average processing time above which requests are sent asynchronously.
+     */
+    final private long thresholdNanos;
+
+    /**
+     * When above the threshold, one request in this many is still processed by the sender.
+     */
+    final private int probeInterval;
+
+    /**
+     * The moving average of the processing time, in nanoseconds.
+     */
+    private volatile long averageNanos;
+
+    /**
+     * The number of requests sent asynchronously because the average was above the threshold.
+     */
+    final private AtomicInteger skipped = new AtomicInteger();
+
+    /**
+     * The number of requests processed by senders, updated only while in control of the mailbox.
+     */
+    private int commandeeredCount;
+
+    /**
+     * Create an AdaptiveCommandeerPolicy with a probe interval of 64.
+     *
+     * @param thresholdNanos The average processing time above which requests are sent asynchronously.
+     */
+    public AdaptiveCommandeerPolicy(long thresholdNanos) {
+        this(thresholdNanos, 64);
+    }
+
+    /**
+     * Create an AdaptiveCommandeerPolicy.
+     *
+     * @param thresholdNanos The average processing time above which requests are sent asynchronously.
+     * @param probeInterval  When above the threshold, one request in this many is still processed
+     *                       by the sender to update the average.
+     */
+    public AdaptiveCommandeerPolicy(long thresholdNanos, int probeInterval) {
+        if (thresholdNanos < 0)
+            throw new IllegalArgumentException("negative threshold");
+        if (probeInterval < 1)
+            throw new IllegalArgumentException("probe interval must be positive");
+        this.thresholdNanos = thresholdNanos;
+        this.probeInterval = probeInterval;
+    }
+
+    /**
+     * Returns the threshold.
+     *
+     * @return The average processing time above which requests are sent asynchronously.
+     */
+    public long getThresholdNanos() {
+        return thresholdNanos;
+    }
+
+    /**
+     * Returns the moving average of the time spent by senders processing commandeered requests.
+     *
+     * @return The average processing time in nanoseconds.
+     */
+    public long getAverageNanos() {
+        return averageNanos;
+    }
+
+    @Override
+    public boolean mayCommandeer(Mailbox mailbox, JLPCActor target, Request request) {
+        if (target.preferAsync(request))
+            return false;
+        if (!mailbox.isEmpty())
+            return false;
+        if (averageNanos <= thresholdNanos)
+            return true;
+        return skipped.incrementAndGet() % probeInterval == 0;
+    }
+
+    @Override
+    public boolean sample(Mailbox mailbox) {
+        if (averageNanos > thresholdNanos)
+            return true;
+        commandeeredCount += 1;
+        return (commandeeredCount & 63) == 1;
+    }
+
+    /**
+     * Updates the moving average, giving the new sample a weight of 1/8.
+     * Concurrent updates may lose a sample, which is harmless.
+     *
+     * @param mailbox The commandeered mailbox.
+     * @param nanos   The elapsed time in nanoseconds.
+     */
+    @Override
+    public void commandeered(Mailbox mailbox, long nanos) {
+        long average = averageNanos;
+        if (average == 0)
+            averageNanos = nanos;
+        else
+            averageNanos = average + (nanos - average) / 8;
+    }
+}
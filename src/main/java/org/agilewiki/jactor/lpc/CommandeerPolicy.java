@@ -0,0 +1,70 @@
+/*
+ * Copyright 2011 Bill La Forge
+ *
+ * This file is part of AgileWiki and is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License (LGPL) as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This code is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA
+ * or navigate to the following url http://www.gnu.org/licenses/lgpl-2.1.txt
+ *
+ * Note however that only Scala, Java and JavaScript files are being covered by LGPL.
+ * All other files are covered by the Common Public License (CPL).
+ * A copy of this license is also included and can be
+ * found as well at http://www.opensource.org/licenses/cpl1.0.txt
+ */
+package org.agilewiki.jactor.lpc;
+
+import org.agilewiki.jactor.Mailbox;
+
+/**
+ * <p>
+ * Decides whether the thread sending a request (or event) to an idle mailbox may take control of
+ * that mailbox and process the request itself, rather than passing it to the mailbox's own thread.
+ * </p><p>
+ * Commandeering avoids a thread hand-off, which is best for short requests. But a long request
+ * processed on the sender's thread is not processed in parallel with the sender's other work,
+ * so a policy can choose an asynchronous send instead. When a mailbox has no policy, the sender
+ * always tries to commandeer it.
+ * </p>
+ */
+public interface CommandeerPolicy {
+    /**
+     * Returns true when the sender may try to take control of the target mailbox.
+     * This method is called on the sender's thread.
+     *
+     * @param mailbox The mailbox of the target actor.
+     * @param target  The target actor.
+     * @param request The request being sent.
+     * @return True when the sender may commandeer the target mailbox.
+     */
+    public boolean mayCommandeer(Mailbox mailbox, JLPCActor target, Request request);
+
+    /**
+     * Returns true when the time spent processing a request on the commandeered mailbox
+     * is to be measured and passed to the commandeered method.
+     * This method is called by the thread in control of the mailbox.
+     *
+     * @param mailbox The commandeered mailbox.
+     * @return True when the processing time is to be measured.
+     */
+    public boolean sample(Mailbox mailbox);
+
+    /**
+     * Reports the time spent by a sender processing requests on a commandeered mailbox,
+     * including any events dispatched before control was relinquished.
+     * This method is called only when sample returned true.
+     *
+     * @param mailbox The commandeered mailbox.
+     * @param nanos   The elapsed time in nanoseconds.
+     */
+    public void commandeered(Mailbox mailbox, long nanos);
+}
@@ -30,10 +30,12 @@ import org.agilewiki.jactor.bufferedEvents.BufferedEventsQueue;
 import org.agilewiki.jactor.events.EventQueue;
 import org.agilewiki.jactor.factory.ActorFactory;
 import org.agilewiki.jactor.factory.Requirement;
+import org.agilewiki.jactor.metrics.MailboxMetrics;
 import org.agilewiki.jactor.stateMachine.ExtendedResponseProcessor;
 import org.agilewiki.jactor.stateMachine._SMBuilder;
 
 import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
 
 /**
  * <p>
@@ -213,15 +215,48 @@ abstract public class JLPCActor implements TargetActor, RequestProcessor, Reques
     final public void processRequest(final JARequest request) throws Exception {
         if (request.isEvent())
             _processRequest(request.getUnwrappedRequest(), request.getResponseProcessor());
-        else _processRequest(request.getUnwrappedRequest(), new RP() {
-            @Override
-            public void processResponse(Object unwrappedResponse) {
-                JARequest old = mailbox.getCurrentRequest();
-                mailbox.setCurrentRequest(request);
-                mailbox.response(unwrappedResponse);
-                mailbox.setCurrentRequest(old);
+        else {
+            Responder responder = (Responder) request.getResponder();
+            if (responder == null) {
+                responder = new Responder(request);
+                request.setResponder(responder);
             }
-        });
+            responder.mailbox = mailbox;
+            _processRequest(request.getUnwrappedRequest(), responder);
+        }
+    }
+
+    /**
+     * Returns the response to a wrapped request.
+     * A recyclable request retains its Responder, so that it can be reused.
+     */
+    final private static class Responder extends RP {
+        /**
+         * The wrapped request.
+         */
+        final private JARequest request;
+
+        /**
+         * The mailbox of the actor processing the request.
+         */
+        private Mailbox mailbox;
+
+        /**
+         * Create a Responder.
+         *
+         * @param request The wrapped request.
+         */
+        Responder(JARequest request) {
+            this.request = request;
+        }
+
+        @Override
+        public void processResponse(Object unwrappedResponse) {
+            JARequest old = mailbox.getCurrentRequest();
+            mailbox.setCurrentRequest(request);
+            mailbox.response(unwrappedResponse);
+            mailbox.setCurrentRequest(old);
+        }
     }
 
     /**
@@ -236,6 +271,7 @@ abstract public class JLPCActor implements TargetActor, RequestProcessor, Reques
 
     /**
      * Enqueues the response in the responder's outbox.
+     * A priority response is passed to this actor's mailbox immediately instead.
      *
      * @param eventQueue   The responder's outbox.
      * @param japcResponse The wrapped response to be enqueued.
@@ -243,6 +279,12 @@ abstract public class JLPCActor implements TargetActor, RequestProcessor, Reques
     @Override
     final public void responseFrom(final BufferedEventsQueue<JAMessage> eventQueue,
                                    final JAResponse japcResponse) {
+        if (japcResponse.isPriority()) {
+            final ArrayList<JAMessage> bufferedEvents = new ArrayList<JAMessage>(1);
+            bufferedEvents.add(japcResponse);
+            mailbox.putBufferedEvents(bufferedEvents);
+            return;
+        }
         eventQueue.send(mailbox, japcResponse);
     }
 
@@ -278,6 +320,18 @@ abstract public class JLPCActor implements TargetActor, RequestProcessor, Reques
         mailbox.setInitialBufferCapacity(initialBufferCapacity);
     }
 
+    /**
+     * Returns true when a request is better processed by the thread of this actor's mailbox
+     * than by the thread of an actor with another mailbox which sends it.
+     * This hint is consulted by AdaptiveCommandeerPolicy.
+     *
+     * @param request The request being sent.
+     * @return True when the request should be sent asynchronously.
+     */
+    protected boolean preferAsync(final Request request) {
+        return false;
+    }
+
     /**
      * Wraps and enqueues an unwrapped request in the requester's inbox.
      *
@@ -308,19 +362,73 @@ abstract public class JLPCActor implements TargetActor, RequestProcessor, Reques
             syncSend(rs, request, rp, sourceExceptionHandler);
             return;
         }
-        if (!eventQueue.acquireControl(srcController)) {
+        MailboxMetrics metrics = mailbox.getMetrics();
+        CommandeerPolicy commandeerPolicy = mailbox.getCommandeerPolicy();
+        if ((commandeerPolicy != null && !commandeerPolicy.mayCommandeer(mailbox, this, request)) ||
+                (!eventQueue.acquireControl(srcController) &&
+                        !acquireControlWhenFull(eventQueue, srcController, request))) {
+            if (metrics != null)
+                metrics.commandeered(false);
             asyncSend(rs, request, rp, sourceExceptionHandler);
             return;
         }
+        if (metrics != null)
+            metrics.commandeered(true);
+        boolean timed = commandeerPolicy != null && commandeerPolicy.sample(mailbox);
+        long start = timed ? System.nanoTime() : 0L;
         try {
             syncSend(rs, request, rp, sourceExceptionHandler);
         } finally {
             mailbox.dispatchEvents();
             mailbox.sendPendingMessages();
             eventQueue.relinquishControl();
+            if (timed)
+                commandeerPolicy.commandeered(mailbox, System.nanoTime() - start);
         }
     }
 
+    /**
+     * Wraps and enqueues an unwrapped request in the requester's inbox.
+     * When no response is received within the timeout, a TimeoutException is passed
+     * back to the requester through the usual exception handling and any late response
+     * is dropped. The timeout only applies when the request is processed asynchronously:
+     * a request to an actor which shares the requester's thread is processed immediately,
+     * and the target's mailbox is never commandeered. Requests from outside the actor system,
+     * which have no mailbox to receive the exception, are not timed here;
+     * use JAFuture.send with a timeout instead.
+     *
+     * @param apcRequestSource The originator of the request.
+     * @param request          The request to be sent.
+     * @param rp               The request processor.
+     * @param timeout          The time to wait for a response.
+     * @param unit             The unit of the timeout.
+     * @throws Exception Any uncaught exceptions raised while processing the request.
+     */
+    @Override
+    final public void acceptRequest(final APCRequestSource apcRequestSource,
+                                    final Request request,
+                                    final RP rp,
+                                    final long timeout,
+                                    final TimeUnit unit)
+            throws Exception {
+        RequestSource rs = (RequestSource) apcRequestSource;
+        ExceptionHandler sourceExceptionHandler = rs.getExceptionHandler();
+        Mailbox sourceMailbox = rs.getMailbox();
+        if (sourceMailbox == mailbox) {
+            syncSend(rs, request, rp, sourceExceptionHandler);
+            return;
+        }
+        if (sourceMailbox == null) {
+            asyncSend(rs, request, rp, sourceExceptionHandler);
+            return;
+        }
+        if (mailbox.getEventQueue().getController() == sourceMailbox.getEventQueue().getController()) {
+            syncSend(rs, request, rp, sourceExceptionHandler);
+            return;
+        }
+        asyncSend(rs, sourceMailbox, request, rp, sourceExceptionHandler, unit.toNanos(timeout));
+    }
+
     /**
      * Wraps and enqueues an unwrapped request in the requester's inbox.
      *
@@ -349,17 +457,63 @@ abstract public class JLPCActor implements TargetActor, RequestProcessor, Reques
             syncSendEvent(rs, request, sourceExceptionHandler);
             return;
         }
-        if (!eventQueue.acquireControl(srcController)) {
+        MailboxMetrics metrics = mailbox.getMetrics();
+        CommandeerPolicy commandeerPolicy = mailbox.getCommandeerPolicy();
+        if ((commandeerPolicy != null && !commandeerPolicy.mayCommandeer(mailbox, this, request)) ||
+                (!eventQueue.acquireControl(srcController) &&
+                        !acquireControlWhenFull(eventQueue, srcController, request))) {
+            if (metrics != null)
+                metrics.commandeered(false);
             asyncSendEvent(rs, request, sourceExceptionHandler);
             return;
         }
+        if (metrics != null)
+            metrics.commandeered(true);
+        boolean timed = commandeerPolicy != null && commandeerPolicy.sample(mailbox);
+        long start = timed ? System.nanoTime() : 0L;
         try {
             syncSendEvent(rs, request, sourceExceptionHandler);
         } finally {
             mailbox.dispatchEvents();
             mailbox.sendPendingMessages();
             eventQueue.relinquishControl();
+            if (timed)
+                commandeerPolicy.commandeered(mailbox, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * The number of attempts made to gain control of a full CALLER_RUNS mailbox
+     * before the request is sent asynchronously instead.
+     */
+    final private static int CALLER_RUNS_ATTEMPTS = 64;
+
+    /**
+     * When the mailbox is full and its overflow policy is CALLER_RUNS,
+     * try for a while to gain control so the request can be processed synchronously.
+     * When control is not gained, the request is sent asynchronously and
+     * is held in the outbox of the sender until there is room in the mailbox, as with BLOCK.
+     * A priority request, which is not limited by the capacity, does not wait.
+     *
+     * @param eventQueue    The event queue of this actor's mailbox.
+     * @param srcController The controller of the source actor's event queue.
+     * @param request       The request being sent.
+     * @return True when control was acquired.
+     */
+    final private boolean acquireControlWhenFull(EventQueue<ArrayList<JAMessage>> eventQueue,
+                                                 EventQueue<ArrayList<JAMessage>> srcController,
+                                                 Request request) {
+        if (mailbox.getOverflowPolicy() != OverflowPolicy.CALLER_RUNS || request.isPriority())
+            return false;
+        int capacity = mailbox.getCapacity();
+        int attempts = 0;
+        while (mailbox.getQueuedRequests() >= capacity && attempts < CALLER_RUNS_ATTEMPTS) {
+            if (eventQueue.acquireControl(srcController))
+                return true;
+            attempts += 1;
+            Thread.yield();
         }
+        return false;
     }
 
     /**
@@ -369,7 +523,7 @@ abstract public class JLPCActor implements TargetActor, RequestProcessor, Reques
      * @param eh            The exception handler
      * @param sourceMailbox The mailbox of the source actor.
      */
-    final private void asyncException(Exception ex, ExceptionHandler eh, Mailbox sourceMailbox) {
+    final private static void asyncException(Exception ex, ExceptionHandler eh, Mailbox sourceMailbox) {
         if (eh == null) {
             sourceMailbox.response(ex);
         } else try {
@@ -381,6 +535,8 @@ abstract public class JLPCActor implements TargetActor, RequestProcessor, Reques
 
     /**
      * Process a request asynchronously.
+     * A priority request is never recycled, as its response is passed straight back to the source,
+     * which may then process it while the target is still processing the request.
      *
      * @param rs                     The source of the request.
      * @param request                The request.
@@ -391,39 +547,167 @@ abstract public class JLPCActor implements TargetActor, RequestProcessor, Reques
                                  final Request request,
                                  final RP rp,
                                  final ExceptionHandler sourceExceptionHandler) {
-        final Mailbox oldMailbox = rs.getMailbox();
-        JARequest oldRequest = null;
-        if (oldMailbox != null) {
-            oldRequest = oldMailbox.getCurrentRequest();
-        }
-        final JARequest old = oldRequest;
-        RP rp1 = rp;
-        rp1 = new RP() {
-            @Override
-            public void processResponse(Object response) throws Exception {
-                if (oldMailbox != null)
-                    oldMailbox.setCurrentRequest(old);
-                rs.setExceptionHandler(sourceExceptionHandler);
-                if (response != null && response instanceof Exception) {
-                    asyncException(
-                            (Exception) response,
-                            rs.getExceptionHandler(),
-                            oldMailbox);
-                } else try {
-                    rp.processResponse(response);
-                } catch (Exception ex) {
-                    asyncException(ex, rs.getExceptionHandler(), rs.getMailbox());
-                }
-            }
-        };
-        final JARequest jaRequest = new JARequest(
-                rs,
-                this,
-                request,
-                rp1);
+        Mailbox oldMailbox = rs.getMailbox();
+        JARequest jaRequest = null;
+        if (oldMailbox != null && !request.isPriority())
+            jaRequest = oldMailbox.takeRecycledRequest();
+        AsyncResponseProcessor rp1 = null;
+        if (jaRequest != null)
+            rp1 = (AsyncResponseProcessor) jaRequest.getResponseProcessor();
+        if (rp1 == null)
+            rp1 = new AsyncResponseProcessor();
+        rp1.init(oldMailbox, rs, rp, sourceExceptionHandler);
+        if (jaRequest == null)
+            jaRequest = new JARequest(rs, this, request, rp1);
+        else
+            jaRequest.reuse(rs, this, request, rp1);
+        jaRequest.setPriority(request.isPriority());
+        rs.send(mailbox, jaRequest);
+    }
+
+    /**
+     * Process a request asynchronously, passing a TimeoutException back to the source
+     * when there is no response within the timeout.
+     * The wrapped request is never recycled, as it may time out while still being processed.
+     *
+     * @param rs                     The source of the request.
+     * @param sourceMailbox          The mailbox of the source of the request.
+     * @param request                The request.
+     * @param rp                     Processes the response.
+     * @param sourceExceptionHandler Exception handler of the source actor.
+     * @param timeoutNanos           The time to wait for a response, in nanoseconds.
+     */
+    final private void asyncSend(final RequestSource rs,
+                                 final Mailbox sourceMailbox,
+                                 final Request request,
+                                 final RP rp,
+                                 final ExceptionHandler sourceExceptionHandler,
+                                 final long timeoutNanos) {
+        AsyncResponseProcessor rp1 = new AsyncResponseProcessor();
+        rp1.init(sourceMailbox, rs, rp, sourceExceptionHandler);
+        JARequest jaRequest = new JARequest(rs, this, request, rp1);
+        jaRequest.setPriority(request.isPriority());
+        jaRequest.setTimeout(sourceMailbox.getMailboxFactory().getTimer().schedule(
+                new Expiry(jaRequest, sourceMailbox), timeoutNanos, TimeUnit.NANOSECONDS));
         rs.send(mailbox, jaRequest);
     }
 
+    /**
+     * Passes a TimeoutException back to the source of a request which has timed out.
+     * This is run on the timer thread.
+     */
+    final private static class Expiry implements Runnable {
+        /**
+         * The wrapped request.
+         */
+        final private JARequest request;
+
+        /**
+         * The mailbox of the source of the request.
+         */
+        final private Mailbox sourceMailbox;
+
+        /**
+         * Create an Expiry.
+         *
+         * @param request       The wrapped request.
+         * @param sourceMailbox The mailbox of the source of the request.
+         */
+        Expiry(JARequest request, Mailbox sourceMailbox) {
+            this.request = request;
+            this.sourceMailbox = sourceMailbox;
+        }
+
+        @Override
+        public void run() {
+            sourceMailbox.putBufferedEvents(request.timedOut());
+        }
+    }
+
+    /**
+     * Processes the response to a request sent asynchronously.
+     * A recyclable request retains its AsyncResponseProcessor, so that it can be reused.
+     */
+    final private static class AsyncResponseProcessor extends RP {
+        /**
+         * The mailbox of the source actor, or null.
+         */
+        Mailbox oldMailbox;
+
+        /**
+         * The request being processed by the source actor when the request was sent.
+         */
+        JARequest old;
+
+        /**
+         * The generation of the old request when the request was sent.
+         */
+        int oldGeneration;
+
+        /**
+         * The source of the request.
+         */
+        RequestSource rs;
+
+        /**
+         * Processes the response.
+         */
+        RP rp;
+
+        /**
+         * Exception handler of the source actor.
+         */
+        ExceptionHandler sourceExceptionHandler;
+
+        /**
+         * Prepare the response processor for a request.
+         *
+         * @param oldMailbox             The mailbox of the source actor, or null.
+         * @param rs                     The source of the request.
+         * @param rp                     Processes the response.
+         * @param sourceExceptionHandler Exception handler of the source actor.
+         */
+        void init(Mailbox oldMailbox, RequestSource rs, RP rp, ExceptionHandler sourceExceptionHandler) {
+            this.oldMailbox = oldMailbox;
+            if (oldMailbox != null) {
+                old = oldMailbox.getCurrentRequest();
+                if (old != null)
+                    oldGeneration = old.getGeneration();
+            }
+            this.rs = rs;
+            this.rp = rp;
+            this.sourceExceptionHandler = sourceExceptionHandler;
+        }
+
+        @Override
+        public void processResponse(Object response) throws Exception {
+            Mailbox oldMailbox = this.oldMailbox;
+            JARequest old = this.old;
+            RequestSource rs = this.rs;
+            RP rp = this.rp;
+            this.oldMailbox = null;
+            this.old = null;
+            this.rs = null;
+            this.rp = null;
+            if (old != null && old.getGeneration() != oldGeneration)
+                old = null;
+            if (oldMailbox != null)
+                oldMailbox.setCurrentRequest(old);
+            rs.setExceptionHandler(sourceExceptionHandler);
+            sourceExceptionHandler = null;
+            if (response != null && response instanceof Exception) {
+                asyncException(
+                        (Exception) response,
+                        rs.getExceptionHandler(),
+                        oldMailbox);
+            } else try {
+                rp.processResponse(response);
+            } catch (Exception ex) {
+                asyncException(ex, rs.getExceptionHandler(), rs.getMailbox());
+            }
+        }
+    }
+
     /**
      * Process a request asynchronously.
      *
@@ -439,20 +723,57 @@ abstract public class JLPCActor implements TargetActor, RequestProcessor, Reques
                 this,
                 request,
                 JANoResponse.nrp);
+        jaRequest.setPriority(request.isPriority());
         rs.send(mailbox, jaRequest);
     }
 
-    class SyncExtendedRspProcessor extends ExtendedResponseProcessor {
+    /**
+     * Processes the response to a request processed synchronously.
+     * The response processors of requests which are answered synchronously are reused.
+     */
+    final static class SyncExtendedRspProcessor extends ExtendedResponseProcessor {
+        /**
+         * The wrapped request, which is reused along with the response processor.
+         */
+        final JARequest jaRequest = new JARequest(null, null, null, null);
+
+        JLPCActor target;
         RequestSource rs;
         Request request;
         RP rp;
         ExceptionHandler sourceExceptionHandler;
 
-        SyncExtendedRspProcessor(RequestSource rs, Request request, RP rp, ExceptionHandler sourceExceptionHandler) {
+        /**
+         * Prepare the response processor for a request.
+         *
+         * @param target                 The actor processing the request.
+         * @param rs                     The source of the request.
+         * @param request                The request.
+         * @param rp                     Processes the response.
+         * @param sourceExceptionHandler Exception handler of the source actor.
+         */
+        void init(JLPCActor target, RequestSource rs, Request request, RP rp,
+                  ExceptionHandler sourceExceptionHandler) {
+            this.target = target;
             this.rs = rs;
             this.request = request;
             this.rp = rp;
             this.sourceExceptionHandler = sourceExceptionHandler;
+            sync = false;
+            async = false;
+            jaRequest.reuse(rs, target, request, this);
+        }
+
+        /**
+         * Release the references held once the response has been processed.
+         */
+        void clear() {
+            jaRequest.retire();
+            target = null;
+            rs = null;
+            request = null;
+            rp = null;
+            sourceExceptionHandler = null;
         }
 
         /**
@@ -464,7 +785,7 @@ abstract public class JLPCActor implements TargetActor, RequestProcessor, Reques
         @Override
         public void processResponse(Object response)
                 throws Exception {
-            setExceptionHandler(sourceExceptionHandler);
+            target.setExceptionHandler(sourceExceptionHandler);
             if (!async) {
                 sync = true;
                 if (response != null && response instanceof Exception)
@@ -478,6 +799,7 @@ abstract public class JLPCActor implements TargetActor, RequestProcessor, Reques
                 if (response != null && response instanceof Exception)
                     asyncException((Exception) response, rs.getExceptionHandler(), rs.getMailbox());
                 else try {
+                    Mailbox mailbox = target.mailbox;
                     Mailbox sourceMailbox = rs.getMailbox();
                     EventQueue<ArrayList<JAMessage>> sourceEventQueue = sourceMailbox.getEventQueue();
                     EventQueue<ArrayList<JAMessage>> srcController = sourceEventQueue.getController();
@@ -486,7 +808,7 @@ abstract public class JLPCActor implements TargetActor, RequestProcessor, Reques
                     if (srcController == controller) {
                         rp.processResponse(response);
                     } else if (!eventQueue.acquireControl(srcController)) {
-                        asyncResponse(rs, request, response, rp);
+                        target.asyncResponse(rs, request, response, rp);
                     } else {
                         try {
                             rp.processResponse(response);
@@ -516,10 +838,17 @@ abstract public class JLPCActor implements TargetActor, RequestProcessor, Reques
                                 final RP rp,
                                 final ExceptionHandler sourceExceptionHandler)
             throws Exception {
-        final SyncExtendedRspProcessor erp = new SyncExtendedRspProcessor(rs, request, rp, sourceExceptionHandler);
-        JARequest jaRequest = new JARequest(rs, this, request, erp);
+        ArrayList<SyncExtendedRspProcessor> syncResponseProcessors = null;
+        if (mailbox instanceof JLPCMailbox)
+            syncResponseProcessors = ((JLPCMailbox) mailbox).syncResponseProcessors;
+        SyncExtendedRspProcessor erp = null;
+        if (syncResponseProcessors != null && !syncResponseProcessors.isEmpty())
+            erp = syncResponseProcessors.remove(syncResponseProcessors.size() - 1);
+        if (erp == null)
+            erp = new SyncExtendedRspProcessor();
+        erp.init(this, rs, request, rp, sourceExceptionHandler);
         JARequest old = mailbox.getCurrentRequest();
-        mailbox.setCurrentRequest(jaRequest);
+        mailbox.setCurrentRequest(erp.jaRequest);
         try {
             _processRequest(request, erp);
             if (!erp.sync) erp.async = true;
@@ -536,6 +865,11 @@ abstract public class JLPCActor implements TargetActor, RequestProcessor, Reques
         }
         mailbox.setCurrentRequest(old);
         setExceptionHandler(sourceExceptionHandler);
+        if (erp.sync && syncResponseProcessors != null &&
+                syncResponseProcessors.size() < JLPCMailbox.MAX_SYNC_RESPONSE_PROCESSORS) {
+            erp.clear();
+            syncResponseProcessors.add(erp);
+        }
     }
 
     /**
@@ -616,6 +950,16 @@ abstract public class JLPCActor implements TargetActor, RequestProcessor, Reques
                 throws Exception {
             JLPCActor.this.send(actor, request, rp);
         }
+
+        @Override
+        final public ExceptionHandler getExceptionHandler() {
+            return JLPCActor.this.getExceptionHandler();
+        }
+
+        @Override
+        final public void setExceptionHandler(ExceptionHandler exceptionHandler) {
+            JLPCActor.this.setExceptionHandler(exceptionHandler);
+        }
     }
 
     /**
@@ -6,6 +6,8 @@ import org.agilewiki.jactor.apc.JAMessage;
 import org.agilewiki.jactor.apc.JAPCMailbox;
 import org.agilewiki.jactor.bufferedEvents.BufferedEventsQueue;
 
+import java.util.ArrayList;
+
 /**
  * Implements Mailbox.
  */
@@ -16,6 +18,25 @@ final public class JLPCMailbox extends JAPCMailbox implements Mailbox {
      */
     private MailboxFactory mailboxFactory;
 
+    /**
+     * The maximum number of response processors held in syncResponseProcessors.
+     * One is needed for each level of nesting of synchronous sends, so a burst of deep nesting
+     * beyond this leaves no more than this many behind.
+     */
+    final static int MAX_SYNC_RESPONSE_PROCESSORS = 16;
+
+    /**
+     * Reusable response processors for requests processed synchronously.
+     * Used only by the thread in control of the mailbox.
+     */
+    final ArrayList<JLPCActor.SyncExtendedRspProcessor> syncResponseProcessors =
+            new ArrayList<JLPCActor.SyncExtendedRspProcessor>();
+
+    /**
+     * Decides when a sender may commandeer this mailbox, or null.
+     */
+    private volatile CommandeerPolicy commandeerPolicy;
+
     /**
      * Create a JLPCMailbox.
      * Use this constructor when providing an implementation of BufferedEventsQueue
@@ -61,4 +82,27 @@ final public class JLPCMailbox extends JAPCMailbox implements Mailbox {
     public MailboxFactory getMailboxFactory() {
         return mailboxFactory;
     }
+
+    /**
+     * Returns the policy deciding when an actor with another mailbox may process
+     * requests sent to this mailbox on its own thread.
+     *
+     * @return The commandeer policy, or null when senders always try to commandeer this mailbox.
+     */
+    @Override
+    public CommandeerPolicy getCommandeerPolicy() {
+        return commandeerPolicy;
+    }
+
+    /**
+     * Assign the policy deciding when an actor with another mailbox may process
+     * requests sent to this mailbox on its own thread.
+     *
+     * @param commandeerPolicy The commandeer policy, or null when senders are always
+     *                         to try to commandeer this mailbox.
+     */
+    @Override
+    public void setCommandeerPolicy(CommandeerPolicy commandeerPolicy) {
+        this.commandeerPolicy = commandeerPolicy;
+    }
 }
@@ -26,9 +26,12 @@ package org.agilewiki.jactor.lpc;
 import org.agilewiki.jactor.Actor;
 import org.agilewiki.jactor.JAEvent;
 import org.agilewiki.jactor.JAFuture;
+import org.agilewiki.jactor.JAListenableFuture;
 import org.agilewiki.jactor.RP;
 import org.agilewiki.jactor.apc.APCRequestSource;
 
+import java.util.concurrent.TimeUnit;
+
 /**
  * A request.
  */
@@ -41,6 +44,20 @@ abstract public class Request<RESPONSE_TYPE, TARGET_TYPE extends TargetActor> {
      */
     abstract public boolean isTargetType(Actor targetActor);
 
+    /**
+     * Returns true when the request, e.g. a health check or a shutdown, is to be processed
+     * ahead of the other pending messages of the target's mailbox when it is sent
+     * asynchronously. Its response then likewise bypasses the pending messages of the
+     * source's mailbox, and the thread manager runs the mailboxes with priority messages
+     * ahead of other mailboxes. Requests sent to an actor with the same mailbox
+     * are always processed immediately.
+     *
+     * @return True when the request has priority. The default is false.
+     */
+    public boolean isPriority() {
+        return false;
+    }
+
     /**
      * Searches the parent stack for the matching TARGET_TYPE.
      *
@@ -86,6 +103,49 @@ abstract public class Request<RESPONSE_TYPE, TARGET_TYPE extends TargetActor> {
         return (RESPONSE_TYPE) future.send((Actor) targetActor, this);
     }
 
+    /**
+     * Send a request and waits for a response, but for no longer than the timeout.
+     *
+     * @param future      The future.
+     * @param targetActor The target actor.
+     * @param timeout     The time to wait for a response.
+     * @param unit        The unit of the timeout.
+     * @throws Exception Any uncaught exceptions raised while processing the request,
+     *                   or a TimeoutException.
+     */
+    final public RESPONSE_TYPE send(JAFuture future, Actor targetActor, long timeout, TimeUnit unit)
+            throws Exception {
+        if (isTargetType(targetActor))
+            return (RESPONSE_TYPE) future.send(targetActor, this, timeout, unit);
+        Actor parent = targetActor.getParent();
+        if (parent != null)
+            return send(future, parent, timeout, unit);
+        throw new UnsupportedOperationException(
+                "request: " + getClass().getName() +
+                        " target actor: " + targetActor.getClass().getName() +
+                        " target actor type: " + targetActor.getActorType());
+    }
+
+    /**
+     * Send a request without waiting for the response.
+     *
+     * @param targetActor The target actor.
+     * @return A future which is completed by the response.
+     * @throws Exception Any exceptions raised while sending the request.
+     */
+    final public JAListenableFuture<RESPONSE_TYPE> sendAsync(Actor targetActor)
+            throws Exception {
+        if (isTargetType(targetActor))
+            return JAListenableFuture.send(targetActor, this);
+        Actor parent = targetActor.getParent();
+        if (parent != null)
+            return sendAsync(parent);
+        throw new UnsupportedOperationException(
+                "request: " + getClass().getName() +
+                        " target actor: " + targetActor.getClass().getName() +
+                        " target actor type: " + targetActor.getActorType());
+    }
+
     /**
      * Send a request.
      *
@@ -94,7 +154,7 @@ abstract public class Request<RESPONSE_TYPE, TARGET_TYPE extends TargetActor> {
      * @param rp            The response processor.
      * @throws Exception Any uncaught exceptions raised while processing the request.
      */
-    final public void send(APCRequestSource requestSource, Actor targetActor, RP<RESPONSE_TYPE> rp)
+    final public void send(APCRequestSource requestSource, Actor targetActor, RP<? super RESPONSE_TYPE> rp)
             throws Exception {
         if (isTargetType(targetActor)) {
             targetActor.acceptRequest(requestSource, this, rp);
@@ -111,6 +171,35 @@ abstract public class Request<RESPONSE_TYPE, TARGET_TYPE extends TargetActor> {
                         " target actor type: " + targetActor.getActorType());
     }
 
+    /**
+     * Send a request. When there is no response within the timeout,
+     * the response processor is bypassed and a TimeoutException is raised in the sender instead.
+     *
+     * @param requestSource The sender of the request.
+     * @param targetActor   The target actor.
+     * @param rp            The response processor.
+     * @param timeout       The time to wait for a response.
+     * @param unit          The unit of the timeout.
+     * @throws Exception Any uncaught exceptions raised while processing the request.
+     */
+    final public void send(APCRequestSource requestSource, Actor targetActor, RP<? super RESPONSE_TYPE> rp,
+                           long timeout, TimeUnit unit)
+            throws Exception {
+        if (isTargetType(targetActor)) {
+            targetActor.acceptRequest(requestSource, this, rp, timeout, unit);
+            return;
+        }
+        Actor parent = targetActor.getParent();
+        if (parent != null) {
+            send(requestSource, parent, rp, timeout, unit);
+            return;
+        }
+        throw new UnsupportedOperationException(
+                "request: " + getClass().getName() +
+                        " target actor: " + targetActor.getClass().getName() +
+                        " target actor type: " + targetActor.getActorType());
+    }
+
 
     /**
      * Send a request.
@@ -120,7 +209,7 @@ abstract public class Request<RESPONSE_TYPE, TARGET_TYPE extends TargetActor> {
      * @param rp            The response processor.
      * @throws Exception Any uncaught exceptions raised while processing the request.
      */
-    final public void send(APCRequestSource requestSource, TARGET_TYPE targetActor, RP<RESPONSE_TYPE> rp)
+    final public void send(APCRequestSource requestSource, TARGET_TYPE targetActor, RP<? super RESPONSE_TYPE> rp)
             throws Exception {
         ((Actor) targetActor).acceptRequest(requestSource, this, rp);
     }
@@ -0,0 +1,139 @@
+/*
+ * Copyright 2011 Bill La Forge
+ *
+ * This file is part of AgileWiki and is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License (LGPL) as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This code is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA
+ * or navigate to the following url http://www.gnu.org/licenses/lgpl-2.1.txt
+ *
+ * Note however that only Scala, Java and JavaScript files are being covered by LGPL.
+ * All other files are covered by the Common Public License (CPL).
+ * A copy of this license is also included and can be
+ * found as well at http://www.opensource.org/licenses/cpl1.0.txt
+ */
+package org.agilewiki.jactor.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock-free histogram of non-negative values, e.g. durations in nanoseconds.
+ * Values are counted in power-of-two buckets, so percentiles are reported
+ * as the upper bound of the bucket in which they fall.
+ */
+final public class Histogram {
+    /**
+     * Bucket 0 counts zeros. Bucket b counts the values from 2^(b-1) to 2^b - 1.
+     */
+    final private AtomicLongArray buckets = new AtomicLongArray(64);
+
+    /**
+     * The number of values recorded.
+     */
+    final private AtomicLong count = new AtomicLong();
+
+    /**
+     * The sum of the values recorded.
+     */
+    final private AtomicLong total = new AtomicLong();
+
+    /**
+     * The largest value recorded.
+     */
+    final private AtomicLong max = new AtomicLong();
+
+    /**
+     * Record a value. Negative values are recorded as 0.
+     *
+     * @param value The value.
+     */
+    public void record(long value) {
+        if (value < 0)
+            value = 0;
+        buckets.incrementAndGet(64 - Long.numberOfLeadingZeros(value));
+        count.incrementAndGet();
+        total.addAndGet(value);
+        long m = max.get();
+        while (value > m && !max.compareAndSet(m, value))
+            m = max.get();
+    }
+
+    /**
+     * Returns the number of values recorded.
+     *
+     * @return The number of values recorded.
+     */
+    public long getCount() {
+        return count.get();
+    }
+
+    /**
+     * Returns the mean of the values recorded.
+     *
+     * @return The mean, or 0 when no values have been recorded.
+     */
+    public long getMean() {
+        long n = count.get();
+        if (n == 0)
+            return 0;
+        return total.get() / n;
+    }
+
+    /**
+     * Returns the largest value recorded.
+     *
+     * @return The largest value, or 0 when no values have been recorded.
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * Returns an upper bound on a percentile of the values recorded.
+     *
+     * @param percent The percentile, from 0 to 100.
+     * @return The upper bound of the bucket holding the percentile, or 0 when no values have been recorded.
+     */
+    public long getPercentile(double percent) {
+        long n = count.get();
+        if (n == 0)
+            return 0;
+        long rank = (long) Math.ceil(n * percent / 100);
+        if (rank < 1)
+            rank = 1;
+        long seen = 0;
+        int b = 0;
+        while (b < 64) {
+            seen += buckets.get(b);
+            if (seen >= rank)
+                return b == 0 ? 0 : Math.min((1L << b) - 1, max.get());
+            b += 1;
+        }
+        return max.get();
+    }
+
+    /**
+     * Discard all recorded values.
+     * Values recorded concurrently with a reset may be partially discarded.
+     */
+    public void reset() {
+        int b = 0;
+        while (b < 64) {
+            buckets.set(b, 0);
+            b += 1;
+        }
+        count.set(0);
+        total.set(0);
+        max.set(0);
+    }
+}
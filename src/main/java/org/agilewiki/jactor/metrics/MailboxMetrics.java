@@ -0,0 +1,254 @@
+/*
+ * Copyright 2011 Bill La Forge
+ *
+ * This file is part of AgileWiki and is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License (LGPL) as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This code is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA
+ * or navigate to the following url http://www.gnu.org/licenses/lgpl-2.1.txt
+ *
+ * Note however that only Scala, Java and JavaScript files are being covered by LGPL.
+ * All other files are covered by the Common Public License (CPL).
+ * A copy of this license is also included and can be
+ * found as well at http://www.opensource.org/licenses/cpl1.0.txt
+ */
+package org.agilewiki.jactor.metrics;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>
+ * Counters and histograms for a single mailbox, published via JMX.
+ * </p>
+ * <pre>
+ *         JAMailboxFactory mailboxFactory = JAMailboxFactory.newMailboxFactory(4);
+ *         mailboxFactory.setMetricsEnabled(true);
+ *         Mailbox mailbox = mailboxFactory.createMailbox();
+ *         MailboxMetrics metrics = mailbox.getMetrics();
+ * </pre>
+ */
+final public class MailboxMetrics implements MailboxMetricsMBean {
+    /**
+     * The number of messages enqueued.
+     */
+    final private AtomicLong enqueued = new AtomicLong();
+
+    /**
+     * The number of messages dispatched.
+     */
+    final private AtomicLong dispatched = new AtomicLong();
+
+    /**
+     * The number of messages in the queue.
+     */
+    final private AtomicLong queueDepth = new AtomicLong();
+
+    /**
+     * The time messages wait in the queue.
+     */
+    final private Histogram waitTime = new Histogram();
+
+    /**
+     * The time taken to process messages.
+     */
+    final private Histogram processingTime = new Histogram();
+
+    /**
+     * The number of successful commandeers.
+     */
+    final private AtomicLong commandeerHits = new AtomicLong();
+
+    /**
+     * The number of failed commandeers.
+     */
+    final private AtomicLong commandeerMisses = new AtomicLong();
+
+    /**
+     * The name under which this is registered with the platform MBean server, or null.
+     */
+    private ObjectName objectName;
+
+    /**
+     * Record messages added to the queue.
+     *
+     * @param count The number of messages.
+     */
+    public void enqueued(int count) {
+        enqueued.addAndGet(count);
+        queueDepth.addAndGet(count);
+    }
+
+    /**
+     * Record messages removed from the queue without being processed.
+     *
+     * @param count The number of messages.
+     */
+    public void removed(int count) {
+        queueDepth.addAndGet(-count);
+    }
+
+    /**
+     * Record the processing of a message.
+     *
+     * @param waitNanos       The time the message waited in the queue.
+     * @param processingNanos The time taken to process the message.
+     */
+    public void dispatched(long waitNanos, long processingNanos) {
+        dispatched.incrementAndGet();
+        queueDepth.decrementAndGet();
+        waitTime.record(waitNanos);
+        processingTime.record(processingNanos);
+    }
+
+    /**
+     * Record an attempt to commandeer the mailbox.
+     *
+     * @param hit True when the sending thread took control of the mailbox.
+     */
+    public void commandeered(boolean hit) {
+        if (hit)
+            commandeerHits.incrementAndGet();
+        else
+            commandeerMisses.incrementAndGet();
+    }
+
+    /**
+     * Returns the histogram of the time messages waited in the queue.
+     *
+     * @return The wait time histogram.
+     */
+    public Histogram getWaitTime() {
+        return waitTime;
+    }
+
+    /**
+     * Returns the histogram of the time taken to process messages.
+     *
+     * @return The processing time histogram.
+     */
+    public Histogram getProcessingTime() {
+        return processingTime;
+    }
+
+    @Override
+    public long getEnqueued() {
+        return enqueued.get();
+    }
+
+    @Override
+    public long getDispatched() {
+        return dispatched.get();
+    }
+
+    @Override
+    public long getQueueDepth() {
+        return queueDepth.get();
+    }
+
+    @Override
+    public long getWaitTimeMean() {
+        return waitTime.getMean();
+    }
+
+    @Override
+    public long getWaitTimeP50() {
+        return waitTime.getPercentile(50);
+    }
+
+    @Override
+    public long getWaitTimeP99() {
+        return waitTime.getPercentile(99);
+    }
+
+    @Override
+    public long getWaitTimeMax() {
+        return waitTime.getMax();
+    }
+
+    @Override
+    public long getProcessingTimeMean() {
+        return processingTime.getMean();
+    }
+
+    @Override
+    public long getProcessingTimeP50() {
+        return processingTime.getPercentile(50);
+    }
+
+    @Override
+    public long getProcessingTimeP99() {
+        return processingTime.getPercentile(99);
+    }
+
+    @Override
+    public long getProcessingTimeMax() {
+        return processingTime.getMax();
+    }
+
+    @Override
+    public long getCommandeerHits() {
+        return commandeerHits.get();
+    }
+
+    @Override
+    public long getCommandeerMisses() {
+        return commandeerMisses.get();
+    }
+
+    @Override
+    public void reset() {
+        enqueued.set(0);
+        dispatched.set(0);
+        waitTime.reset();
+        processingTime.reset();
+        commandeerHits.set(0);
+        commandeerMisses.set(0);
+    }
+
+    /**
+     * Register with the platform MBean server.
+     *
+     * @param objectName The name to register under.
+     * @throws Exception Thrown when registration fails.
+     */
+    public void register(ObjectName objectName) throws Exception {
+        MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+        mBeanServer.registerMBean(this, objectName);
+        this.objectName = objectName;
+    }
+
+    /**
+     * Unregister from the platform MBean server, if registered.
+     */
+    public void unregister() {
+        if (objectName == null)
+            return;
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+        } catch (Exception ex) {
+            ex.printStackTrace();
+        }
+        objectName = null;
+    }
+
+    /**
+     * Returns the name under which this is registered with the platform MBean server.
+     *
+     * @return The object name, or null when not registered.
+     */
+    public ObjectName getObjectName() {
+        return objectName;
+    }
+}
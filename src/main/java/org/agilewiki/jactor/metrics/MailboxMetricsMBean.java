@@ -0,0 +1,128 @@
+/*
+ * Copyright 2011 Bill La Forge
+ *
+ * This file is part of AgileWiki and is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License (LGPL) as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This code is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA
+ * or navigate to the following url http://www.gnu.org/licenses/lgpl-2.1.txt
+ *
+ * Note however that only Scala, Java and JavaScript files are being covered by LGPL.
+ * All other files are covered by the Common Public License (CPL).
+ * A copy of this license is also included and can be
+ * found as well at http://www.opensource.org/licenses/cpl1.0.txt
+ */
+package org.agilewiki.jactor.metrics;
+
+/**
+ * The JMX management interface of MailboxMetrics.
+ * Times are in nanoseconds.
+ */
+public interface MailboxMetricsMBean {
+    /**
+     * Returns the number of messages added to the mailbox's queue.
+     *
+     * @return The number of messages enqueued.
+     */
+    public long getEnqueued();
+
+    /**
+     * Returns the number of messages taken from the queue and processed.
+     *
+     * @return The number of messages dispatched.
+     */
+    public long getDispatched();
+
+    /**
+     * Returns the number of messages in the queue.
+     *
+     * @return The queue depth.
+     */
+    public long getQueueDepth();
+
+    /**
+     * Returns the mean time messages waited in the queue.
+     *
+     * @return The mean wait time.
+     */
+    public long getWaitTimeMean();
+
+    /**
+     * Returns the median time messages waited in the queue.
+     *
+     * @return An upper bound on the median wait time.
+     */
+    public long getWaitTimeP50();
+
+    /**
+     * Returns the 99th percentile of the time messages waited in the queue.
+     *
+     * @return An upper bound on the 99th percentile wait time.
+     */
+    public long getWaitTimeP99();
+
+    /**
+     * Returns the longest time a message waited in the queue.
+     *
+     * @return The maximum wait time.
+     */
+    public long getWaitTimeMax();
+
+    /**
+     * Returns the mean time taken to process a message.
+     *
+     * @return The mean processing time.
+     */
+    public long getProcessingTimeMean();
+
+    /**
+     * Returns the median time taken to process a message.
+     *
+     * @return An upper bound on the median processing time.
+     */
+    public long getProcessingTimeP50();
+
+    /**
+     * Returns the 99th percentile of the time taken to process a message.
+     *
+     * @return An upper bound on the 99th percentile processing time.
+     */
+    public long getProcessingTimeP99();
+
+    /**
+     * Returns the longest time taken to process a message.
+     *
+     * @return The maximum processing time.
+     */
+    public long getProcessingTimeMax();
+
+    /**
+     * Returns the number of times a sending thread took control of the mailbox
+     * to process a request synchronously.
+     *
+     * @return The number of commandeer hits.
+     */
+    public long getCommandeerHits();
+
+    /**
+     * Returns the number of times a sending thread failed to take control of the mailbox,
+     * so that the request was sent asynchronously.
+     *
+     * @return The number of commandeer misses.
+     */
+    public long getCommandeerMisses();
+
+    /**
+     * Resets the counters and histograms, but not the queue depth.
+     */
+    public void reset();
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright 2011 Bill La Forge
+ *
+ * This file is part of AgileWiki and is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License (LGPL) as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This code is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA
+ * or navigate to the following url http://www.gnu.org/licenses/lgpl-2.1.txt
+ *
+ * Note however that only Scala, Java and JavaScript files are being covered by LGPL.
+ * All other files are covered by the Common Public License (CPL).
+ * A copy of this license is also included and can be
+ * found as well at http://www.opensource.org/licenses/cpl1.0.txt
+ */
+
+/**
+ * <p>
+ * The metrics package provides optional per-mailbox instrumentation:
+ * message counts, queue depth, the time messages wait before being dispatched,
+ * the time spent processing them, and how often a sending thread succeeds in
+ * commandeering the mailbox. The metrics of long-lived mailboxes can be published as JMX MBeans
+ * with JAMailboxFactory.registerMetrics.
+ * </p>
+ * <p>
+ * When metrics are not enabled for a mailbox, the cost is a null check per message.
+ * </p>
+ */
+package org.agilewiki.jactor.metrics;
@@ -27,7 +27,10 @@ import org.agilewiki.jactor.RP;
 
 /**
  * Returns a response only when the expected number of responses are received.
+ *
+ * @deprecated Use JAScatterGather, which also gathers the responses and handles exceptions.
  */
+@Deprecated
 final public class JAResponseCounter extends RP {
     /**
      * Number of responses expected.
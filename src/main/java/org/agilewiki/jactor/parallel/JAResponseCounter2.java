@@ -28,7 +28,10 @@ import org.agilewiki.jactor.RP;
 /**
  * Counts the number of responses received
  * and responds with the count of requests sent when the iteration is finished.
+ *
+ * @deprecated Use JAScatterGather, which also gathers the responses and handles exceptions.
  */
+@Deprecated
 public class JAResponseCounter2 extends RP {
     /**
      * The number of requests sent.
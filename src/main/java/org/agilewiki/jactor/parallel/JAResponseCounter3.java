@@ -30,7 +30,10 @@ import java.util.ArrayList;
 /**
  * Counts the number of responses received
  * and responds with the count of requests sent when the iteration is finished.
+ *
+ * @deprecated Use JAScatterGather, which also gathers the responses and handles exceptions.
  */
+@Deprecated
 public class JAResponseCounter3 extends RP {
     /**
      * The number of requests sent.
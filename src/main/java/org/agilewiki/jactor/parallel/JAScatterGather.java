@@ -0,0 +1,414 @@
+/*
+ * Copyright 2011 Bill La Forge
+ *
+ * This file is part of AgileWiki and is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License (LGPL) as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This code is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA
+ * or navigate to the following url http://www.gnu.org/licenses/lgpl-2.1.txt
+ *
+ * Note however that only Scala, Java and JavaScript files are being covered by LGPL.
+ * All other files are covered by the Common Public License (CPL).
+ * A copy of this license is also included and can be
+ * found as well at http://www.opensource.org/licenses/cpl1.0.txt
+ */
+package org.agilewiki.jactor.parallel;
+
+import org.agilewiki.jactor.Actor;
+import org.agilewiki.jactor.ExceptionHandler;
+import org.agilewiki.jactor.RP;
+import org.agilewiki.jactor.lpc.JLPCActor;
+import org.agilewiki.jactor.lpc.Request;
+
+import java.util.ArrayList;
+
+/**
+ * <p>
+ * Sends requests to many actors and gathers the responses, completing once all the responses
+ * have been received or, when fewer are required, once the required number of requests have succeeded.
+ * </p>
+ * <pre>
+ *     sg.start(rp);
+ *     for (Actor actor : actors)
+ *         sg.send(actor, request);
+ *     sg.finished();
+ * </pre>
+ * <p>
+ * Each response is kept in the order the requests were sent. On completion, the value returned
+ * by gather is passed to the response processor given to start. Override gather to reduce the
+ * responses to a single result, and override accumulate to reduce them as they arrive instead.
+ * </p>
+ * <p>
+ * The exception raised by a failed request is passed back in place of the result as soon as the
+ * required number of successes can no longer be reached--so when all responses are required, the first
+ * exception is passed back. Responses received after completion are ignored.
+ * </p>
+ * <p>
+ * A JAScatterGather is used by a single actor and can be reused once completed. When given a pool,
+ * it adds itself to the pool once it has completed and every request has been answered,
+ * so that requests still outstanding after an early completion can not be mistaken for the responses
+ * to a later use.
+ * </p>
+ */
+public class JAScatterGather<RESPONSE_TYPE> {
+    /**
+     * Passed as required when all the responses are required.
+     */
+    public final static int ALL = -1;
+
+    /**
+     * The actor which sends the requests.
+     */
+    private final JLPCActor source;
+
+    /**
+     * The pool the JAScatterGather is returned to, or null.
+     */
+    private final ArrayList<JAScatterGather<RESPONSE_TYPE>> pool;
+
+    /**
+     * The response processors of the requests, reused from one use to the next.
+     */
+    private final ArrayList<Slot> slots = new ArrayList<Slot>();
+
+    /**
+     * The number of successes required, or ALL.
+     */
+    private int required;
+
+    /**
+     * The number of requests sent.
+     */
+    private int sent;
+
+    /**
+     * The number of successful responses received.
+     */
+    private int succeeded;
+
+    /**
+     * The number of exceptions received.
+     */
+    private int failed;
+
+    /**
+     * True once all the requests have been sent.
+     */
+    private boolean finished;
+
+    /**
+     * True once the result, or an exception, has been passed back.
+     */
+    private boolean complete;
+
+    /**
+     * The exception handler of the source actor before the requests were sent.
+     */
+    private ExceptionHandler previous;
+
+    /**
+     * The last exception received.
+     */
+    private Exception exception;
+
+    /**
+     * Processes the result.
+     */
+    private RP<? super RESPONSE_TYPE> rp;
+
+    /**
+     * Create a JAScatterGather.
+     *
+     * @param source The actor which sends the requests.
+     */
+    public JAScatterGather(JLPCActor source) {
+        this(source, null);
+    }
+
+    /**
+     * Create a JAScatterGather which returns itself to a pool when no longer in use.
+     *
+     * @param source The actor which sends the requests.
+     * @param pool   The pool, or null.
+     */
+    public JAScatterGather(JLPCActor source, ArrayList<JAScatterGather<RESPONSE_TYPE>> pool) {
+        this.source = source;
+        this.pool = pool;
+        complete = true;
+    }
+
+    /**
+     * Begin gathering, with all the responses required.
+     *
+     * @param rp Processes the result.
+     */
+    public void start(RP<? super RESPONSE_TYPE> rp) {
+        start(ALL, rp);
+    }
+
+    /**
+     * Begin gathering.
+     * A JAScatterGather can not be restarted until it has completed and every request has been answered.
+     *
+     * @param required The number of successes required, e.g. 1 for the first success, or ALL.
+     * @param rp       Processes the result.
+     */
+    public void start(int required, RP<? super RESPONSE_TYPE> rp) {
+        if (required < 1 && required != ALL)
+            throw new IllegalArgumentException("required must be at least 1, or ALL");
+        if (!complete || succeeded + failed < sent)
+            throw new IllegalStateException("still in use");
+        this.required = required;
+        this.rp = rp;
+        sent = 0;
+        succeeded = 0;
+        failed = 0;
+        finished = false;
+        complete = false;
+        exception = null;
+        previous = source.getExceptionHandler();
+    }
+
+    /**
+     * Send a request to an actor, unless the gathering has already completed.
+     * The exception handler of the source actor is restored once the request has been sent.
+     * When the request can not be sent, e.g. because the actor is not of its target type,
+     * it is not counted as sent.
+     *
+     * @param actor   The target actor.
+     * @param request The request.
+     * @throws Exception Any uncaught exceptions raised while processing the request.
+     */
+    public void send(Actor actor, Request<?, ?> request) throws Exception {
+        if (finished)
+            throw new IllegalStateException("finished");
+        if (complete)
+            return;
+        Slot slot;
+        if (sent < slots.size())
+            slot = slots.get(sent);
+        else {
+            slot = new Slot(sent);
+            slots.add(slot);
+        }
+        slot.answered = false;
+        slot.response = null;
+        sent += 1;
+        ExceptionHandler eh = source.getExceptionHandler();
+        source.setExceptionHandler(slot);
+        try {
+            request.send(source, actor, slot);
+        } catch (Exception ex) {
+            if (!slot.answered && slot.index == sent - 1)
+                sent -= 1;
+            throw ex;
+        } finally {
+            source.setExceptionHandler(eh);
+        }
+    }
+
+    /**
+     * Signals that all requests have been sent.
+     *
+     * @throws Exception Any exceptions raised while processing the result, or the exception
+     *                   of a failed request when the required number of successes can not be reached.
+     */
+    public void finished() throws Exception {
+        finished = true;
+        if (complete) {
+            recycle();
+            return;
+        }
+        source.setExceptionHandler(previous);
+        if (failed > sent - (required == ALL || required > sent ? sent : required))
+            fail(exception);
+        else
+            check();
+    }
+
+    /**
+     * Returns the number of requests sent.
+     *
+     * @return The number of requests sent.
+     */
+    public int getSent() {
+        return sent;
+    }
+
+    /**
+     * Returns the number of successful responses received.
+     *
+     * @return The number of successful responses received.
+     */
+    public int getSucceeded() {
+        return succeeded;
+    }
+
+    /**
+     * Returns the response to a request.
+     *
+     * @param index The index of the request, in the order sent.
+     * @return The response, or null when none has been received or the request failed.
+     */
+    public Object getResponse(int index) {
+        if (index >= sent)
+            throw new IndexOutOfBoundsException("index: " + index + " sent: " + sent);
+        Slot slot = slots.get(index);
+        return slot.response == slot ? null : slot.response;
+    }
+
+    /**
+     * Returns true when a successful response to a request has been received.
+     *
+     * @param index The index of the request, in the order sent.
+     * @return True when a successful response has been received.
+     */
+    public boolean isSucceeded(int index) {
+        if (index >= sent)
+            throw new IndexOutOfBoundsException("index: " + index + " sent: " + sent);
+        Slot slot = slots.get(index);
+        return slot.answered && slot.response != slot;
+    }
+
+    /**
+     * Processes a successful response as it arrives.
+     * By default the response is kept for gather.
+     *
+     * @param index    The index of the request, in the order sent.
+     * @param response The response.
+     * @return The value to be kept as the response.
+     * @throws Exception Any exceptions raised while processing the response.
+     */
+    protected Object accumulate(int index, Object response) throws Exception {
+        return response;
+    }
+
+    /**
+     * Returns the result, once the required responses have been received.
+     * By default the result is null.
+     *
+     * @return The result.
+     * @throws Exception Any exceptions raised while computing the result.
+     */
+    protected RESPONSE_TYPE gather() throws Exception {
+        return null;
+    }
+
+    /**
+     * Complete when the required number of successes has been reached.
+     */
+    private void check() throws Exception {
+        if (required == ALL) {
+            if (!finished || succeeded < sent)
+                return;
+        } else if (succeeded < required && (!finished || succeeded < sent))
+            return;
+        complete = true;
+        source.setExceptionHandler(previous);
+        RP<? super RESPONSE_TYPE> rp = this.rp;
+        this.rp = null;
+        RESPONSE_TYPE result = gather();
+        recycle();
+        rp.processResponse(result);
+    }
+
+    /**
+     * Pass back an exception in place of the result.
+     *
+     * @param ex The exception.
+     */
+    private void fail(Exception ex) throws Exception {
+        complete = true;
+        rp = null;
+        source.setExceptionHandler(previous);
+        ExceptionHandler eh = previous;
+        recycle();
+        if (eh == null)
+            throw ex;
+        eh.process(ex);
+    }
+
+    /**
+     * Return to the pool once complete and no requests are outstanding.
+     */
+    private void recycle() {
+        if (pool == null || !complete || !finished || succeeded + failed < sent)
+            return;
+        previous = null;
+        exception = null;
+        int i = 0;
+        while (i < sent) {
+            slots.get(i).response = null;
+            i += 1;
+        }
+        pool.add(this);
+    }
+
+    /**
+     * Receives the response or exception for one request.
+     */
+    final private class Slot extends RP<Object> implements ExceptionHandler {
+        /**
+         * The index of the request, in the order sent.
+         */
+        private final int index;
+
+        /**
+         * True once the response or exception has been received.
+         */
+        private boolean answered;
+
+        /**
+         * The response, or this slot when the request failed.
+         */
+        private Object response;
+
+        /**
+         * Create a Slot.
+         *
+         * @param index The index of the request, in the order sent.
+         */
+        Slot(int index) {
+            this.index = index;
+        }
+
+        @Override
+        public void processResponse(Object response) throws Exception {
+            if (answered)
+                return;
+            answered = true;
+            succeeded += 1;
+            if (complete) {
+                recycle();
+                return;
+            }
+            this.response = accumulate(index, response);
+            check();
+        }
+
+        @Override
+        public void process(Exception ex) throws Exception {
+            if (answered)
+                throw ex;
+            answered = true;
+            failed += 1;
+            response = this;
+            if (complete) {
+                recycle();
+                return;
+            }
+            exception = ex;
+            if (required == ALL || (finished && failed > sent - (required > sent ? sent : required)))
+                fail(ex);
+        }
+    }
+}
@@ -27,6 +27,10 @@
  * Sending multiple requests to different actors and waiting for the responses only after all the requests have
  * been sent is the simplest form of parallel processing and is the focus of this package.
  * </p>
+ * <p>
+ * JAScatterGather sends a request to many actors and gathers the responses, completing when all
+ * the responses, or only the first few successful responses, have been received.
+ * </p>
  */
 
 package org.agilewiki.jactor.parallel;
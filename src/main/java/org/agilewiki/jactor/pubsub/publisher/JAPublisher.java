@@ -26,7 +26,7 @@ package org.agilewiki.jactor.pubsub.publisher;
 import org.agilewiki.jactor.Mailbox;
 import org.agilewiki.jactor.RP;
 import org.agilewiki.jactor.lpc.Request;
-import org.agilewiki.jactor.parallel.JAResponseCounter3;
+import org.agilewiki.jactor.parallel.JAScatterGather;
 import org.agilewiki.jactor.pubsub.subscriber.JASubscriber;
 import org.agilewiki.jactor.pubsub.subscriber.Subscriber;
 import org.agilewiki.jactor.pubsub.subscriber.Unsubscribed;
@@ -44,7 +44,10 @@ public class JAPublisher
      */
     protected ArrayList<Subscriber> subscribers = new ArrayList<Subscriber>();
 
-    private ArrayList<JAResponseCounter3> pool = new ArrayList<JAResponseCounter3>();
+    /**
+     * Reusable fan-outs for publishing requests.
+     */
+    private ArrayList<JAScatterGather<Integer>> pool = new ArrayList<JAScatterGather<Integer>>();
 
     /**
      * Create a JAPublisher.
@@ -110,25 +113,28 @@ public class JAPublisher
      */
     public void publish(Request publishRequest, RP rp)
             throws Exception {
-        JAResponseCounter3 rc;
+        JAScatterGather<Integer> sg;
         int ps = pool.size();
         if (ps == 0)
-            rc = new JAResponseCounter3(pool);
-        else {
-            rc = pool.remove(ps - 1);
-        }
-        rc.setup(rp);
+            sg = new JAScatterGather<Integer>(this, pool) {
+                @Override
+                protected Integer gather() {
+                    return Integer.valueOf(getSent());
+                }
+            };
+        else
+            sg = pool.remove(ps - 1);
+        @SuppressWarnings("unchecked")
+        RP<Object> responseProcessor = rp;
+        sg.start(responseProcessor);
         int i = 0;
         while (i < subscribers.size()) {
             Subscriber s = subscribers.get(i);
-            if (publishRequest.isTargetType(s)) {
-                rc.sent += 1;
-                publishRequest.send(this, s, rc);
-            }
+            if (publishRequest.isTargetType(s))
+                sg.send(s, publishRequest);
             i += 1;
         }
-        rc.finished();
-
+        sg.finished();
     }
 
     /**
@@ -0,0 +1,320 @@
+/*
+ * Copyright 2011 Bill La Forge
+ *
+ * This file is part of AgileWiki and is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License (LGPL) as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This code is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA
+ * or navigate to the following url http://www.gnu.org/licenses/lgpl-2.1.txt
+ *
+ * Note however that only Scala, Java and JavaScript files are being covered by LGPL.
+ * All other files are covered by the Common Public License (CPL).
+ * A copy of this license is also included and can be
+ * found as well at http://www.opensource.org/licenses/cpl1.0.txt
+ */
+package org.agilewiki.jactor.router;
+
+import org.agilewiki.jactor.Actor;
+import org.agilewiki.jactor.ExceptionHandler;
+import org.agilewiki.jactor.Mailbox;
+import org.agilewiki.jactor.RP;
+import org.agilewiki.jactor.lpc.JLPCActor;
+import org.agilewiki.jactor.lpc.Request;
+import org.agilewiki.jactor.parallel.JAScatterGather;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * <p>
+ * Implements Router, spreading requests over a fixed set of worker actors.
+ * </p>
+ * <p>
+ * An actor is single-threaded, so an actor which holds heavily-used state, like a counter or a cache,
+ * limits throughput to what one thread can do. Splitting that state over several workers,
+ * each with its own mailbox, lets the workers run in parallel. The workers are ordinary actors;
+ * requests are passed to them unchanged.
+ * </p>
+ * <pre>
+ *     CounterActor[] counters = new CounterActor[4];
+ *     for (int i = 0; i &lt; counters.length; i++)
+ *         counters[i] = new CounterActor(mailboxFactory.createMailbox());
+ *     JARouter router = new JARouter(mailboxFactory.createMailbox(), RoutingPolicy.KEY_HASH, counters);
+ *     new Route(userId, addCount).send(this, router, rp);
+ * </pre>
+ * <p>
+ * Routing is done by the router itself, so a routed request passes through the router's mailbox.
+ * As the router does little more than forward the request, it is commonly able to commandeer the
+ * mailbox of an idle worker. With KEY_HASH routing the worker does not depend on the state of the router,
+ * so getWorker(key) can also be used from any thread to send requests to the worker directly.
+ * </p>
+ */
+public class JARouter extends JLPCActor implements Router {
+    /**
+     * The workers.
+     */
+    private final Actor[] workers;
+
+    /**
+     * Selects the worker for each request.
+     */
+    private final RoutingPolicy routingPolicy;
+
+    /**
+     * The next worker, for ROUND_ROBIN routing.
+     */
+    private int next;
+
+    /**
+     * The number of routed requests awaiting a response, per worker, for LEAST_LOADED routing.
+     */
+    private final int[] outstanding;
+
+    /**
+     * Reusable response processors for LEAST_LOADED routing.
+     */
+    private final ArrayList<Outstanding> outstandingPool = new ArrayList<Outstanding>();
+
+    /**
+     * Reusable gathers for Scatter requests.
+     */
+    private final ArrayList<JAScatterGather<Object>> gatherPool = new ArrayList<JAScatterGather<Object>>();
+
+    /**
+     * Create a JARouter.
+     *
+     * @param mailbox       A mailbox which may be shared with other actors.
+     * @param routingPolicy Selects the worker for each request.
+     * @param workers       The workers, which should each have their own mailbox.
+     */
+    public JARouter(Mailbox mailbox, RoutingPolicy routingPolicy, Actor[] workers) {
+        super(mailbox);
+        if (routingPolicy == null)
+            throw new IllegalArgumentException("routingPolicy may not be null");
+        if (workers == null || workers.length == 0)
+            throw new IllegalArgumentException("there must be at least one worker");
+        this.routingPolicy = routingPolicy;
+        this.workers = Arrays.copyOf(workers, workers.length);
+        outstanding = new int[workers.length];
+    }
+
+    /**
+     * Returns the routing policy.
+     *
+     * @return The routing policy.
+     */
+    final public RoutingPolicy getRoutingPolicy() {
+        return routingPolicy;
+    }
+
+    /**
+     * Returns the number of workers.
+     *
+     * @return The number of workers.
+     */
+    @Override
+    final public int getWorkerCount() {
+        return workers.length;
+    }
+
+    /**
+     * Returns a worker.
+     *
+     * @param index The index of the worker.
+     * @return The worker.
+     */
+    @Override
+    final public Actor getWorker(int index) {
+        return workers[index];
+    }
+
+    /**
+     * Returns the worker to which KEY_HASH routing passes requests with the given key.
+     * This method may be called from any thread.
+     *
+     * @param key The key.
+     * @return The worker.
+     */
+    final public Actor getWorker(Object key) {
+        return workers[index(key)];
+    }
+
+    /**
+     * Returns the index of the worker for a key.
+     *
+     * @param key The key.
+     * @return The index of the worker.
+     */
+    private int index(Object key) {
+        if (key == null)
+            throw new IllegalArgumentException("KEY_HASH routing requires a key");
+        int h = key.hashCode();
+        h ^= h >>> 16;
+        return (h & 0x7fffffff) % workers.length;
+    }
+
+    /**
+     * Pass a request to the worker selected by the routing policy.
+     *
+     * @param key     The key of the request, used by KEY_HASH routing.
+     * @param request The request to be routed.
+     * @param rp      The response processor.
+     */
+    @Override
+    public void route(Object key, Request<?, ?> request, RP<Object> rp)
+            throws Exception {
+        switch (routingPolicy) {
+            case KEY_HASH:
+                request.send(this, workers[index(key)], rp);
+                return;
+            case ROUND_ROBIN:
+                int i = next;
+                next = i + 1 == workers.length ? 0 : i + 1;
+                request.send(this, workers[i], rp);
+                return;
+            default:
+                int least = 0;
+                int j = 1;
+                while (j < workers.length) {
+                    if (outstanding[j] < outstanding[least])
+                        least = j;
+                    j += 1;
+                }
+                Outstanding o;
+                int ps = outstandingPool.size();
+                if (ps == 0)
+                    o = new Outstanding();
+                else
+                    o = outstandingPool.remove(ps - 1);
+                o.init(least, rp);
+                outstanding[least] += 1;
+                ExceptionHandler eh = getExceptionHandler();
+                setExceptionHandler(o);
+                try {
+                    request.send(this, workers[least], o);
+                } finally {
+                    setExceptionHandler(eh);
+                }
+        }
+    }
+
+    /**
+     * Tracks a request routed by LEAST_LOADED, until its response or exception is received.
+     * An Outstanding is returned to the pool once the worker has finished with the request.
+     */
+    final private class Outstanding extends RP<Object> implements ExceptionHandler {
+        /**
+         * The index of the worker.
+         */
+        private int worker;
+
+        /**
+         * The response processor of the routed request, or null once the worker has finished with the request.
+         */
+        private RP<Object> rp;
+
+        /**
+         * Prepare for a routed request.
+         *
+         * @param worker The index of the worker.
+         * @param rp     The response processor of the routed request.
+         */
+        void init(int worker, RP<Object> rp) {
+            this.worker = worker;
+            this.rp = rp;
+        }
+
+        /**
+         * Notes that the worker has finished with the request and keeps this Outstanding for reuse.
+         *
+         * @return The response processor of the routed request, or null if the worker had already finished.
+         */
+        private RP<Object> finished() {
+            RP<Object> rp = this.rp;
+            if (rp == null)
+                return null;
+            this.rp = null;
+            outstanding[worker] -= 1;
+            outstandingPool.add(this);
+            return rp;
+        }
+
+        @Override
+        public void processResponse(Object response) throws Exception {
+            RP<Object> rp = finished();
+            if (rp != null)
+                rp.processResponse(response);
+        }
+
+        @Override
+        public void process(Exception exception) throws Exception {
+            finished();
+            throw exception;
+        }
+    }
+
+    /**
+     * Pass a request to every worker and gather the responses.
+     *
+     * @param scatter The request to be sent to every worker, along with how to combine the responses.
+     * @param rp      The response processor.
+     */
+    @Override
+    public void scatter(Scatter<?> scatter, RP<Object> rp)
+            throws Exception {
+        Gather gather;
+        int ps = gatherPool.size();
+        if (ps == 0)
+            gather = new Gather();
+        else
+            gather = (Gather) gatherPool.remove(ps - 1);
+        gather.scatter = scatter;
+        gather.start(rp);
+        int i = 0;
+        while (i < workers.length) {
+            gather.send(workers[i], scatter.scatteredRequest);
+            i += 1;
+        }
+        gather.finished();
+    }
+
+    /**
+     * Gathers the responses to a Scatter request.
+     */
+    final private class Gather extends JAScatterGather<Object> {
+        /**
+         * The request being processed.
+         */
+        private Scatter<?> scatter;
+
+        /**
+         * Create a Gather.
+         */
+        Gather() {
+            super(JARouter.this, gatherPool);
+        }
+
+        @Override
+        protected Object gather() throws Exception {
+            Scatter<?> scatter = this.scatter;
+            this.scatter = null;
+            List<Object> responses = new ArrayList<Object>(workers.length);
+            int i = 0;
+            while (i < workers.length) {
+                responses.add(getResponse(i));
+                i += 1;
+            }
+            return scatter.gather(responses);
+        }
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2011 Bill La Forge
+ *
+ * This file is part of AgileWiki and is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License (LGPL) as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This code is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA
+ * or navigate to the following url http://www.gnu.org/licenses/lgpl-2.1.txt
+ *
+ * Note however that only Scala, Java and JavaScript files are being covered by LGPL.
+ * All other files are covered by the Common Public License (CPL).
+ * A copy of this license is also included and can be
+ * found as well at http://www.opensource.org/licenses/cpl1.0.txt
+ */
+package org.agilewiki.jactor.router;
+
+import org.agilewiki.jactor.Actor;
+import org.agilewiki.jactor.RP;
+import org.agilewiki.jactor.lpc.JLPCActor;
+import org.agilewiki.jactor.lpc.Request;
+
+/**
+ * Pass a request to one of the workers of a router.
+ * The response is the response of the worker.
+ */
+public class Route<RESPONSE_TYPE> extends Request<RESPONSE_TYPE, Router> {
+    /**
+     * The key used to select the worker, or null.
+     */
+    public final Object key;
+
+    /**
+     * The request to be routed.
+     */
+    public final Request<RESPONSE_TYPE, ?> routedRequest;
+
+    /**
+     * Create a Route request.
+     *
+     * @param key           The key used to select the worker, or null when not routing by key.
+     * @param routedRequest The request to be routed.
+     */
+    public Route(Object key, Request<RESPONSE_TYPE, ?> routedRequest) {
+        this.key = key;
+        this.routedRequest = routedRequest;
+    }
+
+    /**
+     * Create a Route request without a key.
+     *
+     * @param routedRequest The request to be routed.
+     */
+    public Route(Request<RESPONSE_TYPE, ?> routedRequest) {
+        this(null, routedRequest);
+    }
+
+    @Override
+    public void processRequest(JLPCActor targetActor, RP rp) throws Exception {
+        @SuppressWarnings("unchecked")
+        RP<Object> responseProcessor = rp;
+        ((Router) targetActor).route(key, routedRequest, responseProcessor);
+    }
+
+    /**
+     * Returns true when targetActor is an instanceof TARGET_TYPE
+     *
+     * @param targetActor The actor to be called.
+     * @return True when targetActor is an instanceof TARGET_TYPE.
+     */
+    public boolean isTargetType(Actor targetActor) {
+        return targetActor instanceof Router;
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2011 Bill La Forge
+ *
+ * This file is part of AgileWiki and is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License (LGPL) as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This code is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA
+ * or navigate to the following url http://www.gnu.org/licenses/lgpl-2.1.txt
+ *
+ * Note however that only Scala, Java and JavaScript files are being covered by LGPL.
+ * All other files are covered by the Common Public License (CPL).
+ * A copy of this license is also included and can be
+ * found as well at http://www.opensource.org/licenses/cpl1.0.txt
+ */
+package org.agilewiki.jactor.router;
+
+import org.agilewiki.jactor.Actor;
+import org.agilewiki.jactor.RP;
+import org.agilewiki.jactor.lpc.Request;
+import org.agilewiki.jactor.lpc.TargetActor;
+
+/**
+ * An actor which spreads requests over a fixed set of worker actors.
+ */
+public interface Router extends TargetActor {
+    /**
+     * Returns the number of workers.
+     *
+     * @return The number of workers.
+     */
+    public int getWorkerCount();
+
+    /**
+     * Returns a worker.
+     *
+     * @param index The index of the worker.
+     * @return The worker.
+     */
+    public Actor getWorker(int index);
+
+    /**
+     * Pass a request to the worker selected by the routing policy.
+     *
+     * @param key     The key of the request, used by KEY_HASH routing.
+     * @param request The request to be routed.
+     * @param rp      The response processor.
+     */
+    public void route(Object key, Request<?, ?> request, RP<Object> rp)
+            throws Exception;
+
+    /**
+     * Pass a request to every worker and gather the responses.
+     *
+     * @param scatter The request to be sent to every worker, along with how to combine the responses.
+     * @param rp      The response processor.
+     */
+    public void scatter(Scatter<?> scatter, RP<Object> rp)
+            throws Exception;
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright 2011 Bill La Forge
+ *
+ * This file is part of AgileWiki and is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License (LGPL) as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This code is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA
+ * or navigate to the following url http://www.gnu.org/licenses/lgpl-2.1.txt
+ *
+ * Note however that only Scala, Java and JavaScript files are being covered by LGPL.
+ * All other files are covered by the Common Public License (CPL).
+ * A copy of this license is also included and can be
+ * found as well at http://www.opensource.org/licenses/cpl1.0.txt
+ */
+package org.agilewiki.jactor.router;
+
+/**
+ * Determines which worker of a router is to process a routed request.
+ */
+public enum RoutingPolicy {
+    /**
+     * Requests are routed by the hash of their key, so that all requests with the same key
+     * are processed by the same worker. Use this when the workers hold state, e.g. a
+     * partitioned cache or counter.
+     */
+    KEY_HASH,
+
+    /**
+     * Requests are passed to each worker in turn. The key is ignored.
+     */
+    ROUND_ROBIN,
+
+    /**
+     * Requests are passed to the worker with the fewest routed requests still awaiting a response.
+     * The key is ignored.
+     */
+    LEAST_LOADED
+}
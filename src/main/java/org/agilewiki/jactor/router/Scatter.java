@@ -0,0 +1,83 @@
+/*
+ * Copyright 2011 Bill La Forge
+ *
+ * This file is part of AgileWiki and is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License (LGPL) as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This code is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA
+ * or navigate to the following url http://www.gnu.org/licenses/lgpl-2.1.txt
+ *
+ * Note however that only Scala, Java and JavaScript files are being covered by LGPL.
+ * All other files are covered by the Common Public License (CPL).
+ * A copy of this license is also included and can be
+ * found as well at http://www.opensource.org/licenses/cpl1.0.txt
+ */
+package org.agilewiki.jactor.router;
+
+import org.agilewiki.jactor.Actor;
+import org.agilewiki.jactor.RP;
+import org.agilewiki.jactor.lpc.JLPCActor;
+import org.agilewiki.jactor.lpc.Request;
+
+import java.util.List;
+
+/**
+ * Pass a request to every worker of a router.
+ * By default the response is a list of the responses of the workers, in worker order.
+ * Override gather to combine the responses instead, e.g. to total the counts held by each worker.
+ * The first exception raised by a worker is passed back in place of the response.
+ */
+public class Scatter<RESPONSE_TYPE> extends Request<RESPONSE_TYPE, Router> {
+    /**
+     * The request to be sent to every worker.
+     */
+    public final Request<?, ?> scatteredRequest;
+
+    /**
+     * Create a Scatter request.
+     *
+     * @param scatteredRequest The request to be sent to every worker.
+     */
+    public Scatter(Request<?, ?> scatteredRequest) {
+        this.scatteredRequest = scatteredRequest;
+    }
+
+    /**
+     * Combines the responses of the workers.
+     *
+     * @param responses The responses of the workers, in worker order.
+     * @return The response to the Scatter request.
+     * @throws Exception Any exceptions raised while combining the responses.
+     */
+    protected RESPONSE_TYPE gather(List<Object> responses) throws Exception {
+        @SuppressWarnings("unchecked")
+        RESPONSE_TYPE response = (RESPONSE_TYPE) responses;
+        return response;
+    }
+
+    @Override
+    public void processRequest(JLPCActor targetActor, RP rp) throws Exception {
+        @SuppressWarnings("unchecked")
+        RP<Object> responseProcessor = rp;
+        ((Router) targetActor).scatter(this, responseProcessor);
+    }
+
+    /**
+     * Returns true when targetActor is an instanceof TARGET_TYPE
+     *
+     * @param targetActor The actor to be called.
+     * @return True when targetActor is an instanceof TARGET_TYPE.
+     */
+    public boolean isTargetType(Actor targetActor) {
+        return targetActor instanceof Router;
+    }
+}
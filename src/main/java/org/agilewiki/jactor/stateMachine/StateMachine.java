@@ -24,17 +24,67 @@
 package org.agilewiki.jactor.stateMachine;
 
 import org.agilewiki.jactor.Actor;
+import org.agilewiki.jactor.ExceptionHandler;
 import org.agilewiki.jactor.JAIterator;
 import org.agilewiki.jactor.JANull;
 import org.agilewiki.jactor.RP;
 import org.agilewiki.jactor.lpc.Request;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 
 /**
+ * <p>
  * A state machine.
+ * </p>
+ * <p>
+ * A state machine can be run again once reset. When recycling is enabled on its builder,
+ * the builder resets and reuses its state machines, so that running a state machine
+ * allocates nothing of its own.
+ * </p>
  */
 public class StateMachine {
+    /**
+     * Opcode of an operation performed through its call method.
+     */
+    static final int CALL = 0;
+
+    /**
+     * Opcode of _SetV.
+     */
+    static final int SET_V = 1;
+
+    /**
+     * Opcode of _SetF.
+     */
+    static final int SET_F = 2;
+
+    /**
+     * Opcode of _Goto.
+     */
+    static final int GOTO = 3;
+
+    /**
+     * Opcode of _IfV.
+     */
+    static final int IF_V = 4;
+
+    /**
+     * Opcode of _IfF.
+     */
+    static final int IF_F = 5;
+
+    /**
+     * Opcode of _ReturnV.
+     */
+    static final int RETURN_V = 6;
+
+    /**
+     * Opcode of _ReturnF.
+     */
+    static final int RETURN_F = 7;
+
     /**
      * The (optional) argument passed when the state machine was invoked.
      */
@@ -46,15 +96,105 @@ public class StateMachine {
     private int programCounter = 0;
 
     /**
-     * A table of partial results.
+     * The compiled operations.
+     */
+    private _Operation[] program;
+
+    /**
+     * The opcodes of the operations, or null when the operations are all performed through their call methods.
+     */
+    private int[] opcodes;
+
+    /**
+     * The partial results, indexed by the slots assigned to the result names.
      */
-    final private HashMap<String, Object> results = new HashMap<String, Object>();
+    private Object[] frame;
+
+    /**
+     * Partial results whose names have no slot, or null.
+     */
+    private HashMap<Object, Object> results;
 
     /**
      * The state machine builder which defines the operations of this state machine.
      */
     private _SMBuilder smBuilder;
 
+    /**
+     * True when the state machine is returned to its builder once it has run.
+     */
+    boolean recycled;
+
+    /**
+     * The response processor passed to execute.
+     */
+    private RP<Object> rp;
+
+    /**
+     * Runs the operations in turn.
+     */
+    final private JAIterator loop = new JAIterator() {
+        @Override
+        protected void process(final RP rp1) throws Exception {
+            @SuppressWarnings("unchecked")
+            final RP<Object> rp = rp1;
+            if (opcodes != null) dispatch(rp);
+            else if (programCounter >= program.length) rp.processResponse(JANull.jan);
+            else {
+                final _Operation o = program[programCounter];
+                programCounter += 1;
+                o.call(StateMachine.this, rp);
+            }
+        }
+    };
+
+    /**
+     * Passes the response of a recycled state machine and then returns it to the pool.
+     */
+    final private RP<Object> done = new RP<Object>() {
+        @Override
+        public void processResponse(Object response) throws Exception {
+            RP<Object> rp = StateMachine.this.rp;
+            StateMachine.this.rp = null;
+            rp.processResponse(response);
+            reset();
+            smBuilder.recycle(StateMachine.this);
+        }
+    };
+
+    /**
+     * The slot for the result of the current operation, or -1.
+     */
+    private int resultSlot;
+
+    /**
+     * Continues with the next operation.
+     */
+    private RP<?> next;
+
+    /**
+     * Saves the result of the current operation and continues with the next operation.
+     */
+    final private RP<Object> resultProcessor = new RP<Object>() {
+        @Override
+        public void processResponse(Object response) throws Exception {
+            RP<?> next = StateMachine.this.next;
+            StateMachine.this.next = null;
+            if (resultSlot >= 0) put(resultSlot, response);
+            next.processResponse(null);
+        }
+    };
+
+    /**
+     * The requests sent since the last _fork, or null when not forked.
+     */
+    private Fork fork;
+
+    /**
+     * A fork whose requests have all been answered, kept for reuse, or null.
+     */
+    private Fork spareFork;
+
     /**
      * Create a StateMachine.
      *
@@ -62,6 +202,93 @@ public class StateMachine {
      */
     public StateMachine(_SMBuilder smBuilder) {
         this.smBuilder = smBuilder;
+        program = smBuilder.getProgram();
+        opcodes = smBuilder.getOpcodes();
+        frame = new Object[smBuilder.slotsSize()];
+    }
+
+    /**
+     * Performs operations until one is performed through its call method or a result is returned.
+     *
+     * @param rp1 The response processor of the iteration.
+     * @throws Exception Any exceptions raised while performing the operations.
+     */
+    private void dispatch(final RP<Object> rp1) throws Exception {
+        final _Operation[] program = this.program;
+        final int[] opcodes = this.opcodes;
+        int pc = programCounter;
+        while (pc < program.length) {
+            final _Operation o = program[pc];
+            switch (opcodes[pc]) {
+                case SET_V: {
+                    _SetV s = (_SetV) o;
+                    if (s.resultSlot >= 0) put(s.resultSlot, s.value);
+                    pc += 1;
+                    break;
+                }
+                case SET_F: {
+                    _SetF s = (_SetF) o;
+                    programCounter = pc + 1;
+                    Object value = s.objectFunc.get(this);
+                    if (s.resultSlot >= 0) put(s.resultSlot, value);
+                    pc = programCounter;
+                    break;
+                }
+                case IF_V: {
+                    _IfV f = (_IfV) o;
+                    if (!f.condition)
+                        pc += 1;
+                    else if (f.location >= 0)
+                        pc = f.location;
+                    else {
+                        go(f.getLabel());
+                        pc = programCounter;
+                    }
+                    break;
+                }
+                case GOTO: {
+                    _Goto g = (_Goto) o;
+                    if (g.location >= 0) pc = g.location;
+                    else {
+                        go(g.getLabel());
+                        pc = programCounter;
+                    }
+                    break;
+                }
+                case IF_F: {
+                    _IfF f = (_IfF) o;
+                    programCounter = pc + 1;
+                    boolean condition = f.condition.get(this);
+                    pc = programCounter;
+                    if (condition) {
+                        if (f.location >= 0) pc = f.location;
+                        else {
+                            go(f.getLabel());
+                            pc = programCounter;
+                        }
+                    }
+                    break;
+                }
+                case RETURN_V: {
+                    programCounter = pc + 1;
+                    Object rv = ((_ReturnV) o).result;
+                    rp1.processResponse(rv == null ? JANull.jan : rv);
+                    return;
+                }
+                case RETURN_F: {
+                    programCounter = pc + 1;
+                    Object rv = ((_ReturnF) o).result.get(this);
+                    rp1.processResponse(rv == null ? JANull.jan : rv);
+                    return;
+                }
+                default:
+                    programCounter = pc + 1;
+                    o.call(this, rp1);
+                    return;
+            }
+        }
+        programCounter = pc;
+        rp1.processResponse(JANull.jan);
     }
 
     /**
@@ -73,17 +300,101 @@ public class StateMachine {
      */
     public void execute(Object request, RP rp) throws Exception {
         this.request = request;
-        (new JAIterator() {
-            @Override
-            protected void process(final RP rp1) throws Exception {
-                if (programCounter >= smBuilder.operationsSize()) rp1.processResponse(JANull.jan);
-                else {
-                    final _Operation o = smBuilder.getOperation(programCounter);
-                    programCounter += 1;
-                    o.call(StateMachine.this, rp1);
-                }
-            }
-        }).iterate(rp);
+        if (!recycled)
+            loop.iterate(rp);
+        else {
+            @SuppressWarnings("unchecked")
+            RP<Object> responseProcessor = rp;
+            this.rp = responseProcessor;
+            loop.iterate(done);
+        }
+    }
+
+    /**
+     * Clears the request and partial results, so that the state machine can be run again.
+     * The operations of the builder are reloaded, as they may have been added to.
+     */
+    public void reset() {
+        request = null;
+        programCounter = 0;
+        program = smBuilder.getProgram();
+        opcodes = smBuilder.getOpcodes();
+        int size = smBuilder.slotsSize();
+        if (frame.length < size)
+            frame = new Object[size];
+        else
+            Arrays.fill(frame, null);
+        if (results != null)
+            results.clear();
+        if (fork != null)
+            fork.detach();
+    }
+
+    /**
+     * Begin sending requests concurrently.
+     *
+     * @throws IllegalStateException Thrown if the state machine has already forked.
+     */
+    final void fork() throws IllegalStateException {
+        if (fork != null)
+            throw new IllegalStateException("already forked");
+        Fork f = spareFork;
+        if (f == null)
+            f = new Fork();
+        else
+            spareFork = null;
+        f.start();
+        fork = f;
+    }
+
+    /**
+     * Returns true when the requests sent are not to be waited for until the next join.
+     *
+     * @return True when forked.
+     */
+    final boolean isForked() {
+        return fork != null;
+    }
+
+    /**
+     * Send a request without waiting for its response.
+     *
+     * @param actor   The target actor.
+     * @param request The request.
+     * @param slot    The slot for the result, or -1.
+     * @throws Exception Any uncaught exceptions raised while processing the request.
+     */
+    final void forkSend(Actor actor, Request<?, ?> request, int slot) throws Exception {
+        fork.send(actor, request, slot);
+    }
+
+    /**
+     * Wait for the responses to the requests sent since the last fork.
+     *
+     * @param required The number of successes required, or _Join.ALL.
+     * @param next     Continues with the next operation.
+     * @throws Exception Any exceptions raised while continuing, or the exception
+     *                   of a failed request when the required number of successes can not be reached.
+     */
+    final void join(int required, RP<?> next) throws Exception {
+        if (fork == null)
+            throw new IllegalStateException("not forked");
+        fork.join(required, next);
+    }
+
+    /**
+     * Returns a response processor which saves the result of the current operation
+     * and then continues with the next operation.
+     * The response processor is reused, as a state machine performs only one operation at a time.
+     *
+     * @param slot The slot for the result, or -1.
+     * @param next Continues with the next operation.
+     * @return The response processor.
+     */
+    final RP<Object> resultProcessor(int slot, RP<?> next) {
+        resultSlot = slot;
+        this.next = next;
+        return resultProcessor;
     }
 
     /**
@@ -93,9 +404,26 @@ public class StateMachine {
      * @return A partial result.
      */
     final public Object get(Object resultName) {
+        int slot = smBuilder.getSlot(resultName);
+        if (slot >= 0)
+            return get(slot);
+        if (results == null)
+            return null;
         return results.get(resultName);
     }
 
+    /**
+     * Returns a partial result.
+     *
+     * @param slot The slot assigned to the name of the partial result.
+     * @return A partial result.
+     */
+    final public Object get(int slot) {
+        if (slot >= frame.length)
+            return null;
+        return frame[slot];
+    }
+
     /**
      * Save a parial result.
      *
@@ -103,9 +431,28 @@ public class StateMachine {
      * @param result     The result.
      */
     final public void put(String resultName, Object result) {
+        int slot = smBuilder.getSlot(resultName);
+        if (slot >= 0) {
+            put(slot, result);
+            return;
+        }
+        if (results == null)
+            results = new HashMap<Object, Object>();
         results.put(resultName, result);
     }
 
+    /**
+     * Save a parial result.
+     *
+     * @param slot   The slot assigned to the name of the result.
+     * @param result The result.
+     */
+    final public void put(int slot, Object result) {
+        if (slot >= frame.length)
+            frame = Arrays.copyOf(frame, smBuilder.slotsSize() > slot ? smBuilder.slotsSize() : slot + 1);
+        frame[slot] = result;
+    }
+
     /**
      * Send a request to an actor.
      *
@@ -130,4 +477,225 @@ public class StateMachine {
         if (loc == null) throw new IllegalArgumentException("unknown label: " + label);
         programCounter = loc.intValue();
     }
+
+    /**
+     * Update the program counter.
+     *
+     * @param location An index into the operations.
+     */
+    public void go(int location) {
+        programCounter = location;
+    }
+
+    /**
+     * The requests sent since a _fork.
+     */
+    final private class Fork {
+        /**
+         * The response processors of the requests, reused from one fork to the next.
+         */
+        private final ArrayList<Branch> branches = new ArrayList<Branch>();
+
+        /**
+         * The number of requests sent.
+         */
+        private int sent;
+
+        /**
+         * The number of successful responses received.
+         */
+        private int succeeded;
+
+        /**
+         * The number of exceptions received.
+         */
+        private int failed;
+
+        /**
+         * The number of successes required, or _Join.ALL.
+         */
+        private int required;
+
+        /**
+         * True once the join has been reached.
+         */
+        private boolean joined;
+
+        /**
+         * True once the state machine has continued, or been reset, so that responses are ignored.
+         */
+        private boolean detached;
+
+        /**
+         * The exception handler when the fork began.
+         */
+        private ExceptionHandler previous;
+
+        /**
+         * The last exception received.
+         */
+        private Exception exception;
+
+        /**
+         * Continues with the operation following the join.
+         */
+        private RP<?> next;
+
+        /**
+         * Prepare for a new fork.
+         */
+        void start() {
+            sent = 0;
+            succeeded = 0;
+            failed = 0;
+            joined = false;
+            detached = false;
+            previous = smBuilder.getExceptionHandler();
+        }
+
+        /**
+         * Send a request, with the exception handler set to receive its exception.
+         *
+         * @param actor   The target actor.
+         * @param request The request.
+         * @param slot    The slot for the result, or -1.
+         */
+        void send(Actor actor, Request<?, ?> request, int slot) throws Exception {
+            Branch branch;
+            if (sent < branches.size())
+                branch = branches.get(sent);
+            else {
+                branch = new Branch();
+                branches.add(branch);
+            }
+            branch.slot = slot;
+            branch.answered = false;
+            sent += 1;
+            ExceptionHandler eh = smBuilder.getExceptionHandler();
+            smBuilder.setExceptionHandler(branch);
+            try {
+                smBuilder.send(actor, request, branch);
+            } finally {
+                smBuilder.setExceptionHandler(eh);
+            }
+        }
+
+        /**
+         * The join has been reached.
+         *
+         * @param required The number of successes required, or _Join.ALL.
+         * @param next     Continues with the next operation.
+         */
+        void join(int required, RP<?> next) throws Exception {
+            joined = true;
+            this.required = required;
+            this.next = next;
+            if (failed > sent - needed())
+                fail(exception);
+            else
+                check();
+        }
+
+        /**
+         * Returns the number of successes needed to continue.
+         *
+         * @return The number of successes needed.
+         */
+        private int needed() {
+            return required == _Join.ALL || required > sent ? sent : required;
+        }
+
+        /**
+         * Continue once the required number of successes has been reached.
+         */
+        private void check() throws Exception {
+            if (!joined || succeeded < needed())
+                return;
+            RP<?> next = this.next;
+            ExceptionHandler eh = previous;
+            detach();
+            smBuilder.setExceptionHandler(eh);
+            next.processResponse(null);
+        }
+
+        /**
+         * Pass back an exception in place of continuing.
+         *
+         * @param ex The exception.
+         */
+        private void fail(Exception ex) throws Exception {
+            ExceptionHandler eh = previous;
+            detach();
+            smBuilder.setExceptionHandler(eh);
+            if (eh == null)
+                throw ex;
+            eh.process(ex);
+        }
+
+        /**
+         * Stop saving responses.
+         */
+        void detach() {
+            if (fork == this)
+                fork = null;
+            detached = true;
+            next = null;
+            previous = null;
+            exception = null;
+            release();
+        }
+
+        /**
+         * Keep for reuse once detached and every request has been answered.
+         */
+        private void release() {
+            if (detached && succeeded + failed == sent && spareFork == null)
+                spareFork = this;
+        }
+
+        /**
+         * Receives the response or exception for one request.
+         */
+        final private class Branch extends RP<Object> implements ExceptionHandler {
+            /**
+             * The slot for the result, or -1.
+             */
+            private int slot;
+
+            /**
+             * True once the response or exception has been received.
+             */
+            private boolean answered;
+
+            @Override
+            public void processResponse(Object response) throws Exception {
+                if (answered)
+                    return;
+                answered = true;
+                succeeded += 1;
+                if (detached) {
+                    release();
+                    return;
+                }
+                if (slot >= 0)
+                    put(slot, response);
+                check();
+            }
+
+            @Override
+            public void process(Exception ex) throws Exception {
+                if (answered)
+                    throw ex;
+                answered = true;
+                failed += 1;
+                if (detached) {
+                    release();
+                    return;
+                }
+                exception = ex;
+                if (joined && failed > sent - needed())
+                    fail(ex);
+            }
+        }
+    }
 }
@@ -67,6 +67,11 @@ final public class _Call implements _Operation {
      */
     private String resultName;
 
+    /**
+     * The slot assigned to the result when the builder is compiled, or -1.
+     */
+    int resultSlot = -1;
+
     /**
      * The builder of the state machine to be executed.
      */
@@ -87,6 +92,15 @@ final public class _Call implements _Operation {
         parentSMB.add(this);
     }
 
+    /**
+     * Returns the name of the result, or null.
+     *
+     * @return The name of the result, or null.
+     */
+    final public String getResultName() {
+        return resultName;
+    }
+
     /**
      * Perform the operation.
      *
@@ -99,12 +113,6 @@ final public class _Call implements _Operation {
             throws Exception {
         Object req = null;
         if (request != null) req = request.get(stateMachine);
-        smb.call(req, new RP() {
-            @Override
-            final public void processResponse(Object response) throws Exception {
-                if (resultName != null) stateMachine.put(resultName, response);
-                rp.processResponse(null);
-            }
-        });
+        smb.call(req, stateMachine.resultProcessor(resultSlot, rp));
     }
 }
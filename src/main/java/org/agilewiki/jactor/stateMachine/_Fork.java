@@ -0,0 +1,72 @@
+/*
+ * Copyright 2011 Bill La Forge
+ *
+ * This file is part of AgileWiki and is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License (LGPL) as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This code is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA
+ * or navigate to the following url http://www.gnu.org/licenses/lgpl-2.1.txt
+ *
+ * Note however that only Scala, Java and JavaScript files are being covered by LGPL.
+ * All other files are covered by the Common Public License (CPL).
+ * A copy of this license is also included and can be
+ * found as well at http://www.opensource.org/licenses/cpl1.0.txt
+ */
+package org.agilewiki.jactor.stateMachine;
+
+import org.agilewiki.jactor.RP;
+
+/**
+ * <p>
+ * Begin sending requests concurrently. Each _send which follows, up to the next _join,
+ * is sent without waiting for its response; the _join then waits for the responses.
+ * </p>
+ * <pre>
+ *            SMBuilder smb = new SMBuilder();
+ *            smb._fork();
+ *            smb._send(doubler, new IntegerRequest(21), "a");
+ *            smb._send(doubler, new IntegerRequest(50), "b");
+ *            smb._join();
+ *            smb._return(new ObjectFunc() {
+ *                public Object get(StateMachine sm) {
+ *                    return (Integer) sm.get("a") + (Integer) sm.get("b");
+ *                }
+ *            });
+ *            smb.call(rp);
+ *
+ *            Response:
+ *            142
+ * </pre>
+ */
+final public class _Fork implements _Operation {
+    /**
+     * Create a _Fork.
+     *
+     * @param parentSMB The parent builder.
+     */
+    public _Fork(_SMBuilder parentSMB) {
+        parentSMB.add(this);
+    }
+
+    /**
+     * Perform the operation.
+     *
+     * @param stateMachine The state machine driving the operation.
+     * @param rp           The response processor.
+     * @throws Exception Any uncaught exceptions raised while performing the operation.
+     */
+    @Override
+    public void call(StateMachine stateMachine, RP rp) throws Exception {
+        stateMachine.fork();
+        rp.processResponse(null);
+    }
+}
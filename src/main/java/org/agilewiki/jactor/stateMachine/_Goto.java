@@ -57,6 +57,11 @@ public class _Goto implements _Operation {
      */
     private String label;
 
+    /**
+     * The index of the labeled operation, assigned when the builder is compiled, or -1.
+     */
+    int location = -1;
+
     /**
      * Create a _Goto.
      *
@@ -68,6 +73,15 @@ public class _Goto implements _Operation {
         parentSMB.add(this);
     }
 
+    /**
+     * Returns the identifier of where to go to.
+     *
+     * @return The identifier of where to go to.
+     */
+    final public String getLabel() {
+        return label;
+    }
+
     /**
      * Perform the operation.
      *
@@ -77,7 +91,8 @@ public class _Goto implements _Operation {
      */
     @Override
     public void call(StateMachine stateMachine, RP rp) throws Exception {
-        stateMachine.go(label);
+        if (location < 0) stateMachine.go(label);
+        else stateMachine.go(location);
         rp.processResponse(null);
     }
 }
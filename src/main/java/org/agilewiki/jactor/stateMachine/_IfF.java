@@ -59,7 +59,7 @@ final public class _IfF extends _Goto {
     /**
      * The condition.
      */
-    private BooleanFunc condition;
+    BooleanFunc condition;
 
     /**
      * Create an _IfF
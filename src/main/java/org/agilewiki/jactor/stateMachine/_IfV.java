@@ -57,7 +57,7 @@ final public class _IfV extends _Goto {
     /**
      * The condition.
      */
-    private boolean condition;
+    boolean condition;
 
     /**
      * Create an _IfV
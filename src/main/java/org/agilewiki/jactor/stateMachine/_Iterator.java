@@ -65,6 +65,11 @@ abstract public class _Iterator extends JAIterator implements _Operation {
      */
     private String resultName;
 
+    /**
+     * The slot assigned to the result when the builder is compiled, or -1.
+     */
+    int resultSlot = -1;
+
     /**
      * Create an _Iterator
      *
@@ -95,15 +100,16 @@ abstract public class _Iterator extends JAIterator implements _Operation {
     @Override
     final public void call(final StateMachine stateMachine, final RP rp) throws Exception {
         init(stateMachine);
-        iterate(new RP() {
-            @Override
-            public void processResponse(Object response) throws Exception {
-                if (resultName != null) {
-                    stateMachine.put(resultName, response);
-                }
-                rp.processResponse(null);
-            }
-        });
+        iterate(stateMachine.resultProcessor(resultSlot, rp));
+    }
+
+    /**
+     * Returns the name of the result, or null.
+     *
+     * @return The name of the result, or null.
+     */
+    final public String getResultName() {
+        return resultName;
     }
 
     @Override
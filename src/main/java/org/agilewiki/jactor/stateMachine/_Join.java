@@ -0,0 +1,97 @@
+/*
+ * Copyright 2011 Bill La Forge
+ *
+ * This file is part of AgileWiki and is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License (LGPL) as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This code is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA
+ * or navigate to the following url http://www.gnu.org/licenses/lgpl-2.1.txt
+ *
+ * Note however that only Scala, Java and JavaScript files are being covered by LGPL.
+ * All other files are covered by the Common Public License (CPL).
+ * A copy of this license is also included and can be
+ * found as well at http://www.opensource.org/licenses/cpl1.0.txt
+ */
+package org.agilewiki.jactor.stateMachine;
+
+import org.agilewiki.jactor.RP;
+
+/**
+ * <p>
+ * Wait for the responses to the requests sent since the last _fork.
+ * </p><p>
+ * By default, all the responses are required and the first exception is passed back in place of
+ * the result of the state machine. When fewer successes are required, the state machine continues
+ * as soon as that many responses have been received--so _join(1) waits for any one response--and an
+ * exception is passed back only once the required number of successes can no longer be reached.
+ * The result names of the requests which did not succeed are left unchanged, and responses received
+ * after the state machine has continued are ignored.
+ * </p>
+ * <pre>
+ *            SMBuilder smb = new SMBuilder();
+ *            smb._fork();
+ *            smb._send(primary, request, "rsp");
+ *            smb._send(backup, request, "rsp");
+ *            smb._join(1);
+ *            smb._return(new ObjectFunc() {
+ *                public Object get(StateMachine sm) {
+ *                    return sm.get("rsp");
+ *                }
+ *            });
+ *            smb.call(rp);
+ * </pre>
+ */
+final public class _Join implements _Operation {
+    /**
+     * Passed as required when all the responses are required.
+     */
+    public final static int ALL = -1;
+
+    /**
+     * The number of successes required, or ALL.
+     */
+    private final int required;
+
+    /**
+     * Create a _Join.
+     *
+     * @param parentSMB The parent builder.
+     * @param required  The number of successes required, or ALL.
+     */
+    public _Join(_SMBuilder parentSMB, int required) {
+        if (required < 1 && required != ALL)
+            throw new IllegalArgumentException("required must be at least 1, or ALL");
+        this.required = required;
+        parentSMB.add(this);
+    }
+
+    /**
+     * Perform the operation.
+     *
+     * @param stateMachine The state machine driving the operation.
+     * @param rp           The response processor.
+     * @throws Exception Any uncaught exceptions raised while performing the operation.
+     */
+    @Override
+    public void call(StateMachine stateMachine, RP rp) throws Exception {
+        stateMachine.join(required, rp);
+    }
+
+    /**
+     * Returns the number of successes required, or ALL.
+     *
+     * @return The number of successes required, or ALL.
+     */
+    public int getRequired() {
+        return required;
+    }
+}
@@ -58,7 +58,7 @@ final public class _ReturnF implements _Operation {
     /**
      * The indirect result returned.
      */
-    private ObjectFunc result;
+    ObjectFunc result;
 
     /**
      * Create a_ReturnF.
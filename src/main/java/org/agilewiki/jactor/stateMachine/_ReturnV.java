@@ -52,7 +52,7 @@ final public class _ReturnV implements _Operation {
     /**
      * The result returned.
      */
-    private Object result;
+    Object result;
 
     /**
      * Create a_ReturnV.
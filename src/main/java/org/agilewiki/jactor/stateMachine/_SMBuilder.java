@@ -24,6 +24,7 @@
 package org.agilewiki.jactor.stateMachine;
 
 import org.agilewiki.jactor.Actor;
+import org.agilewiki.jactor.ExceptionHandler;
 import org.agilewiki.jactor.RP;
 import org.agilewiki.jactor.lpc.Request;
 
@@ -31,7 +32,28 @@ import java.util.ArrayList;
 import java.util.HashMap;
 
 /**
+ * <p>
  * Creates and runs a state machine.
+ * </p>
+ * <p>
+ * Before its first state machine is run, the builder is compiled: each result name is assigned a slot
+ * in the array of partial results of a state machine, and the label of each _goto and _if is resolved
+ * to the index of the operation it names. So a state machine runs without hashing names.
+ * Adding an operation or a label afterwards causes the builder to be compiled again.
+ * As compiling updates the operations in place, a builder and its state machines
+ * are only used by the thread in control of the builder's actor.
+ * </p>
+ * <p>
+ * Compiling also assigns an opcode to each of the built-in operations which complete immediately:
+ * _set, _goto, _if and _return. The state machine performs these directly in its dispatch loop,
+ * rather than through the call method of the operation and a response processor,
+ * and only passes control through the call method for the remaining operations.
+ * </p>
+ * <p>
+ * The requests sent between a _fork and a _join are sent concurrently, with the _join waiting
+ * for all (or some) of their responses. To pass the exceptions raised by these requests to the _join,
+ * a builder overrides getExceptionHandler and setExceptionHandler, as JLPCActor.SMBuilder does.
+ * </p>
  */
 abstract public class _SMBuilder {
     /**
@@ -44,6 +66,37 @@ abstract public class _SMBuilder {
      */
     final private HashMap<String, Integer> labels = new HashMap<String, Integer>();
 
+    /**
+     * The slots assigned to the result names, when compiled.
+     */
+    final private HashMap<String, Integer> slots = new HashMap<String, Integer>();
+
+    /**
+     * The operations, when compiled, or null.
+     */
+    private _Operation[] program;
+
+    /**
+     * The opcodes of the operations, when compiled and inlining is enabled, or null.
+     */
+    private int[] opcodes;
+
+    /**
+     * True when the built-in operations are performed by the dispatch loop of the state machine.
+     */
+    private boolean inline = true;
+
+    /**
+     * Recycled state machines, or null when recycling is disabled.
+     * Like the operations, these are only used by the thread in control of the actor.
+     */
+    private StateMachine[] stateMachinePool;
+
+    /**
+     * The number of recycled state machines.
+     */
+    private int pooled;
+
     /**
      * Returns the location assigned to a label.
      *
@@ -80,6 +133,143 @@ abstract public class _SMBuilder {
      */
     final public void add(_Operation operation) {
         operations.add(operation);
+        program = null;
+    }
+
+    /**
+     * Assigns the slots of the result names and resolves the labels of the operations.
+     * This is done automatically when a state machine is created, if needed.
+     */
+    final public void compile() {
+        slots.clear();
+        int i = 0;
+        while (i < operations.size()) {
+            _Operation o = operations.get(i);
+            if (o instanceof _Send) {
+                _Send s = (_Send) o;
+                s.resultSlot = slot(s.getResultName());
+            } else if (o instanceof _SetF) {
+                _SetF s = (_SetF) o;
+                s.resultSlot = slot(s.getResultName());
+            } else if (o instanceof _SetV) {
+                _SetV s = (_SetV) o;
+                s.resultSlot = slot(s.getResultName());
+            } else if (o instanceof _Call) {
+                _Call c = (_Call) o;
+                c.resultSlot = slot(c.getResultName());
+            } else if (o instanceof _Iterator) {
+                _Iterator it = (_Iterator) o;
+                it.resultSlot = slot(it.getResultName());
+            } else if (o instanceof _Goto) {
+                _Goto g = (_Goto) o;
+                Integer loc = labels.get(g.getLabel());
+                g.location = loc == null ? -1 : loc.intValue();
+            }
+            i += 1;
+        }
+        _Operation[] program = operations.toArray(new _Operation[operations.size()]);
+        opcodes = inline ? opcodes(program) : null;
+        this.program = program;
+    }
+
+    /**
+     * Assigns the opcodes of the operations.
+     * Subclasses of the built-in operations are performed through their call method.
+     *
+     * @param program The operations.
+     * @return The opcodes.
+     */
+    private static int[] opcodes(_Operation[] program) {
+        int[] opcodes = new int[program.length];
+        int i = 0;
+        while (i < program.length) {
+            Class<?> c = program[i].getClass();
+            int opcode = StateMachine.CALL;
+            if (c == _SetV.class) opcode = StateMachine.SET_V;
+            else if (c == _SetF.class) opcode = StateMachine.SET_F;
+            else if (c == _Goto.class) opcode = StateMachine.GOTO;
+            else if (c == _IfV.class) opcode = StateMachine.IF_V;
+            else if (c == _IfF.class) opcode = StateMachine.IF_F;
+            else if (c == _ReturnV.class) opcode = StateMachine.RETURN_V;
+            else if (c == _ReturnF.class) opcode = StateMachine.RETURN_F;
+            opcodes[i] = opcode;
+            i += 1;
+        }
+        return opcodes;
+    }
+
+    /**
+     * Enables or disables performing the built-in operations directly in the dispatch loop
+     * of the state machine. This is enabled by default.
+     *
+     * @param inline True when the built-in operations are to be performed directly.
+     */
+    final public void setInline(boolean inline) {
+        this.inline = inline;
+        program = null;
+    }
+
+    /**
+     * Returns the slot of a result name, assigning a new slot as needed.
+     *
+     * @param resultName The name of the result, or null.
+     * @return The slot, or -1 when the name is null.
+     */
+    private int slot(String resultName) {
+        if (resultName == null)
+            return -1;
+        Integer slot = slots.get(resultName);
+        if (slot == null) {
+            slot = slots.size();
+            slots.put(resultName, slot);
+        }
+        return slot.intValue();
+    }
+
+    /**
+     * Returns the slot assigned to a result name.
+     *
+     * @param resultName The name of the result.
+     * @return The slot, or -1 when no slot has been assigned to the name.
+     */
+    final public int getSlot(Object resultName) {
+        Integer slot = slots.get(resultName);
+        if (slot == null)
+            return -1;
+        return slot.intValue();
+    }
+
+    /**
+     * Returns the number of slots assigned to result names.
+     *
+     * @return The number of slots.
+     */
+    final public int slotsSize() {
+        return slots.size();
+    }
+
+    /**
+     * Returns the compiled operations, compiling them first as needed.
+     *
+     * @return The operations.
+     */
+    final _Operation[] getProgram() {
+        _Operation[] program = this.program;
+        if (program == null) {
+            compile();
+            program = this.program;
+        }
+        return program;
+    }
+
+    /**
+     * Returns the opcodes of the compiled operations.
+     * This must be called after getProgram.
+     *
+     * @return The opcodes, or null when inlining is disabled.
+     */
+    final int[] getOpcodes() {
+        return opcodes;
     }
 
     /**
@@ -236,6 +426,7 @@ abstract public class _SMBuilder {
      */
     final public void _label(String label) {
         labels.put(label, new Integer(operations.size()));
+        program = null;
     }
 
     /**
@@ -267,6 +458,29 @@ abstract public class _SMBuilder {
         new _IfF(this, condition, label);
     }
 
+    /**
+     * Create a _Fork.
+     */
+    final public void _fork() {
+        new _Fork(this);
+    }
+
+    /**
+     * Create a _Join which requires all the responses.
+     */
+    final public void _join() {
+        new _Join(this, _Join.ALL);
+    }
+
+    /**
+     * Create a _Join.
+     *
+     * @param required The number of successes required, e.g. 1 for the first success, or _Join.ALL.
+     */
+    final public void _join(int required) {
+        new _Join(this, required);
+    }
+
     /**
      * Create a _Call.
      *
@@ -307,10 +521,54 @@ abstract public class _SMBuilder {
      */
     final public void call(Object request, RP rp)
             throws Exception {
-        final StateMachine stateMachine = new StateMachine(this);
+        StateMachine stateMachine;
+        if (pooled > 0) {
+            pooled -= 1;
+            stateMachine = stateMachinePool[pooled];
+            stateMachinePool[pooled] = null;
+        } else {
+            stateMachine = new StateMachine(this);
+            stateMachine.recycled = stateMachinePool != null;
+        }
         stateMachine.execute(request, rp);
     }
 
+    /**
+     * <p>
+     * Enables the reuse of the state machines run by call.
+     * This should be called before the builder is used.
+     * </p>
+     * <p>
+     * A state machine is reset and returned to the pool once its response has been processed,
+     * so when recycling is enabled, the operations must not retain the state machine
+     * once it has returned a response.
+     * </p>
+     *
+     * @param poolSize The maximum number of state machines held for reuse, or 0 to disable recycling.
+     */
+    final public void setRecycling(int poolSize) {
+        if (poolSize < 0)
+            throw new IllegalArgumentException("poolSize may not be negative");
+        pooled = 0;
+        if (poolSize == 0)
+            stateMachinePool = null;
+        else
+            stateMachinePool = new StateMachine[poolSize];
+    }
+
+    /**
+     * Returns a state machine which has run to the pool.
+     *
+     * @param stateMachine A state machine which has been reset.
+     */
+    final void recycle(StateMachine stateMachine) {
+        StateMachine[] pool = stateMachinePool;
+        if (pool != null && pooled < pool.length) {
+            pool[pooled] = stateMachine;
+            pooled += 1;
+        }
+    }
+
     /**
      * Send a request to an actor.
      *
@@ -320,4 +578,23 @@ abstract public class _SMBuilder {
      * @throws Exception Any uncaught exceptions raised while processing the request.
      */
     abstract public void send(Actor actor, Request request, RP rp) throws Exception;
+
+    /**
+     * Returns the exception handler of the actor which sends the requests.
+     * By default there is none.
+     *
+     * @return The exception handler, or null.
+     */
+    public ExceptionHandler getExceptionHandler() {
+        return null;
+    }
+
+    /**
+     * Sets the exception handler of the actor which sends the requests.
+     * By default this does nothing.
+     *
+     * @param exceptionHandler The exception handler, or null.
+     */
+    public void setExceptionHandler(ExceptionHandler exceptionHandler) {
+    }
 }
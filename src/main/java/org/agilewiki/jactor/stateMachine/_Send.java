@@ -29,8 +29,14 @@ import org.agilewiki.jactor.lpc.Request;
 
 /**
  * Send a request to an actor.
+ * Between a _fork and a _join, the request is sent without waiting for the response.
  */
 abstract public class _Send implements _Operation {
+    /**
+     * The slot assigned to the result when the builder is compiled, or -1.
+     */
+    int resultSlot = -1;
+
     /**
      * Perform the operation.
      *
@@ -42,14 +48,11 @@ abstract public class _Send implements _Operation {
     final public void call(final StateMachine stateMachine, final RP rp) throws Exception {
         Actor a = getTargetActor(stateMachine);
         Request r = getRequest(stateMachine);
-        stateMachine.send(a, r, new RP() {
-            @Override
-            final public void processResponse(Object response) throws Exception {
-                String rn = getResultName();
-                if (rn != null) stateMachine.put(rn, response);
-                rp.processResponse(null);
-            }
-        });
+        if (stateMachine.isForked()) {
+            stateMachine.forkSend(a, r, resultSlot);
+            rp.processResponse(null);
+        } else
+            stateMachine.send(a, r, stateMachine.resultProcessor(resultSlot, rp));
     }
 
     /**
@@ -60,13 +60,18 @@ final public class _SetF implements _Operation {
     /**
      * The (indirect) result.
      */
-    private ObjectFunc objectFunc;
+    ObjectFunc objectFunc;
 
     /**
      * The name of the result, or null.
      */
     private String resultName;
 
+    /**
+     * The slot assigned to the result when the builder is compiled, or -1.
+     */
+    int resultSlot = -1;
+
     /**
      * Create a _SetF
      *
@@ -80,6 +85,15 @@ final public class _SetF implements _Operation {
         parentSMB.add(this);
     }
 
+    /**
+     * Returns the name of the result, or null.
+     *
+     * @return The name of the result, or null.
+     */
+    final public String getResultName() {
+        return resultName;
+    }
+
     /**
      * Perform the operation.
      *
@@ -90,7 +104,7 @@ final public class _SetF implements _Operation {
     @Override
     public void call(StateMachine stateMachine, RP rp) throws Exception {
         Object value = objectFunc.get(stateMachine);
-        if (resultName != null) stateMachine.put(resultName, value);
+        if (resultSlot >= 0) stateMachine.put(resultSlot, value);
         rp.processResponse(null);
     }
 }
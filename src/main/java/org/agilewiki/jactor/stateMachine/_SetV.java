@@ -50,13 +50,18 @@ public class _SetV implements _Operation {
     /**
      * The result.
      */
-    private Object value;
+    Object value;
 
     /**
      * The name of the result, or null.
      */
     private String resultName;
 
+    /**
+     * The slot assigned to the result when the builder is compiled, or -1.
+     */
+    int resultSlot = -1;
+
     /**
      * Create a _SetV
      *
@@ -70,6 +75,15 @@ public class _SetV implements _Operation {
         parentSMB.add(this);
     }
 
+    /**
+     * Returns the name of the result, or null.
+     *
+     * @return The name of the result, or null.
+     */
+    final public String getResultName() {
+        return resultName;
+    }
+
     /**
      * Perform the operation.
      *
@@ -79,7 +93,7 @@ public class _SetV implements _Operation {
      */
     @Override
     public void call(StateMachine stateMachine, RP rp) throws Exception {
-        if (resultName != null) stateMachine.put(resultName, value);
+        if (resultSlot >= 0) stateMachine.put(resultSlot, value);
         rp.processResponse(null);
     }
 }
@@ -47,6 +47,10 @@
  * Why use a state machine? Because it is simpler to program a state machine to execute a series of operations than it
  * is to code it directly, when each operation has a callback which is invoked when the operation completes. The state
  * machine handles all the callbacks, allowing you to focus on the operations to be performed.
+ * </p><p>
+ * Normally each _send waits for its response before the next operation is executed. But the requests sent between a
+ * _fork and a _join are sent without waiting, and the _join then waits for all of their responses--or for as many
+ * as are required--so that independent requests to several actors take a single round trip.
  * </p>
  * <p>
  * The nested class JLPCActor.SMBuilder is a concrete implementation of _SMBuilder
@@ -0,0 +1,62 @@
+package org.agilewiki.jactor;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * Test code: counts the bytes allocated by all live threads.
+ * Only supported on JVMs which provide com.sun.management.ThreadMXBean.
+ */
+public class AllocationCounter {
+    /**
+     * Returns true when allocations can be counted.
+     *
+     * @return True when allocations can be counted.
+     */
+    public static boolean isSupported() {
+        ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        if (!(threadMXBean instanceof com.sun.management.ThreadMXBean))
+            return false;
+        com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) threadMXBean;
+        if (!bean.isThreadAllocatedMemorySupported())
+            return false;
+        if (!bean.isThreadAllocatedMemoryEnabled())
+            bean.setThreadAllocatedMemoryEnabled(true);
+        return true;
+    }
+
+    /**
+     * Returns the bytes allocated by the current thread, or -1 when not supported.
+     *
+     * @return The bytes allocated so far by the current thread.
+     */
+    public static long currentThreadBytes() {
+        if (!isSupported())
+            return -1;
+        com.sun.management.ThreadMXBean bean =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        return bean.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /**
+     * Returns the bytes allocated by all live threads, or -1 when not supported.
+     * Threads which have terminated are not included.
+     *
+     * @return The bytes allocated so far by the live threads.
+     */
+    public static long allThreadsBytes() {
+        if (!isSupported())
+            return -1;
+        com.sun.management.ThreadMXBean bean =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long[] bytes = bean.getThreadAllocatedBytes(bean.getAllThreadIds());
+        long total = 0;
+        int i = 0;
+        while (i < bytes.length) {
+            if (bytes[i] > 0)
+                total += bytes[i];
+            i += 1;
+        }
+        return total;
+    }
+}
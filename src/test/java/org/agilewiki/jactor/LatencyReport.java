@@ -0,0 +1,35 @@
+package org.agilewiki.jactor;
+
+import java.util.Arrays;
+
+/**
+ * Test code: prints percentiles of a set of latency samples.
+ */
+public class LatencyReport {
+    /**
+     * Print the p50 and p99 latencies.
+     *
+     * @param label   Identifies the samples.
+     * @param samples Latencies in nanoseconds. The array is sorted in place.
+     */
+    public static void print(String label, long[] samples) {
+        if (samples.length == 0)
+            return;
+        Arrays.sort(samples);
+        System.out.println("[" + label + "] samples: " + samples.length +
+                " p50 ns: " + percentile(samples, 50) +
+                " p99 ns: " + percentile(samples, 99));
+    }
+
+    /**
+     * Returns a percentile of sorted samples.
+     *
+     * @param sorted  The sorted samples.
+     * @param percent The percentile.
+     * @return The sample at the given percentile.
+     */
+    public static long percentile(long[] sorted, int percent) {
+        int i = (int) ((sorted.length - 1) * (long) percent / 100);
+        return sorted[i];
+    }
+}
@@ -0,0 +1,138 @@
+package org.agilewiki.jactor.affinityTest;
+
+import junit.framework.TestCase;
+import org.agilewiki.jactor.JAFuture;
+import org.agilewiki.jactor.JAMailboxFactory;
+import org.agilewiki.jactor.Mailbox;
+import org.agilewiki.jactor.concurrent.IdleStrategy;
+import org.agilewiki.jactor.concurrent.JAThreadFactory;
+import org.agilewiki.jactor.concurrent.JAThreadManager;
+import org.agilewiki.jactor.concurrent.JAWorkStealingThreadManager;
+import org.agilewiki.jactor.concurrent.ThreadManager;
+import org.agilewiki.jactor.concurrent.WorkerBinder;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Test code: worker binding and home workers.
+ */
+public class AffinityTest extends TestCase {
+    /**
+     * Records the thread bound to each worker.
+     */
+    static class Binder implements WorkerBinder {
+        final Thread[] threads;
+        final CountDownLatch bound;
+
+        Binder(int threadCount) {
+            threads = new Thread[threadCount];
+            bound = new CountDownLatch(threadCount);
+        }
+
+        @Override
+        public void bind(int worker) {
+            threads[worker] = Thread.currentThread();
+            bound.countDown();
+        }
+    }
+
+    public void testBinder() throws Exception {
+        Binder binder = new Binder(3);
+        ThreadManager threadManager = new JAThreadManager(IdleStrategy.BLOCKING, binder);
+        threadManager.start(3, new JAThreadFactory());
+        try {
+            assertTrue(binder.bound.await(10, TimeUnit.SECONDS));
+        } finally {
+            threadManager.close();
+        }
+        binder = new Binder(3);
+        threadManager = JAWorkStealingThreadManager.newThreadManager(3, 0, binder);
+        try {
+            assertTrue(binder.bound.await(10, TimeUnit.SECONDS));
+        } finally {
+            threadManager.close();
+        }
+    }
+
+    public void testHomeWorker() throws Exception {
+        Binder binder = new Binder(2);
+        JAMailboxFactory mailboxFactory = new JAMailboxFactory(
+                JAWorkStealingThreadManager.newThreadManager(2, 0, binder));
+        mailboxFactory.setHomeWorkers(true);
+        try {
+            assertTrue(binder.bound.await(10, TimeUnit.SECONDS));
+            Mailbox mailbox0 = mailboxFactory.createAsyncMailbox();
+            Mailbox mailbox1 = mailboxFactory.createAsyncMailbox();
+            assertEquals(0, mailbox0.getEventQueue().getHomeWorker());
+            assertEquals(1, mailbox1.getEventQueue().getHomeWorker());
+            Here here0 = new Here(mailbox0);
+            Here here1 = new Here(mailbox1);
+            JAFuture future = new JAFuture();
+            //A task is stolen when its home worker is not idle, so give the workers time to become idle.
+            int home = 0;
+            int i = 0;
+            while (i < 20) {
+                Thread.sleep(1);
+                if (Where.req.send(future, here0) == binder.threads[0])
+                    home += 1;
+                Thread.sleep(1);
+                if (Where.req.send(future, here1) == binder.threads[1])
+                    home += 1;
+                i += 1;
+            }
+            assertTrue(home > 30);
+        } finally {
+            mailboxFactory.close();
+        }
+    }
+
+    public void testSteal() throws Exception {
+        Binder binder = new Binder(4);
+        JAWorkStealingThreadManager threadManager = (JAWorkStealingThreadManager)
+                JAWorkStealingThreadManager.newThreadManager(4, 2, binder);
+        final CountDownLatch release = new CountDownLatch(1);
+        try {
+            assertTrue(binder.bound.await(10, TimeUnit.SECONDS));
+            final Thread[] ran = new Thread[2];
+            final CountDownLatch started = new CountDownLatch(1);
+            final CountDownLatch done = new CountDownLatch(1);
+            threadManager.process(new Runnable() {
+                @Override
+                public void run() {
+                    ran[0] = Thread.currentThread();
+                    started.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                    }
+                }
+            }, 0);
+            assertTrue(started.await(10, TimeUnit.SECONDS));
+            threadManager.process(new Runnable() {
+                @Override
+                public void run() {
+                    ran[1] = Thread.currentThread();
+                    done.countDown();
+                }
+            }, 0);
+            //The home worker may be busy, but another worker then steals the task.
+            assertTrue(done.await(10, TimeUnit.SECONDS));
+            assertNotSame(ran[0], ran[1]);
+        } finally {
+            release.countDown();
+            threadManager.close();
+        }
+    }
+
+    public void testUnsupported() {
+        JAMailboxFactory mailboxFactory = JAMailboxFactory.newMailboxFactory(1);
+        try {
+            mailboxFactory.setHomeWorkers(true);
+            fail();
+        } catch (UnsupportedOperationException e) {
+        } finally {
+            mailboxFactory.close();
+        }
+    }
+}
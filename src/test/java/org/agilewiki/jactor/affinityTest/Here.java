@@ -0,0 +1,18 @@
+package org.agilewiki.jactor.affinityTest;
+
+import org.agilewiki.jactor.Mailbox;
+import org.agilewiki.jactor.RP;
+import org.agilewiki.jactor.lpc.JLPCActor;
+
+/**
+ * Test code: responds with the thread which processed the request.
+ */
+final public class Here extends JLPCActor {
+    public Here(Mailbox mailbox) {
+        super(mailbox);
+    }
+
+    public void processRequest(Where request, RP rp) throws Exception {
+        rp.processResponse(Thread.currentThread());
+    }
+}
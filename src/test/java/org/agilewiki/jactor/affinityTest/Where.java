@@ -0,0 +1,24 @@
+package org.agilewiki.jactor.affinityTest;
+
+import org.agilewiki.jactor.Actor;
+import org.agilewiki.jactor.RP;
+import org.agilewiki.jactor.lpc.JLPCActor;
+import org.agilewiki.jactor.lpc.Request;
+
+/**
+ * Test code.
+ */
+final public class Where extends Request<Thread, Here> {
+    public final static Where req = new Where();
+
+    @Override
+    public void processRequest(JLPCActor targetActor, RP rp) throws Exception {
+        Here a = (Here) targetActor;
+        a.processRequest(this, rp);
+    }
+
+    @Override
+    public boolean isTargetType(Actor targetActor) {
+        return targetActor instanceof Here;
+    }
+}
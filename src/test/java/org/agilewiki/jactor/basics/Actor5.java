@@ -4,17 +4,26 @@ import org.agilewiki.jactor.Mailbox;
 import org.agilewiki.jactor.RP;
 import org.agilewiki.jactor.lpc.JLPCActor;
 
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
 /**
  * Test code.
  */
 public class Actor5 extends JLPCActor {
     public long delay;
+    public CountDownLatch rendezvous;
 
     public Actor5(Mailbox mailbox) {
         super(mailbox);
     }
 
     protected void processRequest(Delay request, final RP rp) throws Exception {
+        if (rendezvous != null) {
+            rendezvous.countDown();
+            if (!rendezvous.await(10, TimeUnit.SECONDS))
+                throw new IllegalStateException("the tasks did not overlap");
+        }
         Thread.sleep(delay);
         rp.processResponse(null);
     }
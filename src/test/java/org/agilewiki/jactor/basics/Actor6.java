@@ -0,0 +1,43 @@
+package org.agilewiki.jactor.basics;
+
+import org.agilewiki.jactor.Mailbox;
+import org.agilewiki.jactor.MailboxFactory;
+import org.agilewiki.jactor.RP;
+import org.agilewiki.jactor.lpc.JLPCActor;
+
+import java.util.concurrent.CountDownLatch;
+
+public class Actor6 extends JLPCActor {
+    public int count;
+    public long delay;
+    public CountDownLatch rendezvous;
+
+    public Actor6(Mailbox mailbox) {
+        super(mailbox);
+    }
+
+    protected void processRequest(BlockingParallel request, final RP rp) throws Exception {
+        MailboxFactory mf = getMailboxFactory();
+        final long t0 = System.currentTimeMillis();
+        RP<Object> rc = new RP<Object>() {
+            int c = count;
+
+            @Override
+            public void processResponse(Object response) throws Exception {
+                c -= 1;
+                if (c == 0) {
+                    long t1 = System.currentTimeMillis();
+                    rp.processResponse(t1 - t0);
+                }
+            }
+        };
+        int i = 0;
+        while (i < count) {
+            Actor5 a = new Actor5(mf.createAsyncMailbox());
+            a.delay = delay;
+            a.rendezvous = rendezvous;
+            Delay.req.send(this, a, rc);
+            i += 1;
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package org.agilewiki.jactor.basics;
+
+import org.agilewiki.jactor.Actor;
+import org.agilewiki.jactor.RP;
+import org.agilewiki.jactor.lpc.JLPCActor;
+import org.agilewiki.jactor.lpc.Request;
+
+public class BlockingParallel extends Request<Long, Actor6> {
+    public static final BlockingParallel req = new BlockingParallel();
+
+    @Override
+    public void processRequest(JLPCActor targetActor, RP rp) throws Exception {
+        Actor6 a = (Actor6) targetActor;
+        a.processRequest(this, rp);
+    }
+
+    @Override
+    public boolean isTargetType(Actor targetActor) {
+        return targetActor instanceof Actor6;
+    }
+}
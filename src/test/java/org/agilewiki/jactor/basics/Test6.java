@@ -0,0 +1,30 @@
+package org.agilewiki.jactor.basics;
+
+import junit.framework.TestCase;
+import org.agilewiki.jactor.JAFuture;
+import org.agilewiki.jactor.JAMailboxFactory;
+import org.agilewiki.jactor.Mailbox;
+import org.agilewiki.jactor.MailboxFactory;
+
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Test code: blocking actors do not hold up each other when each task has its own thread.
+ */
+public class Test6 extends TestCase {
+    public void test() throws Exception {
+        MailboxFactory mailboxFactory = JAMailboxFactory.newVirtualThreadMailboxFactory();
+        try {
+            Mailbox mailbox = mailboxFactory.createMailbox();
+            Actor6 actor6 = new Actor6(mailbox);
+            actor6.count = 20;
+            actor6.delay = 50;
+            //Each task waits until all of them have started, which fails unless they run at the same time.
+            actor6.rendezvous = new CountDownLatch(20);
+            JAFuture future = new JAFuture();
+            BlockingParallel.req.send(future, actor6);
+        } finally {
+            mailboxFactory.close();
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package org.agilewiki.jactor.boundedMailboxTest;
+
+import junit.framework.TestCase;
+import org.agilewiki.jactor.JAFuture;
+import org.agilewiki.jactor.JAListenableFuture;
+import org.agilewiki.jactor.JAMailboxFactory;
+import org.agilewiki.jactor.MailboxFactory;
+import org.agilewiki.jactor.apc.MailboxOverflowException;
+import org.agilewiki.jactor.apc.OverflowPolicy;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Floods a slow actor and checks that its mailbox never grows beyond capacity.
+ */
+public class BoundedMailboxTest extends TestCase {
+    public void testBlock() throws Exception {
+        int count = 20000;
+        int capacity = 100;
+        MailboxFactory mailboxFactory = JAMailboxFactory.newMailboxFactory(2);
+        try {
+            Consumer consumer = new Consumer(mailboxFactory.createAsyncMailbox(capacity, OverflowPolicy.BLOCK));
+            flood(consumer, count);
+            JAFuture future = new JAFuture();
+            assertEquals(count, (int) GetCount.req.send(future, consumer));
+            assertTrue(GetMaxDepth.req.send(future, consumer) <= capacity);
+        } finally {
+            mailboxFactory.close();
+        }
+    }
+
+    public void testCallerRuns() throws Exception {
+        int count = 20000;
+        int capacity = 100;
+        MailboxFactory mailboxFactory = JAMailboxFactory.newMailboxFactory(2);
+        try {
+            Consumer consumer = new Consumer(mailboxFactory.createMailbox(capacity, OverflowPolicy.CALLER_RUNS));
+            flood(consumer, count);
+            JAFuture future = new JAFuture();
+            assertEquals(count, (int) GetCount.req.send(future, consumer));
+            assertTrue(GetMaxDepth.req.send(future, consumer) <= capacity);
+        } finally {
+            mailboxFactory.close();
+        }
+    }
+
+    public void testBlockActorSenders() throws Exception {
+        produce(OverflowPolicy.BLOCK, true);
+    }
+
+    public void testCallerRunsActorSenders() throws Exception {
+        produce(OverflowPolicy.CALLER_RUNS, false);
+    }
+
+    public void testDropOldest() throws Exception {
+        int count = 20000;
+        int capacity = 100;
+        MailboxFactory mailboxFactory = JAMailboxFactory.newMailboxFactory(2);
+        try {
+            Consumer consumer = new Consumer(mailboxFactory.createAsyncMailbox(capacity, OverflowPolicy.DROP_OLDEST));
+            flood(consumer, count);
+            JAFuture future = new JAFuture();
+            assertTrue(GetCount.req.send(future, consumer) <= count);
+            assertTrue(GetMaxDepth.req.send(future, consumer) <= capacity + 1);
+        } finally {
+            mailboxFactory.close();
+        }
+    }
+
+    public void testDropOldestKeeps() throws Exception {
+        int capacity = 2;
+        MailboxFactory mailboxFactory = JAMailboxFactory.newMailboxFactory(2);
+        Consumer consumer = new Consumer(mailboxFactory.createAsyncMailbox(capacity, OverflowPolicy.DROP_OLDEST));
+        consumer.entered = new Semaphore(0);
+        consumer.gate = new Semaphore(0);
+        try {
+            Work.req.sendEvent(consumer);
+            consumer.entered.acquire();
+            //The oldest pending request is from outside the actor system, so it is kept.
+            JAListenableFuture<Object> kept = JAListenableFuture.send(consumer, Work.req);
+            Work.req.sendEvent(consumer);
+            Work.req.sendEvent(consumer);
+            //The newer event is dropped instead, bringing the mailbox back to capacity.
+            assertEquals(capacity, consumer.getMailbox().getQueuedRequests());
+            Work.req.sendEvent(consumer);
+            assertEquals(capacity, consumer.getMailbox().getQueuedRequests());
+            //The kept request is still processed ahead of the newer event.
+            consumer.gate.release();
+            consumer.entered.acquire();
+            consumer.gate.release();
+            kept.get(10, TimeUnit.SECONDS);
+            consumer.gate.release(capacity);
+            JAFuture future = new JAFuture();
+            assertEquals(3, (int) GetCount.req.send(future, consumer));
+        } finally {
+            consumer.gate.release(capacity + 2);
+            mailboxFactory.close();
+        }
+    }
+
+    public void testReject() throws Exception {
+        int capacity = 10;
+        MailboxFactory mailboxFactory = JAMailboxFactory.newMailboxFactory(2);
+        try {
+            Consumer consumer = new Consumer(mailboxFactory.createAsyncMailbox(capacity, OverflowPolicy.REJECT));
+            consumer.entered = new Semaphore(0);
+            consumer.gate = new Semaphore(0);
+            Work.req.sendEvent(consumer);
+            consumer.entered.acquire();
+            int i = 0;
+            while (i < capacity) {
+                Work.req.sendEvent(consumer);
+                i += 1;
+            }
+            Work.req.sendEvent(consumer);
+            JAFuture future = new JAFuture();
+            try {
+                GetCount.req.send(future, consumer);
+                fail();
+            } catch (MailboxOverflowException e) {
+            }
+            consumer.gate.release(capacity + 1);
+            while (consumer.getMailbox().getQueuedRequests() > 0)
+                Thread.yield();
+            assertEquals(capacity + 1, (int) GetCount.req.send(future, consumer));
+            assertEquals(capacity - 1, (int) GetMaxDepth.req.send(future, consumer));
+        } finally {
+            mailboxFactory.close();
+        }
+    }
+
+    /**
+     * Several actors send requests to a full mailbox, all processed by a single thread,
+     * which must not wait for room as that would leave no thread to make room.
+     */
+    private void produce(OverflowPolicy overflowPolicy, boolean async) throws Exception {
+        int producers = 5;
+        int count = 10;
+        int capacity = 4;
+        MailboxFactory mailboxFactory = JAMailboxFactory.newMailboxFactory(1);
+        try {
+            Consumer consumer = new Consumer(async ?
+                    mailboxFactory.createAsyncMailbox(capacity, overflowPolicy) :
+                    mailboxFactory.createMailbox(capacity, overflowPolicy));
+            JAListenableFuture<?>[] futures = new JAListenableFuture<?>[producers];
+            int i = 0;
+            while (i < producers) {
+                Producer producer = new Producer(mailboxFactory.createAsyncMailbox(), consumer, count);
+                futures[i] = JAListenableFuture.send(producer, Produce.req);
+                i += 1;
+            }
+            i = 0;
+            while (i < producers) {
+                futures[i].get(10, TimeUnit.SECONDS);
+                i += 1;
+            }
+            JAFuture future = new JAFuture();
+            assertEquals(producers * count, (int) GetCount.req.send(future, consumer));
+        } finally {
+            mailboxFactory.close();
+        }
+    }
+
+    private void flood(Consumer consumer, int count) throws Exception {
+        long m0 = usedMemory();
+        int i = 0;
+        while (i < count) {
+            Work.req.sendEvent(consumer);
+            i += 1;
+        }
+        long m1 = usedMemory();
+        System.out.println("heap growth while flooding (KB): " + (m1 - m0) / 1024);
+    }
+
+    private long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        runtime.gc();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,43 @@
+package org.agilewiki.jactor.boundedMailboxTest;
+
+import org.agilewiki.jactor.Mailbox;
+import org.agilewiki.jactor.RP;
+import org.agilewiki.jactor.lpc.JLPCActor;
+
+import java.util.concurrent.Semaphore;
+
+/**
+ * Test code: a slow actor which tracks the depth of its mailbox.
+ */
+final public class Consumer extends JLPCActor {
+    public Semaphore entered;
+    public Semaphore gate;
+    private int count;
+    private int maxDepth;
+
+    public Consumer(Mailbox mailbox) {
+        super(mailbox);
+    }
+
+    public void processRequest(Work request, RP rp) throws Exception {
+        count += 1;
+        int depth = getMailbox().getQueuedRequests();
+        if (depth > maxDepth)
+            maxDepth = depth;
+        if (gate != null) {
+            entered.release();
+            gate.acquire();
+        } else {
+            Thread.yield();
+        }
+        rp.processResponse(null);
+    }
+
+    public void processRequest(GetCount request, RP rp) throws Exception {
+        rp.processResponse(count);
+    }
+
+    public void processRequest(GetMaxDepth request, RP rp) throws Exception {
+        rp.processResponse(maxDepth);
+    }
+}
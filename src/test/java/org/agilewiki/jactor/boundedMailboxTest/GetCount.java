@@ -0,0 +1,21 @@
+package org.agilewiki.jactor.boundedMailboxTest;
+
+import org.agilewiki.jactor.Actor;
+import org.agilewiki.jactor.RP;
+import org.agilewiki.jactor.lpc.JLPCActor;
+import org.agilewiki.jactor.lpc.Request;
+
+final public class GetCount extends Request<Integer, Consumer> {
+    public final static GetCount req = new GetCount();
+
+    @Override
+    public void processRequest(JLPCActor targetActor, RP rp) throws Exception {
+        Consumer c = (Consumer) targetActor;
+        c.processRequest(this, rp);
+    }
+
+    @Override
+    public boolean isTargetType(Actor targetActor) {
+        return targetActor instanceof Consumer;
+    }
+}
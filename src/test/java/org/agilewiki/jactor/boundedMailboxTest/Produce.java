@@ -0,0 +1,21 @@
+package org.agilewiki.jactor.boundedMailboxTest;
+
+import org.agilewiki.jactor.Actor;
+import org.agilewiki.jactor.RP;
+import org.agilewiki.jactor.lpc.JLPCActor;
+import org.agilewiki.jactor.lpc.Request;
+
+final public class Produce extends Request<Object, Producer> {
+    public final static Produce req = new Produce();
+
+    @Override
+    public void processRequest(JLPCActor targetActor, RP rp) throws Exception {
+        Producer p = (Producer) targetActor;
+        p.processRequest(this, rp);
+    }
+
+    @Override
+    public boolean isTargetType(Actor targetActor) {
+        return targetActor instanceof Producer;
+    }
+}
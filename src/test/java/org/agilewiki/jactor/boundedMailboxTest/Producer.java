@@ -0,0 +1,34 @@
+package org.agilewiki.jactor.boundedMailboxTest;
+
+import org.agilewiki.jactor.Mailbox;
+import org.agilewiki.jactor.RP;
+import org.agilewiki.jactor.lpc.JLPCActor;
+
+final public class Producer extends JLPCActor {
+    private final Consumer consumer;
+    private final int count;
+
+    public Producer(Mailbox mailbox, Consumer consumer, int count) {
+        super(mailbox);
+        this.consumer = consumer;
+        this.count = count;
+    }
+
+    public void processRequest(Produce request, final RP rp) throws Exception {
+        RP<Object> counter = new RP<Object>() {
+            private int responses;
+
+            @Override
+            public void processResponse(Object response) throws Exception {
+                responses += 1;
+                if (responses == count)
+                    rp.processResponse(null);
+            }
+        };
+        int i = 0;
+        while (i < count) {
+            Work.req.send(this, consumer, counter);
+            i += 1;
+        }
+    }
+}
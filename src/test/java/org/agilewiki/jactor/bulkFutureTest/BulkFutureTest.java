@@ -0,0 +1,176 @@
+package org.agilewiki.jactor.bulkFutureTest;
+
+import junit.framework.TestCase;
+import org.agilewiki.jactor.Actor;
+import org.agilewiki.jactor.JABulkFuture;
+import org.agilewiki.jactor.JAFuture;
+import org.agilewiki.jactor.JAListenableFuture;
+import org.agilewiki.jactor.JAMailboxFactory;
+import org.agilewiki.jactor.Mailbox;
+import org.agilewiki.jactor.MailboxFactory;
+import org.agilewiki.jactor.apc.MailboxOverflowException;
+import org.agilewiki.jactor.apc.OverflowPolicy;
+import org.agilewiki.jactor.lpc.Request;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Test code: sending a batch of requests from outside the actor system.
+ */
+public class BulkFutureTest extends TestCase {
+    private static final int N = 1000;
+
+    /**
+     * Spread the requests over 10 actors with 3 mailboxes.
+     */
+    private Actor[] actors(MailboxFactory mailboxFactory) {
+        Mailbox[] mailboxes = new Mailbox[3];
+        int i = 0;
+        while (i < mailboxes.length) {
+            mailboxes[i] = mailboxFactory.createAsyncMailbox();
+            i += 1;
+        }
+        Echoer[] echoers = new Echoer[10];
+        i = 0;
+        while (i < echoers.length) {
+            echoers[i] = new Echoer(mailboxes[i % mailboxes.length]);
+            i += 1;
+        }
+        Actor[] actors = new Actor[N];
+        i = 0;
+        while (i < N) {
+            actors[i] = echoers[i % echoers.length];
+            i += 1;
+        }
+        return actors;
+    }
+
+    public void testSend() throws Exception {
+        MailboxFactory mailboxFactory = JAMailboxFactory.newMailboxFactory(2);
+        try {
+            Actor[] actors = actors(mailboxFactory);
+            Request[] requests = new Request[N];
+            int i = 0;
+            while (i < N) {
+                requests[i] = new Echo(i == 7 ? -1 : i + 1);
+                i += 1;
+            }
+            Object[] responses = new JABulkFuture().send(actors, requests);
+            i = 0;
+            while (i < N) {
+                if (i == 7)
+                    assertTrue(responses[i] instanceof IllegalArgumentException);
+                else
+                    assertEquals(i + 1, responses[i]);
+                i += 1;
+            }
+        } finally {
+            mailboxFactory.close();
+        }
+    }
+
+    public void testTake() throws Exception {
+        MailboxFactory mailboxFactory = JAMailboxFactory.newMailboxFactory(2);
+        try {
+            Actor[] actors = actors(mailboxFactory);
+            Request[] requests = new Request[N];
+            int i = 0;
+            while (i < N) {
+                requests[i] = new Echo(i + 1);
+                i += 1;
+            }
+            JABulkFuture bulk = new JABulkFuture();
+            bulk.submit(actors, requests);
+            boolean[] seen = new boolean[N];
+            int count = 0;
+            int index = bulk.take();
+            while (index >= 0) {
+                assertFalse(seen[index]);
+                seen[index] = true;
+                assertEquals(index + 1, bulk.getResponse(index));
+                count += 1;
+                index = bulk.take();
+            }
+            assertEquals(N, count);
+        } finally {
+            mailboxFactory.close();
+        }
+    }
+
+    public void testRefused() throws Exception {
+        MailboxFactory mailboxFactory = JAMailboxFactory.newMailboxFactory(2);
+        Echoer full = new Echoer(mailboxFactory.createAsyncMailbox(1, OverflowPolicy.REJECT));
+        full.entered = new Semaphore(0);
+        full.gate = new Semaphore(0);
+        try {
+            JAListenableFuture.send(full, new Echo(1));
+            full.entered.acquire();
+            JAListenableFuture.send(full, new Echo(2));
+            //The mailbox is full, so the first request of the batch is refused,
+            //but the requests to the other actor are still sent.
+            Echoer other = new Echoer(mailboxFactory.createAsyncMailbox());
+            Object[] responses = new JABulkFuture().send(new Actor[]{full, other, other},
+                    new Request[]{new Echo(1), new Echo(2), new Echo(3)}, 10, TimeUnit.SECONDS);
+            assertTrue(responses[0] instanceof MailboxOverflowException);
+            assertEquals(2, responses[1]);
+            assertEquals(3, responses[2]);
+        } finally {
+            full.gate.release(2);
+            mailboxFactory.close();
+        }
+    }
+
+    public void testTimeout() throws Exception {
+        MailboxFactory mailboxFactory = JAMailboxFactory.newMailboxFactory(1);
+        try {
+            Echoer echoer = new Echoer(mailboxFactory.createAsyncMailbox());
+            JABulkFuture bulk = new JABulkFuture();
+            try {
+                bulk.send(new Actor[]{echoer, echoer}, new Request[]{new Echo(1), new Echo(0)},
+                        20, TimeUnit.MILLISECONDS);
+                fail();
+            } catch (TimeoutException e) {
+            }
+            assertEquals(1, bulk.getResponse(0));
+            try {
+                bulk.submit(new Actor[]{echoer}, new Request[]{new Echo(1)});
+                fail();
+            } catch (IllegalStateException e) {
+            }
+        } finally {
+            mailboxFactory.close();
+        }
+    }
+
+    public void testLateResponse() throws Exception {
+        MailboxFactory mailboxFactory = JAMailboxFactory.newMailboxFactory(1);
+        Echoer echoer = new Echoer(mailboxFactory.createAsyncMailbox());
+        echoer.entered = new Semaphore(0);
+        echoer.gate = new Semaphore(1);
+        try {
+            JABulkFuture bulk = new JABulkFuture();
+            bulk.submit(new Actor[]{echoer, echoer}, new Request[]{new Echo(1), new Echo(2)});
+            //The response to the first request is buffered until the second request is processed.
+            echoer.entered.acquire(2);
+            try {
+                bulk.awaitAll(20, TimeUnit.MILLISECONDS);
+                fail();
+            } catch (TimeoutException e) {
+            }
+            echoer.gate.release(2);
+            //The buffered response has been passed on by the time the echoer answers a later request.
+            assertEquals(3, (int) new Echo(3).send(new JAFuture(), echoer));
+            assertNull(bulk.getResponse(0));
+            try {
+                bulk.take();
+                fail();
+            } catch (IllegalStateException e) {
+            }
+        } finally {
+            echoer.gate.release(2);
+            mailboxFactory.close();
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package org.agilewiki.jactor.bulkFutureTest;
+
+import org.agilewiki.jactor.Mailbox;
+import org.agilewiki.jactor.RP;
+import org.agilewiki.jactor.lpc.JLPCActor;
+
+import java.util.concurrent.Semaphore;
+
+/**
+ * Test code.
+ */
+final public class Echoer extends JLPCActor {
+    public RP stalled;
+    public Semaphore entered;
+    public Semaphore gate;
+
+    public Echoer(Mailbox mailbox) {
+        super(mailbox);
+    }
+
+    public void echo(int value, RP rp) throws Exception {
+        if (gate != null) {
+            entered.release();
+            gate.acquire();
+        }
+        if (value < 0)
+            throw new IllegalArgumentException("negative");
+        if (value == 0) {
+            stalled = rp;
+            return;
+        }
+        rp.processResponse(value);
+    }
+}
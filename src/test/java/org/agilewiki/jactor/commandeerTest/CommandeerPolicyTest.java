@@ -0,0 +1,97 @@
+package org.agilewiki.jactor.commandeerTest;
+
+import junit.framework.TestCase;
+import org.agilewiki.jactor.JAFuture;
+import org.agilewiki.jactor.JAMailboxFactory;
+import org.agilewiki.jactor.Mailbox;
+import org.agilewiki.jactor.lpc.AdaptiveCommandeerPolicy;
+import org.agilewiki.jactor.metrics.MailboxMetrics;
+
+/**
+ * Test code: commandeer policies.
+ */
+public class CommandeerPolicyTest extends TestCase {
+    public void testDefault() throws Exception {
+        JAMailboxFactory mailboxFactory = JAMailboxFactory.newMailboxFactory(2);
+        mailboxFactory.setMetricsEnabled(true);
+        try {
+            Worker worker = new Worker(mailboxFactory.createMailbox(), true);
+            assertNull(worker.getMailbox().getCommandeerPolicy());
+            MailboxMetrics metrics = fanOut(mailboxFactory, worker, 0L, 10);
+            assertEquals(10, metrics.getCommandeerHits());
+            assertEquals(0, metrics.getCommandeerMisses());
+        } finally {
+            mailboxFactory.close();
+        }
+    }
+
+    public void testAdaptive() throws Exception {
+        JAMailboxFactory mailboxFactory = JAMailboxFactory.newMailboxFactory(2);
+        mailboxFactory.setMetricsEnabled(true);
+        mailboxFactory.setAdaptiveCommandeerThreshold(50000L);
+        try {
+            Worker worker = new Worker(mailboxFactory.createMailbox(), false);
+            AdaptiveCommandeerPolicy policy = (AdaptiveCommandeerPolicy) worker.getMailbox().getCommandeerPolicy();
+            MailboxMetrics metrics = fanOut(mailboxFactory, worker, 200000L, 100);
+            assertTrue(policy.getAverageNanos() > 50000L);
+            assertTrue(metrics.getCommandeerHits() < 10);
+            assertTrue(metrics.getCommandeerMisses() > 90);
+        } finally {
+            mailboxFactory.close();
+        }
+    }
+
+    public void testHint() throws Exception {
+        JAMailboxFactory mailboxFactory = JAMailboxFactory.newMailboxFactory(2);
+        mailboxFactory.setMetricsEnabled(true);
+        mailboxFactory.setAdaptiveCommandeerThreshold(50000L);
+        try {
+            Worker worker = new Worker(mailboxFactory.createMailbox(), true);
+            MailboxMetrics metrics = fanOut(mailboxFactory, worker, 0L, 10);
+            assertEquals(0, metrics.getCommandeerHits());
+            assertEquals(10, metrics.getCommandeerMisses());
+        } finally {
+            mailboxFactory.close();
+        }
+    }
+
+    public void testPolicy() throws Exception {
+        JAMailboxFactory mailboxFactory = JAMailboxFactory.newMailboxFactory(1);
+        try {
+            Mailbox mailbox = mailboxFactory.createMailbox();
+            Worker worker = new Worker(mailbox, false);
+            Work work = new Work(0L);
+            AdaptiveCommandeerPolicy policy = new AdaptiveCommandeerPolicy(1000L, 4);
+            assertTrue(policy.mayCommandeer(mailbox, worker, work));
+            policy.commandeered(mailbox, 9000L);
+            assertEquals(9000L, policy.getAverageNanos());
+            policy.commandeered(mailbox, 1000L);
+            assertEquals(8000L, policy.getAverageNanos());
+            assertFalse(policy.mayCommandeer(mailbox, worker, work));
+            assertFalse(policy.mayCommandeer(mailbox, worker, work));
+            assertFalse(policy.mayCommandeer(mailbox, worker, work));
+            assertTrue(policy.mayCommandeer(mailbox, worker, work));
+            int i = 0;
+            while (i < 20) {
+                policy.commandeered(mailbox, 100L);
+                i += 1;
+            }
+            assertTrue(policy.getAverageNanos() <= 1000L);
+            assertTrue(policy.mayCommandeer(mailbox, worker, work));
+        } finally {
+            mailboxFactory.close();
+        }
+    }
+
+    private MailboxMetrics fanOut(JAMailboxFactory mailboxFactory, Worker worker, long nanos, int rounds)
+            throws Exception {
+        Driver driver = new Driver(mailboxFactory.createMailbox(), new Worker[]{worker}, new Work(nanos));
+        JAFuture future = new JAFuture();
+        int i = 0;
+        while (i < rounds) {
+            FanOut.req.send(future, driver);
+            i += 1;
+        }
+        return worker.getMailbox().getMetrics();
+    }
+}
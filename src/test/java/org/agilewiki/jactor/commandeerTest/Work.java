@@ -0,0 +1,28 @@
+package org.agilewiki.jactor.commandeerTest;
+
+import org.agilewiki.jactor.Actor;
+import org.agilewiki.jactor.RP;
+import org.agilewiki.jactor.lpc.JLPCActor;
+import org.agilewiki.jactor.lpc.Request;
+
+/**
+ * Test code.
+ */
+final public class Work extends Request<Object, Worker> {
+    public final long nanos;
+
+    public Work(long nanos) {
+        this.nanos = nanos;
+    }
+
+    @Override
+    public void processRequest(JLPCActor targetActor, RP rp) throws Exception {
+        Worker a = (Worker) targetActor;
+        a.processRequest(this, rp);
+    }
+
+    @Override
+    public boolean isTargetType(Actor targetActor) {
+        return targetActor instanceof Worker;
+    }
+}
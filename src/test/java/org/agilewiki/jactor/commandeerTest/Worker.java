@@ -0,0 +1,29 @@
+package org.agilewiki.jactor.commandeerTest;
+
+import org.agilewiki.jactor.Mailbox;
+import org.agilewiki.jactor.RP;
+import org.agilewiki.jactor.lpc.JLPCActor;
+import org.agilewiki.jactor.lpc.Request;
+
+/**
+ * Test code: spins for the time given by each request.
+ */
+final public class Worker extends JLPCActor {
+    private final boolean preferAsync;
+
+    public Worker(Mailbox mailbox, boolean preferAsync) {
+        super(mailbox);
+        this.preferAsync = preferAsync;
+    }
+
+    @Override
+    protected boolean preferAsync(Request request) {
+        return preferAsync;
+    }
+
+    public void processRequest(Work request, RP rp) throws Exception {
+        long end = System.nanoTime() + request.nanos;
+        while (System.nanoTime() < end) ;
+        rp.processResponse(null);
+    }
+}
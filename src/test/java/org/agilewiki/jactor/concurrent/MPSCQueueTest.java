@@ -0,0 +1,98 @@
+package org.agilewiki.jactor.concurrent;
+
+import junit.framework.TestCase;
+
+import java.util.Iterator;
+
+/**
+ * Test code: several producers and a single consumer share a JAMPSCQueue.
+ */
+public class MPSCQueueTest extends TestCase {
+    public void testSingleThread() {
+        JAMPSCQueue<Integer> queue = new JAMPSCQueue<Integer>(4);
+        assertNull(queue.peek());
+        assertNull(queue.poll());
+        int i = 0;
+        while (i < 10) {
+            queue.offer(i);
+            i += 1;
+        }
+        assertEquals(10, queue.size());
+        i = 0;
+        while (i < 10) {
+            assertEquals(i, queue.peek().intValue());
+            assertEquals(i, queue.poll().intValue());
+            i += 1;
+        }
+        assertNull(queue.poll());
+        assertTrue(queue.isEmpty());
+    }
+
+    public void testIterator() {
+        JAMPSCQueue<Integer> queue = new JAMPSCQueue<Integer>(4);
+        assertEquals("[]", queue.toString());
+        int i = 0;
+        while (i < 10) {
+            queue.offer(i);
+            i += 1;
+        }
+        queue.poll();
+        queue.poll();
+        assertEquals("[2, 3, 4, 5, 6, 7, 8, 9]", queue.toString());
+        assertTrue(queue.contains(5));
+        assertFalse(queue.contains(1));
+        Iterator<Integer> iterator = queue.iterator();
+        assertEquals(2, iterator.next().intValue());
+        //The next element has already been found, but those removed after it are skipped.
+        queue.poll();
+        queue.poll();
+        queue.poll();
+        assertEquals(3, iterator.next().intValue());
+        i = 5;
+        while (iterator.hasNext()) {
+            assertEquals(i, iterator.next().intValue());
+            i += 1;
+        }
+        assertEquals(10, i);
+    }
+
+    public void testProducers() throws Exception {
+        final int p = 4;
+        final int c = 10000;
+        final JAMPSCQueue<int[]> queue = new JAMPSCQueue<int[]>(16);
+        Thread[] producers = new Thread[p];
+        int i = 0;
+        while (i < p) {
+            final int producer = i;
+            producers[i] = new Thread() {
+                public void run() {
+                    int j = 0;
+                    while (j < c) {
+                        queue.offer(new int[]{producer, j});
+                        j += 1;
+                    }
+                }
+            };
+            producers[i].start();
+            i += 1;
+        }
+        int[] next = new int[p];
+        int received = 0;
+        while (received < p * c) {
+            int[] e = queue.poll();
+            if (e == null) {
+                Thread.yield();
+                continue;
+            }
+            assertEquals(next[e[0]], e[1]);
+            next[e[0]] += 1;
+            received += 1;
+        }
+        i = 0;
+        while (i < p) {
+            producers[i].join();
+            i += 1;
+        }
+        assertNull(queue.poll());
+    }
+}
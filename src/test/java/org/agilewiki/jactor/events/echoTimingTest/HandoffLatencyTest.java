@@ -0,0 +1,36 @@
+package org.agilewiki.jactor.events.echoTimingTest;
+
+import junit.framework.TestCase;
+import org.agilewiki.jactor.LatencyReport;
+import org.agilewiki.jactor.concurrent.IdleStrategy;
+import org.agilewiki.jactor.concurrent.JAThreadManager;
+import org.agilewiki.jactor.concurrent.ThreadManager;
+import org.agilewiki.jactor.events.JAEventFuture;
+
+/**
+ * Reports the round trip latency between two event actors for each idle strategy.
+ */
+final public class HandoffLatencyTest extends TestCase {
+    public void testLatency() {
+        int c = 10;
+        //int c = 1000000;
+        int t = 2;
+        run(IdleStrategy.BLOCKING, c, t);
+        run(IdleStrategy.spinYieldPark(1000, 100), c, t);
+        run(IdleStrategy.BUSY_SPIN, c, t);
+    }
+
+    private void run(IdleStrategy idleStrategy, int c, int t) {
+        ThreadManager threadManager = JAThreadManager.newThreadManager(t, idleStrategy);
+        try {
+            long[] latencies = new long[c];
+            LatencySender sender = new LatencySender(threadManager, latencies);
+            JAEventFuture<Object> eventFuture = new JAEventFuture<Object>();
+            eventFuture.send(sender, eventFuture);
+            eventFuture.send(sender, eventFuture);
+            LatencyReport.print(idleStrategy.toString(), latencies);
+        } finally {
+            threadManager.close();
+        }
+    }
+}
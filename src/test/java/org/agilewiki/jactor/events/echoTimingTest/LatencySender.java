@@ -0,0 +1,41 @@
+package org.agilewiki.jactor.events.echoTimingTest;
+
+import org.agilewiki.jactor.concurrent.ThreadManager;
+import org.agilewiki.jactor.events.Echo;
+import org.agilewiki.jactor.events.EventDestination;
+import org.agilewiki.jactor.events.JAEventActor;
+
+/**
+ * Test code: records the round trip time of each event sent to an echo.
+ */
+public class LatencySender extends JAEventActor<Object> {
+
+    private Echo echo;
+    private long[] latencies;
+    private int i;
+    private long t0;
+    private EventDestination<Object> source;
+
+    public LatencySender(ThreadManager threadManager, long[] latencies) {
+        super(threadManager);
+        echo = new Echo(threadManager);
+        this.latencies = latencies;
+    }
+
+    @Override
+    protected void processEvent(Object event) {
+        if (!(event instanceof Echo)) {
+            source = (EventDestination<Object>) event;
+            i = 0;
+        } else {
+            latencies[i] = System.nanoTime() - t0;
+            i += 1;
+        }
+        if (i < latencies.length) {
+            t0 = System.nanoTime();
+            send(echo, this);
+        } else {
+            send(source, this);
+        }
+    }
+}
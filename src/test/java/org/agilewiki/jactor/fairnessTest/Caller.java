@@ -0,0 +1,37 @@
+package org.agilewiki.jactor.fairnessTest;
+
+import org.agilewiki.jactor.Mailbox;
+import org.agilewiki.jactor.RP;
+
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Test code: sends a tick to the hot actor and records how many hot ticks
+ * preceded the response.
+ */
+final public class Caller extends Ticker {
+    private final Hot hot;
+    private final CountDownLatch start;
+    private final CountDownLatch done;
+    public volatile int hotCount;
+
+    public Caller(Mailbox mailbox, Hot hot, CountDownLatch start, CountDownLatch done) {
+        super(mailbox);
+        this.hot = hot;
+        this.start = start;
+        this.done = done;
+    }
+
+    @Override
+    public void tick(final RP rp) throws Exception {
+        start.await();
+        Tick.req.send(this, hot, new RP<Object>() {
+            @Override
+            public void processResponse(Object response) throws Exception {
+                hotCount = hot.count;
+                done.countDown();
+                rp.processResponse(null);
+            }
+        });
+    }
+}
@@ -0,0 +1,28 @@
+package org.agilewiki.jactor.fairnessTest;
+
+import org.agilewiki.jactor.Mailbox;
+import org.agilewiki.jactor.RP;
+
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Test code: records how many hot ticks preceded its own tick.
+ */
+final public class Cold extends Ticker {
+    private final Hot hot;
+    private final CountDownLatch done;
+    public volatile int hotCount;
+
+    public Cold(Mailbox mailbox, Hot hot, CountDownLatch done) {
+        super(mailbox);
+        this.hot = hot;
+        this.done = done;
+    }
+
+    @Override
+    public void tick(RP rp) throws Exception {
+        hotCount = hot.count;
+        done.countDown();
+        rp.processResponse(null);
+    }
+}
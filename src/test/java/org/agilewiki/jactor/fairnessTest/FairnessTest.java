@@ -0,0 +1,192 @@
+package org.agilewiki.jactor.fairnessTest;
+
+import junit.framework.TestCase;
+import org.agilewiki.jactor.JAEvent;
+import org.agilewiki.jactor.JAMailboxFactory;
+import org.agilewiki.jactor.concurrent.ThreadManager;
+import org.agilewiki.jactor.events.EventProcessor;
+import org.agilewiki.jactor.events.JAEventQueue;
+
+import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Test code: one hot mailbox flooded with events and many cold mailboxes,
+ * all processed by a single thread. The cold mailboxes either receive events
+ * or wait for responses from the hot mailbox.
+ */
+public class FairnessTest extends TestCase {
+    private static final int HOT = 1000;
+    private static final int COLD = 20;
+
+    public void testUnlimited() throws Exception {
+        //The cold mailboxes wait until the hot mailbox is empty.
+        assertEquals(HOT, run(0, 0L, 0L));
+    }
+
+    public void testBatchLimit() throws Exception {
+        //The hot mailbox yields after 10 events, before any cold mailbox is processed.
+        assertEquals(10, run(10, 0L, 0L));
+    }
+
+    public void testTimeSlice() throws Exception {
+        //The hot mailbox yields after 1ms, well before it has processed all its events.
+        assertTrue(run(0, 1000000L, 10000L) < HOT / 2);
+    }
+
+    public void testBatchLimitCountsMessages() throws Exception {
+        //The task is never run, so the events are only dispatched under the test's control.
+        ThreadManager threadManager = new ThreadManager() {
+            @Override
+            public void start(int threadCount, ThreadFactory threadFactory) {
+            }
+
+            @Override
+            public void process(Runnable runnable) {
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        JAEventQueue<ArrayList<Object>> eventQueue = new JAEventQueue<ArrayList<Object>>(threadManager, false);
+        eventQueue.setDispatchLimits(10, 0L);
+        final int[] dispatched = new int[1];
+        eventQueue.setActiveEventProcessor(new EventProcessor<ArrayList<Object>>() {
+            @Override
+            public void haveEvents() {
+            }
+
+            @Override
+            public void processEvent(ArrayList<Object> event) {
+                dispatched[0] += event.size();
+            }
+        });
+        int i = 0;
+        while (i < 10) {
+            ArrayList<Object> bufferedEvents = new ArrayList<Object>();
+            int j = 0;
+            while (j < 4) {
+                bufferedEvents.add(Tick.req);
+                j += 1;
+            }
+            eventQueue.putEvent(bufferedEvents);
+            i += 1;
+        }
+        //3 lists of 4 messages use up a budget of 10 messages.
+        assertTrue(eventQueue.acquireControl(eventQueue));
+        eventQueue.dispatchEvents();
+        eventQueue.relinquishControl();
+        assertEquals(12, dispatched[0]);
+    }
+
+    public void testUnlimitedResponses() throws Exception {
+        //The responses of the hot mailbox are held until it is empty.
+        assertEquals(HOT + COLD, call(0, 0L));
+    }
+
+    public void testBatchLimitResponses() throws Exception {
+        //The hot mailbox sends its responses each time it yields, ahead of its flood.
+        assertTrue(call(10, 0L) < HOT / 2);
+    }
+
+    /**
+     * Queue one request from each cold mailbox in the hot mailbox, then flood the hot mailbox.
+     *
+     * @return The largest number of hot ticks processed before a response was received.
+     */
+    private int call(int batchLimit, long timeSlice) throws Exception {
+        JAMailboxFactory mailboxFactory = JAMailboxFactory.newMailboxFactory(1);
+        mailboxFactory.setDispatchLimits(batchLimit, timeSlice);
+        try {
+            CountDownLatch gate = new CountDownLatch(1);
+            CountDownLatch start = new CountDownLatch(1);
+            CountDownLatch done = new CountDownLatch(COLD);
+            Hot hot = new Hot(mailboxFactory.createAsyncMailbox(), gate, 0L);
+            Caller[] callers = new Caller[COLD];
+            int i = 0;
+            while (i < COLD) {
+                callers[i] = new Caller(mailboxFactory.createAsyncMailbox(), hot, start, done);
+                i += 1;
+            }
+            //The first caller holds the thread until every caller has been sent a tick,
+            //so the requests of the callers reach the hot mailbox ahead of the flood.
+            JAEvent event = new JAEvent();
+            i = 0;
+            while (i < COLD) {
+                event.sendEvent(callers[i], Tick.req);
+                i += 1;
+            }
+            start.countDown();
+            while (!hot.entered)
+                Thread.yield();
+            i = 0;
+            while (i < HOT) {
+                event.sendEvent(hot, Tick.req);
+                i += 1;
+            }
+            gate.countDown();
+            assertTrue(done.await(10, TimeUnit.SECONDS));
+            int max = 0;
+            i = 0;
+            while (i < COLD) {
+                max = Math.max(max, callers[i].hotCount);
+                i += 1;
+            }
+            System.out.println("batch limit " + batchLimit + ", time slice " + timeSlice +
+                    ": " + max + " hot ticks before a response");
+            return max;
+        } finally {
+            mailboxFactory.close();
+        }
+    }
+
+    /**
+     * Flood the hot mailbox, then send one event to each cold mailbox.
+     *
+     * @return The largest number of hot events processed before a cold event.
+     */
+    private int run(int batchLimit, long timeSlice, long spinNanos) throws Exception {
+        JAMailboxFactory mailboxFactory = JAMailboxFactory.newMailboxFactory(1);
+        mailboxFactory.setDispatchLimits(batchLimit, timeSlice);
+        try {
+            CountDownLatch gate = new CountDownLatch(1);
+            CountDownLatch done = new CountDownLatch(COLD);
+            Hot hot = new Hot(mailboxFactory.createAsyncMailbox(), gate, spinNanos);
+            Cold[] colds = new Cold[COLD];
+            int i = 0;
+            while (i < COLD) {
+                colds[i] = new Cold(mailboxFactory.createAsyncMailbox(), hot, done);
+                i += 1;
+            }
+            JAEvent event = new JAEvent();
+            i = 0;
+            while (i < HOT) {
+                event.sendEvent(hot, Tick.req);
+                i += 1;
+            }
+            i = 0;
+            while (i < COLD) {
+                event.sendEvent(colds[i], Tick.req);
+                i += 1;
+            }
+            long t0 = System.nanoTime();
+            gate.countDown();
+            assertTrue(done.await(10, TimeUnit.SECONDS));
+            long t1 = System.nanoTime();
+            int max = 0;
+            i = 0;
+            while (i < COLD) {
+                max = Math.max(max, colds[i].hotCount);
+                i += 1;
+            }
+            System.out.println("batch limit " + batchLimit + ", time slice " + timeSlice +
+                    ": " + max + " hot events before a cold event, cold latency " + (t1 - t0) / 1000 + " us");
+            return max;
+        } finally {
+            mailboxFactory.close();
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package org.agilewiki.jactor.fairnessTest;
+
+import org.agilewiki.jactor.Mailbox;
+import org.agilewiki.jactor.RP;
+
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Test code: waits for the gate on the first tick, then spins on each tick.
+ * Ticks are counted whether they are events or requests.
+ */
+final public class Hot extends Ticker {
+    private final CountDownLatch gate;
+    private final long spinNanos;
+    public volatile int count;
+    public volatile boolean entered;
+
+    public Hot(Mailbox mailbox, CountDownLatch gate, long spinNanos) {
+        super(mailbox);
+        this.gate = gate;
+        this.spinNanos = spinNanos;
+    }
+
+    @Override
+    public void tick(RP rp) throws Exception {
+        entered = true;
+        gate.await();
+        long end = System.nanoTime() + spinNanos;
+        while (System.nanoTime() < end) ;
+        count += 1;
+        rp.processResponse(null);
+    }
+}
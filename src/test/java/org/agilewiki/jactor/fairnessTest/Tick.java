@@ -0,0 +1,24 @@
+package org.agilewiki.jactor.fairnessTest;
+
+import org.agilewiki.jactor.Actor;
+import org.agilewiki.jactor.RP;
+import org.agilewiki.jactor.lpc.JLPCActor;
+import org.agilewiki.jactor.lpc.Request;
+
+/**
+ * Test code.
+ */
+final public class Tick extends Request<Object, Ticker> {
+    public final static Tick req = new Tick();
+
+    @Override
+    public void processRequest(JLPCActor targetActor, RP rp) throws Exception {
+        Ticker a = (Ticker) targetActor;
+        a.tick(rp);
+    }
+
+    @Override
+    public boolean isTargetType(Actor targetActor) {
+        return targetActor instanceof Ticker;
+    }
+}
@@ -0,0 +1,128 @@
+package org.agilewiki.jactor.futureTest;
+
+import junit.framework.TestCase;
+import org.agilewiki.jactor.JAFuture;
+import org.agilewiki.jactor.JAMailboxFactory;
+import org.agilewiki.jactor.MailboxFactory;
+import org.agilewiki.jactor.timeoutTest.Release;
+import org.agilewiki.jactor.timeoutTest.Stall;
+import org.agilewiki.jactor.timeoutTest.Staller;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Test code: the spin-then-park handshake of JAFuture.
+ */
+public class FutureTest extends TestCase {
+    public void testSpin() throws Exception {
+        MailboxFactory mailboxFactory = JAMailboxFactory.newMailboxFactory(1);
+        try {
+            Staller staller = new Staller(mailboxFactory.createAsyncMailbox());
+            JAFuture future = new JAFuture();
+            int i = 0;
+            while (i < 10000) {
+                assertEquals(0, (int) Release.req.send(future, staller));
+                i += 1;
+            }
+        } finally {
+            mailboxFactory.close();
+        }
+    }
+
+    public void testParked() throws Exception {
+        MailboxFactory mailboxFactory = JAMailboxFactory.newMailboxFactory(1);
+        try {
+            Staller staller = new Staller(mailboxFactory.createAsyncMailbox());
+            JAFuture future = new JAFuture();
+            int i = 0;
+            while (i < 3) {
+                Releaser releaser = new Releaser(Thread.currentThread(), future, staller);
+                releaser.start();
+                assertEquals("late", Stall.req.send(future, staller));
+                releaser.join(10000);
+                assertNull(releaser.failure.get());
+                assertEquals(i + 1, releaser.answered);
+                i += 1;
+            }
+        } finally {
+            mailboxFactory.close();
+        }
+    }
+
+    public void testTimedParked() throws Exception {
+        MailboxFactory mailboxFactory = JAMailboxFactory.newMailboxFactory(1);
+        try {
+            Staller staller = new Staller(mailboxFactory.createAsyncMailbox());
+            JAFuture future = new JAFuture();
+            Releaser releaser = new Releaser(Thread.currentThread(), future, staller);
+            releaser.start();
+            long start = System.nanoTime();
+            assertEquals("late", Stall.req.send(future, staller, 10, TimeUnit.SECONDS));
+            //Woken by the response, not by the deadline.
+            assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+            releaser.join(10000);
+            assertNull(releaser.failure.get());
+            assertEquals(1, releaser.answered);
+        } finally {
+            mailboxFactory.close();
+        }
+    }
+
+    public void testExpired() throws Exception {
+        MailboxFactory mailboxFactory = JAMailboxFactory.newMailboxFactory(1);
+        try {
+            Staller staller = new Staller(mailboxFactory.createAsyncMailbox());
+            JAFuture future = new JAFuture();
+            long start = System.nanoTime();
+            try {
+                Stall.req.send(future, staller, 20, TimeUnit.MILLISECONDS);
+                fail();
+            } catch (TimeoutException e) {
+            }
+            assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(20));
+            assertFalse(Thread.currentThread().isInterrupted());
+            //The late response is dropped, and the future parks and wakes as before.
+            assertEquals(1, (int) Release.req.send(future, staller));
+            Releaser releaser = new Releaser(Thread.currentThread(), future, staller);
+            releaser.start();
+            assertEquals("late", Stall.req.send(future, staller));
+            releaser.join(10000);
+            assertNull(releaser.failure.get());
+            assertEquals(2, releaser.answered);
+        } finally {
+            mailboxFactory.close();
+        }
+    }
+
+    /**
+     * Test code: releases the stalled request once the sender has parked on the future.
+     */
+    static class Releaser extends Thread {
+        private final Thread sender;
+        private final JAFuture future;
+        private final Staller staller;
+        final AtomicReference<Exception> failure = new AtomicReference<Exception>();
+        volatile int answered;
+
+        Releaser(Thread sender, JAFuture future, Staller staller) {
+            this.sender = sender;
+            this.future = future;
+            this.staller = staller;
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (LockSupport.getBlocker(sender) != future)
+                    Thread.sleep(1);
+                answered = Release.req.send(new JAFuture(), staller);
+            } catch (Exception e) {
+                failure.set(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package org.agilewiki.jactor.iteratorTest;
+
+import junit.framework.TestCase;
+import org.agilewiki.jactor.JAIterator;
+import org.agilewiki.jactor.RP;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Test code: the order in which a restarted iterator runs, relative to the rest of the
+ * response processor which restarted it.
+ */
+public class RestartOrderTest extends TestCase {
+    class It extends JAIterator {
+        final List<String> events = new ArrayList<String>();
+        int runs;
+        int i;
+        RP pending;
+        boolean async;
+
+        @Override
+        protected void process(RP rp) throws Exception {
+            events.add("process " + runs);
+            i += 1;
+            if (i < 2) {
+                rp.processResponse(null);
+                return;
+            }
+            i = 0;
+            if (async)
+                pending = rp;
+            else
+                rp.processResponse(runs);
+        }
+    }
+
+    private RP restart(final It it) {
+        return new RP() {
+            @Override
+            public void processResponse(Object response) throws Exception {
+                it.events.add("response " + response);
+                it.runs += 1;
+                if (it.runs < 2)
+                    it.iterate(this);
+                it.events.add("after iterate " + response);
+            }
+        };
+    }
+
+    /**
+     * A restart made while the loop is on the stack begins after the response processor returns.
+     */
+    public void testSync() throws Exception {
+        It it = new It();
+        it.iterate(restart(it));
+        assertEquals(Arrays.asList(
+                "process 0", "process 0", "response 0", "after iterate 0",
+                "process 1", "process 1", "response 1", "after iterate 1"), it.events);
+    }
+
+    /**
+     * A restart made from an asynchronous response begins before iterate returns.
+     */
+    public void testAsync() throws Exception {
+        It it = new It();
+        it.async = true;
+        it.iterate(restart(it));
+        RP rp = it.pending;
+        it.pending = null;
+        rp.processResponse(0);
+        rp = it.pending;
+        it.pending = null;
+        rp.processResponse(1);
+        assertEquals(Arrays.asList(
+                "process 0", "process 0", "response 0",
+                "process 1", "process 1", "after iterate 0",
+                "response 1", "after iterate 1"), it.events);
+    }
+}
@@ -0,0 +1,87 @@
+package org.agilewiki.jactor.iteratorTest;
+
+import junit.framework.TestCase;
+import org.agilewiki.jactor.JAIterator;
+import org.agilewiki.jactor.RP;
+
+/**
+ * Test code: the stack does not grow when an iterator is restarted by the response processor
+ * of its previous run, whether its iterations complete synchronously or asynchronously.
+ */
+public class StackDepthTest extends TestCase {
+    class It extends JAIterator {
+        int runs;
+        int i;
+        int maxDepth;
+        RP pending;
+
+        @Override
+        protected void process(RP rp) throws Exception {
+            //Any growth would accumulate from run to run, so sampling now and then is enough.
+            if (runs % 1000 == 0) {
+                int depth = Thread.currentThread().getStackTrace().length;
+                if (depth > maxDepth)
+                    maxDepth = depth;
+            }
+            i += 1;
+            if (i == 3) {
+                i = 0;
+                rp.processResponse(runs);
+            } else if (i == 2 && runs % 10000 == 0)
+                pending = rp;
+            else
+                rp.processResponse(null);
+        }
+    }
+
+    public void test() throws Exception {
+        final int count = 100000;
+        final It it = new It();
+        RP restart = new RP() {
+            @Override
+            public void processResponse(Object response) throws Exception {
+                assertEquals(it.runs, response);
+                it.runs += 1;
+                if (it.runs < count)
+                    it.iterate(this);
+            }
+        };
+        it.iterate(restart);
+        while (it.pending != null) {
+            RP rp = it.pending;
+            it.pending = null;
+            rp.processResponse(null);
+        }
+        assertEquals(count, it.runs);
+        int base = Thread.currentThread().getStackTrace().length;
+        assertTrue("depth " + (it.maxDepth - base), it.maxDepth - base < 20);
+    }
+
+    public void testException() throws Exception {
+        JAIterator it = new JAIterator() {
+            int i;
+
+            @Override
+            protected void process(RP rp) throws Exception {
+                i += 1;
+                if (i == 2)
+                    throw new IllegalStateException();
+                rp.processResponse(i < 4 ? null : (Object) i);
+            }
+        };
+        final Object[] result = new Object[1];
+        RP rp = new RP() {
+            @Override
+            public void processResponse(Object response) throws Exception {
+                result[0] = response;
+            }
+        };
+        try {
+            it.iterate(rp);
+            fail();
+        } catch (IllegalStateException e) {
+        }
+        it.iterate(rp);
+        assertEquals(4, result[0]);
+    }
+}
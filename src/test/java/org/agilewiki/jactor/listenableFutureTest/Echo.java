@@ -0,0 +1,28 @@
+package org.agilewiki.jactor.listenableFutureTest;
+
+import org.agilewiki.jactor.Actor;
+import org.agilewiki.jactor.RP;
+import org.agilewiki.jactor.lpc.JLPCActor;
+import org.agilewiki.jactor.lpc.Request;
+
+/**
+ * Test code: returns its value, fails when negative and is never answered when 0.
+ */
+final public class Echo extends Request<Integer, Echoer> {
+    public final int value;
+
+    public Echo(int value) {
+        this.value = value;
+    }
+
+    @Override
+    public void processRequest(JLPCActor targetActor, RP rp) throws Exception {
+        Echoer a = (Echoer) targetActor;
+        a.echo(value, rp);
+    }
+
+    @Override
+    public boolean isTargetType(Actor targetActor) {
+        return targetActor instanceof Echoer;
+    }
+}
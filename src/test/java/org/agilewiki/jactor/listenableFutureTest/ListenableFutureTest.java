@@ -0,0 +1,104 @@
+package org.agilewiki.jactor.listenableFutureTest;
+
+import junit.framework.TestCase;
+import org.agilewiki.jactor.JAListenableFuture;
+import org.agilewiki.jactor.JAMailboxFactory;
+import org.agilewiki.jactor.MailboxFactory;
+import org.agilewiki.jactor.RP;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Test code: sending requests without blocking.
+ */
+public class ListenableFutureTest extends TestCase {
+    public void testGet() throws Exception {
+        MailboxFactory mailboxFactory = JAMailboxFactory.newMailboxFactory(1);
+        try {
+            Echoer echoer = new Echoer(mailboxFactory.createAsyncMailbox());
+            assertEquals(42, (int) new Echo(42).sendAsync(echoer).get());
+            try {
+                new Echo(-1).sendAsync(echoer).get();
+                fail();
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof IllegalArgumentException);
+            }
+            try {
+                new Echo(0).sendAsync(echoer).get(10, TimeUnit.MILLISECONDS);
+                fail();
+            } catch (TimeoutException e) {
+            }
+        } finally {
+            mailboxFactory.close();
+        }
+    }
+
+    public void testListeners() throws Exception {
+        MailboxFactory mailboxFactory = JAMailboxFactory.newMailboxFactory(2);
+        try {
+            Echoer echoer = new Echoer(mailboxFactory.createAsyncMailbox());
+            final int n = 1000;
+            final AtomicInteger sum = new AtomicInteger();
+            final CountDownLatch done = new CountDownLatch(n);
+            RP listener = new RP() {
+                @Override
+                public void processResponse(Object response) throws Exception {
+                    sum.addAndGet((Integer) response);
+                    done.countDown();
+                }
+            };
+            //All the requests are in flight at once.
+            int i = 1;
+            while (i <= n) {
+                new Echo(i).sendAsync(echoer).addListener(listener);
+                i += 1;
+            }
+            assertTrue(done.await(10, TimeUnit.SECONDS));
+            assertEquals(n * (n + 1) / 2, sum.get());
+            //A listener added once the future is complete is run immediately.
+            JAListenableFuture<Integer> future = new Echo(7).sendAsync(echoer);
+            future.get();
+            final Object[] response = new Object[1];
+            future.addListener(new RP() {
+                @Override
+                public void processResponse(Object r) throws Exception {
+                    response[0] = r;
+                }
+            });
+            assertEquals(7, response[0]);
+        } finally {
+            mailboxFactory.close();
+        }
+    }
+
+    public void testCancel() throws Exception {
+        MailboxFactory mailboxFactory = JAMailboxFactory.newMailboxFactory(1);
+        try {
+            Echoer echoer = new Echoer(mailboxFactory.createAsyncMailbox());
+            final Object[] response = new Object[1];
+            JAListenableFuture<Integer> future = new Echo(0).sendAsync(echoer).addListener(new RP() {
+                @Override
+                public void processResponse(Object r) throws Exception {
+                    response[0] = r;
+                }
+            });
+            assertTrue(future.cancel(false));
+            assertTrue(future.isCancelled());
+            assertTrue(future.isDone());
+            assertTrue(response[0] instanceof CancellationException);
+            try {
+                future.get();
+                fail();
+            } catch (CancellationException e) {
+            }
+            assertFalse(future.cancel(false));
+        } finally {
+            mailboxFactory.close();
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package org.agilewiki.jactor.lpc;
+
+import junit.framework.TestCase;
+import org.agilewiki.jactor.*;
+
+/**
+ * Test code: deeply nested synchronous sends leave no more than
+ * MAX_SYNC_RESPONSE_PROCESSORS response processors in the mailbox.
+ */
+public class SyncPoolTest extends TestCase {
+    public void test() throws Exception {
+        MailboxFactory mailboxFactory = JAMailboxFactory.newMailboxFactory(1);
+        try {
+            JLPCMailbox mailbox = (JLPCMailbox) mailboxFactory.createMailbox();
+            int depth = 4 * JLPCMailbox.MAX_SYNC_RESPONSE_PROCESSORS;
+            Actor a = new A(mailbox);
+            int i = 0;
+            while (i < depth) {
+                a = new S(mailbox, a);
+                i += 1;
+            }
+            JAFuture future = new JAFuture();
+            assertSame(SimpleRequest.req, SimpleRequest.req.send(future, a));
+            assertEquals(JLPCMailbox.MAX_SYNC_RESPONSE_PROCESSORS, mailbox.syncResponseProcessors.size());
+            assertSame(SimpleRequest.req, SimpleRequest.req.send(future, a));
+            assertEquals(JLPCMailbox.MAX_SYNC_RESPONSE_PROCESSORS, mailbox.syncResponseProcessors.size());
+        } finally {
+            mailboxFactory.close();
+        }
+    }
+
+    class S extends JLPCActor implements SimpleRequestReceiver {
+        Actor n;
+
+        S(Mailbox mailbox, Actor n) {
+            super(mailbox);
+            this.n = n;
+        }
+
+        @Override
+        public void processRequest(SimpleRequest request, final RP rp) throws Exception {
+            send(n, request, rp);
+        }
+    }
+
+    class A extends JLPCActor implements SimpleRequestReceiver {
+
+        A(Mailbox mailbox) {
+            super(mailbox);
+        }
+
+        @Override
+        public void processRequest(SimpleRequest request, RP rp) throws Exception {
+            rp.processResponse(request);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package org.agilewiki.jactor.lpc.timingTest;
+
+import junit.framework.TestCase;
+import org.agilewiki.jactor.*;
+
+/**
+ * Compares mailboxes using a ConcurrentLinkedQueue with those using a JAMPSCQueue,
+ * and with those which also recycle message envelopes.
+ */
+public class QueueTimingTest extends TestCase {
+    public void testTiming() throws Exception {
+        int c = 2;
+        int b = 3;
+        int p = 4;
+        int t = 4;
+
+        //int c = 50000;
+        //int b = 1000;
+        //int p = 32;
+        //int t = 32;
+
+        run("ConcurrentLinkedQueue", 0, 0, c, b, p, t);
+        run("JAMPSCQueue", 1024, 0, c, b, p, t);
+        run("JAMPSCQueue recycling", 1024, b + 10, c, b, p, t);
+    }
+
+    private void run(String name, int chunkSize, int poolSize, int c, int b, int p, int t)
+            throws Exception {
+        JAMailboxFactory mailboxFactory = JAMailboxFactory.newMailboxFactory(t);
+        mailboxFactory.setArrayQueueChunkSize(chunkSize);
+        mailboxFactory.setRecyclingPoolSize(poolSize);
+        try {
+            Actor[] senders = new Actor[p];
+            int i = 0;
+            while (i < p) {
+                Actor echo = new Echo(mailboxFactory.createAsyncMailbox());
+                echo.setInitialBufferCapacity(b + 10);
+                Mailbox senderMailbox = mailboxFactory.createAsyncMailbox();
+                if (b == 1) senders[i] = new Sender1(senderMailbox, echo, c, b);
+                else senders[i] = new Sender(senderMailbox, echo, c, b);
+                senders[i].setInitialBufferCapacity(b + 10);
+                i += 1;
+            }
+            JAParallel parallel = new JAParallel(mailboxFactory.createMailbox(), senders);
+            JAFuture future = new JAFuture();
+            RealRequest.req.send(future, parallel);
+            RealRequest.req.send(future, parallel);
+            long a0 = AllocationCounter.allThreadsBytes();
+            long t0 = System.currentTimeMillis();
+            RealRequest.req.send(future, parallel);
+            long t1 = System.currentTimeMillis();
+            long a1 = AllocationCounter.allThreadsBytes();
+            long messages = 2L * c * b * p;
+            System.out.println("[" + name + "] " + messages + " messages sent with " + t + " threads.");
+            if (t1 != t0)
+                System.out.println("[" + name + "] msgs per sec = " + (messages * 1000L / (t1 - t0)));
+            if (a0 >= 0)
+                System.out.println("[" + name + "] bytes allocated per msg = " + ((a1 - a0) / messages));
+        } finally {
+            mailboxFactory.close();
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package org.agilewiki.jactor.lpc.timingTest;
+
+import junit.framework.TestCase;
+import org.agilewiki.jactor.*;
+import org.agilewiki.jactor.concurrent.JAThreadManager;
+import org.agilewiki.jactor.concurrent.JAWorkStealingThreadManager;
+import org.agilewiki.jactor.concurrent.ThreadManager;
+
+/**
+ * Compares JAThreadManager with JAWorkStealingThreadManager.
+ */
+public class ThreadManagerTimingTest extends TestCase {
+    public void testTiming() throws Exception {
+        int c = 2;
+        int b = 3;
+        int p = 4;
+        int t = 4;
+
+        //int c = 50000;
+        //int b = 1000;
+        //int p = 32;
+        //int t = 32;
+
+        run("JAThreadManager", JAThreadManager.newThreadManager(t), c, b, p, t, false);
+        run("JAWorkStealingThreadManager", JAWorkStealingThreadManager.newThreadManager(t), c, b, p, t, false);
+        run("JAThreadManager async", JAThreadManager.newThreadManager(t), c, b, p, t, true);
+        run("JAWorkStealingThreadManager async", JAWorkStealingThreadManager.newThreadManager(t), c, b, p, t, true);
+    }
+
+    private void run(String name, ThreadManager threadManager, int c, int b, int p, int t, boolean async)
+            throws Exception {
+        MailboxFactory mailboxFactory = new JAMailboxFactory(threadManager);
+        try {
+            Actor[] senders = new Actor[p];
+            int i = 0;
+            while (i < p) {
+                Mailbox echoMailbox = async ?
+                        mailboxFactory.createAsyncMailbox() :
+                        mailboxFactory.createMailbox();
+                Actor echo = new Echo(echoMailbox);
+                echo.setInitialBufferCapacity(b + 10);
+                Mailbox senderMailbox = mailboxFactory.createAsyncMailbox();
+                if (b == 1) senders[i] = new Sender1(senderMailbox, echo, c, b);
+                else senders[i] = new Sender(senderMailbox, echo, c, b);
+                senders[i].setInitialBufferCapacity(b + 10);
+                i += 1;
+            }
+            JAParallel parallel = new JAParallel(mailboxFactory.createMailbox(), senders);
+            JAFuture future = new JAFuture();
+            RealRequest.req.send(future, parallel);
+            RealRequest.req.send(future, parallel);
+            long t0 = System.currentTimeMillis();
+            RealRequest.req.send(future, parallel);
+            long t1 = System.currentTimeMillis();
+            System.out.println("[" + name + "] " + (2L * c * b * p) + " messages sent with " + t + " threads.");
+            if (t1 != t0)
+                System.out.println("[" + name + "] msgs per sec = " + ((2L * c * b * p) * 1000L / (t1 - t0)));
+        } finally {
+            mailboxFactory.close();
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package org.agilewiki.jactor.metricsTest;
+
+import junit.framework.TestCase;
+import org.agilewiki.jactor.JAFuture;
+import org.agilewiki.jactor.JAMailboxFactory;
+import org.agilewiki.jactor.Mailbox;
+import org.agilewiki.jactor.metrics.Histogram;
+import org.agilewiki.jactor.metrics.MailboxMetrics;
+import org.agilewiki.jactor.recyclingTest.Ping;
+import org.agilewiki.jactor.recyclingTest.Pinger;
+import org.agilewiki.jactor.recyclingTest.Ponger;
+import org.agilewiki.jactor.recyclingTest.Run;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+
+/**
+ * Test code: mailbox metrics.
+ */
+public class MetricsTest extends TestCase {
+    public void testDisabled() throws Exception {
+        JAMailboxFactory mailboxFactory = JAMailboxFactory.newMailboxFactory(1);
+        try {
+            assertNull(mailboxFactory.createMailbox().getMetrics());
+        } finally {
+            mailboxFactory.close();
+        }
+    }
+
+    public void testAsync() throws Exception {
+        JAMailboxFactory mailboxFactory = JAMailboxFactory.newMailboxFactory(2);
+        mailboxFactory.setMetricsEnabled(true);
+        try {
+            Mailbox pongerMailbox = mailboxFactory.createAsyncMailbox();
+            Ponger ponger = new Ponger(pongerMailbox);
+            Pinger pinger = new Pinger(mailboxFactory.createMailbox(), ponger, Ping.req, 10);
+            Run.req.send(new JAFuture(), pinger);
+            MailboxMetrics metrics = pongerMailbox.getMetrics();
+            assertEquals(10, metrics.getEnqueued());
+            assertEquals(10, metrics.getDispatched());
+            assertEquals(0, metrics.getQueueDepth());
+            assertEquals(0, metrics.getCommandeerHits());
+            assertEquals(10, metrics.getCommandeerMisses());
+            assertEquals(10, metrics.getWaitTime().getCount());
+            assertEquals(10, metrics.getProcessingTime().getCount());
+
+            //Only the metrics of mailboxes passed to registerMetrics are published.
+            assertNull(metrics.getObjectName());
+            mailboxFactory.registerMetrics(pongerMailbox, "ponger");
+            MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+            assertTrue(mBeanServer.isRegistered(metrics.getObjectName()));
+            assertEquals(10L, mBeanServer.getAttribute(metrics.getObjectName(), "Dispatched"));
+            mailboxFactory.close();
+            assertNull(metrics.getObjectName());
+        } finally {
+            mailboxFactory.close();
+        }
+    }
+
+    public void testRegistration() throws Exception {
+        JAMailboxFactory mailboxFactory = JAMailboxFactory.newMailboxFactory(1);
+        mailboxFactory.setMetricsEnabled(true);
+        try {
+            Mailbox mailbox = mailboxFactory.createMailbox();
+            mailboxFactory.registerMetrics(mailbox, "a");
+            MailboxMetrics metrics = mailbox.getMetrics();
+            MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+            assertTrue(mBeanServer.isRegistered(metrics.getObjectName()));
+            try {
+                mailboxFactory.registerMetrics(mailboxFactory.createMailbox(), "a");
+                fail();
+            } catch (Exception e) {
+            }
+            ObjectName objectName = metrics.getObjectName();
+            mailboxFactory.unregisterMetrics(mailbox);
+            assertNull(metrics.getObjectName());
+            assertFalse(mBeanServer.isRegistered(objectName));
+        } finally {
+            mailboxFactory.close();
+        }
+    }
+
+    public void testCommandeer() throws Exception {
+        JAMailboxFactory mailboxFactory = JAMailboxFactory.newMailboxFactory(2);
+        mailboxFactory.setMetricsEnabled(true);
+        try {
+            Mailbox pongerMailbox = mailboxFactory.createMailbox();
+            Ponger ponger = new Ponger(pongerMailbox);
+            Pinger pinger = new Pinger(mailboxFactory.createMailbox(), ponger, Ping.req, 10);
+            Run.req.send(new JAFuture(), pinger);
+            MailboxMetrics metrics = pongerMailbox.getMetrics();
+            //Control is taken once, then held while the pinger sends its remaining requests.
+            assertEquals(1, metrics.getCommandeerHits());
+            assertEquals(0, metrics.getCommandeerMisses());
+            assertEquals(0, metrics.getDispatched());
+        } finally {
+            mailboxFactory.close();
+        }
+    }
+
+    public void testHistogram() {
+        Histogram histogram = new Histogram();
+        assertEquals(0, histogram.getPercentile(50));
+        int i = 1;
+        while (i <= 100) {
+            histogram.record(i);
+            i += 1;
+        }
+        assertEquals(100, histogram.getCount());
+        assertEquals(50, histogram.getMean());
+        assertEquals(100, histogram.getMax());
+        assertEquals(63, histogram.getPercentile(50));
+        assertEquals(100, histogram.getPercentile(99));
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+    }
+}
@@ -0,0 +1,29 @@
+package org.agilewiki.jactor.priorityTest;
+
+import org.agilewiki.jactor.Mailbox;
+import org.agilewiki.jactor.RP;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Test code: returns how many hot ticks preceded its own tick.
+ */
+final public class Cold extends Ticker {
+    private final AtomicInteger count;
+    private final CountDownLatch done;
+    public volatile int hotCount;
+
+    public Cold(Mailbox mailbox, AtomicInteger count, CountDownLatch done) {
+        super(mailbox);
+        this.count = count;
+        this.done = done;
+    }
+
+    @Override
+    public void tick(RP rp) throws Exception {
+        hotCount = count.get();
+        done.countDown();
+        rp.processResponse(hotCount);
+    }
+}
@@ -0,0 +1,32 @@
+package org.agilewiki.jactor.priorityTest;
+
+import org.agilewiki.jactor.Mailbox;
+import org.agilewiki.jactor.RP;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Test code: waits for the gate on the first tick, then spins on each tick.
+ */
+final public class Hot extends Ticker {
+    private final CountDownLatch gate;
+    private final long spinNanos;
+    private final AtomicInteger count;
+
+    public Hot(Mailbox mailbox, CountDownLatch gate, long spinNanos, AtomicInteger count) {
+        super(mailbox);
+        this.gate = gate;
+        this.spinNanos = spinNanos;
+        this.count = count;
+    }
+
+    @Override
+    public void tick(RP rp) throws Exception {
+        gate.await();
+        long end = System.nanoTime() + spinNanos;
+        while (System.nanoTime() < end) ;
+        count.incrementAndGet();
+        rp.processResponse(null);
+    }
+}
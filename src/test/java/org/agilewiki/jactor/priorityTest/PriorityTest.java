@@ -0,0 +1,135 @@
+package org.agilewiki.jactor.priorityTest;
+
+import junit.framework.TestCase;
+import org.agilewiki.jactor.JAEvent;
+import org.agilewiki.jactor.JAListenableFuture;
+import org.agilewiki.jactor.JAMailboxFactory;
+import org.agilewiki.jactor.Mailbox;
+import org.agilewiki.jactor.RP;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Test code: priority requests overtake a backlog of other requests,
+ * all processed by a single thread.
+ */
+public class PriorityTest extends TestCase {
+    private static final int HOT = 1000;
+    private static final int HOTS = 20;
+
+    public void testMailbox() throws Exception {
+        //A request waits behind the backlog of its mailbox.
+        assertEquals(HOT, sameMailbox(Tick.req));
+        //A priority request is processed next.
+        assertTrue(sameMailbox(Tick.urgent) <= 1);
+    }
+
+    public void testThreadManager() throws Exception {
+        //With a batch limit of 1, a mailbox waits for every busy mailbox to process one event.
+        assertEquals(HOTS, otherMailbox(Tick.req));
+        //A mailbox with a priority request is run next.
+        assertTrue(otherMailbox(Tick.urgent) <= 1);
+    }
+
+    public void testResponse() throws Exception {
+        //The response to a priority request is not held back until the backlog is processed.
+        JAMailboxFactory mailboxFactory = JAMailboxFactory.newMailboxFactory(1);
+        try {
+            CountDownLatch gate = new CountDownLatch(1);
+            final AtomicInteger count = new AtomicInteger();
+            Mailbox mailbox = mailboxFactory.createAsyncMailbox();
+            Hot hot = new Hot(mailbox, gate, 100000L, count);
+            Cold cold = new Cold(mailbox, count, new CountDownLatch(1));
+            JAEvent event = new JAEvent();
+            int i = 0;
+            while (i < HOT) {
+                event.sendEvent(hot, Tick.req);
+                i += 1;
+            }
+            //The priority request is queued behind the backlog before the backlog is released.
+            final AtomicInteger countAtResponse = new AtomicInteger(-1);
+            JAListenableFuture<Integer> future = JAListenableFuture.send(cold, Tick.urgent);
+            future.addListener(new RP() {
+                @Override
+                public void processResponse(Object response) throws Exception {
+                    countAtResponse.set(count.get());
+                }
+            });
+            gate.countDown();
+            int hotCount = future.get(10, TimeUnit.SECONDS);
+            assertTrue(hotCount <= 1);
+            assertTrue(countAtResponse.get() < HOT / 2);
+        } finally {
+            mailboxFactory.close();
+        }
+    }
+
+    /**
+     * Flood a mailbox, then send a request to another actor with the same mailbox.
+     *
+     * @return The number of hot events processed before the request.
+     */
+    private int sameMailbox(Tick tick) throws Exception {
+        JAMailboxFactory mailboxFactory = JAMailboxFactory.newMailboxFactory(1);
+        try {
+            CountDownLatch gate = new CountDownLatch(1);
+            CountDownLatch done = new CountDownLatch(1);
+            AtomicInteger count = new AtomicInteger();
+            Mailbox mailbox = mailboxFactory.createAsyncMailbox();
+            Hot hot = new Hot(mailbox, gate, 0L, count);
+            Cold cold = new Cold(mailbox, count, done);
+            JAEvent event = new JAEvent();
+            int i = 0;
+            while (i < HOT) {
+                event.sendEvent(hot, Tick.req);
+                i += 1;
+            }
+            event.sendEvent(cold, tick);
+            gate.countDown();
+            assertTrue(done.await(10, TimeUnit.SECONDS));
+            return cold.hotCount;
+        } finally {
+            mailboxFactory.close();
+        }
+    }
+
+    /**
+     * Flood many mailboxes, then send a request to an actor with an idle mailbox.
+     *
+     * @return The number of hot events processed before the request.
+     */
+    private int otherMailbox(Tick tick) throws Exception {
+        JAMailboxFactory mailboxFactory = JAMailboxFactory.newMailboxFactory(1);
+        mailboxFactory.setDispatchLimits(1, 0L);
+        try {
+            CountDownLatch gate = new CountDownLatch(1);
+            CountDownLatch done = new CountDownLatch(1);
+            AtomicInteger count = new AtomicInteger();
+            Hot[] hots = new Hot[HOTS];
+            int i = 0;
+            while (i < HOTS) {
+                hots[i] = new Hot(mailboxFactory.createAsyncMailbox(), gate, 0L, count);
+                i += 1;
+            }
+            Cold cold = new Cold(mailboxFactory.createAsyncMailbox(), count, done);
+            JAEvent event = new JAEvent();
+            int j = 0;
+            while (j < HOT / HOTS) {
+                i = 0;
+                while (i < HOTS) {
+                    event.sendEvent(hots[i], Tick.req);
+                    i += 1;
+                }
+                j += 1;
+            }
+            event.sendEvent(cold, tick);
+            gate.countDown();
+            assertTrue(done.await(10, TimeUnit.SECONDS));
+            return cold.hotCount;
+        } finally {
+            mailboxFactory.close();
+        }
+    }
+}
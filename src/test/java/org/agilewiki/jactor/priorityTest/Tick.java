@@ -0,0 +1,36 @@
+package org.agilewiki.jactor.priorityTest;
+
+import org.agilewiki.jactor.Actor;
+import org.agilewiki.jactor.RP;
+import org.agilewiki.jactor.lpc.JLPCActor;
+import org.agilewiki.jactor.lpc.Request;
+
+/**
+ * Test code.
+ */
+final public class Tick extends Request<Integer, Ticker> {
+    public final static Tick req = new Tick(false);
+    public final static Tick urgent = new Tick(true);
+
+    private final boolean priority;
+
+    private Tick(boolean priority) {
+        this.priority = priority;
+    }
+
+    @Override
+    public boolean isPriority() {
+        return priority;
+    }
+
+    @Override
+    public void processRequest(JLPCActor targetActor, RP rp) throws Exception {
+        Ticker a = (Ticker) targetActor;
+        a.tick(rp);
+    }
+
+    @Override
+    public boolean isTargetType(Actor targetActor) {
+        return targetActor instanceof Ticker;
+    }
+}
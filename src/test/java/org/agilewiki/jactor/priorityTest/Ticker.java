@@ -0,0 +1,16 @@
+package org.agilewiki.jactor.priorityTest;
+
+import org.agilewiki.jactor.Mailbox;
+import org.agilewiki.jactor.RP;
+import org.agilewiki.jactor.lpc.JLPCActor;
+
+/**
+ * Test code.
+ */
+abstract public class Ticker extends JLPCActor {
+    public Ticker(Mailbox mailbox) {
+        super(mailbox);
+    }
+
+    abstract public void tick(RP rp) throws Exception;
+}
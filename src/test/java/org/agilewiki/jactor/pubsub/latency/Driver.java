@@ -15,7 +15,9 @@ public class Driver extends JLPCActor implements Src {
     public int r;
     public int s;
     public JAPublisher pub;
+    public long[] latencies;
     private int count;
+    private long t0;
     private Publish publish = new Publish(Ping.req);
 
     public Driver(final Mailbox mailbox) {
@@ -29,6 +31,7 @@ public class Driver extends JLPCActor implements Src {
                 return;
             }
             count += 1;
+            t0 = System.nanoTime();
             erp.sync = false;
             erp.async = false;
             publish.send(this, pub, erp);
@@ -57,6 +60,8 @@ public class Driver extends JLPCActor implements Src {
             ExtendedResponseProcessor<Integer> erp = new ExtendedResponseProcessor<Integer>() {
                 @Override
                 public void processResponse(Integer response) throws Exception {
+                    if (latencies != null)
+                        latencies[count - 1] = System.nanoTime() - t0;
                     if (!async)
                         sync = true;
                     else
@@ -0,0 +1,45 @@
+package org.agilewiki.jactor.pubsub.latency;
+
+import junit.framework.TestCase;
+import org.agilewiki.jactor.*;
+import org.agilewiki.jactor.concurrent.IdleStrategy;
+import org.agilewiki.jactor.concurrent.JAThreadManager;
+import org.agilewiki.jactor.pubsub.publisher.JAPublisher;
+
+/**
+ * Reports publish latency for each idle strategy, when the publisher
+ * and subscribers run on a different thread than the driver.
+ */
+public class HandoffLatencyTest extends TestCase {
+    public void test() throws Exception {
+
+        int r = 10;
+        int s = 1;
+
+        //int r = 1000000;
+        //int s = 1;
+
+        run(IdleStrategy.BLOCKING, r, s);
+        run(IdleStrategy.spinYieldPark(1000, 100), r, s);
+        run(IdleStrategy.BUSY_SPIN, r, s);
+    }
+
+    private void run(IdleStrategy idleStrategy, int r, int s) throws Exception {
+        MailboxFactory mailboxFactory =
+                new JAMailboxFactory(JAThreadManager.newThreadManager(2, idleStrategy));
+        try {
+            Driver driver = new Driver(mailboxFactory.createAsyncMailbox());
+            driver.r = r;
+            driver.s = s;
+            JAFuture future = new JAFuture();
+            driver.pub = new JAPublisher(mailboxFactory.createAsyncMailbox());
+            Go.req.send(future, driver);
+            driver.pub = new JAPublisher(mailboxFactory.createAsyncMailbox());
+            driver.latencies = new long[r];
+            Go.req.send(future, driver);
+            LatencyReport.print(idleStrategy.toString(), driver.latencies);
+        } finally {
+            mailboxFactory.close();
+        }
+    }
+}
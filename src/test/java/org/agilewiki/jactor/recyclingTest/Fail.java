@@ -0,0 +1,23 @@
+package org.agilewiki.jactor.recyclingTest;
+
+import org.agilewiki.jactor.Actor;
+import org.agilewiki.jactor.RP;
+import org.agilewiki.jactor.lpc.JLPCActor;
+import org.agilewiki.jactor.lpc.Request;
+
+final public class Fail extends Request<Object, Ponger> {
+    public final static Fail req = new Fail();
+
+    final Exception exception = new Exception("fail");
+
+    @Override
+    public void processRequest(JLPCActor targetActor, RP rp) throws Exception {
+        Ponger a = (Ponger) targetActor;
+        a.processRequest(this, rp);
+    }
+
+    @Override
+    public boolean isTargetType(Actor targetActor) {
+        return targetActor instanceof Ponger;
+    }
+}
@@ -0,0 +1,21 @@
+package org.agilewiki.jactor.recyclingTest;
+
+import org.agilewiki.jactor.Actor;
+import org.agilewiki.jactor.RP;
+import org.agilewiki.jactor.lpc.JLPCActor;
+import org.agilewiki.jactor.lpc.Request;
+
+final public class Measure extends Request<Long, SyncDriver> {
+    public final static Measure req = new Measure();
+
+    @Override
+    public void processRequest(JLPCActor targetActor, RP rp) throws Exception {
+        SyncDriver a = (SyncDriver) targetActor;
+        a.processRequest(this, rp);
+    }
+
+    @Override
+    public boolean isTargetType(Actor targetActor) {
+        return targetActor instanceof SyncDriver;
+    }
+}
@@ -0,0 +1,62 @@
+package org.agilewiki.jactor.recyclingTest;
+
+import org.agilewiki.jactor.ExceptionHandler;
+import org.agilewiki.jactor.Mailbox;
+import org.agilewiki.jactor.RP;
+import org.agilewiki.jactor.lpc.JLPCActor;
+import org.agilewiki.jactor.lpc.Request;
+
+/**
+ * Test code: sends a request to a Ponger, waiting for each response before sending the next.
+ * The same RP and ExceptionHandler are used for every request, so that the test itself
+ * allocates nothing per round trip.
+ */
+final public class Pinger extends JLPCActor {
+    private final Ponger ponger;
+    private final Request<Object, Ponger> request;
+    private final int count;
+    private int i;
+    private int exceptions;
+    private RP done;
+
+    private final RP next = new RP() {
+        @Override
+        public void processResponse(Object response) throws Exception {
+            next();
+        }
+    };
+
+    private final ExceptionHandler exceptionHandler = new ExceptionHandler() {
+        @Override
+        public void process(Exception exception) throws Exception {
+            exceptions += 1;
+            next();
+        }
+    };
+
+    public Pinger(Mailbox mailbox, Ponger ponger, Request<Object, Ponger> request, int count) {
+        super(mailbox);
+        this.ponger = ponger;
+        this.request = request;
+        this.count = count;
+    }
+
+    public void processRequest(Run req, RP rp) throws Exception {
+        done = rp;
+        i = 0;
+        exceptions = 0;
+        next();
+    }
+
+    private void next() throws Exception {
+        if (i == count) {
+            RP rp = done;
+            done = null;
+            rp.processResponse(exceptions);
+            return;
+        }
+        i += 1;
+        setExceptionHandler(exceptionHandler);
+        request.send(this, ponger, next);
+    }
+}
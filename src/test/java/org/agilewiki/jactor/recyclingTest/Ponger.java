@@ -0,0 +1,36 @@
+package org.agilewiki.jactor.recyclingTest;
+
+import org.agilewiki.jactor.Mailbox;
+import org.agilewiki.jactor.RP;
+import org.agilewiki.jactor.lpc.JLPCActor;
+
+/**
+ * Test code.
+ */
+final public class Ponger extends JLPCActor {
+    public volatile int recycled;
+
+    public Ponger(Mailbox mailbox) {
+        super(mailbox);
+    }
+
+    public void processRequest(Ping request, RP rp) throws Exception {
+        rp.processResponse(null);
+    }
+
+    public void processRequest(Fail request, RP rp) throws Exception {
+        throw request.exception;
+    }
+
+    /**
+     * The response is passed straight back, so the source may process it
+     * before the request has been processed.
+     */
+    public void processRequest(Urgent request, RP rp) throws Exception {
+        if (getMailbox().getCurrentRequest().isRecyclable())
+            recycled += 1;
+        rp.processResponse(null);
+        Thread.yield();
+        throw request.exception;
+    }
+}
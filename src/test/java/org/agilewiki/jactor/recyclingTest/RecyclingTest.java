@@ -0,0 +1,75 @@
+package org.agilewiki.jactor.recyclingTest;
+
+import junit.framework.TestCase;
+import org.agilewiki.jactor.AllocationCounter;
+import org.agilewiki.jactor.JAFuture;
+import org.agilewiki.jactor.JAMailboxFactory;
+import org.agilewiki.jactor.lpc.Request;
+
+/**
+ * Test code: compares the allocations of asynchronous round trips
+ * with and without envelope recycling.
+ */
+public class RecyclingTest extends TestCase {
+    public void testAllocation() throws Exception {
+        int count = 20000;
+        //int count = 10000000;
+        long plain = bytesPerRoundTrip(0, count);
+        long recycled = bytesPerRoundTrip(256, count);
+        System.out.println("bytes per round trip without recycling = " + plain);
+        System.out.println("bytes per round trip with recycling = " + recycled);
+        if (plain >= 0)
+            assertTrue(recycled * 2 < plain);
+    }
+
+    public void testExceptions() throws Exception {
+        JAMailboxFactory mailboxFactory = JAMailboxFactory.newMailboxFactory(2);
+        mailboxFactory.setRecyclingPoolSize(4);
+        try {
+            Ponger ponger = new Ponger(mailboxFactory.createAsyncMailbox());
+            Pinger pinger = new Pinger(mailboxFactory.createMailbox(), ponger, Fail.req, 100);
+            JAFuture future = new JAFuture();
+            assertEquals(100, Run.req.send(future, pinger).intValue());
+            pinger = new Pinger(mailboxFactory.createMailbox(), ponger, Ping.req, 100);
+            assertEquals(0, Run.req.send(future, pinger).intValue());
+        } finally {
+            mailboxFactory.close();
+        }
+    }
+
+    public void testPriority() throws Exception {
+        JAMailboxFactory mailboxFactory = JAMailboxFactory.newMailboxFactory(2);
+        mailboxFactory.setRecyclingPoolSize(4);
+        try {
+            Ponger ponger = new Ponger(mailboxFactory.createAsyncMailbox());
+            Pinger pinger = new Pinger(mailboxFactory.createMailbox(), ponger, Urgent.req, 1000);
+            JAFuture future = new JAFuture();
+            assertEquals(0, Run.req.send(future, pinger).intValue());
+            assertEquals(0, ponger.recycled);
+        } finally {
+            mailboxFactory.close();
+        }
+    }
+
+    private long bytesPerRoundTrip(int poolSize, int count) throws Exception {
+        JAMailboxFactory mailboxFactory = JAMailboxFactory.newMailboxFactory(2);
+        mailboxFactory.setArrayQueueChunkSize(1024);
+        mailboxFactory.setRecyclingPoolSize(poolSize);
+        try {
+            Ponger ponger = new Ponger(mailboxFactory.createAsyncMailbox());
+            Request<Object, Ponger> ping = Ping.req;
+            Pinger pinger = new Pinger(mailboxFactory.createAsyncMailbox(), ponger, ping, count);
+            JAFuture future = new JAFuture();
+            Run.req.send(future, pinger);
+            Run.req.send(future, pinger);
+            long a0 = AllocationCounter.allThreadsBytes();
+            Run.req.send(future, pinger);
+            long a1 = AllocationCounter.allThreadsBytes();
+            if (a0 < 0)
+                return -1;
+            return (a1 - a0) / count;
+        } finally {
+            mailboxFactory.close();
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package org.agilewiki.jactor.recyclingTest;
+
+import junit.framework.TestCase;
+import org.agilewiki.jactor.AllocationCounter;
+import org.agilewiki.jactor.JAFuture;
+import org.agilewiki.jactor.JAMailboxFactory;
+import org.agilewiki.jactor.Mailbox;
+
+/**
+ * Test code: a request/response round trip between actors sharing a mailbox allocates nothing.
+ */
+public class SyncAllocationTest extends TestCase {
+    public void testSameMailbox() throws Exception {
+        if (!AllocationCounter.isSupported())
+            return;
+        JAMailboxFactory mailboxFactory = JAMailboxFactory.newMailboxFactory(1);
+        try {
+            Mailbox mailbox = mailboxFactory.createMailbox();
+            int count = 100000;
+            SyncDriver driver = new SyncDriver(mailbox, new Ponger(mailbox), count);
+            JAFuture future = new JAFuture();
+            Measure.req.send(future, driver);
+            Measure.req.send(future, driver);
+            long bytes = Measure.req.send(future, driver);
+            System.out.println("bytes allocated by " + count + " same-mailbox round trips = " + bytes);
+            //A few bytes may be allocated by the measurement itself.
+            assertTrue(bytes < count);
+        } finally {
+            mailboxFactory.close();
+        }
+    }
+}
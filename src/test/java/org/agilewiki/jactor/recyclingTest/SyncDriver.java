@@ -0,0 +1,43 @@
+package org.agilewiki.jactor.recyclingTest;
+
+import org.agilewiki.jactor.AllocationCounter;
+import org.agilewiki.jactor.Mailbox;
+import org.agilewiki.jactor.RP;
+import org.agilewiki.jactor.lpc.JLPCActor;
+
+/**
+ * Test code: sends requests to a Ponger which shares the same mailbox,
+ * and returns the number of bytes allocated by the current thread while doing so.
+ */
+final public class SyncDriver extends JLPCActor {
+    private final Ponger ponger;
+    private final int count;
+    private int responses;
+
+    private final RP counter = new RP() {
+        @Override
+        public void processResponse(Object response) throws Exception {
+            responses += 1;
+        }
+    };
+
+    public SyncDriver(Mailbox mailbox, Ponger ponger, int count) {
+        super(mailbox);
+        this.ponger = ponger;
+        this.count = count;
+    }
+
+    public void processRequest(Measure req, RP rp) throws Exception {
+        responses = 0;
+        long a0 = AllocationCounter.currentThreadBytes();
+        int i = 0;
+        while (i < count) {
+            Ping.req.send(this, ponger, counter);
+            i += 1;
+        }
+        long a1 = AllocationCounter.currentThreadBytes();
+        if (responses != count)
+            throw new IllegalStateException("missing responses");
+        rp.processResponse(a1 - a0);
+    }
+}
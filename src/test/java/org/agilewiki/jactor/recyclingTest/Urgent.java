@@ -0,0 +1,28 @@
+package org.agilewiki.jactor.recyclingTest;
+
+import org.agilewiki.jactor.Actor;
+import org.agilewiki.jactor.RP;
+import org.agilewiki.jactor.lpc.JLPCActor;
+import org.agilewiki.jactor.lpc.Request;
+
+final public class Urgent extends Request<Object, Ponger> {
+    public final static Urgent req = new Urgent();
+
+    final Exception exception = new Exception("after responding");
+
+    @Override
+    public boolean isPriority() {
+        return true;
+    }
+
+    @Override
+    public void processRequest(JLPCActor targetActor, RP rp) throws Exception {
+        Ponger a = (Ponger) targetActor;
+        a.processRequest(this, rp);
+    }
+
+    @Override
+    public boolean isTargetType(Actor targetActor) {
+        return targetActor instanceof Ponger;
+    }
+}
@@ -0,0 +1,28 @@
+package org.agilewiki.jactor.routerTest;
+
+import org.agilewiki.jactor.Actor;
+import org.agilewiki.jactor.RP;
+import org.agilewiki.jactor.lpc.JLPCActor;
+import org.agilewiki.jactor.lpc.Request;
+
+/**
+ * Test code: adds to the count of a shard, failing when negative.
+ */
+final public class Add extends Request<Object, Shard> {
+    public final long number;
+
+    public Add(long number) {
+        this.number = number;
+    }
+
+    @Override
+    public void processRequest(JLPCActor targetActor, RP rp) throws Exception {
+        Shard a = (Shard) targetActor;
+        a.add(number, rp);
+    }
+
+    @Override
+    public boolean isTargetType(Actor targetActor) {
+        return targetActor instanceof Shard;
+    }
+}
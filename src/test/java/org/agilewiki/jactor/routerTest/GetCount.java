@@ -0,0 +1,24 @@
+package org.agilewiki.jactor.routerTest;
+
+import org.agilewiki.jactor.Actor;
+import org.agilewiki.jactor.RP;
+import org.agilewiki.jactor.lpc.JLPCActor;
+import org.agilewiki.jactor.lpc.Request;
+
+/**
+ * Test code: returns the count of a shard.
+ */
+final public class GetCount extends Request<Long, Shard> {
+    public static final GetCount req = new GetCount();
+
+    @Override
+    public void processRequest(JLPCActor targetActor, RP rp) throws Exception {
+        Shard a = (Shard) targetActor;
+        a.getCount(rp);
+    }
+
+    @Override
+    public boolean isTargetType(Actor targetActor) {
+        return targetActor instanceof Shard;
+    }
+}
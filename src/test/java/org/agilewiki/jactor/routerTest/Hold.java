@@ -0,0 +1,24 @@
+package org.agilewiki.jactor.routerTest;
+
+import org.agilewiki.jactor.Actor;
+import org.agilewiki.jactor.RP;
+import org.agilewiki.jactor.lpc.JLPCActor;
+import org.agilewiki.jactor.lpc.Request;
+
+/**
+ * Test code: is not answered until a Release.
+ */
+final public class Hold extends Request<Shard, Shard> {
+    public static final Hold req = new Hold();
+
+    @Override
+    public void processRequest(JLPCActor targetActor, RP rp) throws Exception {
+        Shard a = (Shard) targetActor;
+        a.hold(rp);
+    }
+
+    @Override
+    public boolean isTargetType(Actor targetActor) {
+        return targetActor instanceof Shard;
+    }
+}
@@ -0,0 +1,24 @@
+package org.agilewiki.jactor.routerTest;
+
+import org.agilewiki.jactor.Actor;
+import org.agilewiki.jactor.RP;
+import org.agilewiki.jactor.lpc.JLPCActor;
+import org.agilewiki.jactor.lpc.Request;
+
+/**
+ * Test code: answers the pending Hold.
+ */
+final public class Release extends Request<Object, Shard> {
+    public static final Release req = new Release();
+
+    @Override
+    public void processRequest(JLPCActor targetActor, RP rp) throws Exception {
+        Shard a = (Shard) targetActor;
+        a.release(rp);
+    }
+
+    @Override
+    public boolean isTargetType(Actor targetActor) {
+        return targetActor instanceof Shard;
+    }
+}
@@ -0,0 +1,134 @@
+package org.agilewiki.jactor.routerTest;
+
+import junit.framework.TestCase;
+import org.agilewiki.jactor.JAFuture;
+import org.agilewiki.jactor.JAListenableFuture;
+import org.agilewiki.jactor.JAMailboxFactory;
+import org.agilewiki.jactor.MailboxFactory;
+import org.agilewiki.jactor.router.JARouter;
+import org.agilewiki.jactor.router.Route;
+import org.agilewiki.jactor.router.RoutingPolicy;
+import org.agilewiki.jactor.router.Scatter;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Test code.
+ */
+public class RouterTest extends TestCase {
+    private Shard[] shards(MailboxFactory mailboxFactory, int count) {
+        Shard[] shards = new Shard[count];
+        int i = 0;
+        while (i < count) {
+            shards[i] = new Shard(mailboxFactory.createMailbox());
+            i += 1;
+        }
+        return shards;
+    }
+
+    /**
+     * Totals the counts of the shards.
+     */
+    static class Total extends Scatter<Long> {
+        Total() {
+            super(GetCount.req);
+        }
+
+        @Override
+        protected Long gather(List<Object> responses) {
+            long total = 0;
+            for (Object response : responses)
+                total += (Long) response;
+            return total;
+        }
+    }
+
+    public void testKeyHash() throws Exception {
+        MailboxFactory mailboxFactory = JAMailboxFactory.newMailboxFactory(4);
+        try {
+            JARouter router = new JARouter(mailboxFactory.createMailbox(), RoutingPolicy.KEY_HASH,
+                    shards(mailboxFactory, 4));
+            JAFuture future = new JAFuture();
+            int key = 0;
+            while (key < 100) {
+                new Route<Object>(key, new Add(key)).send(future, router);
+                assertSame(router.getWorker((Object) key),
+                        new Route<Shard>(key, Which.req).send(future, router));
+                key += 1;
+            }
+            assertEquals(4950L, (long) new Total().send(future, router));
+            List<Object> counts = (List<Object>) new Scatter<List<Object>>(GetCount.req).send(future, router);
+            assertEquals(4, counts.size());
+            int i = 0;
+            while (i < 4) {
+                assertEquals(GetCount.req.send(future, router.getWorker(i)), counts.get(i));
+                i += 1;
+            }
+        } finally {
+            mailboxFactory.close();
+        }
+    }
+
+    public void testRoundRobin() throws Exception {
+        MailboxFactory mailboxFactory = JAMailboxFactory.newMailboxFactory(4);
+        try {
+            JARouter router = new JARouter(mailboxFactory.createMailbox(), RoutingPolicy.ROUND_ROBIN,
+                    shards(mailboxFactory, 3));
+            JAFuture future = new JAFuture();
+            int i = 0;
+            while (i < 6) {
+                assertSame(router.getWorker(i % 3), new Route<Shard>(Which.req).send(future, router));
+                i += 1;
+            }
+        } finally {
+            mailboxFactory.close();
+        }
+    }
+
+    public void testLeastLoaded() throws Exception {
+        MailboxFactory mailboxFactory = JAMailboxFactory.newMailboxFactory(4);
+        try {
+            JARouter router = new JARouter(mailboxFactory.createMailbox(), RoutingPolicy.LEAST_LOADED,
+                    shards(mailboxFactory, 3));
+            JAFuture future = new JAFuture();
+            JAListenableFuture<Shard> held = new Route<Shard>(Hold.req).sendAsync(router);
+            //The held request keeps shard 0 busy, so the other requests go to the next least loaded shard.
+            int i = 0;
+            while (i < 3) {
+                assertSame(router.getWorker(1), new Route<Shard>(Which.req).send(future, router));
+                i += 1;
+            }
+            assertFalse(held.isDone());
+            Release.req.send(future, router.getWorker(0));
+            assertSame(router.getWorker(0), held.get(10, TimeUnit.SECONDS));
+            //A failed request no longer counts as outstanding.
+            try {
+                new Route<Object>(new Add(-1)).send(future, router);
+                fail();
+            } catch (IllegalArgumentException e) {
+            }
+            assertSame(router.getWorker(0), new Route<Shard>(Which.req).send(future, router));
+        } finally {
+            mailboxFactory.close();
+        }
+    }
+
+    public void testScatterException() throws Exception {
+        MailboxFactory mailboxFactory = JAMailboxFactory.newMailboxFactory(4);
+        try {
+            JARouter router = new JARouter(mailboxFactory.createMailbox(), RoutingPolicy.KEY_HASH,
+                    shards(mailboxFactory, 4));
+            JAFuture future = new JAFuture();
+            try {
+                new Scatter<List<Object>>(new Add(-1)).send(future, router);
+                fail();
+            } catch (IllegalArgumentException e) {
+            }
+            new Scatter<List<Object>>(new Add(2)).send(future, router);
+            assertEquals(8L, (long) new Total().send(future, router));
+        } finally {
+            mailboxFactory.close();
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package org.agilewiki.jactor.routerTest;
+
+import org.agilewiki.jactor.Mailbox;
+import org.agilewiki.jactor.RP;
+import org.agilewiki.jactor.lpc.JLPCActor;
+
+/**
+ * Test code: one shard of a counter.
+ */
+final public class Shard extends JLPCActor {
+    private long count;
+    private RP held;
+
+    public Shard(Mailbox mailbox) {
+        super(mailbox);
+    }
+
+    public void add(long number, RP rp) throws Exception {
+        if (number < 0)
+            throw new IllegalArgumentException("negative");
+        count += number;
+        rp.processResponse(null);
+    }
+
+    public void getCount(RP rp) throws Exception {
+        rp.processResponse(new Long(count));
+    }
+
+    public void which(RP rp) throws Exception {
+        rp.processResponse(this);
+    }
+
+    public void hold(RP rp) throws Exception {
+        held = rp;
+    }
+
+    public void release(RP rp) throws Exception {
+        RP h = held;
+        held = null;
+        h.processResponse(this);
+        rp.processResponse(null);
+    }
+}
@@ -0,0 +1,24 @@
+package org.agilewiki.jactor.routerTest;
+
+import org.agilewiki.jactor.Actor;
+import org.agilewiki.jactor.RP;
+import org.agilewiki.jactor.lpc.JLPCActor;
+import org.agilewiki.jactor.lpc.Request;
+
+/**
+ * Test code: returns the shard which processed the request.
+ */
+final public class Which extends Request<Shard, Shard> {
+    public static final Which req = new Which();
+
+    @Override
+    public void processRequest(JLPCActor targetActor, RP rp) throws Exception {
+        Shard a = (Shard) targetActor;
+        a.which(rp);
+    }
+
+    @Override
+    public boolean isTargetType(Actor targetActor) {
+        return targetActor instanceof Shard;
+    }
+}
@@ -0,0 +1,32 @@
+package org.agilewiki.jactor.scatterGatherTest;
+
+import org.agilewiki.jactor.Actor;
+import org.agilewiki.jactor.RP;
+import org.agilewiki.jactor.lpc.JLPCActor;
+import org.agilewiki.jactor.lpc.Request;
+
+import java.util.List;
+
+/**
+ * Test code: gathers the echoed values, or only the required number of them.
+ */
+final public class Collect extends Request<List<Object>, Collector> {
+    public final int required;
+    public final int[] values;
+
+    public Collect(int required, int... values) {
+        this.required = required;
+        this.values = values;
+    }
+
+    @Override
+    public void processRequest(JLPCActor targetActor, RP rp) throws Exception {
+        Collector a = (Collector) targetActor;
+        a.collect(required, values, rp);
+    }
+
+    @Override
+    public boolean isTargetType(Actor targetActor) {
+        return targetActor instanceof Collector;
+    }
+}
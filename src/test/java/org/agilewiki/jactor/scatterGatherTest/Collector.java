@@ -0,0 +1,100 @@
+package org.agilewiki.jactor.scatterGatherTest;
+
+import org.agilewiki.jactor.ExceptionHandler;
+import org.agilewiki.jactor.Mailbox;
+import org.agilewiki.jactor.RP;
+import org.agilewiki.jactor.lpc.JLPCActor;
+import org.agilewiki.jactor.parallel.JAScatterGather;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Test code: echoes a value from each echoer and gathers the responses.
+ */
+final public class Collector extends JLPCActor {
+    final Echoer[] echoers;
+    final ArrayList<JAScatterGather<List<Object>>> pool = new ArrayList<JAScatterGather<List<Object>>>();
+    int created;
+    boolean handlerRestored;
+
+    public Collector(Mailbox mailbox, Echoer[] echoers) {
+        super(mailbox);
+        this.echoers = echoers;
+    }
+
+    public void collect(int required, int[] values, RP rp) throws Exception {
+        JAScatterGather<List<Object>> sg;
+        if (pool.isEmpty()) {
+            created += 1;
+            sg = new JAScatterGather<List<Object>>(this, pool) {
+                @Override
+                protected List<Object> gather() {
+                    List<Object> responses = new ArrayList<Object>();
+                    int i = 0;
+                    while (i < getSent()) {
+                        responses.add(getResponse(i));
+                        i += 1;
+                    }
+                    return responses;
+                }
+            };
+        } else
+            sg = pool.remove(pool.size() - 1);
+        sg.start(required, rp);
+        int i = 0;
+        while (i < values.length) {
+            sg.send(echoers[i], new Echo(values[i]));
+            i += 1;
+        }
+        sg.finished();
+    }
+
+    public void sum(int[] values, RP rp) throws Exception {
+        JAScatterGather<Integer> sg = new JAScatterGather<Integer>(this) {
+            int total;
+
+            @Override
+            protected Object accumulate(int index, Object response) {
+                total += (Integer) response;
+                return null;
+            }
+
+            @Override
+            protected Integer gather() {
+                return total;
+            }
+        };
+        sg.start(rp);
+        int i = 0;
+        while (i < values.length) {
+            sg.send(echoers[i], new Echo(values[i]));
+            i += 1;
+        }
+        sg.finished();
+    }
+
+    public void misdirect(RP rp) throws Exception {
+        ExceptionHandler eh = new ExceptionHandler() {
+            @Override
+            public void process(Exception exception) throws Exception {
+                throw exception;
+            }
+        };
+        setExceptionHandler(eh);
+        JAScatterGather<Integer> sg = new JAScatterGather<Integer>(this) {
+            @Override
+            protected Integer gather() {
+                return (Integer) getResponse(0);
+            }
+        };
+        sg.start(rp);
+        try {
+            sg.send(this, new Echo(1));
+        } catch (UnsupportedOperationException e) {
+        }
+        handlerRestored = getExceptionHandler() == eh;
+        sg.send(echoers[0], new Echo(2));
+        sg.finished();
+    }
+}
@@ -0,0 +1,26 @@
+package org.agilewiki.jactor.scatterGatherTest;
+
+import org.agilewiki.jactor.Mailbox;
+import org.agilewiki.jactor.RP;
+import org.agilewiki.jactor.lpc.JLPCActor;
+
+/**
+ * Test code.
+ */
+final public class Echoer extends JLPCActor {
+    public RP stalled;
+
+    public Echoer(Mailbox mailbox) {
+        super(mailbox);
+    }
+
+    public void echo(int value, RP rp) throws Exception {
+        if (value < 0)
+            throw new IllegalArgumentException("negative");
+        if (value == 0) {
+            stalled = rp;
+            return;
+        }
+        rp.processResponse(value);
+    }
+}
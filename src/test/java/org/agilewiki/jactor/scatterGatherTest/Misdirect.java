@@ -0,0 +1,24 @@
+package org.agilewiki.jactor.scatterGatherTest;
+
+import org.agilewiki.jactor.Actor;
+import org.agilewiki.jactor.RP;
+import org.agilewiki.jactor.lpc.JLPCActor;
+import org.agilewiki.jactor.lpc.Request;
+
+/**
+ * Test code: echoes a value, after trying to echo one from the collector itself.
+ */
+final public class Misdirect extends Request<Integer, Collector> {
+    public final static Misdirect req = new Misdirect();
+
+    @Override
+    public void processRequest(JLPCActor targetActor, RP rp) throws Exception {
+        Collector a = (Collector) targetActor;
+        a.misdirect(rp);
+    }
+
+    @Override
+    public boolean isTargetType(Actor targetActor) {
+        return targetActor instanceof Collector;
+    }
+}
@@ -0,0 +1,94 @@
+package org.agilewiki.jactor.scatterGatherTest;
+
+import junit.framework.TestCase;
+import org.agilewiki.jactor.JAFuture;
+import org.agilewiki.jactor.JAMailboxFactory;
+import org.agilewiki.jactor.MailboxFactory;
+import org.agilewiki.jactor.parallel.JAScatterGather;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Test code.
+ */
+public class ScatterGatherTest extends TestCase {
+    private MailboxFactory mailboxFactory;
+    private Collector collector;
+    private JAFuture future;
+
+    @Override
+    protected void setUp() throws Exception {
+        mailboxFactory = JAMailboxFactory.newMailboxFactory(4);
+        Echoer[] echoers = new Echoer[4];
+        int i = 0;
+        while (i < echoers.length) {
+            echoers[i] = new Echoer(mailboxFactory.createMailbox());
+            i += 1;
+        }
+        collector = new Collector(mailboxFactory.createMailbox(), echoers);
+        future = new JAFuture();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        mailboxFactory.close();
+    }
+
+    public void testAll() throws Exception {
+        assertEquals(Arrays.<Object>asList(1, 2, 3, 4),
+                new Collect(JAScatterGather.ALL, 1, 2, 3, 4).send(future, collector));
+        assertEquals(Arrays.<Object>asList(),
+                new Collect(JAScatterGather.ALL).send(future, collector));
+        assertEquals(10, (int) new Sum(1, 2, 3, 4).send(future, collector));
+    }
+
+    public void testFailure() throws Exception {
+        try {
+            new Collect(JAScatterGather.ALL, 1, -2, 3, 4).send(future, collector);
+            fail();
+        } catch (IllegalArgumentException e) {
+        }
+        try {
+            new Sum(1, 2, -3).send(future, collector);
+            fail();
+        } catch (IllegalArgumentException e) {
+        }
+        //Too many failures for the required successes.
+        try {
+            new Collect(3, -1, 2, -3, 4).send(future, collector);
+            fail();
+        } catch (IllegalArgumentException e) {
+        }
+    }
+
+    public void testFirst() throws Exception {
+        //Completes on the first success, without waiting for the requests which are never answered.
+        //When the echoers are called synchronously, the last echoer is not called at all.
+        List<Object> responses = new Collect(1, 0, -2, 3, 0).send(future, collector);
+        assertEquals(Arrays.<Object>asList(null, null, 3), responses.subList(0, 3));
+        //The responses to the failed requests are null.
+        responses = new Collect(2, -1, 2, -3, 4).send(future, collector);
+        assertEquals(Arrays.<Object>asList(null, 2, null, 4), responses);
+    }
+
+    public void testPool() throws Exception {
+        int i = 0;
+        while (i < 10) {
+            new Collect(JAScatterGather.ALL, 1, 2, 3, 4).send(future, collector);
+            new Collect(2, -1, 2, -3, 4).send(future, collector);
+            i += 1;
+        }
+        assertEquals(1, collector.created);
+        //A gather with requests still outstanding is not reused.
+        new Collect(1, 0, 1).send(future, collector);
+        new Collect(1, 0, 1).send(future, collector);
+        assertEquals(2, collector.created);
+    }
+
+    public void testSendFailure() throws Exception {
+        //The request which could not be sent is not counted, and the exception handler is restored.
+        assertEquals(2, (int) Misdirect.req.send(future, collector));
+        assertTrue(collector.handlerRestored);
+    }
+}
@@ -0,0 +1,28 @@
+package org.agilewiki.jactor.scatterGatherTest;
+
+import org.agilewiki.jactor.Actor;
+import org.agilewiki.jactor.RP;
+import org.agilewiki.jactor.lpc.JLPCActor;
+import org.agilewiki.jactor.lpc.Request;
+
+/**
+ * Test code: totals the echoed values as they arrive.
+ */
+final public class Sum extends Request<Integer, Collector> {
+    public final int[] values;
+
+    public Sum(int... values) {
+        this.values = values;
+    }
+
+    @Override
+    public void processRequest(JLPCActor targetActor, RP rp) throws Exception {
+        Collector a = (Collector) targetActor;
+        a.sum(values, rp);
+    }
+
+    @Override
+    public boolean isTargetType(Actor targetActor) {
+        return targetActor instanceof Collector;
+    }
+}
@@ -0,0 +1,137 @@
+package org.agilewiki.jactor.stateMachine;
+
+import junit.framework.TestCase;
+import org.agilewiki.jactor.Actor;
+import org.agilewiki.jactor.RP;
+import org.agilewiki.jactor.lpc.Request;
+
+/**
+ * Test code.
+ */
+public class CompileTest extends TestCase {
+    private Object response;
+
+    private final RP rp = new RP() {
+        @Override
+        public void processResponse(Object response) throws Exception {
+            CompileTest.this.response = response;
+        }
+    };
+
+    private _SMBuilder builder() {
+        return new _SMBuilder() {
+            @Override
+            public void send(Actor actor, Request request, RP rp) throws Exception {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    public void testSlots() throws Exception {
+        _SMBuilder smb = builder();
+        smb._set(1, "a");
+        smb._set(new ObjectFunc() {
+            @Override
+            public Object get(StateMachine sm) {
+                sm.put("extra", 10);
+                return (Integer) sm.get("a") + 1;
+            }
+        }, "b");
+        smb._set(3, "a");
+        smb._return(new ObjectFunc() {
+            @Override
+            public Object get(StateMachine sm) {
+                return (Integer) sm.get("a") + (Integer) sm.get("b") + (Integer) sm.get("extra");
+            }
+        });
+        smb.call(rp);
+        assertEquals(15, response);
+        assertEquals(2, smb.slotsSize());
+        assertEquals(0, smb.getSlot("a"));
+        assertEquals(1, smb.getSlot("b"));
+        assertEquals(-1, smb.getSlot("extra"));
+    }
+
+    public void testGoto() throws Exception {
+        _SMBuilder smb = builder();
+        smb._set(0, "i");
+        smb._label("loop");
+        smb._set(new ObjectFunc() {
+            @Override
+            public Object get(StateMachine sm) {
+                return (Integer) sm.get("i") + 1;
+            }
+        }, "i");
+        smb._if(new BooleanFunc() {
+            @Override
+            public boolean get(StateMachine sm) {
+                return (Integer) sm.get("i") < 5;
+            }
+        }, "loop");
+        smb._goto("end");
+        smb._return(-1);
+        //The end label is not yet defined.
+        try {
+            smb.call(rp);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("unknown label: end", e.getMessage());
+        }
+        //Adding a label recompiles the builder.
+        smb._label("end");
+        smb._return(new ObjectFunc() {
+            @Override
+            public Object get(StateMachine sm) {
+                return sm.get("i");
+            }
+        });
+        smb.call(rp);
+        assertEquals(5, response);
+    }
+
+    private _SMBuilder loop(boolean inline) {
+        _SMBuilder smb = builder();
+        smb.setInline(inline);
+        smb._set(0, "i");
+        smb._set(0, "total");
+        smb._label("loop");
+        smb._if(new BooleanFunc() {
+            @Override
+            public boolean get(StateMachine sm) {
+                return (Integer) sm.get("i") == 10;
+            }
+        }, "end");
+        smb._set(new ObjectFunc() {
+            @Override
+            public Object get(StateMachine sm) {
+                int i = (Integer) sm.get("i");
+                sm.put("total", (Integer) sm.get("total") + i);
+                if (i == 3)
+                    //Skip the increment.
+                    sm.go("four");
+                return i + 1;
+            }
+        }, "i");
+        smb._goto("loop");
+        smb._label("four");
+        smb._set(4, "i");
+        smb._if(true, "loop");
+        smb._label("end");
+        smb._return(new ObjectFunc() {
+            @Override
+            public Object get(StateMachine sm) {
+                return sm.get("total");
+            }
+        });
+        smb._return(-1);
+        return smb;
+    }
+
+    public void testInline() throws Exception {
+        loop(true).call(rp);
+        assertEquals(45, response);
+        response = null;
+        loop(false).call(rp);
+        assertEquals(45, response);
+    }
+}
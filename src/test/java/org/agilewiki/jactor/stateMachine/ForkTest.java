@@ -0,0 +1,223 @@
+package org.agilewiki.jactor.stateMachine;
+
+import junit.framework.TestCase;
+import org.agilewiki.jactor.*;
+import org.agilewiki.jactor.lpc.JLPCActor;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Test code: requests sent between _fork and _join are processed concurrently.
+ */
+public class ForkTest extends TestCase {
+    /**
+     * Doubles its request, after waiting for every other Meet sharing its latch to receive a request,
+     * so that the responses are only received when the requests are processed concurrently.
+     * A negative request fails.
+     */
+    class Meet extends JLPCActor implements IntegerReceiver {
+        final CountDownLatch latch;
+        final long delay;
+
+        Meet(Mailbox mailbox, CountDownLatch latch, long delay) {
+            super(mailbox);
+            this.latch = latch;
+            this.delay = delay;
+        }
+
+        @Override
+        public void processRequest(IntegerRequest request, RP rp)
+                throws Exception {
+            if (request.value < 0)
+                throw new IllegalArgumentException("negative");
+            if (latch != null) {
+                latch.countDown();
+                if (!latch.await(10, TimeUnit.SECONDS))
+                    throw new IllegalStateException("not concurrent");
+            }
+            if (delay > 0)
+                Thread.sleep(delay);
+            rp.processResponse(request.value * 2);
+        }
+    }
+
+    /**
+     * Runs the state machine defined by build.
+     */
+    abstract class Driver extends JLPCActor implements SimpleRequestReceiver {
+
+        Driver(Mailbox mailbox) {
+            super(mailbox);
+        }
+
+        abstract void build(SMBuilder smb);
+
+        @Override
+        public void processRequest(SimpleRequest request, RP rp)
+                throws Exception {
+            SMBuilder smb = new SMBuilder();
+            build(smb);
+            smb._return(new ObjectFunc() {
+                @Override
+                public Object get(StateMachine sm) {
+                    return sm.get("rsp");
+                }
+            });
+            smb.call(rp);
+        }
+    }
+
+    private static ObjectFunc sum(final String a, final String b) {
+        return new ObjectFunc() {
+            @Override
+            public Object get(StateMachine sm) {
+                return (Integer) sm.get(a) + (Integer) sm.get(b);
+            }
+        };
+    }
+
+    public void testAll() throws Exception {
+        MailboxFactory mailboxFactory = JAMailboxFactory.newMailboxFactory(4);
+        try {
+            CountDownLatch latch = new CountDownLatch(2);
+            final Meet meet1 = new Meet(mailboxFactory.createAsyncMailbox(), latch, 0);
+            final Meet meet2 = new Meet(mailboxFactory.createAsyncMailbox(), latch, 0);
+            Driver driver = new Driver(mailboxFactory.createMailbox()) {
+                @Override
+                void build(SMBuilder smb) {
+                    smb._fork();
+                    smb._send(meet1, new IntegerRequest(21), "a");
+                    smb._send(meet2, new IntegerRequest(50), "b");
+                    smb._join();
+                    smb._set(sum("a", "b"), "rsp");
+                }
+            };
+            assertEquals(142, SimpleRequest.req.send(new JAFuture(), driver));
+        } finally {
+            mailboxFactory.close();
+        }
+    }
+
+    public void testAny() throws Exception {
+        MailboxFactory mailboxFactory = JAMailboxFactory.newMailboxFactory(4);
+        try {
+            final Meet slow = new Meet(mailboxFactory.createAsyncMailbox(), null, 500);
+            final Meet fast = new Meet(mailboxFactory.createAsyncMailbox(), null, 0);
+            Driver driver = new Driver(mailboxFactory.createMailbox()) {
+                @Override
+                void build(SMBuilder smb) {
+                    smb._fork();
+                    smb._send(slow, new IntegerRequest(2), "rsp");
+                    smb._send(fast, new IntegerRequest(1), "rsp");
+                    smb._join(1);
+                }
+            };
+            assertEquals(2, SimpleRequest.req.send(new JAFuture(), driver));
+        } finally {
+            mailboxFactory.close();
+        }
+    }
+
+    public void testFailure() throws Exception {
+        MailboxFactory mailboxFactory = JAMailboxFactory.newMailboxFactory(4);
+        try {
+            final Meet meet1 = new Meet(mailboxFactory.createAsyncMailbox(), null, 0);
+            final Meet meet2 = new Meet(mailboxFactory.createAsyncMailbox(), null, 0);
+            Driver driver = new Driver(mailboxFactory.createMailbox()) {
+                @Override
+                void build(SMBuilder smb) {
+                    smb._fork();
+                    smb._send(meet1, new IntegerRequest(1), "a");
+                    smb._send(meet2, new IntegerRequest(-1), "b");
+                    smb._join();
+                }
+            };
+            try {
+                SimpleRequest.req.send(new JAFuture(), driver);
+                fail();
+            } catch (IllegalArgumentException e) {
+                assertEquals("negative", e.getMessage());
+            }
+            driver = new Driver(mailboxFactory.createMailbox()) {
+                @Override
+                void build(SMBuilder smb) {
+                    smb._fork();
+                    smb._send(meet1, new IntegerRequest(-1), "rsp");
+                    smb._send(meet2, new IntegerRequest(3), "rsp");
+                    smb._join(1);
+                }
+            };
+            assertEquals(6, SimpleRequest.req.send(new JAFuture(), driver));
+        } finally {
+            mailboxFactory.close();
+        }
+    }
+
+    public void testSync() throws Exception {
+        MailboxFactory mailboxFactory = JAMailboxFactory.newMailboxFactory(1);
+        try {
+            Mailbox mailbox = mailboxFactory.createMailbox();
+            final Meet meet = new Meet(mailbox, null, 0);
+            Driver driver = new Driver(mailbox) {
+                @Override
+                void build(SMBuilder smb) {
+                    smb._set(0, "i");
+                    smb._label("loop");
+                    smb._fork();
+                    smb._send(meet, new IntegerRequest(21), "a");
+                    smb._send(meet, new IntegerRequest(50), "b");
+                    smb._join();
+                    smb._set(new ObjectFunc() {
+                        @Override
+                        public Object get(StateMachine sm) {
+                            return (Integer) sm.get("i") + 1;
+                        }
+                    }, "i");
+                    smb._if(new BooleanFunc() {
+                        @Override
+                        public boolean get(StateMachine sm) {
+                            return (Integer) sm.get("i") < 3;
+                        }
+                    }, "loop");
+                    smb._fork();
+                    smb._send(meet, new IntegerRequest(-1), "a");
+                    smb._send(meet, new IntegerRequest(7), "b");
+                    smb._join(1);
+                    smb._set(sum("i", "b"), "rsp");
+                }
+            };
+            assertEquals(17, SimpleRequest.req.send(new JAFuture(), driver));
+        } finally {
+            mailboxFactory.close();
+        }
+    }
+
+    public void testNotForked() throws Exception {
+        MailboxFactory mailboxFactory = JAMailboxFactory.newMailboxFactory(1);
+        try {
+            Driver driver = new Driver(mailboxFactory.createMailbox()) {
+                @Override
+                void build(SMBuilder smb) {
+                    smb._join();
+                }
+            };
+            try {
+                SimpleRequest.req.send(new JAFuture(), driver);
+                fail();
+            } catch (IllegalStateException e) {
+            }
+            try {
+                new Driver(mailboxFactory.createMailbox()) {
+                    @Override
+                    void build(SMBuilder smb) {
+                    }
+                }.new SMBuilder()._join(0);
+                fail();
+            } catch (IllegalArgumentException e) {
+            }
+        } finally {
+            mailboxFactory.close();
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package org.agilewiki.jactor.stateMachine;
+
+import junit.framework.TestCase;
+import org.agilewiki.jactor.*;
+import org.agilewiki.jactor.lpc.JLPCActor;
+
+/**
+ * Test code: state machines run by a builder with recycling enabled allocate nothing of their own.
+ * The state machines are run on the test thread, which is safe only because no other thread
+ * uses the mailbox.
+ */
+public class RecycleTest extends TestCase {
+    private Object response;
+
+    private final RP rp = new RP() {
+        @Override
+        public void processResponse(Object response) throws Exception {
+            RecycleTest.this.response = response;
+        }
+    };
+
+    class Doubler extends JLPCActor implements IntegerReceiver {
+
+        Doubler(Mailbox mailbox) {
+            super(mailbox);
+        }
+
+        @Override
+        public void processRequest(IntegerRequest request, RP rp)
+                throws Exception {
+            rp.processResponse(request.value * 2);
+        }
+    }
+
+    private long run(JLPCActor.SMBuilder smb, Object request, Object expected, int count) throws Exception {
+        long before = AllocationCounter.currentThreadBytes();
+        int i = 0;
+        while (i < count) {
+            response = null;
+            smb.call(request, rp);
+            assertEquals(expected, response);
+            i += 1;
+        }
+        return AllocationCounter.currentThreadBytes() - before;
+    }
+
+    public void testSend() throws Exception {
+        MailboxFactory mailboxFactory = JAMailboxFactory.newMailboxFactory(1);
+        try {
+            Doubler doubler = new Doubler(mailboxFactory.createMailbox());
+            JLPCActor.SMBuilder smb = doubler.new SMBuilder();
+            smb.setRecycling(4);
+            smb._send(doubler, new IntegerRequest(21), "rsp");
+            smb._return(new ObjectFunc() {
+                @Override
+                public Object get(StateMachine sm) {
+                    return sm.get("rsp");
+                }
+            });
+            int count = 100000;
+            run(smb, null, 42, count);
+            long bytes = run(smb, null, 42, count);
+            System.out.println("bytes allocated by " + count + " recycled _send state machines = " + bytes);
+            if (bytes >= 0)
+                assertTrue(bytes < count);
+        } finally {
+            mailboxFactory.close();
+        }
+    }
+
+    public void testIterator() throws Exception {
+        MailboxFactory mailboxFactory = JAMailboxFactory.newMailboxFactory(1);
+        try {
+            Doubler doubler = new Doubler(mailboxFactory.createMailbox());
+            JLPCActor.SMBuilder smb = doubler.new SMBuilder();
+            smb.setRecycling(4);
+            new _Iterator(smb, "rs") {
+                int i;
+                int r;
+                int max;
+
+                @Override
+                protected void init(StateMachine sm) {
+                    i = 0;
+                    r = 1;
+                    max = ((Integer) sm.request).intValue();
+                }
+
+                @Override
+                protected void process(RP rp2) throws Exception {
+                    if (i >= max) rp2.processResponse(Integer.valueOf(r));
+                    else {
+                        i += 1;
+                        r = r * i;
+                        rp2.processResponse(null);
+                    }
+                }
+            };
+            smb._return(new ObjectFunc() {
+                @Override
+                public Object get(StateMachine sm) {
+                    return sm.get("rs");
+                }
+            });
+            Integer five = 5;
+            int count = 100000;
+            run(smb, five, 120, count);
+            long bytes = run(smb, five, 120, count);
+            System.out.println("bytes allocated by " + count + " recycled _Iterator state machines = " + bytes);
+            if (bytes >= 0)
+                assertTrue(bytes < count);
+        } finally {
+            mailboxFactory.close();
+        }
+    }
+}
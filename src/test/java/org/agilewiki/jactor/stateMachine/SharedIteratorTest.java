@@ -0,0 +1,84 @@
+package org.agilewiki.jactor.stateMachine;
+
+import junit.framework.TestCase;
+import org.agilewiki.jactor.*;
+import org.agilewiki.jactor.lpc.JLPCActor;
+
+/**
+ * Test code: two state machines of one builder wait at the same time in its _Iterator,
+ * each for an asynchronous response.
+ */
+public class SharedIteratorTest extends TestCase {
+    public void test() throws Exception {
+        MailboxFactory mailboxFactory = JAMailboxFactory.newMailboxFactory(2);
+        try {
+            Doubler doubler = new Doubler(mailboxFactory.createAsyncMailbox());
+            Actor actor = new Driver(mailboxFactory.createMailbox(), doubler);
+            JAFuture future = new JAFuture();
+            assertEquals("42,42", SimpleRequest.req.send(future, actor));
+        } finally {
+            mailboxFactory.close();
+        }
+    }
+
+    class Doubler extends JLPCActor implements IntegerReceiver {
+
+        Doubler(Mailbox mailbox) {
+            super(mailbox);
+        }
+
+        @Override
+        public void processRequest(IntegerRequest request, RP rp)
+                throws Exception {
+            rp.processResponse(request.value * 2);
+        }
+    }
+
+    class Driver extends JLPCActor implements SimpleRequestReceiver {
+        private final Doubler doubler;
+
+        Driver(Mailbox mailbox, Doubler doubler) {
+            super(mailbox);
+            this.doubler = doubler;
+        }
+
+        @Override
+        public void processRequest(SimpleRequest request, final RP rp) throws Exception {
+            SMBuilder smb = new SMBuilder();
+            new _Iterator(smb, "rs") {
+                @Override
+                protected void process(final RP rp2) throws Exception {
+                    send(doubler, new IntegerRequest(21), new RP() {
+                        @Override
+                        public void processResponse(Object response) throws Exception {
+                            rp2.processResponse(response);
+                        }
+                    });
+                }
+            };
+            smb._return(new ObjectFunc() {
+                @Override
+                public Object get(StateMachine sm) {
+                    return sm.get("rs");
+                }
+            });
+            final Object[] responses = new Object[2];
+            smb.call(new RP() {
+                @Override
+                public void processResponse(Object response) throws Exception {
+                    responses[0] = response;
+                    if (responses[1] != null)
+                        rp.processResponse(responses[0] + "," + responses[1]);
+                }
+            });
+            smb.call(new RP() {
+                @Override
+                public void processResponse(Object response) throws Exception {
+                    responses[1] = response;
+                    if (responses[0] != null)
+                        rp.processResponse(responses[0] + "," + responses[1]);
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package org.agilewiki.jactor.timeoutTest;
+
+import org.agilewiki.jactor.ExceptionHandler;
+import org.agilewiki.jactor.Mailbox;
+import org.agilewiki.jactor.RP;
+import org.agilewiki.jactor.lpc.JLPCActor;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Test code: sends a request with a timeout to a staller.
+ */
+final public class Client extends JLPCActor {
+    private final Staller staller;
+    private final boolean handleTimeout;
+    private final long timeoutMillis;
+    public volatile int responses;
+
+    public Client(Mailbox mailbox, Staller staller, boolean handleTimeout, long timeoutMillis) {
+        super(mailbox);
+        this.staller = staller;
+        this.handleTimeout = handleTimeout;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    public void call(final RP rp) throws Exception {
+        if (handleTimeout) {
+            setExceptionHandler(new ExceptionHandler() {
+                @Override
+                public void process(Exception exception) throws Exception {
+                    if (!(exception instanceof TimeoutException))
+                        throw exception;
+                    rp.processResponse("timed out");
+                }
+            });
+        }
+        Stall.req.send(this, staller, new RP<String>() {
+            @Override
+            public void processResponse(String response) throws Exception {
+                responses += 1;
+                rp.processResponse(response);
+            }
+        }, timeoutMillis, TimeUnit.MILLISECONDS);
+    }
+}
@@ -0,0 +1,24 @@
+package org.agilewiki.jactor.timeoutTest;
+
+import org.agilewiki.jactor.Actor;
+import org.agilewiki.jactor.RP;
+import org.agilewiki.jactor.lpc.JLPCActor;
+import org.agilewiki.jactor.lpc.Request;
+
+/**
+ * Test code: answers the stalled request, if any, and returns the number answered.
+ */
+final public class Release extends Request<Integer, Staller> {
+    public final static Release req = new Release();
+
+    @Override
+    public void processRequest(JLPCActor targetActor, RP rp) throws Exception {
+        Staller a = (Staller) targetActor;
+        rp.processResponse(a.release());
+    }
+
+    @Override
+    public boolean isTargetType(Actor targetActor) {
+        return targetActor instanceof Staller;
+    }
+}
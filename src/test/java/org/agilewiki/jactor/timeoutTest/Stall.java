@@ -0,0 +1,24 @@
+package org.agilewiki.jactor.timeoutTest;
+
+import org.agilewiki.jactor.Actor;
+import org.agilewiki.jactor.RP;
+import org.agilewiki.jactor.lpc.JLPCActor;
+import org.agilewiki.jactor.lpc.Request;
+
+/**
+ * Test code: a request which is not answered until it is released.
+ */
+final public class Stall extends Request<String, Staller> {
+    public final static Stall req = new Stall();
+
+    @Override
+    public void processRequest(JLPCActor targetActor, RP rp) throws Exception {
+        Staller a = (Staller) targetActor;
+        a.stall(rp);
+    }
+
+    @Override
+    public boolean isTargetType(Actor targetActor) {
+        return targetActor instanceof Staller;
+    }
+}
@@ -0,0 +1,31 @@
+package org.agilewiki.jactor.timeoutTest;
+
+import org.agilewiki.jactor.Mailbox;
+import org.agilewiki.jactor.RP;
+import org.agilewiki.jactor.lpc.JLPCActor;
+
+/**
+ * Test code: holds the response processors of stalled requests.
+ */
+final public class Staller extends JLPCActor {
+    private RP stalled;
+    private int answered;
+
+    public Staller(Mailbox mailbox) {
+        super(mailbox);
+    }
+
+    public void stall(RP rp) {
+        stalled = rp;
+    }
+
+    public int release() throws Exception {
+        if (stalled != null) {
+            RP rp = stalled;
+            stalled = null;
+            rp.processResponse("late");
+            answered += 1;
+        }
+        return answered;
+    }
+}
@@ -0,0 +1,98 @@
+package org.agilewiki.jactor.timeoutTest;
+
+import junit.framework.TestCase;
+import org.agilewiki.jactor.JAFuture;
+import org.agilewiki.jactor.JAMailboxFactory;
+import org.agilewiki.jactor.MailboxFactory;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Test code: requests which time out.
+ */
+public class TimeoutTest extends TestCase {
+    public void testFuture() throws Exception {
+        MailboxFactory mailboxFactory = JAMailboxFactory.newMailboxFactory(1);
+        try {
+            Staller staller = new Staller(mailboxFactory.createAsyncMailbox());
+            JAFuture future = new JAFuture();
+            try {
+                Stall.req.send(future, staller, 20, TimeUnit.MILLISECONDS);
+                fail();
+            } catch (TimeoutException e) {
+            }
+            //The late response is dropped, and does not disturb the next request.
+            assertEquals(1, (int) Release.req.send(future, staller, 10, TimeUnit.SECONDS));
+            assertEquals(1, (int) Release.req.send(future, staller));
+        } finally {
+            mailboxFactory.close();
+        }
+    }
+
+    public void testActor() throws Exception {
+        MailboxFactory mailboxFactory = JAMailboxFactory.newMailboxFactory(1);
+        try {
+            Staller staller = new Staller(mailboxFactory.createAsyncMailbox());
+            Client client = new Client(mailboxFactory.createAsyncMailbox(), staller, false, 50);
+            JAFuture future = new JAFuture();
+            try {
+                Call.req.send(future, client);
+                fail();
+            } catch (TimeoutException e) {
+            }
+            assertEquals(1, (int) Release.req.send(future, staller));
+            Thread.sleep(20);
+            assertEquals(0, client.responses);
+        } finally {
+            mailboxFactory.close();
+        }
+    }
+
+    public void testExceptionHandler() throws Exception {
+        MailboxFactory mailboxFactory = JAMailboxFactory.newMailboxFactory(1);
+        try {
+            Staller staller = new Staller(mailboxFactory.createAsyncMailbox());
+            Client client = new Client(mailboxFactory.createAsyncMailbox(), staller, true, 50);
+            JAFuture future = new JAFuture();
+            assertEquals("timed out", Call.req.send(future, client));
+            assertEquals(1, (int) Release.req.send(future, staller));
+            Thread.sleep(20);
+            assertEquals(0, client.responses);
+        } finally {
+            mailboxFactory.close();
+        }
+    }
+
+    public void testInTime() throws Exception {
+        MailboxFactory mailboxFactory = JAMailboxFactory.newMailboxFactory(2);
+        try {
+            Staller staller = new Staller(mailboxFactory.createAsyncMailbox());
+            final Client client = new Client(mailboxFactory.createAsyncMailbox(), staller, false, 10000);
+            final Object[] result = new Object[1];
+            Thread caller = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        result[0] = Call.req.send(new JAFuture(), client);
+                    } catch (Exception e) {
+                        result[0] = e;
+                    }
+                }
+            });
+            caller.start();
+            //Release the stalled request once it has been received.
+            JAFuture future = new JAFuture();
+            int answered = 0;
+            while (answered == 0) {
+                Thread.sleep(5);
+                answered = Release.req.send(future, staller);
+            }
+            caller.join(10000);
+            assertEquals("late", result[0]);
+            assertEquals(1, client.responses);
+        } finally {
+            mailboxFactory.close();
+        }
+    }
+}
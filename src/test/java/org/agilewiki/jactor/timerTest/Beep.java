@@ -0,0 +1,25 @@
+package org.agilewiki.jactor.timerTest;
+
+import org.agilewiki.jactor.Actor;
+import org.agilewiki.jactor.RP;
+import org.agilewiki.jactor.lpc.JLPCActor;
+import org.agilewiki.jactor.lpc.Request;
+
+/**
+ * Test code.
+ */
+final public class Beep extends Request<Object, Beeper> {
+    public final static Beep req = new Beep();
+
+    @Override
+    public void processRequest(JLPCActor targetActor, RP rp) throws Exception {
+        Beeper a = (Beeper) targetActor;
+        a.beep();
+        rp.processResponse(null);
+    }
+
+    @Override
+    public boolean isTargetType(Actor targetActor) {
+        return targetActor instanceof Beeper;
+    }
+}
@@ -0,0 +1,24 @@
+package org.agilewiki.jactor.timerTest;
+
+import org.agilewiki.jactor.Mailbox;
+import org.agilewiki.jactor.lpc.JLPCActor;
+
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Test code: counts the beeps it receives.
+ */
+final public class Beeper extends JLPCActor {
+    public final CountDownLatch beeped;
+    public volatile int count;
+
+    public Beeper(Mailbox mailbox, int expected) {
+        super(mailbox);
+        beeped = new CountDownLatch(expected);
+    }
+
+    public void beep() {
+        count += 1;
+        beeped.countDown();
+    }
+}
@@ -0,0 +1,173 @@
+package org.agilewiki.jactor.timerTest;
+
+import junit.framework.TestCase;
+import org.agilewiki.jactor.JAMailboxFactory;
+import org.agilewiki.jactor.MailboxFactory;
+import org.agilewiki.jactor.concurrent.JAThreadFactory;
+import org.agilewiki.jactor.concurrent.JATimeout;
+import org.agilewiki.jactor.concurrent.JATimer;
+
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Test code: scheduled and periodic delivery of requests.
+ */
+public class TimerTest extends TestCase {
+    public void testSchedule() throws Exception {
+        MailboxFactory mailboxFactory = JAMailboxFactory.newMailboxFactory(1);
+        try {
+            Beeper beeper = new Beeper(mailboxFactory.createMailbox(), 1);
+            long t0 = System.nanoTime();
+            JATimeout timeout = mailboxFactory.schedule(beeper, Beep.req, 20, TimeUnit.MILLISECONDS);
+            assertTrue(beeper.beeped.await(10, TimeUnit.SECONDS));
+            assertTrue(System.nanoTime() - t0 >= 20000000L);
+            assertTrue(timeout.isExpired());
+            assertFalse(timeout.cancel());
+        } finally {
+            mailboxFactory.close();
+        }
+    }
+
+    public void testCancel() throws Exception {
+        MailboxFactory mailboxFactory = JAMailboxFactory.newMailboxFactory(1);
+        try {
+            Beeper beeper = new Beeper(mailboxFactory.createMailbox(), 1);
+            JATimeout timeout = mailboxFactory.schedule(beeper, Beep.req, 20, TimeUnit.MILLISECONDS);
+            assertTrue(timeout.cancel());
+            assertTrue(timeout.isCancelled());
+            assertFalse(beeper.beeped.await(100, TimeUnit.MILLISECONDS));
+            assertEquals(0, mailboxFactory.getTimer().getOutstanding());
+        } finally {
+            mailboxFactory.close();
+        }
+    }
+
+    public void testClosed() throws Exception {
+        MailboxFactory mailboxFactory = JAMailboxFactory.newMailboxFactory(1);
+        Beeper beeper = new Beeper(mailboxFactory.createMailbox(), 1);
+        mailboxFactory.close();
+        //No timer thread is started once the factory is closed.
+        try {
+            mailboxFactory.schedule(beeper, Beep.req, 20, TimeUnit.MILLISECONDS);
+            fail();
+        } catch (IllegalStateException e) {
+        }
+    }
+
+    public void testPeriodic() throws Exception {
+        MailboxFactory mailboxFactory = JAMailboxFactory.newMailboxFactory(1);
+        try {
+            Beeper beeper = new Beeper(mailboxFactory.createMailbox(), 5);
+            JATimeout timeout = mailboxFactory.scheduleAtFixedRate(beeper, Beep.req, 0, 5, TimeUnit.MILLISECONDS);
+            assertTrue(beeper.beeped.await(10, TimeUnit.SECONDS));
+            assertTrue(timeout.cancel());
+            Thread.sleep(20);
+            int count = beeper.count;
+            Thread.sleep(50);
+            assertEquals(count, beeper.count);
+        } finally {
+            mailboxFactory.close();
+        }
+    }
+
+    /**
+     * Records the ticks on which the first runs of a periodic task were made.
+     */
+    static class Runs implements Runnable {
+        final JATimer timer;
+        final long[] ticks;
+        final CountDownLatch done;
+        int count;
+
+        Runs(JATimer timer, int n) {
+            this.timer = timer;
+            ticks = new long[n];
+            done = new CountDownLatch(n);
+        }
+
+        @Override
+        public void run() {
+            if (count < ticks.length) {
+                ticks[count] = timer.getTick();
+                count += 1;
+                done.countDown();
+            }
+        }
+
+        long maxInterval() {
+            long max = 0L;
+            int i = 1;
+            while (i < ticks.length) {
+                max = Math.max(max, ticks[i] - ticks[i - 1]);
+                i += 1;
+            }
+            return max;
+        }
+    }
+
+    public void testRevolutionPeriod() throws Exception {
+        //A revolution of the wheel is 4 ticks of 20 milliseconds.
+        JATimer timer = new JATimer(20000000L, 4, new JAThreadFactory());
+        try {
+            Runs one = new Runs(timer, 5);
+            Runs three = new Runs(timer, 3);
+            JATimeout t1 = timer.scheduleAtFixedRate(one, 0, 80, TimeUnit.MILLISECONDS);
+            JATimeout t3 = timer.scheduleAtFixedRate(three, 0, 240, TimeUnit.MILLISECONDS);
+            assertTrue(one.done.await(10, TimeUnit.SECONDS));
+            assertTrue(three.done.await(10, TimeUnit.SECONDS));
+            t1.cancel();
+            t3.cancel();
+            //The intervals are measured in the ticks of the timer, as a stalled timer thread catches up
+            //tick by tick. A run a revolution late would add 4 ticks to an interval.
+            assertTrue("interval " + one.maxInterval(), one.maxInterval() <= 4);
+            assertTrue("interval " + three.maxInterval(), three.maxInterval() <= 12);
+        } finally {
+            timer.close();
+        }
+    }
+
+    public void testMany() throws Exception {
+        JATimer timer = new JATimer();
+        try {
+            final int n = 100000;
+            final AtomicInteger ran = new AtomicInteger();
+            final CountDownLatch done = new CountDownLatch(n / 2);
+            Runnable task = new Runnable() {
+                @Override
+                public void run() {
+                    ran.incrementAndGet();
+                    done.countDown();
+                }
+            };
+            //Some of the delays are longer than a revolution of the wheel.
+            Random random = new Random(1);
+            JATimeout[] timeouts = new JATimeout[n];
+            int i = 0;
+            while (i < n) {
+                timeouts[i] = timer.schedule(task, 10 + random.nextInt(1000), TimeUnit.MILLISECONDS);
+                if (i % 2 == 0)
+                    assertTrue(timeouts[i].cancel());
+                i += 1;
+            }
+            assertTrue(done.await(10, TimeUnit.SECONDS));
+            Thread.sleep(50);
+            assertEquals(n / 2, ran.get());
+            i = 0;
+            while (i < n) {
+                if (i % 2 == 0)
+                    assertTrue(timeouts[i].isCancelled());
+                else
+                    assertTrue(timeouts[i].isExpired());
+                i += 1;
+            }
+            //Cancelled timeouts are released within a revolution of the wheel.
+            Thread.sleep(600);
+            assertEquals(0, timer.getOutstanding());
+        } finally {
+            timer.close();
+        }
+    }
+}